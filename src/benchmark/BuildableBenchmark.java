@@ -0,0 +1,126 @@
+package benchmark;
+
+import model.Bom;
+import model.Inventory;
+import model.Outsourced;
+import model.Part;
+import model.Product;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmark of the buildable quantities of the products. It times stock changes of the parts, which keep
+ * the quantities up to date, and compares reading the quantity of every product against working them out
+ * by walking the associate parts of every product.
+ *
+ * <p>It loads 100,000 products with around 20 associate parts each, picked from 50,000 parts.</p>
+ *
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+public class BuildableBenchmark {
+
+    /**
+     * Number of products to load.
+     */
+    private static final int PRODUCTS = 100_000;
+
+    /**
+     * Number of parts to load.
+     */
+    private static final int PARTS = 50_000;
+
+    /**
+     * Average number of associate parts of a product.
+     */
+    private static final int PARTS_PER_PRODUCT = 20;
+
+    /**
+     * Number of stock changes that are timed for each round.
+     */
+    private static final int CHANGES = 100_000;
+
+    /**
+     * Fills the inventory and prints the times of each round.
+     *
+     * @param args not used
+     */
+    public static void main(String[] args) {
+        Random random = new Random(42);
+        Part[] parts = new Part[PARTS];
+        int firstPartId = Inventory.reservePartIds(PARTS);
+
+        List<Part> partList = new ArrayList<>(PARTS);
+        for (int i = 0; i < PARTS; i++) {
+            parts[i] = new Outsourced(firstPartId + i, "Part" + i, 4.99, 500 + random.nextInt(500), 1, 2000,
+                    "Supplier");
+            partList.add(parts[i]);
+        }
+        Inventory.addParts(partList);
+
+        int firstProductId = Inventory.reserveProductIds(PRODUCTS);
+        List<Product> productList = new ArrayList<>(PRODUCTS);
+        for (int i = 0; i < PRODUCTS; i++) {
+            List<Part> associatedParts = new ArrayList<>();
+            int count = PARTS_PER_PRODUCT / 2 + random.nextInt(PARTS_PER_PRODUCT + 1);
+            for (int p = 0; p < count; p++) {
+                associatedParts.add(parts[random.nextInt(PARTS)]);
+            }
+
+            Product product = new Product(firstProductId + i, "Product" + i, 99.99, 5, 1, 10);
+            product.setAssociatedParts(associatedParts);
+            productList.add(product);
+        }
+        Inventory.addProducts(productList);
+
+        for (int round = 1; round <= 5; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < CHANGES; i++) {
+                // every part goes down and back up, so the levels stay between min and max
+                Inventory.adjustPartStock(firstPartId + random.nextInt(PARTS), (i & 1) == 0 ? -1 : 1);
+            }
+            long changed = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            long kept = 0;
+            for (int i = 0; i < PRODUCTS; i++) {
+                kept += Inventory.getBuildableQuantity(firstProductId + i);
+            }
+            long read = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            long walked = 0;
+            for (int i = 0; i < PRODUCTS; i++) {
+                walked += walk(Inventory.lookupByProductID(firstProductId + i));
+            }
+            long scanned = System.nanoTime() - start;
+
+            System.out.printf("round %d: stock change %.2f us, all products read %.1f ms, walked %.1f ms (%s)%n",
+                    round, changed / 1000.0 / CHANGES, read / 1e6, scanned / 1e6,
+                    kept == walked ? "same" : "DIFFERENT");
+        }
+    }
+
+    /**
+     * Works out how many of a product can be built the way it has to be done without the calculator.
+     *
+     * @param product the product
+     * @return the smallest number of whole sets any of its parts gives
+     */
+    private static int walk(Product product) {
+        Bom bom = product.getBom();
+        if (bom.isEmpty()) {
+            return 0;
+        }
+
+        int buildable = Integer.MAX_VALUE;
+        for (int i = 0; i < bom.size(); i++) {
+            Part part = Inventory.lookupByPartID(bom.getPartId(i));
+            int stock = part == null ? 0 : part.getStock();
+            buildable = Math.min(buildable, stock / bom.getQuantity(i));
+        }
+        return buildable;
+    }
+}
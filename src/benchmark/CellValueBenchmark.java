@@ -0,0 +1,116 @@
+package benchmark;
+
+import controller.CellValues;
+import javafx.beans.value.ObservableValue;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.util.Callback;
+import model.Inhouse;
+import model.Part;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.ToLongFunction;
+
+/**
+ * Benchmark of the cell values of the part table. It scrolls a table of {@link #VISIBLE_ROWS} rows through
+ * a million parts and makes the texts of the id, name, stock and price cells of every frame, once with
+ * {@link PropertyValueFactory} and the default cell text and once with {@link CellValues}. It prints the
+ * time and the bytes allocated per frame.
+ *
+ * <p>Argument: the number of parts (defaults to one million).</p>
+ *
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+public class CellValueBenchmark {
+
+    /**
+     * Number of rows the simulated table shows.
+     */
+    private static final int VISIBLE_ROWS = 40;
+
+    /**
+     * Makes the parts and prints the measurements.
+     *
+     * @param args optional number of parts
+     */
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Part[] parts = new Part[count];
+        for (int i = 0; i < count; i++) {
+            parts[i] = new Inhouse(i + 1, "Part" + (i + 1), 0.99 + i % 500, i % 200, 1, 500, i);
+        }
+
+        Callback<TableColumn.CellDataFeatures<Part, Integer>, ObservableValue<Integer>> reflectiveId =
+                new PropertyValueFactory<>("id");
+        Callback<TableColumn.CellDataFeatures<Part, String>, ObservableValue<String>> reflectiveName =
+                new PropertyValueFactory<>("name");
+        Callback<TableColumn.CellDataFeatures<Part, Integer>, ObservableValue<Integer>> reflectiveStock =
+                new PropertyValueFactory<>("stock");
+        Callback<TableColumn.CellDataFeatures<Part, Double>, ObservableValue<Double>> reflectivePrice =
+                new PropertyValueFactory<>("price");
+
+        Callback<TableColumn.CellDataFeatures<Part, Integer>, ObservableValue<Integer>> typedId =
+                CellValues.of(Part::getId);
+        Callback<TableColumn.CellDataFeatures<Part, String>, ObservableValue<String>> typedName =
+                CellValues.of(Part::getName);
+        Callback<TableColumn.CellDataFeatures<Part, Integer>, ObservableValue<Integer>> typedStock =
+                CellValues.of(Part::getStock);
+        Callback<TableColumn.CellDataFeatures<Part, Double>, ObservableValue<Double>> typedPrice =
+                CellValues.of(Part::getPrice);
+
+        for (int round = 1; round <= 3; round++) {
+            measure("PropertyValueFactory", round, parts, part -> {
+                long length = reflectiveId.call(features(part)).getValue().toString().length();
+                length += reflectiveName.call(features(part)).getValue().length();
+                length += reflectiveStock.call(features(part)).getValue().toString().length();
+                return length + reflectivePrice.call(features(part)).getValue().toString().length();
+            });
+            measure("CellValues", round, parts, part -> {
+                long length = CellValues.integerText(typedId.call(features(part)).getValue()).length();
+                length += typedName.call(features(part)).getValue().length();
+                length += CellValues.integerText(typedStock.call(features(part)).getValue()).length();
+                return length + CellValues.priceText(typedPrice.call(features(part)).getValue()).length();
+            });
+        }
+    }
+
+    /**
+     * Makes the cell texts of all the frames and prints the time and bytes per frame.
+     *
+     * @param name name of the cell values
+     * @param round number of the round
+     * @param parts the rows of the table
+     * @param rowTexts makes the texts of the cells of a row and returns their length
+     */
+    private static void measure(String name, int round, Part[] parts, ToLongFunction<Part> rowTexts) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+
+        long bytesBefore = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        long checksum = 0;
+        int frames = 0;
+        for (int top = 0; top + VISIBLE_ROWS <= parts.length; top += VISIBLE_ROWS) {
+            for (int i = top; i < top + VISIBLE_ROWS; i++) {
+                checksum += rowTexts.applyAsLong(parts[i]);
+            }
+            frames++;
+        }
+        long time = System.nanoTime() - start;
+        long bytes = threads.getThreadAllocatedBytes(thread) - bytesBefore;
+
+        System.out.printf("round %d %-20s %d frames, %.1f us per frame, %d bytes per frame [%d]%n", round, name,
+                frames, time / 1e3 / frames, bytes / frames, checksum);
+    }
+
+    /**
+     * @param part a row of the table
+     * @param <T> type of the cell value
+     * @return the cell data of the row, as a table column gives it to its cell value factory
+     */
+    private static <T> TableColumn.CellDataFeatures<Part, T> features(Part part) {
+        return new TableColumn.CellDataFeatures<>(null, null, part);
+    }
+}
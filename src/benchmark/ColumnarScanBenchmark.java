@@ -0,0 +1,78 @@
+package benchmark;
+
+import model.Inhouse;
+import model.Inventory;
+import model.Outsourced;
+import model.Part;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmark that compares the analytic scans over the columnar part data against the same scans over
+ * the list of part objects.
+ *
+ * <p>The parts are added in a shuffled order so the part objects are spread over the heap like they are
+ * in an inventory that was built up over time. The number of parts can be passed as the first argument
+ * and defaults to one million.</p>
+ *
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+public class ColumnarScanBenchmark {
+
+    /**
+     * Fills the inventory and prints the time of a full scan for both layouts.
+     *
+     * @param args optional number of parts
+     */
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Random random = new Random(42);
+        int firstId = Inventory.reservePartIds(count);
+
+        List<Part> newParts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int id = firstId + i;
+            int stock = random.nextInt(100);
+            double price = random.nextInt(10_000) / 100.0;
+            if (random.nextBoolean()) {
+                newParts.add(new Inhouse(id, "Part" + id, price, stock, 10, 100, id));
+            } else {
+                newParts.add(new Outsourced(id, "Part" + id, price, stock, 10, 100, "Supplier" + (id % 100)));
+            }
+        }
+        Collections.shuffle(newParts, random);
+        newParts.forEach(Inventory::addPart);
+
+        List<Part> parts = Inventory.getAllParts();
+        long bytes = (long) parts.size() * (Integer.BYTES + Long.BYTES);
+
+        for (int round = 1; round <= 10; round++) {
+            long start = System.nanoTime();
+            long objectTotal = 0;
+            int objectLow = 0;
+            for (Part part : parts) {
+                objectTotal += Math.round(part.getPrice() * 100) * part.getStock();
+                if (part.getStock() <= part.getMin()) {
+                    objectLow++;
+                }
+            }
+            long objectTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            long[] columnResult = Inventory.scanPartColumns(columns -> {
+                int[] low = new int[1];
+                columns.forEachLowStock(slot -> low[0]++);
+                return new long[] {columns.totalValueCents(), low[0]};
+            });
+            long columnTime = System.nanoTime() - start;
+
+            System.out.printf("round %d: objects %.2f ms, columns %.2f ms (%.1f GB/s over stock and price) [%d/%d %d/%d]%n",
+                    round, objectTime / 1e6, columnTime / 1e6, (double) bytes / columnTime,
+                    objectTotal, columnResult[0], objectLow, columnResult[1]);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package benchmark;
+
+import model.Inhouse;
+import model.Inventory;
+import model.Part;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Multi-threaded benchmark of the inventory. It fills the inventory and then lets a growing number of
+ * threads look up random parts by id, once with lookups only and once with every tenth operation updating
+ * the stock of the part. It prints the operations per second of each run and the speed-up over one thread.
+ *
+ * <p>A single background thread stands in for the JavaFX application thread, so the updates also pay for
+ * keeping the list of the main screen up to date, like in the application.</p>
+ *
+ * <p>Arguments: the number of parts (defaults to one million), the longest run in threads (defaults to twice
+ * the number of processors) and the seconds of each run (defaults to 2). The speed-up can not be larger than
+ * the number of processors of the machine.</p>
+ *
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+public class ConcurrentInventoryBenchmark {
+
+    /**
+     * Fills the inventory, runs the measurements and prints them.
+     *
+     * @param args optional number of parts, most threads and seconds per run
+     * @throws InterruptedException if the main thread is interrupted
+     * @throws ExecutionException if the UI thread fails
+     */
+    public static void main(String[] args) throws InterruptedException, ExecutionException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int processors = Runtime.getRuntime().availableProcessors();
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Math.max(2, processors * 2);
+        long millis = (args.length > 2 ? Long.parseLong(args[2]) : 2) * 1000;
+
+        ExecutorService uiThread = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "ui");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Inventory.projectOnUiThread(uiThread, () -> false);
+
+        int firstId = Inventory.reservePartIds(count);
+        List<Part> parts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            parts.add(new Inhouse(firstId + i, "Part" + i, 2.49, 10, 1, 20, i));
+        }
+        Inventory.addParts(parts);
+
+        // warm up so the first run is not measured while the code is still compiled
+        run(maxThreads, millis, firstId, count, 10);
+        settle(uiThread);
+
+        System.out.printf("%d parts, %d processors%n", count, processors);
+        for (int updatePercent : new int[] {0, 10}) {
+            double single = 0;
+            for (int threads = 1; threads <= maxThreads; threads *= 2) {
+                double perSecond = run(threads, millis, firstId, count, updatePercent);
+                settle(uiThread);
+                if (threads == 1) {
+                    single = perSecond;
+                }
+                System.out.printf("%2d%% updates, %2d threads: %,12.0f ops/s (%.2fx)%n", updatePercent, threads,
+                        perSecond, perSecond / single);
+            }
+        }
+        uiThread.shutdown();
+    }
+
+    /**
+     * Waits until the UI thread applied the changes of the last run and collects the garbage, so the next
+     * run does not pay for the last one.
+     *
+     * @param uiThread the UI thread
+     * @throws InterruptedException if the main thread is interrupted
+     * @throws ExecutionException if the UI thread fails
+     */
+    private static void settle(ExecutorService uiThread) throws InterruptedException, ExecutionException {
+        uiThread.submit(() -> { }).get();
+        System.gc();
+    }
+
+    /**
+     * Runs one measurement.
+     *
+     * @param threads number of threads
+     * @param millis time of the run
+     * @param firstId id of the first part
+     * @param count number of parts
+     * @param updatePercent percent of the operations that update a part
+     * @return operations per second of all threads together
+     * @throws InterruptedException if the main thread is interrupted
+     */
+    private static double run(int threads, long millis, int firstId, int count, int updatePercent)
+            throws InterruptedException {
+        LongAdder operations = new LongAdder();
+        CountDownLatch done = new CountDownLatch(threads);
+        long end = System.nanoTime() + millis * 1_000_000;
+
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long local = 0;
+                while ((local & 1023) != 0 || System.nanoTime() < end) {
+                    int id = firstId + random.nextInt(count);
+                    Part part = Inventory.lookupByPartID(id);
+                    if (random.nextInt(100) < updatePercent) {
+                        Inventory.updatePart(id, new Inhouse(id, part.getName(), part.getPrice(),
+                                random.nextInt(1, 20), part.getMin(), part.getMax(), ((Inhouse) part).getMachineId()));
+                    }
+                    local++;
+                }
+                operations.add(local);
+                done.countDown();
+            });
+            worker.start();
+        }
+
+        done.await();
+        return operations.sum() * 1000.0 / millis;
+    }
+}
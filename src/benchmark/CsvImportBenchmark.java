@@ -0,0 +1,120 @@
+package benchmark;
+
+import model.CsvImporter;
+import model.Inventory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Benchmark of the CSV import. It writes CSV files of in-house parts, outsourced parts and products if
+ * they do not exist yet, imports them and prints the time and the number of rejected rows of each file.
+ * Every thousandth part row has an invalid inventory level so the error report is used too.
+ *
+ * <p>Arguments: the directory of the files (defaults to data/benchmark-csv) and the number of part rows
+ * (defaults to five million, half of them in-house). One product is written for every fifty parts. Run it
+ * with a big heap, for example -Xmx3g.</p>
+ *
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+public class CsvImportBenchmark {
+
+    /**
+     * Writes the files if needed, imports them and prints the measurements.
+     *
+     * @param args optional directory and number of part rows
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        Path directory = Paths.get(args.length > 0 ? args[0] : "data/benchmark-csv");
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 5_000_000;
+
+        Path inHouse = directory.resolve("inhouse.csv");
+        Path outsourced = directory.resolve("outsourced.csv");
+        Path products = directory.resolve("products.csv");
+        if (!Files.exists(products)) {
+            Files.createDirectories(directory);
+            writeParts(inHouse, 1, count / 2, true);
+            writeParts(outsourced, count / 2 + 1, count - count / 2, false);
+            writeProducts(products, count);
+        }
+
+        CsvImporter importer = new CsvImporter();
+        long start = System.nanoTime();
+        run(importer, inHouse, CsvImporter.FileType.IN_HOUSE_PARTS, directory.resolve("inhouse-errors.csv"));
+        run(importer, outsourced, CsvImporter.FileType.OUTSOURCED_PARTS, directory.resolve("outsourced-errors.csv"));
+        run(importer, products, CsvImporter.FileType.PRODUCTS, directory.resolve("products-errors.csv"));
+
+        System.out.printf("imported %d parts and %d products in %.1f s%n", Inventory.getAllParts().size(),
+                Inventory.getProducts().size(), (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Imports one file and prints its summary.
+     *
+     * @param importer the importer
+     * @param csv the file
+     * @param type the kind of the file
+     * @param errors the error report
+     * @throws IOException if a file cannot be read or written
+     */
+    private static void run(CsvImporter importer, Path csv, CsvImporter.FileType type, Path errors)
+            throws IOException {
+        long start = System.nanoTime();
+        CsvImporter.Summary summary = importer.importFile(csv, type, errors);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%s: %d rows in %.1f s (%.0f rows/s), %d rejected%n", csv.getFileName(),
+                summary.getRowsRead(), seconds, summary.getRowsRead() / seconds, summary.getRowsRejected());
+    }
+
+    /**
+     * Writes a file of parts.
+     *
+     * @param file the file
+     * @param firstId id of the first part
+     * @param count number of parts
+     * @param inHouse true for in-house parts, false for outsourced parts
+     * @throws IOException if the file cannot be written
+     */
+    private static void writeParts(Path file, int firstId, int count, boolean inHouse) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write(inHouse ? "id,name,price,stock,min,max,machineId" : "id,name,price,stock,min,max,companyName");
+            out.newLine();
+            for (int i = 0; i < count; i++) {
+                int id = firstId + i;
+                int stock = i % 1000 == 999 ? 50 : 10;
+                out.write(id + ",Part" + id + ",2.49," + stock + ",1,20,");
+                out.write(inHouse ? Integer.toString(id) : "\"Supplier " + (i % 100) + ", Inc.\"");
+                out.newLine();
+            }
+        }
+    }
+
+    /**
+     * Writes a file of products with five associate parts each.
+     *
+     * @param file the file
+     * @param partCount number of parts
+     * @throws IOException if the file cannot be written
+     */
+    private static void writeProducts(Path file, int partCount) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("id,name,price,stock,min,max,parts");
+            out.newLine();
+            for (int i = 0; i < partCount / 50; i++) {
+                out.write(",Product" + i + ",99.99,5,1,10,");
+                for (int j = 0; j < 5; j++) {
+                    int partId = 1 + (i * 7 + j * 131) % partCount;
+                    out.write((j > 0 ? ";" : "") + partId + ":" + (1 + j % 2));
+                }
+                out.newLine();
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package benchmark;
+
+import model.Bom;
+import model.Inhouse;
+import model.Inventory;
+import model.InventoryExporter;
+import model.Outsourced;
+import model.Part;
+import model.Product;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmark of the streaming export. It fills the inventory and exports it as CSV and as binary, once in
+ * a single partition and once in as many partitions as there are processors, and prints the time and the
+ * used heap after each export. A filtered export with the search text "Part1" is measured too.
+ *
+ * <p>Arguments: the directory of the exports (defaults to data/benchmark-export) and the number of parts
+ * (defaults to one million). One product with five associate parts is created for every ten parts.</p>
+ *
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+public class ExportBenchmark {
+
+    /**
+     * Fills the inventory, runs the exports and prints the measurements.
+     *
+     * @param args optional directory and number of parts
+     * @throws IOException if a file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        Path directory = Paths.get(args.length > 0 ? args[0] : "data/benchmark-export");
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        int processors = Runtime.getRuntime().availableProcessors();
+
+        fill(count);
+
+        run(directory.resolve("csv"), new InventoryExporter(InventoryExporter.Format.CSV, null, 1), "csv");
+        run(directory.resolve("csv-parallel"), new InventoryExporter(InventoryExporter.Format.CSV, null, processors),
+                "csv, " + processors + " partitions");
+        run(directory.resolve("binary"), new InventoryExporter(InventoryExporter.Format.BINARY, null, 1), "binary");
+        run(directory.resolve("binary-parallel"),
+                new InventoryExporter(InventoryExporter.Format.BINARY, null, processors),
+                "binary, " + processors + " partitions");
+        run(directory.resolve("filtered"), new InventoryExporter(InventoryExporter.Format.CSV, "Part1", 1),
+                "csv filtered by \"Part1\"");
+    }
+
+    /**
+     * Runs one export and prints its measurements.
+     *
+     * @param directory the directory of the export
+     * @param exporter the exporter
+     * @param label description of the export
+     * @throws IOException if a file cannot be written
+     */
+    private static void run(Path directory, InventoryExporter exporter, String label) throws IOException {
+        long start = System.nanoTime();
+        long exported = exporter.export(directory);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        Runtime runtime = Runtime.getRuntime();
+        System.out.printf("%s: %d records in %.2f s (%.0f records/s), heap used %d MB%n", label, exported,
+                seconds, exported / seconds, (runtime.totalMemory() - runtime.freeMemory()) / 1_000_000);
+    }
+
+    /**
+     * Fills the inventory with parts and products.
+     *
+     * @param count number of parts
+     */
+    private static void fill(int count) {
+        int firstPartId = Inventory.reservePartIds(count);
+        List<Part> parts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int id = firstPartId + i;
+            if (i % 2 == 0) {
+                parts.add(new Inhouse(id, "Part" + id, 2.49, 10, 1, 20, id));
+            } else {
+                parts.add(new Outsourced(id, "Part" + id, 2.49, 10, 1, 20, "Supplier " + (i % 100) + ", Inc."));
+            }
+        }
+        Inventory.addParts(parts);
+
+        int productCount = count / 10;
+        int firstProductId = Inventory.reserveProductIds(productCount);
+        List<Product> products = new ArrayList<>(productCount);
+        for (int i = 0; i < productCount; i++) {
+            Product product = new Product(firstProductId + i, "Product" + i, 99.99, 5, 1, 10);
+            int[] partIds = new int[5];
+            int[] quantities = new int[5];
+            for (int j = 0; j < partIds.length; j++) {
+                partIds[j] = firstPartId + (i * 7 + j * 131) % count;
+                quantities[j] = 1 + j % 2;
+            }
+            product.setBom(Bom.of(partIds, quantities));
+            products.add(product);
+        }
+        Inventory.addProducts(products);
+    }
+}
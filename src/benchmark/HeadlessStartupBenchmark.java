@@ -0,0 +1,48 @@
+package benchmark;
+
+import model.Inhouse;
+import model.Inventory;
+import model.Part;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmark of how fast a process without screens, like a batch job or a server, can start using the
+ * inventory. It loads the sample data and a number of parts, looks one up and prints the time since the
+ * start of the JVM, the number of loaded classes and the used heap.
+ *
+ * <p>Run it with only the compiled classes on the class path. It fails if the inventory would still need
+ * JavaFX. The number of parts can be passed as the first argument and defaults to 100,000.</p>
+ *
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+public class HeadlessStartupBenchmark {
+
+    /**
+     * Loads the inventory and prints the measurements.
+     *
+     * @param args optional number of parts
+     */
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+
+        Inventory.loadSampleData();
+        List<Part> parts = new ArrayList<>(count);
+        int firstId = Inventory.generatePartId();
+        for (int i = 0; i < count; i++) {
+            parts.add(new Inhouse(firstId + i, "Part" + i, 2.49, 10, 1, 20, i));
+        }
+        Inventory.addParts(parts);
+        Part found = Inventory.lookupByPartID(firstId + count / 2);
+
+        long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+        int classes = ManagementFactory.getClassLoadingMXBean().getLoadedClassCount();
+        Runtime runtime = Runtime.getRuntime();
+        System.out.printf("ready after %d ms with %d parts, %d classes loaded, %.1f MB heap used [%s]%n", uptime,
+                Inventory.snapshot().getPartCount(), classes, (runtime.totalMemory() - runtime.freeMemory()) / 1e6,
+                found.getName());
+    }
+}
@@ -0,0 +1,224 @@
+package benchmark;
+
+import model.Inhouse;
+import model.Inventory;
+import model.Part;
+import server.InventoryHttpServer;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Load test of the local HTTP API. A number of clients send requests as fast as they can for some seconds:
+ * nine of ten look up a part by id, the others change the inventory level of a part by one. It prints the
+ * requests per second, the latency percentiles and the number of failed requests.
+ *
+ * <p>Arguments: the address of the API, or {@code embedded} to start one in this process on the sample data
+ * and {@link #PARTS} more parts (the default), the number of clients (defaults to 64) and the number of
+ * seconds (defaults to 10).</p>
+ *
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+public class HttpLoadTest {
+
+    /**
+     * Number of parts that are added to an embedded API.
+     */
+    private static final int PARTS = 100_000;
+
+    /**
+     * Seconds of requests before the measurement starts, so the JIT compiler has done its work.
+     */
+    private static final int WARM_UP_SECONDS = 2;
+
+    /**
+     * Results of one client.
+     */
+    private static final class Client {
+
+        /**
+         * Latency of every measured request in nanoseconds.
+         */
+        private long[] latencies = new long[1 << 16];
+
+        /**
+         * Number of measured requests.
+         */
+        private int count;
+
+        /**
+         * Number of requests that failed or were answered with a server error.
+         */
+        private int failures;
+
+        /**
+         * @param latency latency of a measured request in nanoseconds
+         */
+        private void record(long latency) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latency;
+        }
+    }
+
+    /**
+     * Runs the load test and prints the measurements.
+     *
+     * @param args optional address, number of clients and seconds
+     * @throws Exception if the embedded API cannot be started or a client is interrupted
+     */
+    public static void main(String[] args) throws Exception {
+        String address = args.length > 0 ? args[0] : "embedded";
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        InventoryHttpServer embedded = null;
+        int partCount;
+        if (address.equals("embedded")) {
+            embedded = startEmbedded();
+            address = "http://localhost:" + embedded.getPort();
+            partCount = Inventory.snapshot().getPartCount();
+        } else {
+            partCount = 10;
+        }
+        String base = address.endsWith("/") ? address.substring(0, address.length() - 1) : address;
+
+        HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        AtomicBoolean measuring = new AtomicBoolean();
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Client> results = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+
+        for (int c = 0; c < clients; c++) {
+            Client client = new Client();
+            results.add(client);
+            Thread thread = new Thread(() -> run(http, base, partCount, client, measuring, running), "client-" + c);
+            threads.add(thread);
+            thread.start();
+        }
+
+        Thread.sleep(WARM_UP_SECONDS * 1000L);
+        measuring.set(true);
+        long start = System.nanoTime();
+        Thread.sleep(seconds * 1000L);
+        measuring.set(false);
+        long elapsed = System.nanoTime() - start;
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        int total = 0;
+        int failures = 0;
+        for (Client client : results) {
+            total += client.count;
+            failures += client.failures;
+        }
+        long[] latencies = new long[total];
+        int position = 0;
+        for (Client client : results) {
+            System.arraycopy(client.latencies, 0, latencies, position, client.count);
+            position += client.count;
+        }
+        Arrays.sort(latencies);
+
+        System.out.printf("%d clients, %d requests in %.1f s: %.0f requests/s, %d failed%n", clients, total,
+                elapsed / 1e9, total / (elapsed / 1e9), failures);
+        if (total > 0) {
+            System.out.printf("latency p50 %.2f ms, p99 %.2f ms, p99.9 %.2f ms, max %.2f ms%n",
+                    percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 0.999),
+                    latencies[total - 1] / 1e6);
+        }
+
+        if (embedded != null) {
+            embedded.stop();
+        }
+    }
+
+    /**
+     * Sends requests until the test is over.
+     *
+     * @param http the HTTP client
+     * @param base the address of the API
+     * @param partCount the parts have the ids from 1 to this number
+     * @param client where the results are recorded
+     * @param measuring true while the requests are measured
+     * @param running false once the clients should stop
+     */
+    private static void run(HttpClient http, String base, int partCount, Client client, AtomicBoolean measuring,
+                            AtomicBoolean running) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (running.get()) {
+            int id = 1 + random.nextInt(partCount);
+            HttpRequest request;
+            if (random.nextInt(10) == 0) {
+                String delta = random.nextBoolean() ? "1" : "-1";
+                request = HttpRequest.newBuilder(URI.create(base + "/parts/" + id + "/stock"))
+                        .POST(HttpRequest.BodyPublishers.ofString("{\"delta\":" + delta + "}")).build();
+            } else {
+                request = HttpRequest.newBuilder(URI.create(base + "/parts/" + id)).GET().build();
+            }
+
+            long start = System.nanoTime();
+            boolean failed;
+            try {
+                // a stock change that would leave min or max is answered with 409 and still counts as done
+                failed = http.send(request, HttpResponse.BodyHandlers.ofByteArray()).statusCode() >= 500;
+            } catch (IOException e) {
+                failed = true;
+            } catch (InterruptedException e) {
+                return;
+            }
+            long latency = System.nanoTime() - start;
+
+            if (measuring.get()) {
+                client.record(latency);
+                if (failed) {
+                    client.failures++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Starts an API in this process on the sample data and {@link #PARTS} more parts.
+     *
+     * @return the started API
+     * @throws IOException if the API cannot be started
+     */
+    private static InventoryHttpServer startEmbedded() throws IOException {
+        Inventory.loadSampleData();
+        List<Part> parts = new ArrayList<>(PARTS);
+        int firstId = Inventory.reservePartIds(PARTS);
+        for (int i = 0; i < PARTS; i++) {
+            parts.add(new Inhouse(firstId + i, "Part" + (firstId + i), 2.49, 50, 1, 100, i));
+        }
+        Inventory.addParts(parts);
+
+        InventoryHttpServer.turnOffWriteDelay();
+        InventoryHttpServer api = new InventoryHttpServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        api.start();
+        return api;
+    }
+
+    /**
+     * @param sorted sorted latencies in nanoseconds
+     * @param fraction the percentile as a fraction
+     * @return the latency of the percentile in milliseconds
+     */
+    private static double percentile(long[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * fraction))] / 1e6;
+    }
+}
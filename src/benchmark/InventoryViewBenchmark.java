@@ -0,0 +1,102 @@
+package benchmark;
+
+import model.Inhouse;
+import model.Inventory;
+import model.InventoryView;
+import model.Part;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Benchmark of the views of the inventory. It fills the inventory, measures how long {@link Inventory#snapshot()}
+ * takes and how long a valuation of a whole view takes, and then measures the updates per second of one
+ * writer thread, once alone and once while another thread keeps taking views and valuing them. The writer
+ * only waits for the reader in the rare case that it keeps a view from being taken, so on a machine with more
+ * than one processor both runs should reach about the same speed.
+ *
+ * <p>Arguments: the number of parts (defaults to one million) and the seconds of each run (defaults to 2).</p>
+ *
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+public class InventoryViewBenchmark {
+
+    /**
+     * Fills the inventory, runs the measurements and prints them.
+     *
+     * @param args optional number of parts and seconds per run
+     * @throws InterruptedException if the main thread is interrupted
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        long millis = (args.length > 1 ? Long.parseLong(args[1]) : 2) * 1000;
+
+        int firstId = Inventory.reservePartIds(count);
+        List<Part> parts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            parts.add(new Inhouse(firstId + i, "Part" + i, 2.49, 10, 1, 20, i));
+        }
+        Inventory.addParts(parts);
+
+        int views = 10_000_000;
+        long checksum = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < views; i++) {
+            checksum += Inventory.snapshot().getVersion();
+        }
+        double viewNanos = (System.nanoTime() - start) / (double) views;
+
+        InventoryView view = Inventory.snapshot();
+        view.getTotalPartValue();
+        start = System.nanoTime();
+        double value = view.getTotalPartValue();
+        double scanMillis = (System.nanoTime() - start) / 1e6;
+
+        // warm up so the first run is not measured while the code is still compiled
+        updates(firstId, count, millis);
+
+        System.out.printf("%d parts, %d processors%n", count, Runtime.getRuntime().availableProcessors());
+        System.out.printf("snapshot():          %8.1f ns (checksum %d)%n", viewNanos, checksum);
+        System.out.printf("value of a view:     %8.1f ms (%.2f)%n", scanMillis, value);
+        System.out.printf("updates alone:       %,12.0f /s%n", updates(firstId, count, millis));
+
+        AtomicBoolean stop = new AtomicBoolean();
+        long[] scans = new long[1];
+        Thread reader = new Thread(() -> {
+            while (!stop.get()) {
+                Inventory.snapshot().getTotalPartValue();
+                scans[0]++;
+            }
+        });
+        reader.start();
+        double perSecond = updates(firstId, count, millis);
+        stop.set(true);
+        reader.join();
+        System.out.printf("updates with scans:  %,12.0f /s (%d whole scans meanwhile)%n", perSecond, scans[0]);
+    }
+
+    /**
+     * Updates the stock of random parts for some time on the calling thread.
+     *
+     * @param firstId id of the first part
+     * @param count number of parts
+     * @param millis time of the run
+     * @return updates per second
+     */
+    private static double updates(int firstId, int count, long millis) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long end = System.nanoTime() + millis * 1_000_000;
+        long done = 0;
+        while ((done & 1023) != 0 || System.nanoTime() < end) {
+            int id = firstId + random.nextInt(count);
+            Part part = Inventory.lookupByPartID(id);
+            Inventory.updatePart(id, new Inhouse(id, part.getName(), part.getPrice(),
+                    random.nextInt(1, 20), part.getMin(), part.getMax(), ((Inhouse) part).getMachineId()));
+            done++;
+        }
+        return done * 1000.0 / millis;
+    }
+}
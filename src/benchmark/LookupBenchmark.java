@@ -0,0 +1,101 @@
+package benchmark;
+
+import model.Inhouse;
+import model.Inventory;
+import model.Part;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmark that compares the indexed id lookup of the inventory against a linear scan of the part list.
+ *
+ * <p>The inventory does not need JavaFX, so it runs without the jars of the lib folder. The number of parts
+ * can be passed as the first argument and defaults to one million.</p>
+ *
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+public class LookupBenchmark {
+
+    /**
+     * Number of lookups that are timed for each round.
+     */
+    private static final int LOOKUPS = 2_000_000;
+
+    /**
+     * Number of lookups that are timed for each round of the linear scan.
+     */
+    private static final int SCAN_LOOKUPS = 200;
+
+    /**
+     * Fills the inventory and prints the average time of a lookup for both approaches.
+     *
+     * @param args optional number of parts
+     */
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int firstId = Inventory.getAllParts().size() + 1;
+
+        for (int i = 0; i < count; i++) {
+            int id = firstId + i;
+            Inventory.addPart(new Inhouse(id, "Part" + id, 1.99, 10, 1, 20, id));
+        }
+
+        int[] ids = new int[LOOKUPS];
+        Random random = new Random(42);
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = firstId + random.nextInt(count);
+        }
+
+        System.out.println("parts in inventory: " + Inventory.getAllParts().size());
+
+        for (int round = 1; round <= 5; round++) {
+            long allocatedBefore = allocatedBytes();
+            long start = System.nanoTime();
+            long checksum = 0;
+            for (int id : ids) {
+                checksum += Inventory.lookupByPartID(id).getStock();
+            }
+            long indexed = System.nanoTime() - start;
+            long allocated = allocatedBytes() - allocatedBefore;
+
+            start = System.nanoTime();
+            for (int i = 0; i < SCAN_LOOKUPS; i++) {
+                checksum += scan(Inventory.getAllParts(), ids[i]).getStock();
+            }
+            long scanned = System.nanoTime() - start;
+
+            System.out.printf("round %d: index %.1f ns/lookup (%d bytes allocated), scan %.1f ns/lookup [%d]%n",
+                    round, (double) indexed / LOOKUPS, allocated, (double) scanned / SCAN_LOOKUPS, checksum);
+        }
+    }
+
+    /**
+     * The lookup as it was done before the id index existed.
+     *
+     * @param parts list of the parts
+     * @param id the id to look for
+     * @return the part with the id
+     */
+    private static Part scan(List<Part> parts, int id) {
+        for (Part part : parts) {
+            if (part.getId() == id) {
+                return part;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the number of bytes allocated by the current thread or 0 if the JVM cannot tell
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,114 @@
+package benchmark;
+
+import model.Inhouse;
+import model.Inventory;
+import model.Part;
+import model.Reservation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Multi-threaded benchmark of the stock reservations. A growing number of threads reserve orders of three
+ * parts and release them again, once with random parts out of many and once with all threads ordering the
+ * same three parts. It prints the orders per second of each run and the speed-up over one thread. Every order
+ * is held for a minute, so the background thread of the reservations has to clear the released ones long
+ * before they run out.
+ *
+ * <p>Arguments: the number of parts (defaults to 100000), the longest run in threads (defaults to twice the
+ * number of processors) and the seconds of each run (defaults to 2). The speed-up can not be larger than the
+ * number of processors of the machine.</p>
+ *
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+public class ReservationBenchmark {
+
+    /**
+     * Number of parts in an order.
+     */
+    private static final int ORDER_SIZE = 3;
+
+    /**
+     * Fills the inventory, runs the measurements and prints them.
+     *
+     * @param args optional number of parts, most threads and seconds per run
+     * @throws InterruptedException if the main thread is interrupted
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int processors = Runtime.getRuntime().availableProcessors();
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Math.max(2, processors * 2);
+        long millis = (args.length > 2 ? Long.parseLong(args[2]) : 2) * 1000;
+
+        int firstId = Inventory.reservePartIds(count);
+        List<Part> parts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            parts.add(new Inhouse(firstId + i, "Part" + i, 2.49, 1000, 1, 2000, i));
+        }
+        Inventory.addParts(parts);
+
+        // warm up so the first run is not measured while the code is still compiled
+        run(maxThreads, millis, firstId, count, false);
+
+        System.out.printf("%d parts, %d processors, orders of %d parts reserved and released%n", count,
+                processors, ORDER_SIZE);
+        for (boolean hot : new boolean[] {false, true}) {
+            double single = 0;
+            for (int threads = 1; threads <= maxThreads; threads *= 2) {
+                double perSecond = run(threads, millis, firstId, count, hot);
+                if (threads == 1) {
+                    single = perSecond;
+                }
+                System.out.printf("%-6s parts, %2d threads: %,12.0f orders/s (%.2fx)%n", hot ? "hot" : "spread",
+                        threads, perSecond, perSecond / single);
+            }
+        }
+    }
+
+    /**
+     * Runs one measurement.
+     *
+     * @param threads number of threads
+     * @param millis time of the run
+     * @param firstId id of the first part
+     * @param count number of parts
+     * @param hot true if all orders are for the first parts
+     * @return orders per second of all threads together
+     * @throws InterruptedException if the main thread is interrupted
+     */
+    private static double run(int threads, long millis, int firstId, int count, boolean hot)
+            throws InterruptedException {
+        LongAdder orders = new LongAdder();
+        CountDownLatch done = new CountDownLatch(threads);
+        long end = System.nanoTime() + millis * 1_000_000;
+
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int[] ids = new int[ORDER_SIZE];
+                int[] quantities = {1, 1, 1};
+                long local = 0;
+                while ((local & 1023) != 0 || System.nanoTime() < end) {
+                    for (int i = 0; i < ORDER_SIZE; i++) {
+                        ids[i] = firstId + (hot ? i : random.nextInt(count));
+                    }
+                    Reservation reservation = Inventory.reserveParts(ids, quantities, 60_000);
+                    if (reservation != null) {
+                        reservation.release();
+                    }
+                    local++;
+                }
+                orders.add(local);
+                done.countDown();
+            });
+            worker.start();
+        }
+
+        done.await();
+        return orders.sum() * 1000.0 / millis;
+    }
+}
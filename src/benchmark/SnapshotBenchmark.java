@@ -0,0 +1,93 @@
+package benchmark;
+
+import model.Bom;
+import model.Inhouse;
+import model.Inventory;
+import model.Outsourced;
+import model.Product;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Benchmark of the inventory snapshot. The first run fills the inventory and writes the snapshot, and
+ * measures how long the calling thread is paused compared to the whole write. The next run loads the
+ * snapshot and measures the time until the part list that the main screen table shows is filled.
+ *
+ * <p>Arguments: the snapshot file (defaults to data/benchmark.snapshot) and the number of parts
+ * (defaults to one million). One product with five associate parts is created for every ten parts.</p>
+ *
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+public class SnapshotBenchmark {
+
+    /**
+     * Writes the snapshot if it does not exist, otherwise loads it, and prints the measurements.
+     *
+     * @param args optional snapshot file and number of parts
+     * @throws IOException if the snapshot cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        Path file = Paths.get(args.length > 0 ? args[0] : "data/benchmark.snapshot");
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+
+        if (!Files.exists(file)) {
+            write(file, count);
+            System.out.println("run again to measure loading the snapshot");
+            return;
+        }
+
+        long start = System.nanoTime();
+        Inventory.loadSnapshot(file);
+        long loaded = System.nanoTime() - start;
+
+        System.out.printf("loaded %d parts and %d products in %.0f ms (%d MB file)%n",
+                Inventory.getAllParts().size(), Inventory.getProducts().size(), loaded / 1e6,
+                Files.size(file) / 1_000_000);
+    }
+
+    /**
+     * Fills the inventory and writes the snapshot.
+     *
+     * @param file the snapshot file
+     * @param count number of parts
+     */
+    private static void write(Path file, int count) {
+        int firstPartId = Inventory.reservePartIds(count);
+        for (int i = 0; i < count; i++) {
+            int id = firstPartId + i;
+            if (i % 2 == 0) {
+                Inventory.addPart(new Inhouse(id, "Part" + id, 2.49, 10, 1, 20, id));
+            } else {
+                Inventory.addPart(new Outsourced(id, "Part" + id, 2.49, 10, 1, 20, "Supplier" + (i % 100)));
+            }
+        }
+
+        int productCount = count / 10;
+        int firstProductId = Inventory.reserveProductIds(productCount);
+        for (int i = 0; i < productCount; i++) {
+            Product product = new Product(firstProductId + i, "Product" + i, 99.99, 5, 1, 10);
+            int[] partIds = new int[5];
+            int[] quantities = new int[5];
+            for (int j = 0; j < partIds.length; j++) {
+                partIds[j] = firstPartId + (i * 7 + j * 131) % count;
+                quantities[j] = 1 + j % 2;
+            }
+            product.setBom(Bom.of(partIds, quantities));
+            Inventory.addProduct(product);
+        }
+
+        long start = System.nanoTime();
+        CompletableFuture<Void> written = Inventory.writeSnapshot(file);
+        long paused = System.nanoTime() - start;
+        written.join();
+        long total = System.nanoTime() - start;
+
+        System.out.printf("snapshot of %d parts and %d products: caller paused %.1f ms, written in %.0f ms%n",
+                count, productCount, paused / 1e6, total / 1e6);
+    }
+}
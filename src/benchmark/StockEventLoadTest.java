@@ -0,0 +1,312 @@
+package benchmark;
+
+import model.Inhouse;
+import model.Inventory;
+import model.Part;
+import server.StockEventServer;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Load generator of the stock event server. Every connection sends batches of stock movements as fast as the
+ * server acknowledges them, with a number of batches on the way at any time. It prints the stock movements
+ * and batches per second, the latency percentiles of the acknowledgements and the number of rejected batches.
+ *
+ * <p>The movements of a batch come in pairs that take one piece of a random part and put it back, in a random
+ * order, so the inventory levels stay near where they started however long the test runs and no batch is
+ * rejected unless a part is at its min or max.</p>
+ *
+ * <p>Arguments: {@code host:port} of a server, or {@code embedded} to start one in this process on the
+ * sample data and {@link #PARTS} more parts (the default), the number of connections (defaults to 4), the
+ * number of seconds (defaults to 10), the movements per batch (defaults to 1000) and the batches on the way
+ * per connection (defaults to 16). A server started with {@link StockEventServer#main(String[])} only has
+ * the ten parts of the sample data.</p>
+ *
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+public class StockEventLoadTest {
+
+    /**
+     * Number of parts that are added to an embedded server.
+     */
+    private static final int PARTS = 100_000;
+
+    /**
+     * Seconds of load before the measurement starts, so the JIT compiler has done its work.
+     */
+    private static final int WARM_UP_SECONDS = 2;
+
+    /**
+     * Number of different batches every connection prepares and sends in turn.
+     */
+    private static final int FRAMES = 64;
+
+    /**
+     * One connection, with a thread that sends and a thread that reads the acknowledgements.
+     */
+    private static final class Sender {
+
+        /**
+         * The connection.
+         */
+        private final SocketChannel channel;
+
+        /**
+         * The prepared batches.
+         */
+        private final ByteBuffer[] frames;
+
+        /**
+         * Permits for the batches that may be on the way.
+         */
+        private final Semaphore window;
+
+        /**
+         * Time each batch on the way was sent, by batch number modulo the window size.
+         */
+        private final AtomicLongArray sentAt;
+
+        /**
+         * Acknowledgement latency of every measured batch in nanoseconds.
+         */
+        private long[] latencies = new long[1 << 16];
+
+        /**
+         * Number of measured batches.
+         */
+        private int count;
+
+        /**
+         * Number of measured batches that were rejected.
+         */
+        private int rejected;
+
+        /**
+         * @param channel the connection
+         * @param frames the prepared batches
+         * @param depth number of batches that may be on the way
+         */
+        private Sender(SocketChannel channel, ByteBuffer[] frames, int depth) {
+            this.channel = channel;
+            this.frames = frames;
+            this.window = new Semaphore(depth);
+            this.sentAt = new AtomicLongArray(depth);
+        }
+
+        /**
+         * Sends batches until the test is over and then closes the sending side of the connection.
+         *
+         * @param running false once the connections should stop
+         */
+        private void send(AtomicBoolean running) {
+            try {
+                for (long batch = 0; running.get(); batch++) {
+                    window.acquire();
+                    ByteBuffer frame = frames[(int) (batch % frames.length)];
+                    frame.putLong(Integer.BYTES, batch);
+                    frame.clear();
+                    sentAt.set((int) (batch % sentAt.length()), System.nanoTime());
+                    while (frame.hasRemaining()) {
+                        channel.write(frame);
+                    }
+                }
+                channel.shutdownOutput();
+            } catch (IOException e) {
+                System.err.println("Sending failed: " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Reads the acknowledgements until the server closes the connection.
+         *
+         * @param measuring true while the batches are measured
+         */
+        private void receive(AtomicBoolean measuring) {
+            ByteBuffer acks = ByteBuffer.allocate(StockEventServer.ACK_BYTES * 1024);
+            try {
+                while (channel.read(acks) >= 0) {
+                    acks.flip();
+                    while (acks.remaining() >= StockEventServer.ACK_BYTES) {
+                        long batch = acks.getLong();
+                        int result = acks.getInt();
+                        long latency = System.nanoTime() - sentAt.get((int) (batch % sentAt.length()));
+                        window.release();
+                        if (measuring.get()) {
+                            record(latency, result != -1);
+                        }
+                    }
+                    acks.compact();
+                }
+            } catch (IOException e) {
+                System.err.println("Receiving failed: " + e.getMessage());
+            }
+        }
+
+        /**
+         * @param latency acknowledgement latency of a measured batch in nanoseconds
+         * @param wasRejected true if the batch was rejected
+         */
+        private void record(long latency, boolean wasRejected) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latency;
+            if (wasRejected) {
+                rejected++;
+            }
+        }
+    }
+
+    /**
+     * Runs the load test and prints the measurements.
+     *
+     * @param args optional address, connections, seconds, movements per batch and batches on the way
+     * @throws Exception if the server cannot be reached or a thread is interrupted
+     */
+    public static void main(String[] args) throws Exception {
+        String address = args.length > 0 ? args[0] : "embedded";
+        int connections = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int batchSize = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+        int depth = args.length > 4 ? Integer.parseInt(args[4]) : 16;
+
+        StockEventServer embedded = null;
+        InetSocketAddress target;
+        int firstPartId;
+        int partCount;
+        if (address.equals("embedded")) {
+            Inventory.loadSampleData();
+            partCount = PARTS;
+            firstPartId = addParts();
+            embedded = new StockEventServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            embedded.start();
+            target = new InetSocketAddress(InetAddress.getLoopbackAddress(), embedded.getPort());
+        } else {
+            int colon = address.lastIndexOf(':');
+            target = new InetSocketAddress(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+            firstPartId = 1;
+            partCount = 10;
+        }
+
+        AtomicBoolean measuring = new AtomicBoolean();
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Sender> senders = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        Random random = new Random(42);
+        for (int c = 0; c < connections; c++) {
+            ByteBuffer[] frames = new ByteBuffer[FRAMES];
+            for (int f = 0; f < FRAMES; f++) {
+                frames[f] = frame(random, batchSize, firstPartId, partCount);
+            }
+            Sender sender = new Sender(SocketChannel.open(target), frames, depth);
+            senders.add(sender);
+            threads.add(new Thread(() -> sender.send(running), "sender-" + c));
+            threads.add(new Thread(() -> sender.receive(measuring), "receiver-" + c));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+
+        Thread.sleep(WARM_UP_SECONDS * 1000L);
+        measuring.set(true);
+        long start = System.nanoTime();
+        Thread.sleep(seconds * 1000L);
+        measuring.set(false);
+        long elapsed = System.nanoTime() - start;
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        int total = 0;
+        int rejected = 0;
+        for (Sender sender : senders) {
+            total += sender.count;
+            rejected += sender.rejected;
+            sender.channel.close();
+        }
+        long[] latencies = new long[total];
+        int position = 0;
+        for (Sender sender : senders) {
+            System.arraycopy(sender.latencies, 0, latencies, position, sender.count);
+            position += sender.count;
+        }
+        Arrays.sort(latencies);
+
+        double elapsedSeconds = elapsed / 1e9;
+        System.out.printf("%d connections, %d movements per batch, %d batches on the way per connection%n",
+                connections, batchSize, depth);
+        System.out.printf("%d batches in %.1f s: %.0f movements/s, %.0f batches/s, %d rejected%n", total,
+                elapsedSeconds, (double) total * batchSize / elapsedSeconds, total / elapsedSeconds, rejected);
+        if (total > 0) {
+            System.out.printf("acknowledgement latency p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+                    percentile(latencies, 0.50), percentile(latencies, 0.99), latencies[total - 1] / 1e6);
+        }
+
+        if (embedded != null) {
+            embedded.stop();
+        }
+    }
+
+    /**
+     * Builds a batch of pairs of movements that take one piece of a part and put it back.
+     *
+     * @param random chooses the parts and the order of the pairs
+     * @param batchSize number of movements, rounded down to an even number
+     * @param firstPartId the id of the first part
+     * @param partCount the parts have the ids from the first id on
+     * @return the frame of the batch, with room for the batch number
+     */
+    private static ByteBuffer frame(Random random, int batchSize, int firstPartId, int partCount) {
+        int movements = batchSize / 2 * 2;
+        ByteBuffer frame = ByteBuffer.allocateDirect(StockEventServer.HEADER_BYTES
+                + movements * StockEventServer.MOVEMENT_BYTES);
+        frame.putInt(frame.capacity() - Integer.BYTES);
+        frame.putLong(0);
+        for (int i = 0; i < movements; i += 2) {
+            int partId = firstPartId + random.nextInt(partCount);
+            int delta = random.nextBoolean() ? 1 : -1;
+            frame.putInt(partId).putInt(delta);
+            frame.putInt(partId).putInt(-delta);
+        }
+        return frame;
+    }
+
+    /**
+     * Adds {@link #PARTS} parts to the inventory, each with an inventory level in the middle of min and max.
+     *
+     * @return the id of the first added part
+     */
+    private static int addParts() {
+        List<Part> parts = new ArrayList<>(PARTS);
+        int firstId = Inventory.reservePartIds(PARTS);
+        for (int i = 0; i < PARTS; i++) {
+            parts.add(new Inhouse(firstId + i, "Part" + (firstId + i), 2.49, 50, 1, 100, i));
+        }
+        Inventory.addParts(parts);
+        return firstId;
+    }
+
+    /**
+     * @param sorted sorted latencies in nanoseconds
+     * @param fraction the percentile as a fraction
+     * @return the latency of the percentile in milliseconds
+     */
+    private static double percentile(long[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * fraction))] / 1e6;
+    }
+}
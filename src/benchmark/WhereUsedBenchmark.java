@@ -0,0 +1,123 @@
+package benchmark;
+
+import model.Bom;
+import model.Inventory;
+import model.Outsourced;
+import model.Part;
+import model.Product;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmark that compares the where-used query of the inventory against walking the associate parts
+ * of every product.
+ *
+ * <p>It loads 100,000 products with around 20 associate parts each, picked from 50,000 parts.</p>
+ *
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+public class WhereUsedBenchmark {
+
+    /**
+     * Number of products to load.
+     */
+    private static final int PRODUCTS = 100_000;
+
+    /**
+     * Number of parts to load.
+     */
+    private static final int PARTS = 50_000;
+
+    /**
+     * Average number of associate parts of a product.
+     */
+    private static final int PARTS_PER_PRODUCT = 20;
+
+    /**
+     * Number of queries that are timed for each round.
+     */
+    private static final int QUERIES = 10_000;
+
+    /**
+     * Number of queries that are timed for each round of the naive scan.
+     */
+    private static final int SCAN_QUERIES = 50;
+
+    /**
+     * Fills the inventory and prints the average time of a query for both approaches.
+     *
+     * @param args not used
+     */
+    public static void main(String[] args) {
+        Random random = new Random(42);
+        Part[] parts = new Part[PARTS];
+        int firstPartId = Inventory.reservePartIds(PARTS);
+
+        for (int i = 0; i < PARTS; i++) {
+            parts[i] = new Outsourced(firstPartId + i, "Part" + i, 4.99, 10, 1, 20, "Supplier");
+            Inventory.addPart(parts[i]);
+        }
+
+        int firstProductId = Inventory.reserveProductIds(PRODUCTS);
+        for (int i = 0; i < PRODUCTS; i++) {
+            List<Part> associatedParts = new ArrayList<>();
+            int count = PARTS_PER_PRODUCT / 2 + random.nextInt(PARTS_PER_PRODUCT + 1);
+            for (int p = 0; p < count; p++) {
+                associatedParts.add(parts[random.nextInt(PARTS)]);
+            }
+
+            Product product = new Product(firstProductId + i, "Product" + i, 99.99, 5, 1, 10);
+            product.setAssociatedParts(associatedParts);
+            Inventory.addProduct(product);
+        }
+
+        int[] partIds = new int[QUERIES];
+        for (int i = 0; i < partIds.length; i++) {
+            partIds[i] = firstPartId + random.nextInt(PARTS);
+        }
+
+        for (int round = 1; round <= 5; round++) {
+            long start = System.nanoTime();
+            long found = 0;
+            for (int partId : partIds) {
+                found += Inventory.whereUsed(partId).size();
+            }
+            long indexed = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            long scanFound = 0;
+            for (int i = 0; i < SCAN_QUERIES; i++) {
+                scanFound += scan(Inventory.getProducts(), partIds[i]).size();
+            }
+            long scanned = System.nanoTime() - start;
+
+            System.out.printf("round %d: index %.1f us/query (%.1f products), scan %.1f us/query (%.1f products)%n",
+                    round, indexed / 1000.0 / QUERIES, (double) found / QUERIES,
+                    scanned / 1000.0 / SCAN_QUERIES, (double) scanFound / SCAN_QUERIES);
+        }
+    }
+
+    /**
+     * The where-used query as it has to be done without the reverse index.
+     *
+     * @param products all the products
+     * @param partId id of the part
+     * @return the products that use the part
+     */
+    private static List<Product> scan(List<Product> products, int partId) {
+        List<Product> found = new ArrayList<>();
+        for (Product product : products) {
+            Bom bom = product.getBom();
+            for (int i = 0; i < bom.size(); i++) {
+                if (bom.getPartId(i) == partId) {
+                    found.add(product);
+                    break;
+                }
+            }
+        }
+        return found;
+    }
+}
@@ -52,6 +52,21 @@ public class AlertBoxHandler {
         alert.showAndWait();
     }
 
+    /**
+     * This class objective is to display error message that a data file
+     * of the inventory could not be loaded.
+     *
+     * @param file indicate which data file could not be loaded
+     * @param reason why the file could not be loaded
+     */
+    public static void displayLoadErrorDialogue(String file, String reason) {
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        alert.setHeaderText("Cannot load the inventory:");
+        alert.setContentText(file + " could not be loaded (" + reason + "). The application closes "
+                + "without changing the file so it can be checked or restored.");
+        alert.showAndWait();
+    }
+
     /**
      * This class objective is to display information message during when
      * the search term entered does not match any data in the inventory
@@ -0,0 +1,148 @@
+package controller;
+
+import javafx.application.Platform;
+import model.SearchQuery;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs the part or product search of a screen on a background thread, so a large inventory does not
+ * freeze the window.
+ *
+ * <p>Only the newest search of a screen is needed. Every new search supersedes the one before: a
+ * search that did not start yet is cancelled, a running search finishes but its result is dropped, and the
+ * result of an older search is never shown. The results are shown on the JavaFX application thread with
+ * {@link Platform#runLater(Runnable)}.</p>
+ *
+ * <p>For the search as you type, {@link #searchLater(Supplier, Runnable, Consumer)} waits until the user
+ * stops typing for {@link #DEBOUNCE_MILLIS} milliseconds and only searches then.</p>
+ *
+ * <p>All the methods must be called on the JavaFX application thread.</p>
+ *
+ * @param <R> type of the search result
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+final class BackgroundSearch<R> {
+
+    /**
+     * Time without a key press before the search as you type starts.
+     */
+    static final long DEBOUNCE_MILLIS = 250;
+
+    /**
+     * Runs the searches of all the screens, one at a time.
+     */
+    private static final ScheduledExecutorService searchThread = Executors.newSingleThreadScheduledExecutor(
+            task -> {
+                Thread thread = new Thread(task, "search");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    /**
+     * Runs a search with a search text.
+     */
+    private final Function<SearchQuery, R> search;
+
+    /**
+     * Number of the newest search. A search whose number is smaller is superseded.
+     */
+    private final AtomicLong newest = new AtomicLong();
+
+    /**
+     * The search or pause that was started last.
+     */
+    private Future<?> pending;
+
+    /**
+     * @param search runs a search with a search text
+     */
+    BackgroundSearch(Function<SearchQuery, R> search) {
+        this.search = search;
+    }
+
+    /**
+     * Starts a search at once.
+     *
+     * @param searchText the search text
+     * @param onResult shows the search result, called on the JavaFX application thread
+     */
+    void searchNow(String searchText, Consumer<R> onResult) {
+        long number = supersede();
+        pending = searchThread.submit(() -> run(number, searchText, onResult));
+    }
+
+    /**
+     * Starts a search once the user stops typing. The search text is read only then, because a key press
+     * handler is called before the key changes the text.
+     *
+     * @param searchText reads the search text, called on the JavaFX application thread
+     * @param onEmpty called instead of the search if the search text is empty
+     * @param onResult shows the search result, called on the JavaFX application thread
+     */
+    void searchLater(Supplier<String> searchText, Runnable onEmpty, Consumer<R> onResult) {
+        long number = supersede();
+        pending = searchThread.schedule(() -> Platform.runLater(() -> {
+            if (newest.get() != number) {
+                return;
+            }
+
+            String text = searchText.get().trim();
+            if (text.isEmpty()) {
+                onEmpty.run();
+            } else {
+                pending = searchThread.submit(() -> run(number, text, onResult));
+            }
+        }), DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Cancels the search that was started last, so its result is not shown.
+     */
+    void cancel() {
+        supersede();
+    }
+
+    /**
+     * Supersedes the search that was started last.
+     *
+     * @return the number of the next search
+     */
+    private long supersede() {
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+        return newest.incrementAndGet();
+    }
+
+    /**
+     * Runs a search on the search thread and shows its result if no newer search was started.
+     *
+     * @param number the number of the search
+     * @param searchText the search text
+     * @param onResult shows the search result
+     */
+    private void run(long number, String searchText, Consumer<R> onResult) {
+        BooleanSupplier superseded = () -> newest.get() != number;
+        R result = search.apply(new SearchQuery(searchText));
+        if (superseded.getAsBoolean()) {
+            return;
+        }
+
+        Platform.runLater(() -> {
+            if (!superseded.getAsBoolean()) {
+                onResult.accept(result);
+            }
+        });
+    }
+}
@@ -0,0 +1,232 @@
+package controller;
+
+import javafx.beans.InvalidationListener;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import javafx.scene.control.TableCell;
+import javafx.scene.control.TableColumn;
+import javafx.util.Callback;
+
+import java.util.Arrays;
+import java.util.function.Function;
+
+/**
+ * Typed cell values and number cells for the table columns, used instead of
+ * {@link javafx.scene.control.cell.PropertyValueFactory}.
+ *
+ * <p>A property value factory looks up the getter of a column by its name with reflection and wraps every
+ * value in a new property each time a cell is updated. The callbacks here call the getter directly and wrap
+ * the value in a small fixed value. The rows are replaced and not changed when the inventory changes, so the
+ * table asks for the values again anyway. The number cells turn the numbers into text through a cache, so
+ * scrolling does not format the same stock levels and prices over and over.</p>
+ *
+ * <p>The caches are not thread safe, the cells must only be used on the JavaFX application thread like all
+ * the table cells.</p>
+ *
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+public final class CellValues {
+
+    /**
+     * Number of cached texts of small whole numbers.
+     */
+    private static final int SMALL_NUMBERS = 1024;
+
+    /**
+     * Number of cached texts of prices. Must be a power of two.
+     */
+    private static final int PRICE_CACHE = 1024;
+
+    /**
+     * Texts of the whole numbers from 0 below {@link #SMALL_NUMBERS}, created on first use.
+     */
+    private static final String[] smallNumberTexts = new String[SMALL_NUMBERS];
+
+    /**
+     * Prices in cents of the cached price texts, by cache slot.
+     */
+    private static final long[] priceCents = new long[PRICE_CACHE];
+
+    /**
+     * The cached price texts, by cache slot.
+     */
+    private static final String[] priceTexts = new String[PRICE_CACHE];
+
+    static {
+        Arrays.fill(priceCents, Long.MIN_VALUE);
+    }
+
+    /**
+     * Value of a cell that never changes.
+     *
+     * @param <T> type of the value
+     */
+    private static final class FixedValue<T> implements ObservableValue<T> {
+
+        /**
+         * The value.
+         */
+        private final T value;
+
+        /**
+         * @param value the value
+         */
+        private FixedValue(T value) {
+            this.value = value;
+        }
+
+        /**
+         * @return the value
+         */
+        @Override
+        public T getValue() {
+            return value;
+        }
+
+        /**
+         * Does nothing, the value never changes.
+         *
+         * @param listener the listener
+         */
+        @Override
+        public void addListener(ChangeListener<? super T> listener) {
+        }
+
+        /**
+         * Does nothing, the value never changes.
+         *
+         * @param listener the listener
+         */
+        @Override
+        public void removeListener(ChangeListener<? super T> listener) {
+        }
+
+        /**
+         * Does nothing, the value never changes.
+         *
+         * @param listener the listener
+         */
+        @Override
+        public void addListener(InvalidationListener listener) {
+        }
+
+        /**
+         * Does nothing, the value never changes.
+         *
+         * @param listener the listener
+         */
+        @Override
+        public void removeListener(InvalidationListener listener) {
+        }
+    }
+
+    /**
+     * Cell that shows its value as a text made by a function.
+     *
+     * @param <S> type of the rows
+     * @param <T> type of the value
+     */
+    private static final class FormattedCell<S, T> extends TableCell<S, T> {
+
+        /**
+         * Makes the text of a value.
+         */
+        private final Function<? super T, String> format;
+
+        /**
+         * @param format makes the text of a value
+         */
+        private FormattedCell(Function<? super T, String> format) {
+            this.format = format;
+        }
+
+        /**
+         * Shows the text of the new value.
+         *
+         * @param item the value
+         * @param empty true if the cell has no row
+         */
+        @Override
+        protected void updateItem(T item, boolean empty) {
+            super.updateItem(item, empty);
+            setText(empty || item == null ? null : format.apply(item));
+        }
+    }
+
+    /**
+     * Only static methods.
+     */
+    private CellValues() {
+    }
+
+    /**
+     * Returns a cell value factory that reads the value of a column with a getter.
+     *
+     * @param getter reads the value from a row, for example {@code Part::getStock}
+     * @param <S> type of the rows
+     * @param <T> type of the value
+     * @return the cell value factory
+     */
+    public static <S, T> Callback<TableColumn.CellDataFeatures<S, T>, ObservableValue<T>> of(
+            Function<? super S, ? extends T> getter) {
+        return features -> new FixedValue<>(getter.apply(features.getValue()));
+    }
+
+    /**
+     * @param <S> type of the rows
+     * @return a cell factory for columns of whole numbers, like ids and stock levels
+     */
+    public static <S> Callback<TableColumn<S, Integer>, TableCell<S, Integer>> integerCells() {
+        return column -> new FormattedCell<>(CellValues::integerText);
+    }
+
+    /**
+     * @param <S> type of the rows
+     * @return a cell factory for columns of prices, shown with two decimals
+     */
+    public static <S> Callback<TableColumn<S, Double>, TableCell<S, Double>> priceCells() {
+        return column -> new FormattedCell<>(CellValues::priceText);
+    }
+
+    /**
+     * Returns the text of a whole number. The texts of small numbers are cached.
+     *
+     * @param number the number
+     * @return the text
+     */
+    public static String integerText(int number) {
+        if (number < 0 || number >= SMALL_NUMBERS) {
+            return Integer.toString(number);
+        }
+
+        String text = smallNumberTexts[number];
+        if (text == null) {
+            text = Integer.toString(number);
+            smallNumberTexts[number] = text;
+        }
+        return text;
+    }
+
+    /**
+     * Returns the text of a price with two decimals. The text of a price is cached until another price
+     * takes its place in the cache.
+     *
+     * @param price the price
+     * @return the text
+     */
+    public static String priceText(double price) {
+        long cents = Math.round(price * 100);
+        int slot = ((int) (cents ^ (cents >>> 32)) * 0x9E3779B9) >>> 22 & (PRICE_CACHE - 1);
+        if (priceCents[slot] == cents) {
+            return priceTexts[slot];
+        }
+
+        long whole = Math.abs(cents);
+        long fraction = whole % 100;
+        String text = (cents < 0 ? "-" : "") + whole / 100 + (fraction < 10 ? ".0" : ".") + fraction;
+        priceCents[slot] = cents;
+        priceTexts[slot] = text;
+        return text;
+    }
+}
@@ -0,0 +1,144 @@
+package controller;
+
+import javafx.collections.ObservableListBase;
+import model.Inventory;
+import model.InventoryListener;
+import model.Part;
+import model.Product;
+
+import java.util.List;
+
+/**
+ * Read-only observable list over the part or product list of the inventory, so the table views can show
+ * them. The inventory itself has no JavaFX, it reports the changes of its lists to an
+ * {@link InventoryListener} and this list passes them on to the table views as list changes.
+ *
+ * <p>There is one list for the parts and one for the products, shared by all the screens. Like the lists
+ * of the inventory they must only be used on the JavaFX application thread.</p>
+ *
+ * @param <T> type of the data of the list
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+final class InventoryObservableList<T> extends ObservableListBase<T> implements InventoryListener<T> {
+
+    /**
+     * The observable list of the parts, or null until it is first used.
+     */
+    private static InventoryObservableList<Part> parts;
+
+    /**
+     * The observable list of the products, or null until it is first used.
+     */
+    private static InventoryObservableList<Product> products;
+
+    /**
+     * The list of the inventory.
+     */
+    private final List<T> source;
+
+    /**
+     * @param source the list of the inventory
+     */
+    private InventoryObservableList(List<T> source) {
+        this.source = source;
+    }
+
+    /**
+     * Returns the observable list of the parts of the inventory. It is synchronized because the screens
+     * are loaded at the same time on different threads.
+     *
+     * @return the observable list of the parts
+     */
+    static synchronized InventoryObservableList<Part> parts() {
+        if (parts == null) {
+            parts = new InventoryObservableList<>(Inventory.getAllParts());
+            Inventory.addPartListener(parts);
+        }
+        return parts;
+    }
+
+    /**
+     * Returns the observable list of the products of the inventory. It is synchronized because the screens
+     * are loaded at the same time on different threads.
+     *
+     * @return the observable list of the products
+     */
+    static synchronized InventoryObservableList<Product> products() {
+        if (products == null) {
+            products = new InventoryObservableList<>(Inventory.getProducts());
+            Inventory.addProductListener(products);
+        }
+        return products;
+    }
+
+    /**
+     * @param index the index
+     * @return the data at the index
+     */
+    @Override
+    public T get(int index) {
+        return source.get(index);
+    }
+
+    /**
+     * @return the number of data in the list
+     */
+    @Override
+    public int size() {
+        return source.size();
+    }
+
+    /**
+     * Tells the table views that data was added.
+     *
+     * @param from index of the first added data
+     * @param to index after the last added data
+     */
+    @Override
+    public void added(int from, int to) {
+        beginChange();
+        try {
+            nextAdd(from, to);
+        } finally {
+            endChange();
+        }
+    }
+
+    /**
+     * Tells the table views that a range was replaced or removed.
+     *
+     * @param from index of the first changed data
+     * @param to end of the changed range as the list is now
+     * @param removed the data that was on the list from the first changed index on before the change
+     */
+    @Override
+    public void replaced(int from, int to, List<T> removed) {
+        beginChange();
+        try {
+            if (from == to) {
+                nextRemove(from, removed);
+            } else {
+                nextReplace(from, to, removed);
+            }
+        } finally {
+            endChange();
+        }
+    }
+
+    /**
+     * Starts one list change for the changes of a batch, so the table views update once.
+     */
+    @Override
+    public void batchStarted() {
+        beginChange();
+    }
+
+    /**
+     * Ends the list change of the batch and tells the table views about it.
+     */
+    @Override
+    public void batchFinished() {
+        endChange();
+    }
+}
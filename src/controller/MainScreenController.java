@@ -1,21 +1,16 @@
 package controller;
 
 import javafx.application.Platform;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
+import javafx.collections.transformation.SortedList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.Label;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.scene.control.TextField;
-import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.input.KeyEvent;
-import main.Main;
 import model.Inhouse;
 import model.Inventory;
 import model.Part;
@@ -35,7 +30,7 @@ import java.util.ResourceBundle;
  * @author Rifatul Karim
  * @version 1.0
  */
-public class MainScreenController implements Initializable {
+public class MainScreenController implements Initializable, ScreenController {
 
     /**
      * Table view for the parts of the inventory.
@@ -65,7 +60,7 @@ public class MainScreenController implements Initializable {
      * Column that displays the Inventory level for the part table.
      */
     @FXML
-    private TableColumn<Part, String> partInvLevel_col;
+    private TableColumn<Part, Integer> partInvLevel_col;
 
     /**
      * Column that display the Price for the part table.
@@ -109,6 +104,28 @@ public class MainScreenController implements Initializable {
     @FXML
     private Label productDeleteErrorMsg;
 
+    /**
+     * The parts of the inventory that match the part search, or all of them if there is no search.
+     */
+    private final FilteredList<Part> filteredParts = new FilteredList<>(InventoryObservableList.parts());
+
+    /**
+     * The products of the inventory that match the product search, or all of them if there is no search.
+     */
+    private final FilteredList<Product> filteredProducts = new FilteredList<>(InventoryObservableList.products());
+
+    /**
+     * Searches the parts of the inventory on a background thread.
+     */
+    private final BackgroundSearch<SearchMatcher<Part>> partSearch =
+            new BackgroundSearch<>(SearchMatcher::searchParts);
+
+    /**
+     * Searches the products of the inventory on a background thread.
+     */
+    private final BackgroundSearch<SearchMatcher<Product>> productSearch =
+            new BackgroundSearch<>(SearchMatcher::searchProducts);
+
     /**
      * To distinguish the state of the screen to display
      */
@@ -120,28 +137,57 @@ public class MainScreenController implements Initializable {
     public static ScreenState currentScreenState;
 
     /**
-     * Initiated upon calling this controller when starting the program or returning to this screen from
-     * other screens. This class requires to initializes the table column for the both tables. Afterwards, it
-     * populates the table views with current saved inventory data.
+     * Initiated once when the screens are loaded at the start of the program. This class requires to
+     * initializes the table column for the both tables. Afterwards, it populates the table views with live
+     * views of the inventory data.
      *
      * @param url            The location used to resolve relative paths for the root object, or null if the location is not known.
      * @param resourceBundle The resources used to localize the root object, or null if the root object was not localized.
      */
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
-        currentScreenState = ScreenState.MAIN;
+        partID_col.setCellValueFactory(CellValues.of(Part::getId));
+        partName_col.setCellValueFactory(CellValues.of(Part::getName));
+        partInvLevel_col.setCellValueFactory(CellValues.of(Part::getStock));
+        partPrice_col.setCellValueFactory(CellValues.of(Part::getPrice));
+        partID_col.setCellFactory(CellValues.integerCells());
+        partInvLevel_col.setCellFactory(CellValues.integerCells());
+        partPrice_col.setCellFactory(CellValues.priceCells());
+
+        productId_col.setCellValueFactory(CellValues.of(Product::getId));
+        productName_col.setCellValueFactory(CellValues.of(Product::getName));
+        productPrice_col.setCellValueFactory(CellValues.of(Product::getPrice));
+        productId_col.setCellFactory(CellValues.integerCells());
+        productPrice_col.setCellFactory(CellValues.priceCells());
+
+        // the tables show live views of the inventory, sorted by the column the user clicked
+        SortedList<Part> sortedParts = new SortedList<>(filteredParts);
+        sortedParts.comparatorProperty().bind(partTable.comparatorProperty());
+        partTable.setItems(sortedParts);
+
+        SortedList<Product> sortedProducts = new SortedList<>(filteredProducts);
+        sortedProducts.comparatorProperty().bind(productTable.comparatorProperty());
+        productTable.setItems(sortedProducts);
+    }
 
-        partID_col.setCellValueFactory(new PropertyValueFactory<>("id"));
-        partName_col.setCellValueFactory(new PropertyValueFactory<>("name"));
-        partInvLevel_col.setCellValueFactory(new PropertyValueFactory<>("stock"));
-        partPrice_col.setCellValueFactory(new PropertyValueFactory<>("price"));
+    /**
+     * Called each time the main screen is shown. Sets the screen state to MAIN and clears the searches,
+     * the selections and the error message. The tables are not loaded again, they follow the inventory.
+     */
+    @Override
+    public void reset() {
+        currentScreenState = ScreenState.MAIN;
 
-        productId_col.setCellValueFactory(new PropertyValueFactory<>("id"));
-        productName_col.setCellValueFactory(new PropertyValueFactory<>("name"));
-        productPrice_col.setCellValueFactory(new PropertyValueFactory<>("price"));
+        partSearch.cancel();
+        productSearch.cancel();
+        searchPartTextField.clear();
+        searchProductTextField.clear();
+        showAllParts();
+        showAllProducts();
 
-        partTable.setItems(Inventory.getAllParts());
-        productTable.setItems(Inventory.getProducts());
+        partTable.getSelectionModel().clearSelection();
+        productTable.getSelectionModel().clearSelection();
+        productDeleteErrorMsg.setText("");
     }
 
     /**
@@ -153,13 +199,9 @@ public class MainScreenController implements Initializable {
     public void addPart_ClickHandler(ActionEvent actionEvent) {
         try {
             currentScreenState = ScreenState.ADD;
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/PartScreen.fxml"));
-            Parent root = loader.load();
-
-            PartScreenController partScreenController = loader.getController();
             PartScreenController.current_partType_selected = PartScreenController.PART_TYPE.NONE_SELECTED;
 
-            Main.setScene(new Scene(root));
+            ScreenNavigator.show(ScreenNavigator.Screen.PART);
 
         } catch (IOException e) {
             currentScreenState = ScreenState.MAIN;
@@ -190,15 +232,9 @@ public class MainScreenController implements Initializable {
                 PartScreenController.current_partType_selected = PartScreenController.PART_TYPE.OUTSOURCED;
             }
 
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/PartScreen.fxml"));
-            Parent root = loader.load();
-
-            PartScreenController partScreenController = loader.getController();
+            PartScreenController partScreenController = ScreenNavigator.show(ScreenNavigator.Screen.PART);
             partScreenController.initData(selectedPart);
 
-            Main.setScene(new Scene(root));
-            Main.mainStage.show();
-
         } catch (IOException e) {
             AlertBoxHandler.displayWarningDialogue("PartScreen.fxml");
             currentScreenState = ScreenState.MAIN;
@@ -221,9 +257,7 @@ public class MainScreenController implements Initializable {
         }
 
         if (AlertBoxHandler.displayConfirmationDialogue(1)) {
-            if (Inventory.deletePart(selectedPart) == true) {
-                partTable.refresh();
-            }
+            Inventory.deletePart(selectedPart);
         }
     }
 
@@ -243,15 +277,10 @@ public class MainScreenController implements Initializable {
 
         try {
             currentScreenState = ScreenState.MODIFY;
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/ProductScreen.fxml"));
-            Parent root = loader.load();
-
-            ProductScreenController productScreenController = loader.getController();
+            ProductScreenController productScreenController =
+                    ScreenNavigator.show(ScreenNavigator.Screen.PRODUCT);
             productScreenController.loadSelectedProductData(selectedProduct);
 
-            Main.mainStage.setScene(new Scene(root));
-            Main.mainStage.show();
-
         } catch (IOException e) {
             currentScreenState = ScreenState.MAIN;
             AlertBoxHandler.displayWarningDialogue("ProductScreen.fxml");
@@ -268,13 +297,7 @@ public class MainScreenController implements Initializable {
     public void addProduct_clickHandler(ActionEvent actionEvent) {
         try {
             currentScreenState = ScreenState.ADD;
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/ProductScreen.fxml"));
-            Parent root = loader.load();
-
-            ProductScreenController productScreenController = loader.getController();
-
-            Main.mainStage.setScene(new Scene(root));
-            Main.mainStage.show();
+            ScreenNavigator.show(ScreenNavigator.Screen.PRODUCT);
 
         } catch (IOException e) {
             currentScreenState = ScreenState.MAIN;
@@ -299,9 +322,7 @@ public class MainScreenController implements Initializable {
         }
 
         if (AlertBoxHandler.displayConfirmationDialogue(1)) {
-            if (Inventory.deleteProduct(selectedProduct)) {
-                productTable.refresh();
-            } else {
+            if (!Inventory.deleteProduct(selectedProduct)) {
                 productDeleteErrorMsg.setText("Cannot delete " + selectedProduct.getName() +
                         " product data from inventory\nbecause it has associate parts!");
                 ScreenExceptionHandler.transformLabel(productDeleteErrorMsg);
@@ -311,8 +332,8 @@ public class MainScreenController implements Initializable {
     }
 
     /**
-     * Checks if the textfield of the product search is empty
-     * then it will refresh the table to the original state.
+     * Searches the products as the user types. The search starts when the user stops typing, and the
+     * table goes back to the original state if the textfield is empty then.
      *
      * @param keyEvent search product on key pressed handler
      */
@@ -322,15 +343,12 @@ public class MainScreenController implements Initializable {
             return;
         }
 
-        if (searchProductTextField.getText().trim().length() == 0) {
-            productTable.setItems(Inventory.getProducts());
-            productTable.refresh();
-        }
+        productSearch.searchLater(searchProductTextField::getText, this::showAllProducts, this::filterProducts);
     }
 
     /**
-     * Checks if the textfield of the part search is empty
-     * then it will refresh the table to the original state.
+     * Searches the parts as the user types. The search starts when the user stops typing, and the
+     * table goes back to the original state if the textfield is empty then.
      *
      * @param keyEvent search part on key pressed handler
      */
@@ -340,10 +358,41 @@ public class MainScreenController implements Initializable {
             return;
         }
 
-        if (searchPartTextField.getText().trim().length() == 0) {
-            partTable.setItems(Inventory.getAllParts());
-            partTable.refresh();
-        }
+        partSearch.searchLater(searchPartTextField::getText, this::showAllParts, this::filterParts);
+    }
+
+    /**
+     * Shows all the parts of the inventory in the part table.
+     */
+    private void showAllParts() {
+        filteredParts.setPredicate(null);
+    }
+
+    /**
+     * Shows all the products of the inventory in the product table.
+     */
+    private void showAllProducts() {
+        filteredProducts.setPredicate(null);
+    }
+
+    /**
+     * Shows the parts that match a search in the part table.
+     *
+     * @param matcher the filter of the search
+     */
+    private void filterParts(SearchMatcher<Part> matcher) {
+        filteredParts.setPredicate(matcher);
+        matcher.goLive();
+    }
+
+    /**
+     * Shows the products that match a search in the product table.
+     *
+     * @param matcher the filter of the search
+     */
+    private void filterProducts(SearchMatcher<Product> matcher) {
+        filteredProducts.setPredicate(matcher);
+        matcher.goLive();
     }
 
     /**
@@ -366,35 +415,21 @@ public class MainScreenController implements Initializable {
      * @param actionEvent Part search button action.
      */
     public void searchPart_ClickHandler(ActionEvent actionEvent) {
-        int index = -1;
         String searchText = searchPartTextField.getText().trim();
-        ObservableList<Part> partList = FXCollections.observableArrayList();
-
-        try {
-            index = Integer.parseInt(searchText);
-        } catch (NumberFormatException e) {
-            index = -1;
-        }
-
-        if (index != -1) {
-            Part part = Inventory.lookupByPartID(index);
-            if (part != null) {
-                partList.add(part);
-            }
-        }
-
-        ObservableList<Part> partList2 = Inventory.lookupByPartName(searchText);
-
-        for (int i = 0; i < partList2.size(); i++) {
-            partList.add(partList2.get(i));
+        if (searchText.isEmpty()) {
+            partSearch.cancel();
+            showAllParts();
+            return;
         }
 
-        partTable.setItems(partList);
-        partTable.refresh();
+        // the search runs on a background thread and the table is filled when it is done
+        partSearch.searchNow(searchText, matcher -> {
+            filterParts(matcher);
 
-        if (partList.size() == 0) {
-            AlertBoxHandler.displayNotFoundDialogue(1);
-        }
+            if (filteredParts.size() == 0) {
+                AlertBoxHandler.displayNotFoundDialogue(1);
+            }
+        });
     }
 
     /**
@@ -406,35 +441,20 @@ public class MainScreenController implements Initializable {
      * @param actionEvent Product search button action.
      */
     public void searchProduct_ClickHandler(ActionEvent actionEvent) {
-        int index = -1;
         String searchText = searchProductTextField.getText().trim();
-        ObservableList<Product> productList = FXCollections.observableArrayList();
-
-        try {
-            index = Integer.parseInt(searchText);
-        } catch (NumberFormatException e) {
-        }
-
-        if (index != -1) {
-            Product product = Inventory.lookupByProductID(index);
-            if (product != null) {
-                productList.add(product);
-            }
-        }
-
-        ObservableList<Product> productList2 = Inventory.lookupByProductName(searchText);
-
-        for (Product product : productList2) {
-            productList.add(product);
+        if (searchText.isEmpty()) {
+            productSearch.cancel();
+            showAllProducts();
+            return;
         }
 
+        productSearch.searchNow(searchText, matcher -> {
+            filterProducts(matcher);
 
-        productTable.setItems(productList);
-        productTable.refresh();
-
-        if (productList.size() == 0) {
-            AlertBoxHandler.displayNotFoundDialogue(0);
-        }
+            if (filteredProducts.size() == 0) {
+                AlertBoxHandler.displayNotFoundDialogue(0);
+            }
+        });
     }
 
 }
@@ -2,14 +2,11 @@ package controller;
 
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.Label;
 import javafx.scene.control.RadioButton;
 import javafx.scene.control.TextField;
-import main.Main;
+import model.DataValidator;
 import model.Inhouse;
 import model.Inventory;
 import model.Outsourced;
@@ -35,7 +32,7 @@ import java.util.ResourceBundle;
  * @author Rifatul Karim
  * @version 1.0
  */
-public class PartScreenController implements Initializable {
+public class PartScreenController implements Initializable, ScreenController {
 
     /**
      * Indicates the label of add/modify part on the screen.
@@ -130,6 +127,11 @@ public class PartScreenController implements Initializable {
      */
     @FXML private Label minFieldErrorMsg;
 
+    /**
+     * Checks the data inputs with the same rules as the CSV import.
+     */
+    private final DataValidator validator = new DataValidator();
+
     /**
      * Type of part Type selected on the Add/Modify Part Screen
      */
@@ -142,10 +144,8 @@ public class PartScreenController implements Initializable {
 
 
     /**
-     * Initiated upon calling this controller when selecting to modify/add Part from the main screen.
-     * It will disable the ability the edit data of the id field and also disable the part Type
-     * field until user pick one of Part Type. Furthermore, it will let the program know if the user
-     * is in modify or add screen and save the data accordingly.
+     * Initiated once when the screens are loaded at the start of the program.
+     * It will disable the ability the edit data of the id field.
      *
      * @param url The location used to resolve relative paths for the root object, or null if the location is not known.
      * @param resourceBundle The resources used to localize the root object, or null if the root object was not localized.
@@ -153,6 +153,27 @@ public class PartScreenController implements Initializable {
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
         partIdField.setDisable(true);
+    }
+
+    /**
+     * Called each time when selecting to modify/add Part from the main screen. It empties the fields
+     * and the error messages of the last visit and disables the part Type field until user pick one of
+     * Part Type. Furthermore, it will let the program know if the user is in modify or add screen and
+     * save the data accordingly.
+     */
+    @Override
+    public void reset() {
+        emptyErrorLabels();
+        partIdField.clear();
+        partNameField.clear();
+        partInventoryField.clear();
+        partPriceField.clear();
+        partMaxField.clear();
+        partMinField.clear();
+        partTypeField.clear();
+        inHouseButton.setSelected(false);
+        outSourceButton.setSelected(false);
+        partTypeLabel.setText("Machine ID");
 
         // sets the main label depend on the screen's state
         switch (MainScreenController.currentScreenState) {
@@ -204,27 +225,24 @@ public class PartScreenController implements Initializable {
         if (MainScreenController.currentScreenState == MainScreenController.ScreenState.MODIFY) {
             int idVal = Integer.parseInt(partIdField.getText());
 
+            Part updatedPart;
             if (inHouseButton.isSelected()) {
-                Inhouse updatedPart = new Inhouse(idVal, partName, priceVal, stockVal, minVal, maxVal, Long.parseLong(partTypeField.getText()));
-                Inventory.updatePart(idVal, updatedPart);
+                updatedPart = new Inhouse(idVal, partName, priceVal, stockVal, minVal, maxVal, Long.parseLong(partTypeField.getText()));
             }
             else {
-                Outsourced updatedPart = new Outsourced(idVal, partName, priceVal, stockVal, minVal, maxVal, partTypeField.getText());
+                updatedPart = new Outsourced(idVal, partName, priceVal, stockVal, minVal, maxVal, partTypeField.getText());
+            }
+
+            try {
                 Inventory.updatePart(idVal, updatedPart);
+            } catch (IllegalArgumentException e) {
+                // orders hold more units than the new inventory level leaves above the min
+                invErrorMsg.setText(e.getMessage());
+                return;
             }
         }
         else {
-            int id = -1;
-            // Step to generate new ID - finding the largest id number and then add 1 to obtain new id
-            if (Inventory.getAllParts().size() == 0) {
-                id = 1;
-            } else {
-                for(Part p : Inventory.getAllParts()) {
-                    id = Math.max(p.getId()+1, id);
-                }
-            }
-
-            System.out.println("new id will be = " + id);
+            int id = Inventory.generatePartId();
 
             if (inHouseButton.isSelected()) {
                 Inhouse updatedPart = new Inhouse(id, partName, priceVal, stockVal, minVal, maxVal, Long.parseLong(partTypeField.getText()));
@@ -239,9 +257,7 @@ public class PartScreenController implements Initializable {
         current_partType_selected = PART_TYPE.NONE_SELECTED;
 
         try {
-            Parent root = FXMLLoader.load(getClass().getResource("/view/MainScreen.fxml"));
-            Main.mainStage.setScene(new Scene(root));
-            Main.mainStage.show();
+            ScreenNavigator.show(ScreenNavigator.Screen.MAIN);
         } catch (IOException e) {
             AlertBoxHandler.displayWarningDialogue("MainScreen.fxml");
         }
@@ -257,10 +273,7 @@ public class PartScreenController implements Initializable {
     public void cancelAction(ActionEvent actionEvent)  {
         try {
             current_partType_selected = PART_TYPE.NONE_SELECTED;
-            Parent root = FXMLLoader.load(getClass().getResource("/view/MainScreen.fxml"));
-
-            Main.mainStage.setScene(new Scene(root));
-            Main.mainStage.show();
+            ScreenNavigator.show(ScreenNavigator.Screen.MAIN);
         } catch (IOException e) { AlertBoxHandler.displayWarningDialogue("MainScreen.fxml"); }
     }
 
@@ -295,81 +308,26 @@ public class PartScreenController implements Initializable {
      * @return returns true if there is error present.
      */
     private boolean checkDataValidity () {
-        boolean errorFound = false;
         emptyErrorLabels();
 
-        int stockVal = -1, minVal = -1, maxVal = -1;
-        long machineIdVal = -1;
-        double priceVal = -1;
-
         if (!inHouseButton.isSelected() && !outSourceButton.isSelected()) {
-            ScreenExceptionHandler.showErrorMsg(10, exceptionErrorMsg);
+            ScreenExceptionHandler.showErrorMsg(DataValidator.NO_PART_TYPE, exceptionErrorMsg);
             return true;
         }
 
-        if (partNameField.getText().trim().length() == 0) {
-            ScreenExceptionHandler.showErrorMsg(1, nameErrorMsg);
-            errorFound = true;
-        }
+        boolean errorFound = validator.checkPart(partNameField.getText(), partPriceField.getText(),
+                partInventoryField.getText(), partMinField.getText(), partMaxField.getText(),
+                inHouseButton.isSelected(), partTypeField.getText());
 
-        try {
-            minVal = Integer.parseInt(partMinField.getText());
-        } catch (NumberFormatException e) {
-            ScreenExceptionHandler.showErrorMsg(2, minFieldErrorMsg);
-            errorFound = true;
-        }
-        try {
-            maxVal = Integer.parseInt(partMaxField.getText());
-        } catch (NumberFormatException e) {
-            ScreenExceptionHandler.showErrorMsg(2, maxFieldErrorMsg);
-            errorFound = true;
-        }
-        try {
-            stockVal = Integer.parseInt(partInventoryField.getText());
-        } catch (NumberFormatException e) {
-            ScreenExceptionHandler.showErrorMsg(2, invErrorMsg);
-            errorFound = true;
-        }
-        try {
-            priceVal = Double.parseDouble(partPriceField.getText());
-        } catch (NumberFormatException e) {
+        ScreenExceptionHandler.showErrorMsg(validator.getError(DataValidator.Field.NAME), nameErrorMsg);
+        ScreenExceptionHandler.showErrorMsg(validator.getError(DataValidator.Field.MIN), minFieldErrorMsg);
+        ScreenExceptionHandler.showErrorMsg(validator.getError(DataValidator.Field.MAX), maxFieldErrorMsg);
+        ScreenExceptionHandler.showErrorMsg(validator.getError(DataValidator.Field.STOCK), invErrorMsg);
+        ScreenExceptionHandler.showErrorMsg(validator.getError(DataValidator.Field.PART_TYPE), ptypeErrorMsg);
+        if (validator.getError(DataValidator.Field.PRICE) == DataValidator.NOT_A_NUMBER) {
             priceErrorMsg.setText("Enter a valid price value. It must include cents.");
-            errorFound = true;
-        }
-
-        if (inHouseButton.isSelected()) {
-            try {
-                machineIdVal = Long.parseLong(partTypeField.getText());
-            } catch (NumberFormatException e) {
-                ScreenExceptionHandler.showErrorMsg(2, ptypeErrorMsg);
-                errorFound = true;
-            }
-        } else if (partTypeField.getText().trim().length() == 0) {
-            ScreenExceptionHandler.showErrorMsg(1, ptypeErrorMsg);
-            errorFound = true;
-        }
-
-        if (errorFound) { return true; }
-
-        if (minVal < 0) {
-            ScreenExceptionHandler.showErrorMsg(3, minFieldErrorMsg);
-            errorFound = true;
-        }
-        if (maxVal < 0) {
-            ScreenExceptionHandler.showErrorMsg(3, maxFieldErrorMsg);
-            errorFound = true;
-        }
-        if (maxVal <= minVal) {
-            ScreenExceptionHandler.showErrorMsg(4, minFieldErrorMsg);
-            errorFound = true;
-        }
-        if (priceVal < 0) {
-            ScreenExceptionHandler.showErrorMsg(3, priceErrorMsg);
-            errorFound = true;
-        }
-        if (!(stockVal >= minVal && stockVal <= maxVal)) {
-            errorFound = true;
-            ScreenExceptionHandler.showErrorMsg(9, invErrorMsg);
+        } else {
+            ScreenExceptionHandler.showErrorMsg(validator.getError(DataValidator.Field.PRICE), priceErrorMsg);
         }
 
         return errorFound;
@@ -2,24 +2,25 @@ package controller;
 
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
+import javafx.collections.transformation.SortedList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
 import javafx.scene.Node;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.*;
-import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.input.KeyEvent;
 import javafx.stage.Stage;
-import main.Main;
+import model.Bom;
+import model.DataValidator;
 import model.Inventory;
 import model.Part;
 import model.Product;
 
 import java.io.IOException;
 import java.net.URL;
+import java.util.Arrays;
+import java.util.List;
 import java.util.ResourceBundle;
 
 /**
@@ -28,7 +29,7 @@ import java.util.ResourceBundle;
  * @author Rifatul Karim
  * @version 1.0
  */
-public class ProductScreenController implements Initializable {
+public class ProductScreenController implements Initializable, ScreenController {
 
     /**
      * Displays the id data of the product
@@ -73,42 +74,42 @@ public class ProductScreenController implements Initializable {
     /**
      * Column that displays the Id of a part on the part table.
      */
-    @FXML private TableColumn alltable_partID_col;
+    @FXML private TableColumn<Part, Integer> alltable_partID_col;
 
     /**
      * Column that displays the Id of a part on the part table.
      */
-    @FXML private TableColumn alltable_partName_col;
+    @FXML private TableColumn<Part, String> alltable_partName_col;
 
     /**
      * Column that displays the Id of a part on the part table.
      */
-    @FXML private TableColumn alltable_partInv_col;
+    @FXML private TableColumn<Part, Integer> alltable_partInv_col;
 
     /**
      * Column that displays the Id of a part on the part table.
      */
-    @FXML private TableColumn alltable_partPrice_col;
+    @FXML private TableColumn<Part, Double> alltable_partPrice_col;
 
     /**
      * Column that displays the Id of a part on the product associate part table.
      */
-    @FXML private TableColumn product_partID_col;
+    @FXML private TableColumn<Part, Integer> product_partID_col;
 
     /**
      * Column that displays the Name of a part on the product associate part table.
      */
-    @FXML private TableColumn product_partName_col;
+    @FXML private TableColumn<Part, String> product_partName_col;
 
     /**
      * Column that displays the Inventory Level of a part on the product associate part table.
      */
-    @FXML private TableColumn product_partInv_col;
+    @FXML private TableColumn<Part, Integer> product_partInv_col;
 
     /**
      * Column that displays the Price of a part on the product associate part table.
      */
-    @FXML private TableColumn product_partPrice_col;
+    @FXML private TableColumn<Part, Double> product_partPrice_col;
 
     /**
      * Table view that displays all the available parts on the inventory.
@@ -161,6 +162,10 @@ public class ProductScreenController implements Initializable {
      */
     @FXML private Label partTextSearchErrorMsg;
 
+    /**
+     * Checks the data inputs with the same rules as the CSV import.
+     */
+    private final DataValidator validator = new DataValidator();
 
     /**
      * Holds the data of the associate part of the product to show on the table view.
@@ -169,7 +174,24 @@ public class ProductScreenController implements Initializable {
     private final ObservableList<Part> productParts = FXCollections.observableArrayList();
 
     /**
-     * Initiated upon calling this controller when selecting to modify/add product from the main screen.
+     * The associate parts of the modified product that are not known to the inventory, with their
+     * quantities. They cannot be shown on the table, so they are kept here and saved back with the product.
+     */
+    private Bom unknownParts = Bom.EMPTY;
+
+    /**
+     * The parts of the inventory that match the part search, or all of them if there is no search.
+     */
+    private final FilteredList<Part> filteredParts = new FilteredList<>(InventoryObservableList.parts());
+
+    /**
+     * Searches the parts of the inventory on a background thread.
+     */
+    private final BackgroundSearch<SearchMatcher<Part>> partSearch =
+            new BackgroundSearch<>(SearchMatcher::searchParts);
+
+    /**
+     * Initiated once when the screens are loaded at the start of the program.
      * This class requires to initializes the table column for the both tables and also will disable the
      * ability the edit data of the id field which will auto generated by the program. Afterwards, it
      * populates the table views with availiable parts from inventory and parts of the product.
@@ -179,16 +201,36 @@ public class ProductScreenController implements Initializable {
      */
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
-        alltable_partID_col.setCellValueFactory(new PropertyValueFactory<>("id"));
-        alltable_partName_col.setCellValueFactory(new PropertyValueFactory<>("name"));
-        alltable_partInv_col.setCellValueFactory(new PropertyValueFactory<>("stock"));
-        alltable_partPrice_col.setCellValueFactory(new PropertyValueFactory<>("price"));
+        alltable_partID_col.setCellValueFactory(CellValues.of(Part::getId));
+        alltable_partName_col.setCellValueFactory(CellValues.of(Part::getName));
+        alltable_partInv_col.setCellValueFactory(CellValues.of(Part::getStock));
+        alltable_partPrice_col.setCellValueFactory(CellValues.of(Part::getPrice));
+        alltable_partID_col.setCellFactory(CellValues.integerCells());
+        alltable_partInv_col.setCellFactory(CellValues.integerCells());
+        alltable_partPrice_col.setCellFactory(CellValues.priceCells());
+
+        product_partID_col.setCellValueFactory(CellValues.of(Part::getId));
+        product_partName_col.setCellValueFactory(CellValues.of(Part::getName));
+        product_partPrice_col.setCellValueFactory(CellValues.of(Part::getPrice));
+        product_partInv_col.setCellValueFactory(CellValues.of(Part::getStock));
+        product_partID_col.setCellFactory(CellValues.integerCells());
+        product_partPrice_col.setCellFactory(CellValues.priceCells());
+        product_partInv_col.setCellFactory(CellValues.integerCells());
 
-        product_partID_col.setCellValueFactory(new PropertyValueFactory<>("id"));
-        product_partName_col.setCellValueFactory(new PropertyValueFactory<>("name"));
-        product_partPrice_col.setCellValueFactory(new PropertyValueFactory<>("price"));
-        product_partInv_col.setCellValueFactory(new PropertyValueFactory<>("stock"));
+        productIDField.setDisable(true);
+        productPartListTable.setItems(productParts);
+        SortedList<Part> sortedParts = new SortedList<>(filteredParts);
+        sortedParts.comparatorProperty().bind(partListTable.comparatorProperty());
+        partListTable.setItems(sortedParts);
+    }
 
+    /**
+     * Called each time when selecting to modify/add product from the main screen. It empties the fields,
+     * the associate parts, the part search and the error messages of the last visit and sets the main
+     * label depend on the screen's state.
+     */
+    @Override
+    public void reset() {
         switch (MainScreenController.currentScreenState) {
             case ADD:
                 productScreenLabel.setText("Add Part");
@@ -199,9 +241,21 @@ public class ProductScreenController implements Initializable {
             default: break;
         }
 
-        productIDField.setDisable(true);
-        productPartListTable.setItems(productParts);
-        partListTable.setItems(Inventory.getAllParts());
+        removeErrorLabels();
+        partTextSearchErrorMsg.setText("");
+        productIDField.clear();
+        productNameField.clear();
+        productInvField.clear();
+        productPriceField.clear();
+        productMaxField.clear();
+        productMinField.clear();
+        productParts.clear();
+        unknownParts = Bom.EMPTY;
+
+        partSearch.cancel();
+        searchPartTextField.clear();
+        showAllParts();
+        partListTable.getSelectionModel().clearSelection();
     }
 
     /**
@@ -254,7 +308,7 @@ public class ProductScreenController implements Initializable {
         if(checkDataValidity() == true) { return; }
 
         // check if the state of the screen is add or modify. If Add, then it will need to
-        // generate new Id by obtaining the current Inventory highest Id and add one.
+        // generate new Id from the inventory id generator.
         if(MainScreenController.currentScreenState == MainScreenController.ScreenState.MODIFY) {
             Product modifiedProduct = new Product(Integer.parseInt(productIDField.getText()),
                     productNameField.getText(),
@@ -262,106 +316,70 @@ public class ProductScreenController implements Initializable {
                     Integer.parseInt(productInvField.getText()),
                     Integer.parseInt(productMinField.getText()),
                     Integer.parseInt(productMaxField.getText()));
-            modifiedProduct.setAssociatedParts(productParts);
-            Inventory.updateProduct(modifiedProduct.getId()-1, modifiedProduct);
+            modifiedProduct.setBom(billOfMaterials());
+            try {
+                Inventory.updateProduct(modifiedProduct.getId()-1, modifiedProduct);
+            } catch (IllegalArgumentException e) {
+                // orders hold more units than the new inventory level leaves above the min
+                invFieldErrorMsg.setText(e.getMessage());
+                return;
+            }
         }
         else if(MainScreenController.currentScreenState == MainScreenController.ScreenState.ADD) {
-            int max = 0;
-            for(Product product : Inventory.getProducts()) {
-                if (product.getId() > max) {
-                    max = product.getId();
-                }
-            }
-            Product newProduct = new Product(max+1,
+            Product newProduct = new Product(Inventory.generateProductId(),
                     productNameField.getText(),
                     Double.parseDouble(productPriceField.getText()),
                     Integer.parseInt(productInvField.getText()),
                     Integer.parseInt(productMinField.getText()),
                     Integer.parseInt(productMaxField.getText()));
-            newProduct.setAssociatedParts(productParts);
+            newProduct.setBom(billOfMaterials());
             Inventory.addProduct(newProduct);
         }
 
         try {
-            Parent root = FXMLLoader.load(getClass().getResource("/view/MainScreen.fxml"));
-            MainScreenController.currentScreenState = MainScreenController.ScreenState.MAIN;
-
-            Main.mainStage.setScene(new Scene(root));
-            Main.mainStage.show();
+            ScreenNavigator.show(ScreenNavigator.Screen.MAIN);
         } catch (IOException e) {
             AlertBoxHandler.displayWarningDialogue("MainScreen.fxml");
         }
     }
 
     /**
-     * Checks all the data inputs in the textfield and see if they are in right format and follows the rule.
-     * Afterwards it will print out for each errors into the same screen otherwise returns false.
+     * Makes the bill of materials of the product from the parts on the associate part table and the
+     * associate parts that are not known to the inventory.
      *
-     * @return returns true if there are error found.
+     * @return the bill of materials to save
      */
-    private boolean checkDataValidity() {
-        boolean errorFound = false;
-
-        String name;
-        int stockVal = -1, minVal = -1, maxVal = -1, machineIdVal = -1;
-        double priceVal = -1;
-
-        // firstly checks the format of each data.
+    private Bom billOfMaterials() {
+        int shown = productParts.size();
+        int[] partIds = new int[shown + unknownParts.size()];
+        int[] quantities = new int[partIds.length];
 
-        try { minVal = Integer.parseInt(productMinField.getText()); }
-        catch (NumberFormatException e) {
-            ScreenExceptionHandler.showErrorMsg(2, minFieldErrorMsg);
-            errorFound = true;
+        for (int i = 0; i < shown; i++) {
+            partIds[i] = productParts.get(i).getId();
+            quantities[i] = 1;
         }
-        try { maxVal = Integer.parseInt(productMaxField.getText()); }
-        catch (NumberFormatException e) {
-            ScreenExceptionHandler.showErrorMsg(2, maxFieldErrorMsg);
-            errorFound = true;
-        }
-        try { stockVal = Integer.parseInt(productInvField.getText()); }
-        catch (NumberFormatException e) {
-            ScreenExceptionHandler.showErrorMsg(2, invFieldErrorMsg);
-            errorFound = true;
-        }
-        try { priceVal = Double.parseDouble(productPriceField.getText()); }
-        catch (NumberFormatException e) {
-            ScreenExceptionHandler.showErrorMsg(2, priceFieldErrorMsg);
-            errorFound = true;
-        }
-
-        if (productNameField.getText().trim().length() == 0) {
-            ScreenExceptionHandler.showErrorMsg(1, nameFieldErrorMsg);
-            errorFound = true;
-        }
-
-        if(errorFound) { return true; }
-
-        /* if no error found upto this point means that all of the data were in right format and
-           now compare each data with other */
-
-        if (minVal < 0) {
-            ScreenExceptionHandler.showErrorMsg(3, minFieldErrorMsg);
-            errorFound = true;
-        }
-        if (maxVal < 0) {
-            ScreenExceptionHandler.showErrorMsg(3, maxFieldErrorMsg);
-            errorFound = true;
-        }
-        if (priceVal < 0) {
-            ScreenExceptionHandler.showErrorMsg(3, priceFieldErrorMsg);
-            errorFound = true;
+        for (int i = 0; i < unknownParts.size(); i++) {
+            partIds[shown + i] = unknownParts.getPartId(i);
+            quantities[shown + i] = unknownParts.getQuantity(i);
         }
+        return Bom.of(partIds, quantities);
+    }
 
-        // finally check if min > max and inventory value is between min and max.
+    /**
+     * Checks all the data inputs in the textfield and see if they are in right format and follows the rule.
+     * Afterwards it will print out for each errors into the same screen otherwise returns false.
+     *
+     * @return returns true if there are error found.
+     */
+    private boolean checkDataValidity() {
+        boolean errorFound = validator.checkProduct(productNameField.getText(), productPriceField.getText(),
+                productInvField.getText(), productMinField.getText(), productMaxField.getText());
 
-        if (minVal > maxVal) {
-            ScreenExceptionHandler.showErrorMsg(4, maxFieldErrorMsg);
-            errorFound = true;
-        }
-        if (!(stockVal >= minVal && stockVal <= maxVal) ) {
-            ScreenExceptionHandler.showErrorMsg(9, invFieldErrorMsg);
-            errorFound = true;
-        }
+        ScreenExceptionHandler.showErrorMsg(validator.getError(DataValidator.Field.NAME), nameFieldErrorMsg);
+        ScreenExceptionHandler.showErrorMsg(validator.getError(DataValidator.Field.PRICE), priceFieldErrorMsg);
+        ScreenExceptionHandler.showErrorMsg(validator.getError(DataValidator.Field.STOCK), invFieldErrorMsg);
+        ScreenExceptionHandler.showErrorMsg(validator.getError(DataValidator.Field.MIN), minFieldErrorMsg);
+        ScreenExceptionHandler.showErrorMsg(validator.getError(DataValidator.Field.MAX), maxFieldErrorMsg);
 
         return errorFound;
     }
@@ -376,9 +394,7 @@ public class ProductScreenController implements Initializable {
         removeErrorLabels();
 
         try {
-            Parent root = FXMLLoader.load(getClass().getResource("/view/MainScreen.fxml"));
-            Main.mainStage.setScene(new Scene(root));
-            Main.mainStage.show();
+            ScreenNavigator.show(ScreenNavigator.Screen.MAIN);
         } catch (IOException e) { AlertBoxHandler.displayWarningDialogue("MainScreen.fxml"); }
     }
 
@@ -388,9 +404,33 @@ public class ProductScreenController implements Initializable {
      * @param selectedProduct loads the selected data from the product table of the main screen
     */
     public void loadSelectedProductData(Product selectedProduct) {
+        Bom bom = selectedProduct.getBom();
+        List<Part> associatedParts = selectedProduct.getAssociatedParts();
+        int[] unknownIds = new int[bom.size()];
+        int[] unknownQuantities = new int[bom.size()];
+        int unknown = 0;
+
+        // the list has each part as often as it is needed, so the first position of a part is after
+        // the quantities of the parts before it
+        int position = 0;
+        for (int i = 0; i < bom.size(); i++) {
+            Part part = associatedParts.get(position);
+            if (part == null) {
+                unknownIds[unknown] = bom.getPartId(i);
+                unknownQuantities[unknown] = bom.getQuantity(i);
+                unknown++;
+            } else {
+                for (int count = 0; count < bom.getQuantity(i); count++) {
+                    productParts.add(part);
+                }
+            }
+            position += bom.getQuantity(i);
+        }
 
-        for (Part part : selectedProduct.getAssociatedParts()) {
-            productParts.add(part);
+        unknownParts = Bom.of(Arrays.copyOf(unknownIds, unknown), Arrays.copyOf(unknownQuantities, unknown));
+        if (unknown > 0) {
+            errorMessageLabel.setText(unknown + " associate part(s) are not known to the inventory "
+                    + "and are kept with the product.");
         }
 
         productIDField.setText(selectedProduct.getId() + "");
@@ -406,8 +446,8 @@ public class ProductScreenController implements Initializable {
     }
 
     /**
-     * Checks if the textfield of the part search is empty
-     * then it will refresh the table to the original state.
+     * Searches the parts as the user types. The search starts when the user stops typing, and the
+     * table goes back to the original state if the textfield is empty then.
      *
      * @param keyEvent search part on key pressed handler
      */
@@ -415,11 +455,7 @@ public class ProductScreenController implements Initializable {
 
         if(searchPartTextField == null) { return; }
 
-        if(searchPartTextField.getText().trim().length() == 0) {
-            partListTable.setItems(Inventory.getAllParts());
-            partListTable.refresh();
-        }
-
+        partSearch.searchLater(searchPartTextField::getText, this::showAllParts, this::filterParts);
     }
 
     /**
@@ -432,30 +468,37 @@ public class ProductScreenController implements Initializable {
      */
     public void searchPart_ClickHandler(ActionEvent actionEvent) {
 
-        int index = -1;
         String searchText = searchPartTextField.getText().trim();
-        ObservableList<Part> partList = FXCollections.observableArrayList();
-
-        try { index = Integer.parseInt(searchText); }
-        catch (NumberFormatException e) { index = -1; }
-
-        if(index != -1) {
-            Part part = Inventory.lookupByPartID(index);
-            if (part != null) { partList.add(part); }
+        if(searchText.isEmpty()) {
+            partSearch.cancel();
+            showAllParts();
+            return;
         }
 
-        ObservableList<Part> partList2 = Inventory.lookupByPartName(searchText);
+        partSearch.searchNow(searchText, matcher -> {
+            filterParts(matcher);
 
-        for(int i = 0; i < partList2.size(); i++) {
-            partList.add(partList2.get(i));
-        }
+            if (filteredParts.size() == 0) {
+                AlertBoxHandler.displayNotFoundDialogue(1);
+            }
+        });
+    }
 
-        partListTable.setItems(partList);
-        partListTable.refresh();
+    /**
+     * Shows all the parts of the inventory in the part table.
+     */
+    private void showAllParts() {
+        filteredParts.setPredicate(null);
+    }
 
-        if (partList.size() == 0) {
-            AlertBoxHandler.displayNotFoundDialogue(1);
-        }
+    /**
+     * Shows the parts that match a search in the part table.
+     *
+     * @param matcher the filter of the search
+     */
+    private void filterParts(SearchMatcher<Part> matcher) {
+        filteredParts.setPredicate(matcher);
+        matcher.goLive();
     }
 
     /**
@@ -0,0 +1,19 @@
+package controller;
+
+/**
+ * Controller of a screen that is loaded once and shown again and again by the {@link ScreenNavigator}.
+ *
+ * <p>The FXML of a screen is only loaded at the start, so {@code initialize} only runs once. Everything
+ * that must be set each time the screen is shown is done in {@link #reset()} instead. Data of a selected
+ * part or product is loaded after the reset, like with {@link PartScreenController#initData(model.Part)}.</p>
+ *
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+public interface ScreenController {
+
+    /**
+     * Puts the screen back to its start state before it is shown. Called on the JavaFX application thread.
+     */
+    void reset();
+}
@@ -3,6 +3,7 @@ package controller;
 import javafx.animation.FadeTransition;
 import javafx.scene.control.Label;
 import javafx.util.Duration;
+import model.DataValidator;
 
 /**
 * This class objective is to handle the various common error message to print
@@ -17,27 +18,17 @@ import javafx.util.Duration;
 public final class ScreenExceptionHandler {
 
     /**
-    * This method is used to show common error of the application
+    * This method is used to show common error of the application. The messages are the ones of
+    * the error codes of the {@link DataValidator}.
     *
-    * @param type check for the type of error
+    * @param type check for the type of error, nothing is shown for 0
     * @param errorLabel Label to print the message.
     */
     public static void showErrorMsg(int type, Label errorLabel) {
 
-        switch (type) {
-            case 1: errorLabel.setText("This field cannot be empty.");
-                    break;
-            case 2: errorLabel.setText("Enter a valid number value.");
-                    break;
-            case 3: errorLabel.setText("This value cannot be negative.");
-                    break;
-            case 4: errorLabel.setText("Max value cannot be less than Min!");
-                    break;
-            case 9: errorLabel.setText("Inventory Level must be between Min and Max.");
-                    break;
-            case 10: errorLabel.setText("Must pick one of Part type!");
-                     break;
-            default: break;
+        String message = DataValidator.message(type);
+        if (message != null) {
+            errorLabel.setText(message);
         }
     }
 
@@ -0,0 +1,195 @@
+package controller;
+
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.stage.Stage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Switches the main stage between the screens of the application without loading their FXML again.
+ *
+ * <p>The FXML files of all the screens are loaded once, at the same time on background threads, when the
+ * application starts. Every screen keeps its scene and its controller, so going back to the main screen
+ * does not build the big tables again. Before a screen is shown its controller is reset with
+ * {@link ScreenController#reset()}. A screen whose FXML could not be loaded at the start is loaded again
+ * when it is shown.</p>
+ *
+ * <p>Nodes may be built on any thread until they are shown, but scenes may not, so the scenes are made on
+ * the JavaFX application thread. All the methods must be called on the JavaFX application thread.</p>
+ *
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+public final class ScreenNavigator {
+
+    /**
+     * The screens of the application.
+     */
+    public enum Screen {
+
+        /** The main screen with the part and product tables. */
+        MAIN("MainScreen.fxml"),
+
+        /** The screen to add or modify a part. */
+        PART("PartScreen.fxml"),
+
+        /** The screen to add or modify a product. */
+        PRODUCT("ProductScreen.fxml");
+
+        /**
+         * Name of the FXML file in the view package.
+         */
+        private final String fxmlFile;
+
+        /**
+         * @param fxmlFile name of the FXML file in the view package
+         */
+        Screen(String fxmlFile) {
+            this.fxmlFile = fxmlFile;
+        }
+
+        /**
+         * @return name of the FXML file in the view package
+         */
+        public String getFxmlFile() {
+            return fxmlFile;
+        }
+    }
+
+    /**
+     * A loaded screen.
+     */
+    private static final class LoadedScreen {
+
+        /**
+         * The scene of the screen.
+         */
+        private final Scene scene;
+
+        /**
+         * The controller of the screen.
+         */
+        private final ScreenController controller;
+
+        /**
+         * @param scene the scene of the screen
+         * @param controller the controller of the screen
+         */
+        private LoadedScreen(Scene scene, ScreenController controller) {
+            this.scene = scene;
+            this.controller = controller;
+        }
+    }
+
+    /**
+     * The loaded screens.
+     */
+    private static final Map<Screen, LoadedScreen> screens = new EnumMap<>(Screen.class);
+
+    /**
+     * The stage that shows the screens.
+     */
+    private static Stage stage;
+
+    /**
+     * Only static methods.
+     */
+    private ScreenNavigator() {
+    }
+
+    /**
+     * Loads the FXML of all the screens in parallel and waits until they are loaded. A screen that cannot
+     * be loaded is skipped and loaded again by {@link #show(Screen)}, which then reports the error.
+     *
+     * @param mainStage the stage that shows the screens
+     */
+    public static void preload(Stage mainStage) {
+        stage = mainStage;
+
+        ExecutorService loaders = Executors.newFixedThreadPool(Screen.values().length, task -> {
+            Thread thread = new Thread(task, "screen-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            List<CompletableFuture<FXMLLoader>> loading = new ArrayList<>();
+            for (Screen screen : Screen.values()) {
+                loading.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return loadFxml(screen);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, loaders));
+            }
+
+            for (Screen screen : Screen.values()) {
+                try {
+                    screens.put(screen, toScreen(loading.get(screen.ordinal()).join()));
+                } catch (CompletionException e) {
+                    System.err.println("Could not load " + screen.getFxmlFile() + ": " + e.getCause().getMessage());
+                }
+            }
+        } finally {
+            loaders.shutdown();
+        }
+    }
+
+    /**
+     * Resets a screen and shows it on the main stage.
+     *
+     * @param screen the screen to show
+     * @param <C> type of the controller of the screen
+     * @return the controller of the screen, to load the selected data
+     * @throws IOException if the FXML of the screen cannot be loaded
+     */
+    @SuppressWarnings("unchecked")
+    public static <C extends ScreenController> C show(Screen screen) throws IOException {
+        LoadedScreen loaded = screens.get(screen);
+        if (loaded == null) {
+            loaded = toScreen(loadFxml(screen));
+            screens.put(screen, loaded);
+        }
+
+        loaded.controller.reset();
+        stage.setScene(loaded.scene);
+        stage.show();
+        return (C) loaded.controller;
+    }
+
+    /**
+     * Loads the FXML of a screen. This may run on any thread.
+     *
+     * @param screen the screen
+     * @return the loader that holds the root and the controller
+     * @throws IOException if the FXML cannot be found or read
+     */
+    private static FXMLLoader loadFxml(Screen screen) throws IOException {
+        FXMLLoader loader = new FXMLLoader(ScreenNavigator.class.getResource("/view/" + screen.getFxmlFile()));
+        loader.load();
+        return loader;
+    }
+
+    /**
+     * Makes the scene of a loaded screen, on the JavaFX application thread.
+     *
+     * @param loader the loader of the screen
+     * @return the loaded screen
+     */
+    private static LoadedScreen toScreen(FXMLLoader loader) {
+        Parent root = loader.getRoot();
+        return new LoadedScreen(new Scene(root), loader.getController());
+    }
+}
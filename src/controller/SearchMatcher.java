@@ -0,0 +1,135 @@
+package controller;
+
+import model.IntHashMap;
+import model.Inventory;
+import model.InventoryView;
+import model.Part;
+import model.Product;
+import model.SearchQuery;
+
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * Filter of a table for a search, made from the result of a {@link BackgroundSearch}.
+ *
+ * <p>The search runs on a view of the inventory and the found data is kept in an index by id, so a
+ * filtered list can check its whole source against the search with one lookup per row when the filter is
+ * set. A row that is not the data of the view was added or changed after the search ran, so it is checked
+ * against the search text itself. After that the filter is made live with
+ * {@link #goLive()}: the filtered list only asks it again for the data that is added or changed later, and
+ * those are checked against the search text itself, so the results follow the changes of the inventory.</p>
+ *
+ * @param <T> type of the filtered data
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+final class SearchMatcher<T> implements Predicate<T> {
+
+    /**
+     * The search text.
+     */
+    private final SearchQuery query;
+
+    /**
+     * The data found by the search, by id.
+     */
+    private final IntHashMap<T> found;
+
+    /**
+     * Looks up the data in the view of the inventory that the search ran on.
+     */
+    private final IntFunction<T> inView;
+
+    /**
+     * Reads the id of a data.
+     */
+    private final ToIntFunction<T> idOf;
+
+    /**
+     * Reads the name of a data.
+     */
+    private final Function<T, String> nameOf;
+
+    /**
+     * True once the data is checked against the search text instead of the found data.
+     */
+    private boolean live;
+
+    /**
+     * Creates the filter with no found data yet.
+     *
+     * @param query the search text
+     * @param inView looks up the data in the view of the inventory that the search runs on
+     * @param idOf reads the id of a data
+     * @param nameOf reads the name of a data
+     */
+    private SearchMatcher(SearchQuery query, IntFunction<T> inView, ToIntFunction<T> idOf,
+                          Function<T, String> nameOf) {
+        this.query = query;
+        this.inView = inView;
+        this.idOf = idOf;
+        this.nameOf = nameOf;
+        this.found = new IntHashMap<>();
+    }
+
+    /**
+     * Searches the parts of the inventory by their id and the name index.
+     *
+     * @param query the search text
+     * @return the filter of the found parts
+     */
+    static SearchMatcher<Part> searchParts(SearchQuery query) {
+        InventoryView view = Inventory.snapshot();
+        SearchMatcher<Part> matcher = new SearchMatcher<>(query, view::lookupPart, Part::getId, Part::getName);
+        Inventory.searchParts(view, query, matcher::add);
+        return matcher;
+    }
+
+    /**
+     * Searches the products of the inventory by their id and the name index.
+     *
+     * @param query the search text
+     * @return the filter of the found products
+     */
+    static SearchMatcher<Product> searchProducts(SearchQuery query) {
+        InventoryView view = Inventory.snapshot();
+        SearchMatcher<Product> matcher =
+                new SearchMatcher<>(query, view::lookupProduct, Product::getId, Product::getName);
+        Inventory.searchProducts(view, query, matcher::add);
+        return matcher;
+    }
+
+    /**
+     * Adds data found by the search.
+     *
+     * @param element the found data
+     */
+    private void add(T element) {
+        found.put(idOf.applyAsInt(element), element);
+    }
+
+    /**
+     * Checks the data that is added or changed from now on against the search text. Called once the
+     * filtered list checked all its data.
+     */
+    void goLive() {
+        live = true;
+    }
+
+    /**
+     * @param element data of the table
+     * @return true if the data matches the search
+     */
+    @Override
+    public boolean test(T element) {
+        int id = idOf.applyAsInt(element);
+        if (!live && element == inView.apply(id)) {
+            // the row is the data the search looked at, so the search already decided it
+            return found.get(id) == element;
+        }
+        return query.matches(id, nameOf.apply(element));
+    }
+}
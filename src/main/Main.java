@@ -1,14 +1,24 @@
 package main;
 
 import controller.AlertBoxHandler;
-import controller.MainScreenController;
+import controller.ScreenNavigator;
 import javafx.application.Application;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Parent;
+import javafx.application.Platform;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 
+import model.Inventory;
+import model.WriteAheadLog;
+import server.InventoryHttpServer;
+import server.StockEventServer;
+
 import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CompletionException;
 
 /**
  * Inventory Application using object-oriented approach.
@@ -22,7 +32,13 @@ import java.io.IOException;
  *  it could not alert the user that if there were no search found which I have fixed by counting the search part/product
  *  and if they equate to zero then I would display alert box using AlertBoxHandler class.</p>
  *
- * <p><b>FUTURE ENHANCEMENT</b> I would like to store the inventory in a computer file.</p>
+ * <p>The changes to the inventory are kept in a snapshot and a write-ahead log in the data directory and loaded on the next start.
+ * If the snapshot cannot be loaded, the application shows an error and closes without changing the files.</p>
+ *
+ * <p>With the system property {@value InventoryHttpServer#PORT_PROPERTY} the application also starts the
+ * local HTTP API of the inventory on that port, see {@link InventoryHttpServer}. With the system property
+ * {@value StockEventServer#PORT_PROPERTY} it takes in the stock movements of the warehouse scanners on that
+ * port, see {@link StockEventServer}.</p>
  *
  * @author Rifatul Karim
  * @version 1.0
@@ -32,6 +48,21 @@ public class Main extends Application {
     /** The main stage of the application */
     public static Stage mainStage;
 
+    /** The directory where the application keeps its data files */
+    public static final Path DATA_DIRECTORY = Paths.get("data");
+
+    /** The write-ahead log that stores the changes of the inventory */
+    private static final Path WRITE_AHEAD_LOG = DATA_DIRECTORY.resolve("inventory.wal");
+
+    /** The snapshot of the inventory that is loaded on start and written when the application closes */
+    private static final Path SNAPSHOT = DATA_DIRECTORY.resolve("inventory.snapshot");
+
+    /** The local HTTP API of the inventory, or null if it was not started */
+    private static InventoryHttpServer httpServer;
+
+    /** The server of the stock movements of the scanners, or null if it was not started */
+    private static StockEventServer stockEventServer;
+
     /**
      * The start method that is use to load the MainScreen of the application.
      *
@@ -42,21 +73,104 @@ public class Main extends Application {
         mainStage = primaryStage;
         mainStage.setTitle("RifatulKarim_C482_PA");
 
+        // changes from background threads reach the tables on the JavaFX application thread
+        Inventory.projectOnUiThread(Platform::runLater, Platform::isFxApplicationThread);
+
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/MainScreen.fxml"));
-            Parent root = loader.load();
+            Inventory.loadIdHighWaterMarks(DATA_DIRECTORY);
+        } catch (IOException e) {
+            System.err.println("Could not load the id high-water marks: " + e.getMessage());
+        }
 
-            MainScreenController mainScreenController = loader.getController();
+        if (Files.exists(SNAPSHOT)) {
+            try {
+                Inventory.loadSnapshot(SNAPSHOT);
+            } catch (IOException e) {
+                // going on with an empty inventory would overwrite the snapshot and empty the log on close,
+                // so the application stops here and leaves both files as they are
+                System.err.println("Could not load the snapshot: " + e.getMessage());
+                AlertBoxHandler.displayLoadErrorDialogue(SNAPSHOT.toString(), e.getMessage());
+                System.exit(1);
+            }
+        } else {
+            Inventory.loadSampleData();
+        }
 
-            Scene scene = new Scene(root);
-            primaryStage.setScene(scene);
-            primaryStage.show();
+        try {
+            Inventory.openWriteAheadLog(WRITE_AHEAD_LOG, WriteAheadLog.SyncPolicy.INTERVAL);
+        } catch (IOException e) {
+            System.err.println("Could not open the write-ahead log: " + e.getMessage());
+        }
+
+        String httpPort = System.getProperty(InventoryHttpServer.PORT_PROPERTY);
+        if (httpPort != null) {
+            try {
+                // a setting of the whole JVM, so it is made here before the first server reads it
+                InventoryHttpServer.turnOffWriteDelay();
+                // only programs on this computer can reach the API
+                httpServer = new InventoryHttpServer(
+                        new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(httpPort)));
+                httpServer.start();
+            } catch (IOException | NumberFormatException e) {
+                System.err.println("Could not start the HTTP API: " + e.getMessage());
+            }
+        }
+
+        String eventPort = System.getProperty(StockEventServer.PORT_PROPERTY);
+        if (eventPort != null) {
+            try {
+                stockEventServer = new StockEventServer(
+                        new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(eventPort)));
+                stockEventServer.start();
+            } catch (IOException | NumberFormatException e) {
+                System.err.println("Could not start the stock event server: " + e.getMessage());
+            }
+        }
+
+        // all the screens are loaded once here and reused when the user switches between them
+        ScreenNavigator.preload(primaryStage);
+
+        try {
+            ScreenNavigator.show(ScreenNavigator.Screen.MAIN);
         } catch (IOException e) {
             AlertBoxHandler.displayWarningDialogue("MainScreen.fxml");
             System.exit(1);
         }
     }
 
+    /**
+     * Stops the HTTP API and the stock event server and stores the id high-water marks when the application
+     * closes so that the ids of deleted data are not handed out again on the next start. A snapshot of the
+     * inventory is written, after which the write-ahead log is empty.
+     */
+    @Override
+    public void stop() {
+        if (httpServer != null) {
+            httpServer.stop();
+        }
+        if (stockEventServer != null) {
+            stockEventServer.stop();
+        }
+
+        try {
+            Inventory.writeSnapshot(SNAPSHOT).join();
+        } catch (CompletionException e) {
+            System.err.println("Could not write the snapshot: " + e.getCause().getMessage());
+        }
+
+        try {
+            Inventory.closeWriteAheadLog();
+        } catch (IOException e) {
+            System.err.println("Could not write the write-ahead log: " + e.getMessage());
+        }
+
+        try {
+            Inventory.storeIdHighWaterMarks(DATA_DIRECTORY);
+        } catch (IOException e) {
+            System.err.println("Could not store the id high-water marks: " + e.getMessage());
+        }
+    }
+
     /** @param args the command line arguments */
     public static void main(String[] args) {
         launch(args);
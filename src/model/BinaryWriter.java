@@ -0,0 +1,164 @@
+package model;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Growable byte buffer used to encode inventory data into the binary formats of the application
+ * (write-ahead log, snapshots and exports).
+ *
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+final class BinaryWriter {
+
+    /**
+     * The buffer in write mode. It is replaced with a bigger one when it is full.
+     */
+    private ByteBuffer buffer;
+
+    /**
+     * Creates a writer with the given initial capacity.
+     *
+     * @param capacity the initial capacity in bytes
+     */
+    BinaryWriter(int capacity) {
+        buffer = ByteBuffer.allocate(capacity);
+    }
+
+    /**
+     * @param value the value to write
+     * @return this writer
+     */
+    BinaryWriter putByte(byte value) {
+        ensure(1);
+        buffer.put(value);
+        return this;
+    }
+
+    /**
+     * @param value the value to write
+     * @return this writer
+     */
+    BinaryWriter putInt(int value) {
+        ensure(4);
+        buffer.putInt(value);
+        return this;
+    }
+
+    /**
+     * @param value the value to write
+     * @return this writer
+     */
+    BinaryWriter putLong(long value) {
+        ensure(8);
+        buffer.putLong(value);
+        return this;
+    }
+
+    /**
+     * @param value the value to write
+     * @return this writer
+     */
+    BinaryWriter putDouble(double value) {
+        ensure(8);
+        buffer.putDouble(value);
+        return this;
+    }
+
+    /**
+     * Writes a string as its UTF-8 length followed by the UTF-8 bytes. Null is written as the length -1.
+     *
+     * @param value the value to write, can be null
+     * @return this writer
+     */
+    BinaryWriter putString(String value) {
+        if (value == null) {
+            return putInt(-1);
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ensure(4 + bytes.length);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+        return this;
+    }
+
+    /**
+     * Writes the readable bytes of another buffer.
+     *
+     * @param bytes the bytes to write
+     * @return this writer
+     */
+    BinaryWriter put(ByteBuffer bytes) {
+        ensure(bytes.remaining());
+        buffer.put(bytes);
+        return this;
+    }
+
+    /**
+     * Writes an int on a position that was written before, for example a length that is only known
+     * after the following data was written.
+     *
+     * @param position the position
+     * @param value the value
+     */
+    void putInt(int position, int value) {
+        buffer.putInt(position, value);
+    }
+
+    /**
+     * @return number of bytes written
+     */
+    int position() {
+        return buffer.position();
+    }
+
+    /**
+     * @return the written bytes as a buffer in read mode. It shares the content with this writer.
+     */
+    ByteBuffer flip() {
+        ByteBuffer written = buffer.duplicate();
+        written.flip();
+        return written;
+    }
+
+    /**
+     * Forgets everything that was written so the writer can be used again.
+     */
+    void clear() {
+        buffer.clear();
+    }
+
+    /**
+     * Reads a string written by {@link #putString(String)}.
+     *
+     * @param in the buffer to read from
+     * @return the string or null
+     */
+    static String getString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    /**
+     * Makes sure that the given number of bytes can be written.
+     *
+     * @param bytes number of bytes
+     */
+    private void ensure(int bytes) {
+        if (buffer.remaining() < bytes) {
+            int capacity = Math.max(buffer.capacity() * 2, buffer.position() + bytes);
+            ByteBuffer bigger = ByteBuffer.allocate(capacity);
+            buffer.flip();
+            bigger.put(buffer);
+            buffer = bigger;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package model;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Bill of materials of a product: the ids of its associate parts and how many of each part it needs.
+ *
+ * <p>A bill of materials is a row of two parallel int arrays sorted by part id, so walking it does not chase
+ * pointers to part objects. The quantity array is left out when every part is needed once, which is the
+ * common case. Bills of materials are immutable, so identical ones can be shared by any number of products
+ * (see {@link BomStore}) and changing the associate parts of a product always creates a new one.</p>
+ *
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+public final class Bom {
+
+    /**
+     * Bill of materials without any part.
+     */
+    public static final Bom EMPTY = new Bom(new int[0], null);
+
+    /**
+     * The distinct part ids in ascending order.
+     */
+    private final int[] partIds;
+
+    /**
+     * How many of each part is needed, on the same position as the part id. Null if every quantity is one.
+     */
+    private final int[] quantities;
+
+    /**
+     * Cached hash code of the bill of materials.
+     */
+    private final int hash;
+
+    /**
+     * @param partIds the distinct part ids in ascending order
+     * @param quantities the quantities or null if every quantity is one
+     */
+    private Bom(int[] partIds, int[] quantities) {
+        this.partIds = partIds;
+        this.quantities = quantities;
+        this.hash = 31 * Arrays.hashCode(partIds) + Arrays.hashCode(quantities);
+    }
+
+    /**
+     * Creates the bill of materials of a list of associate parts. A part that is on the list more than
+     * once is recorded once with the number of times it is on the list.
+     *
+     * @param associatedParts the associate parts, can be null
+     * @return the bill of materials
+     * @throws IllegalArgumentException if a part on the list is null, like a part that is not known to the
+     *         inventory on {@link Product#getAssociatedParts()}
+     */
+    public static Bom of(List<Part> associatedParts) {
+        if (associatedParts == null || associatedParts.isEmpty()) {
+            return EMPTY;
+        }
+
+        int[] ids = new int[associatedParts.size()];
+        for (int i = 0; i < ids.length; i++) {
+            Part part = associatedParts.get(i);
+            if (part == null) {
+                throw new IllegalArgumentException("Associate part " + i + " is not known to the inventory");
+            }
+            ids[i] = part.getId();
+        }
+        return of(ids, null);
+    }
+
+    /**
+     * Creates a bill of materials from part ids and their quantities. Part ids can be in any order
+     * and can repeat, in which case their quantities are added up. Edges with a quantity of zero are left out.
+     *
+     * @param partIds the part ids
+     * @param quantities the quantity of each part id or null if every quantity is one
+     * @return the bill of materials
+     */
+    public static Bom of(int[] partIds, int[] quantities) {
+        if (quantities != null && quantities.length != partIds.length) {
+            throw new IllegalArgumentException("Every part id needs a quantity");
+        }
+
+        // sort the edges by part id, packing the original position so the quantity can be found again
+        long[] edges = new long[partIds.length];
+        for (int i = 0; i < edges.length; i++) {
+            edges[i] = ((long) partIds[i] << 32) | i;
+        }
+        Arrays.sort(edges);
+
+        int[] ids = new int[edges.length];
+        int[] counts = new int[edges.length];
+        int size = 0;
+        boolean allOnes = true;
+
+        for (long edge : edges) {
+            int id = (int) (edge >> 32);
+            int quantity = quantities == null ? 1 : quantities[(int) edge];
+            if (quantity < 0) {
+                throw new IllegalArgumentException("Quantity of part " + id + " cannot be negative");
+            }
+
+            if (size > 0 && ids[size - 1] == id) {
+                counts[size - 1] += quantity;
+            } else {
+                ids[size] = id;
+                counts[size] = quantity;
+                size++;
+            }
+        }
+
+        // drop the edges whose quantity added up to zero
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (counts[i] > 0) {
+                ids[kept] = ids[i];
+                counts[kept] = counts[i];
+                allOnes &= counts[kept] == 1;
+                kept++;
+            }
+        }
+
+        if (kept == 0) {
+            return EMPTY;
+        }
+        return new Bom(Arrays.copyOf(ids, kept), allOnes ? null : Arrays.copyOf(counts, kept));
+    }
+
+    /**
+     * @return number of distinct parts
+     */
+    public int size() {
+        return partIds.length;
+    }
+
+    /**
+     * @return true if the bill of materials has no part
+     */
+    public boolean isEmpty() {
+        return partIds.length == 0;
+    }
+
+    /**
+     * @param index position of the edge
+     * @return the part id of the edge
+     */
+    public int getPartId(int index) {
+        return partIds[index];
+    }
+
+    /**
+     * @param index position of the edge
+     * @return how many of the part of the edge are needed
+     */
+    public int getQuantity(int index) {
+        return quantities == null ? 1 : quantities[index];
+    }
+
+    /**
+     * Returns how many of a part are needed.
+     *
+     * @param partId id of the part
+     * @return the quantity or 0 if the part is not needed
+     */
+    public int quantityOf(int partId) {
+        int index = Arrays.binarySearch(partIds, partId);
+        return index < 0 ? 0 : getQuantity(index);
+    }
+
+    /**
+     * @return the total number of parts including repeated ones
+     */
+    public int getTotalQuantity() {
+        if (quantities == null) {
+            return partIds.length;
+        }
+
+        int total = 0;
+        for (int quantity : quantities) {
+            total += quantity;
+        }
+        return total;
+    }
+
+    /**
+     * @param other the object to compare with
+     * @return true if the other object is a bill of materials with the same parts and quantities
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof Bom)) {
+            return false;
+        }
+
+        Bom bom = (Bom) other;
+        return hash == bom.hash && Arrays.equals(partIds, bom.partIds) && Arrays.equals(quantities, bom.quantities);
+    }
+
+    /**
+     * @return the hash code of the parts and quantities
+     */
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
@@ -0,0 +1,90 @@
+package model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Shares identical bills of materials between the products of the inventory.
+ *
+ * <p>Products that are added to the inventory swap their bill of materials for the shared instance of this
+ * store, so a bill of materials that is used by many products is only held once. Since bills of materials
+ * are immutable, a product that changes its associate parts gets a new one and the shared instance stays
+ * as it was for the other products (copy-on-write). The store counts the products that use each shared
+ * instance and forgets it when the last one is removed.</p>
+ *
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+final class BomStore {
+
+    /**
+     * A shared bill of materials with the number of products that use it.
+     */
+    private static final class Shared {
+
+        /**
+         * The shared instance.
+         */
+        private final Bom bom;
+
+        /**
+         * Number of products that use the instance.
+         */
+        private int references;
+
+        /**
+         * @param bom the shared instance
+         */
+        private Shared(Bom bom) {
+            this.bom = bom;
+        }
+    }
+
+    /**
+     * The shared bills of materials.
+     */
+    private final Map<Bom, Shared> shared = new HashMap<>();
+
+    /**
+     * Returns the shared instance of a bill of materials and counts one more product using it.
+     *
+     * @param bom the bill of materials
+     * @return the shared instance equal to the given one
+     */
+    Bom acquire(Bom bom) {
+        if (bom.isEmpty()) {
+            return Bom.EMPTY;
+        }
+
+        Shared entry = shared.get(bom);
+        if (entry == null) {
+            entry = new Shared(bom);
+            shared.put(bom, entry);
+        }
+        entry.references++;
+        return entry.bom;
+    }
+
+    /**
+     * Counts one product less using a shared bill of materials.
+     *
+     * @param bom the shared instance returned by {@link #acquire(Bom)}
+     */
+    void release(Bom bom) {
+        if (bom.isEmpty()) {
+            return;
+        }
+
+        Shared entry = shared.get(bom);
+        if (entry != null && --entry.references == 0) {
+            shared.remove(bom);
+        }
+    }
+
+    /**
+     * @return number of distinct bills of materials in use
+     */
+    int size() {
+        return shared.size();
+    }
+}
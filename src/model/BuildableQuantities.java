@@ -0,0 +1,307 @@
+package model;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntFunction;
+
+/**
+ * Keeps how many of each product can be built from the inventory levels of the parts right now. A product
+ * needs {@link Bom#getQuantity(int)} units of each of its associate parts, so it can be built as often as
+ * the part with the fewest whole sets allows. Deleted parts count as no stock, and a product without
+ * associate parts is not built from parts, so it has 0.
+ *
+ * <p>The numbers follow every change of the stored data through the publish listeners of the tables, so
+ * the inventory levels are read from the published parts and a batch is only looked at once all of it can
+ * be seen. When the inventory level of a part changes, only the products that use the part are looked at,
+ * which are found in the where-used index of the inventory. Most of them do not even need their bill of
+ * materials walked: a part that loses stock can only lower a product to what the part still gives, and a
+ * part that gains stock can only raise a product that was held back by that part.</p>
+ *
+ * <p>The numbers are kept in {@link StockSlots} and changed with compare-and-set, so threads that change
+ * different parts do not wait for each other. A product whose bill of materials is walked is only set if
+ * no other thread changed its number in the meantime, otherwise it is walked again, so a number worked out
+ * from inventory levels that were just changed never overwrites a newer one.</p>
+ *
+ * <p>While a lot of data is loaded the numbers can be put off with {@link #defer()} and then all worked out
+ * again with {@link #recomputeAll(List)}, which splits the products over the fork-join pool.</p>
+ *
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+final class BuildableQuantities {
+
+    /**
+     * Number of products a task of the full recompute works out without splitting further.
+     */
+    private static final int SPLIT_SIZE = 2048;
+
+    /**
+     * The buildable quantity of the products by id.
+     */
+    private final StockSlots quantities = new StockSlots();
+
+    /**
+     * Looks up the published parts by id, for their inventory levels.
+     */
+    private final IntFunction<Part> parts;
+
+    /**
+     * Looks up the published products by id, for their bills of materials.
+     */
+    private final IntFunction<Product> products;
+
+    /**
+     * Reverse index from the parts to the products that use them, guarded by the BOM lock.
+     */
+    private final WhereUsedIndex usedBy;
+
+    /**
+     * The BOM lock of the inventory.
+     */
+    private final Object bomLock;
+
+    /**
+     * The pool of the full recompute.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * True while the quantities are not kept up to date, until the next full recompute.
+     */
+    private volatile boolean deferred;
+
+    /**
+     * Creates the calculator that recomputes on the common fork-join pool.
+     *
+     * @param parts looks up the published parts by id
+     * @param products looks up the published products by id
+     * @param usedBy the where-used index of the inventory
+     * @param bomLock the lock that guards the where-used index
+     */
+    BuildableQuantities(IntFunction<Part> parts, IntFunction<Product> products, WhereUsedIndex usedBy,
+                        Object bomLock) {
+        this(parts, products, usedBy, bomLock, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param parts looks up the published parts by id
+     * @param products looks up the published products by id
+     * @param usedBy the where-used index of the inventory
+     * @param bomLock the lock that guards the where-used index
+     * @param pool the pool of the full recompute
+     */
+    BuildableQuantities(IntFunction<Part> parts, IntFunction<Product> products, WhereUsedIndex usedBy,
+                        Object bomLock, ForkJoinPool pool) {
+        this.parts = parts;
+        this.products = products;
+        this.usedBy = usedBy;
+        this.bomLock = bomLock;
+        this.pool = pool;
+    }
+
+    /**
+     * @return publish listener for the part table that keeps the quantities in step
+     */
+    StripedTable.ChangeListener<Part> partListener() {
+        return this::partChanged;
+    }
+
+    /**
+     * @return publish listener for the product table that keeps the quantities in step
+     */
+    StripedTable.ChangeListener<Product> productListener() {
+        return this::productChanged;
+    }
+
+    /**
+     * Returns how many of a product can be built.
+     *
+     * @param productId Id of a product
+     * @return number of products the parts on the inventory are enough for, 0 if the product is unknown
+     */
+    int buildable(int productId) {
+        return products.apply(productId) == null ? 0 : quantities.free(productId);
+    }
+
+    /**
+     * Follows a published change of a part and updates the products that use it, if its inventory level
+     * changed.
+     *
+     * @param previous the part before the change, or null if it was added
+     * @param current the part after the change, or null if it was deleted
+     */
+    void partChanged(Part previous, Part current) {
+        int before = stockOf(previous);
+        int after = stockOf(current);
+        if (before == after || deferred) {
+            return;
+        }
+
+        int partId = current != null ? current.getId() : previous.getId();
+        int[] productIds;
+        synchronized (bomLock) {
+            productIds = usedBy.productsUsing(partId);
+        }
+
+        for (int productId : productIds) {
+            Product product = products.apply(productId);
+            int quantity = product == null ? 0 : product.getBom().quantityOf(partId);
+            if (quantity == 0) {
+                // the product is changing and is worked out again once it is published
+                continue;
+            }
+
+            if (after < before) {
+                quantities.lowerTo(productId, after / quantity);
+            } else if (quantities.free(productId) == before / quantity) {
+                // the part may have held the product back, so the other parts decide how far it goes up
+                recompute(productId, product.getBom());
+            }
+        }
+    }
+
+    /**
+     * Follows a published change of a product and works out its quantity again if its bill of materials
+     * changed.
+     *
+     * @param previous the product before the change, or null if it was added
+     * @param current the product after the change, or null if it was deleted
+     */
+    void productChanged(Product previous, Product current) {
+        if (current == null) {
+            set(previous.getId(), 0);
+            return;
+        }
+        if (deferred || (previous != null && previous.getBom().equals(current.getBom()))) {
+            return;
+        }
+        recompute(current.getId(), current.getBom());
+    }
+
+    /**
+     * Stops keeping the quantities up to date until {@link #recomputeAll(List)}.
+     */
+    void defer() {
+        deferred = true;
+    }
+
+    /**
+     * Works out the quantity of every product from scratch, in parallel on the fork-join pool, and keeps
+     * them up to date again. The data must not change while it runs.
+     *
+     * @param stored all the stored products
+     */
+    void recomputeAll(List<Product> stored) {
+        pool.invoke(new Recompute(stored, 0, stored.size()));
+        deferred = false;
+    }
+
+    /**
+     * Works out the quantity of a product and stores it, again and again until no other thread changed it
+     * in the meantime.
+     *
+     * @param productId Id of the product
+     * @param bom its bill of materials
+     */
+    private void recompute(int productId, Bom bom) {
+        int seen;
+        do {
+            seen = quantities.free(productId);
+        } while (!quantities.compareAndSet(productId, seen, compute(bom)));
+    }
+
+    /**
+     * Stores the quantity of a product.
+     *
+     * @param productId Id of the product
+     * @param value the quantity
+     */
+    private void set(int productId, int value) {
+        int seen;
+        do {
+            seen = quantities.free(productId);
+        } while (!quantities.compareAndSet(productId, seen, value));
+    }
+
+    /**
+     * Works out how many of a product can be built from its bill of materials.
+     *
+     * @param bom the bill of materials
+     * @return the smallest number of whole sets any of the parts gives
+     */
+    private int compute(Bom bom) {
+        if (bom.isEmpty()) {
+            return 0;
+        }
+
+        int buildable = Integer.MAX_VALUE;
+        for (int i = 0; i < bom.size() && buildable > 0; i++) {
+            buildable = Math.min(buildable, stockOf(parts.apply(bom.getPartId(i))) / bom.getQuantity(i));
+        }
+        return buildable;
+    }
+
+    /**
+     * @param part a part or null
+     * @return its inventory level, 0 if there is no part
+     */
+    private static int stockOf(Part part) {
+        return part == null ? 0 : Math.max(0, part.getStock());
+    }
+
+    /**
+     * Task of the full recompute that works out a range of products, split in halves until the ranges are
+     * small.
+     */
+    private final class Recompute extends RecursiveAction {
+
+        /**
+         * Version of the serialized form.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The products.
+         */
+        private final List<Product> stored;
+
+        /**
+         * First position of the range.
+         */
+        private final int from;
+
+        /**
+         * Position after the range.
+         */
+        private final int to;
+
+        /**
+         * @param stored the products
+         * @param from first position of the range
+         * @param to position after the range
+         */
+        Recompute(List<Product> stored, int from, int to) {
+            this.stored = stored;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Works out the range or splits it.
+         */
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT_SIZE) {
+                for (int i = from; i < to; i++) {
+                    Product product = stored.get(i);
+                    set(product.getId(), BuildableQuantities.this.compute(product.getBom()));
+                }
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new Recompute(stored, from, middle), new Recompute(stored, middle, to));
+        }
+    }
+}
@@ -0,0 +1,674 @@
+package model;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Imports parts and products from CSV files into the inventory.
+ *
+ * <p>The file is read line by line and cut into chunks of {@link #CHUNK_ROWS} rows. The chunks are parsed
+ * and checked in parallel on a fork-join pool with the same rules as the add and modify screens (see
+ * {@link DataValidator}). The parsed chunks are added to the inventory one batch at a time and in the
+ * order of the file. Only a few chunks are in memory at the same time, so the memory used by the import
+ * does not depend on the size of the file.</p>
+ *
+ * <p>The files have one row per part or product and an optional header row starting with "id":</p>
+ * <ul>
+ *     <li>in-house parts: id,name,price,stock,min,max,machineId</li>
+ *     <li>outsourced parts: id,name,price,stock,min,max,companyName</li>
+ *     <li>products: id,name,price,stock,min,max,parts where parts is a list like "3:1;5:2" of associate
+ *     part ids and quantities. The quantity can be left out and is 1 then.</li>
+ * </ul>
+ *
+ * <p>A row with an empty id gets a new id. Before the import the id column of the whole file is read
+ * once, so the new ids are above every id the file brings along and never take the id of a later row. Fields can be quoted with double quotes if they contain a comma.
+ * Rows with errors are not imported and every error is written to the error report as
+ * "line,field,message".</p>
+ *
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+public final class CsvImporter {
+
+    /**
+     * The kinds of files that can be imported.
+     */
+    public enum FileType { IN_HOUSE_PARTS, OUTSOURCED_PARTS, PRODUCTS }
+
+    /**
+     * The result of an import.
+     */
+    public static final class Summary {
+
+        /**
+         * Number of data rows in the file.
+         */
+        private final long rowsRead;
+
+        /**
+         * Number of rows that were added to the inventory.
+         */
+        private final long rowsImported;
+
+        /**
+         * @param rowsRead number of data rows in the file
+         * @param rowsImported number of rows that were added to the inventory
+         */
+        private Summary(long rowsRead, long rowsImported) {
+            this.rowsRead = rowsRead;
+            this.rowsImported = rowsImported;
+        }
+
+        /**
+         * @return number of data rows in the file
+         */
+        public long getRowsRead() {
+            return rowsRead;
+        }
+
+        /**
+         * @return number of rows that were added to the inventory
+         */
+        public long getRowsImported() {
+            return rowsImported;
+        }
+
+        /**
+         * @return number of rows that had errors and were not imported
+         */
+        public long getRowsRejected() {
+            return rowsRead - rowsImported;
+        }
+    }
+
+    /**
+     * Number of rows in a chunk.
+     */
+    static final int CHUNK_ROWS = 8192;
+
+    /**
+     * Number of columns of every file type.
+     */
+    private static final int COLUMNS = 7;
+
+    /**
+     * Names of the columns used in the error report.
+     */
+    private static final String[] PART_COLUMNS = {"id", "name", "price", "stock", "min", "max", "partType"};
+
+    /**
+     * Names of the columns of a product file used in the error report.
+     */
+    private static final String[] PRODUCT_COLUMNS = {"id", "name", "price", "stock", "min", "max", "parts"};
+
+    /**
+     * A chunk of rows and, after it was parsed, its data and errors.
+     */
+    private static final class Chunk {
+
+        /**
+         * The rows.
+         */
+        private final String[] rows = new String[CHUNK_ROWS];
+
+        /**
+         * Line number of every row.
+         */
+        private final int[] lines = new int[CHUNK_ROWS];
+
+        /**
+         * Number of rows.
+         */
+        private int size;
+
+        /**
+         * The valid parts or products.
+         */
+        private final List<Object> data = new ArrayList<>();
+
+        /**
+         * Line number of every valid data.
+         */
+        private final int[] dataLines = new int[CHUNK_ROWS];
+
+        /**
+         * The errors as lines of the error report, in the order of the rows.
+         */
+        private final List<String> errors = new ArrayList<>();
+
+        /**
+         * Number of rows that were added to the inventory.
+         */
+        private int imported;
+    }
+
+    /**
+     * The pool that parses the chunks.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Runs the batches that change the inventory. The inventory can be changed from any thread, so this
+     * only decides which thread does it.
+     */
+    private final Executor applier;
+
+    /**
+     * Maximum number of chunks that are parsed or waiting to be added at the same time.
+     */
+    private final int maxChunksInFlight;
+
+    /**
+     * Creates an importer that parses on the common fork-join pool and changes the inventory on the
+     * thread that calls {@link #importFile(Path, FileType, Path)}.
+     */
+    public CsvImporter() {
+        this(ForkJoinPool.commonPool(), Runnable::run);
+    }
+
+    /**
+     * @param pool the pool that parses the chunks
+     * @param applier runs the batches that change the inventory. The import waits for every batch.
+     */
+    public CsvImporter(ForkJoinPool pool, Executor applier) {
+        this.pool = pool;
+        this.applier = applier;
+        this.maxChunksInFlight = 2 * pool.getParallelism() + 1;
+    }
+
+    /**
+     * Imports a CSV file.
+     *
+     * @param csv the file
+     * @param type the kind of the file
+     * @param errorReport the file that receives the errors, or null if they are not needed
+     * @return the number of imported and rejected rows
+     * @throws IOException if a file cannot be read or written
+     */
+    public Summary importFile(Path csv, FileType type, Path errorReport) throws IOException {
+        long rowsRead = 0;
+        long rowsImported = 0;
+
+        BufferedWriter report = null;
+        if (errorReport != null) {
+            report = Files.newBufferedWriter(errorReport, StandardCharsets.UTF_8);
+            report.write("line,field,message");
+            report.newLine();
+        }
+
+        // the new ids are reserved chunk by chunk, so every id of the file must be known before the first one
+        int highestId = highestId(csv);
+        if (type == FileType.PRODUCTS) {
+            Inventory.observeProductId(highestId);
+        } else {
+            Inventory.observePartId(highestId);
+        }
+
+        ArrayDeque<ForkJoinTask<Chunk>> inFlight = new ArrayDeque<>();
+        try (BufferedReader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+            Chunk chunk = new Chunk();
+            int lineNumber = 0;
+            String row;
+
+            while ((row = reader.readLine()) != null) {
+                lineNumber++;
+                if (row.trim().isEmpty() || (lineNumber == 1 && isHeader(row))) {
+                    continue;
+                }
+
+                chunk.rows[chunk.size] = row;
+                chunk.lines[chunk.size] = lineNumber;
+                chunk.size++;
+                rowsRead++;
+
+                if (chunk.size == CHUNK_ROWS) {
+                    Chunk full = chunk;
+                    inFlight.add(pool.submit(() -> parse(full, type)));
+                    chunk = new Chunk();
+
+                    if (inFlight.size() >= maxChunksInFlight) {
+                        rowsImported += finish(inFlight.poll().join(), type, report);
+                    }
+                }
+            }
+
+            if (chunk.size > 0) {
+                Chunk last = chunk;
+                inFlight.add(pool.submit(() -> parse(last, type)));
+            }
+            while (!inFlight.isEmpty()) {
+                rowsImported += finish(inFlight.poll().join(), type, report);
+            }
+        } finally {
+            for (ForkJoinTask<Chunk> task : inFlight) {
+                task.cancel(false);
+            }
+            if (report != null) {
+                report.close();
+            }
+        }
+
+        return new Summary(rowsRead, rowsImported);
+    }
+
+    /**
+     * Reads the id column of a file and finds the highest id in it. Ids that are not a number are left for
+     * the parse to report.
+     *
+     * @param csv the file
+     * @return the highest id or 0 if no row has an id
+     * @throws IOException if the file cannot be read
+     */
+    private static int highestId(Path csv) throws IOException {
+        int highest = 0;
+        String[] fields = new String[COLUMNS];
+
+        try (BufferedReader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+            int lineNumber = 0;
+            String row;
+            while ((row = reader.readLine()) != null) {
+                lineNumber++;
+                if (lineNumber == 1 && isHeader(row)) {
+                    continue;
+                }
+
+                String idField;
+                int comma = row.indexOf(',');
+                if (row.indexOf('"') >= 0 && (comma < 0 || row.indexOf('"') < comma)) {
+                    // a quoted id can hold a comma, so the row is split properly
+                    if (split(row, fields) < 1) {
+                        continue;
+                    }
+                    idField = fields[0];
+                } else {
+                    idField = comma < 0 ? row : row.substring(0, comma);
+                }
+
+                try {
+                    highest = Math.max(highest, Integer.parseInt(idField.trim()));
+                } catch (NumberFormatException e) {
+                    // empty or wrong ids do not take an id
+                }
+            }
+        }
+        return highest;
+    }
+
+    /**
+     * Adds a parsed chunk to the inventory and writes its errors to the report.
+     *
+     * @param chunk the parsed chunk
+     * @param type the kind of the file
+     * @param report the error report or null
+     * @return number of rows that were added
+     * @throws IOException if the report cannot be written
+     */
+    private int finish(Chunk chunk, FileType type, BufferedWriter report) throws IOException {
+        try {
+            CompletableFuture.runAsync(() -> apply(chunk, type), applier).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+
+        if (report != null) {
+            Collections.sort(chunk.errors, (a, b) -> Integer.compare(lineOf(a), lineOf(b)));
+            for (String error : chunk.errors) {
+                report.write(error);
+                report.newLine();
+            }
+        }
+        return chunk.imported;
+    }
+
+    /**
+     * Parses and checks the rows of a chunk. Runs on the fork-join pool.
+     *
+     * @param chunk the chunk
+     * @param type the kind of the file
+     * @return the chunk
+     */
+    private static Chunk parse(Chunk chunk, FileType type) {
+        DataValidator validator = new DataValidator();
+        String[] fields = new String[COLUMNS];
+        String[] columns = type == FileType.PRODUCTS ? PRODUCT_COLUMNS : PART_COLUMNS;
+
+        for (int i = 0; i < chunk.size; i++) {
+            int line = chunk.lines[i];
+            int count = split(chunk.rows[i], fields);
+            chunk.rows[i] = null;
+
+            if (count < 0) {
+                chunk.errors.add(error(line, "row", "A quoted field is not closed."));
+                continue;
+            }
+            if (count != COLUMNS && !(type == FileType.PRODUCTS && count == COLUMNS - 1)) {
+                chunk.errors.add(error(line, "row", "Expected " + COLUMNS + " columns but found " + count + "."));
+                continue;
+            }
+
+            int errorCount = chunk.errors.size();
+            int id = 0;
+            String idField = fields[0].trim();
+            if (!idField.isEmpty()) {
+                try {
+                    id = Integer.parseInt(idField);
+                    if (id <= 0) {
+                        chunk.errors.add(error(line, "id", "Id must be a positive number."));
+                    }
+                } catch (NumberFormatException e) {
+                    chunk.errors.add(error(line, "id", DataValidator.message(DataValidator.NOT_A_NUMBER)));
+                }
+            }
+
+            String name = fields[1];
+            boolean invalid;
+            Bom bom = null;
+            if (type == FileType.PRODUCTS) {
+                invalid = validator.checkProduct(name, fields[2].trim(), fields[3].trim(), fields[4].trim(),
+                        fields[5].trim());
+                bom = count == COLUMNS ? parseBom(fields[6]) : Bom.EMPTY;
+                if (bom == null) {
+                    chunk.errors.add(error(line, "parts", "Enter associate parts as id:quantity separated by ;"));
+                }
+            } else {
+                invalid = validator.checkPart(name, fields[2].trim(), fields[3].trim(), fields[4].trim(),
+                        fields[5].trim(), type == FileType.IN_HOUSE_PARTS, fields[6].trim());
+            }
+
+            if (invalid) {
+                DataValidator.Field[] checked = DataValidator.Field.values();
+                for (int f = 0; f < checked.length; f++) {
+                    int code = validator.getError(checked[f]);
+                    if (code != 0) {
+                        // the fields of the validator are in the order of the columns after the id
+                        chunk.errors.add(error(line, columns[f + 1], DataValidator.message(code)));
+                    }
+                }
+            }
+            if (chunk.errors.size() > errorCount) {
+                continue;
+            }
+
+            Object data;
+            if (type == FileType.IN_HOUSE_PARTS) {
+                data = new Inhouse(id, name, validator.getPrice(), validator.getStock(), validator.getMin(),
+                        validator.getMax(), validator.getMachineId());
+            } else if (type == FileType.OUTSOURCED_PARTS) {
+                data = new Outsourced(id, name, validator.getPrice(), validator.getStock(), validator.getMin(),
+                        validator.getMax(), fields[6]);
+            } else {
+                Product product = new Product(id, name, validator.getPrice(), validator.getStock(),
+                        validator.getMin(), validator.getMax());
+                product.setBom(bom);
+                data = product;
+            }
+            chunk.dataLines[chunk.data.size()] = line;
+            chunk.data.add(data);
+        }
+        return chunk;
+    }
+
+    /**
+     * Adds the valid data of a chunk to the inventory in one batch. Rows whose id is already used or
+     * whose associate parts are not in the inventory are rejected here, because that depends on the
+     * batches added before. If another thread adds one of the ids between the check and the batch, the
+     * batch is rejected as a whole and the rows are added one by one instead, so only the taken ids are
+     * reported. Runs on the applier.
+     *
+     * @param chunk the parsed chunk
+     * @param type the kind of the file
+     */
+    private static void apply(Chunk chunk, FileType type) {
+        boolean products = type == FileType.PRODUCTS;
+        IntHashMap<Boolean> seen = new IntHashMap<>(chunk.data.size());
+        List<Object> accepted = new ArrayList<>(chunk.data.size());
+        int[] acceptedLines = new int[chunk.data.size()];
+        int newIds = 0;
+
+        for (int i = 0; i < chunk.data.size(); i++) {
+            Object data = chunk.data.get(i);
+            int line = chunk.dataLines[i];
+            int id = products ? ((Product) data).getId() : ((Part) data).getId();
+
+            if (id == 0) {
+                newIds++;
+            } else if (seen.put(id, Boolean.TRUE) != null
+                    || (products ? Inventory.lookupByProductID(id) != null : Inventory.lookupByPartID(id) != null)) {
+                chunk.errors.add(error(line, "id", "Id " + id + " is already in the inventory."));
+                continue;
+            }
+
+            if (products && !associatePartsExist((Product) data, chunk, line)) {
+                if (id == 0) {
+                    newIds--;
+                }
+                continue;
+            }
+            acceptedLines[accepted.size()] = line;
+            accepted.add(data);
+        }
+
+        int nextId = 0;
+        if (newIds > 0) {
+            nextId = products ? Inventory.reserveProductIds(newIds) : Inventory.reservePartIds(newIds);
+        }
+
+        List<Part> parts = new ArrayList<>(products ? 0 : accepted.size());
+        List<Product> productList = new ArrayList<>(products ? accepted.size() : 0);
+        for (Object data : accepted) {
+            if (products) {
+                Product product = (Product) data;
+                if (product.getId() == 0) {
+                    product.setId(nextId++);
+                }
+                productList.add(product);
+            } else {
+                Part part = (Part) data;
+                if (part.getId() == 0) {
+                    part.setId(nextId++);
+                }
+                parts.add(part);
+            }
+        }
+
+        try {
+            if (products) {
+                Inventory.addProducts(productList);
+            } else {
+                Inventory.addParts(parts);
+            }
+            chunk.imported = accepted.size();
+        } catch (IllegalArgumentException e) {
+            // an id was added by another thread after the check, nothing of the batch was added
+            chunk.imported = addOneByOne(accepted, acceptedLines, products, chunk);
+        }
+        chunk.data.clear();
+    }
+
+    /**
+     * Adds the data of a chunk one at a time and reports the rows that cannot be added.
+     *
+     * @param accepted the parts or products of the chunk
+     * @param lines line number of each of them
+     * @param products true if they are products
+     * @param chunk the chunk that receives the errors
+     * @return number of rows that were added
+     */
+    private static int addOneByOne(List<Object> accepted, int[] lines, boolean products, Chunk chunk) {
+        int added = 0;
+        for (int i = 0; i < accepted.size(); i++) {
+            try {
+                if (products) {
+                    Inventory.addProduct((Product) accepted.get(i));
+                } else {
+                    Inventory.addPart((Part) accepted.get(i));
+                }
+                added++;
+            } catch (IllegalArgumentException e) {
+                chunk.errors.add(error(lines[i], "id", e.getMessage() + "."));
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Checks that the associate parts of a product are in the inventory and reports the missing ones.
+     *
+     * @param product the product
+     * @param chunk the chunk that receives the errors
+     * @param line line number of the product
+     * @return true if all associate parts exist
+     */
+    private static boolean associatePartsExist(Product product, Chunk chunk, int line) {
+        boolean exist = true;
+        Bom bom = product.getBom();
+        for (int i = 0; i < bom.size(); i++) {
+            if (Inventory.lookupByPartID(bom.getPartId(i)) == null) {
+                chunk.errors.add(error(line, "parts", "Part " + bom.getPartId(i) + " is not in the inventory."));
+                exist = false;
+            }
+        }
+        return exist;
+    }
+
+    /**
+     * Parses a list of associate parts like "3:1;5:2".
+     *
+     * @param text the list
+     * @return the bill of materials or null if the text is not a valid list
+     */
+    private static Bom parseBom(String text) {
+        text = text.trim();
+        if (text.isEmpty()) {
+            return Bom.EMPTY;
+        }
+
+        String[] entries = text.split(";");
+        int[] partIds = new int[entries.length];
+        int[] quantities = new int[entries.length];
+        try {
+            for (int i = 0; i < entries.length; i++) {
+                String entry = entries[i].trim();
+                int colon = entry.indexOf(':');
+                if (colon < 0) {
+                    partIds[i] = Integer.parseInt(entry);
+                    quantities[i] = 1;
+                } else {
+                    partIds[i] = Integer.parseInt(entry.substring(0, colon).trim());
+                    quantities[i] = Integer.parseInt(entry.substring(colon + 1).trim());
+                }
+                if (quantities[i] < 1) {
+                    return null;
+                }
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return Bom.of(partIds, quantities);
+    }
+
+    /**
+     * Splits a CSV row into its fields. Double quotes around a field allow commas in it and two double
+     * quotes inside a quoted field stand for one.
+     *
+     * @param row the row
+     * @param fields receives the fields, extra fields are counted but not stored
+     * @return number of fields or -1 if a quoted field is not closed
+     */
+    static int split(String row, String[] fields) {
+        int count = 0;
+        int position = 0;
+        int length = row.length();
+
+        while (true) {
+            String field;
+            if (position < length && row.charAt(position) == '"') {
+                StringBuilder quoted = new StringBuilder();
+                position++;
+                while (true) {
+                    if (position >= length) {
+                        return -1;
+                    }
+                    char c = row.charAt(position++);
+                    if (c == '"') {
+                        if (position < length && row.charAt(position) == '"') {
+                            quoted.append('"');
+                            position++;
+                        } else {
+                            break;
+                        }
+                    } else {
+                        quoted.append(c);
+                    }
+                }
+                int comma = row.indexOf(',', position);
+                position = comma < 0 ? length : comma;
+                field = quoted.toString();
+            } else {
+                int comma = row.indexOf(',', position);
+                int end = comma < 0 ? length : comma;
+                field = row.substring(position, end);
+                position = end;
+            }
+
+            if (count < fields.length) {
+                fields[count] = field;
+            }
+            count++;
+
+            if (position >= length) {
+                return count;
+            }
+            position++;
+        }
+    }
+
+    /**
+     * @param row the first row of a file
+     * @return true if the row is a header row
+     */
+    private static boolean isHeader(String row) {
+        String first = row.trim();
+        int comma = first.indexOf(',');
+        if (comma >= 0) {
+            first = first.substring(0, comma).trim();
+        }
+        return first.equalsIgnoreCase("id") || first.equalsIgnoreCase("\"id\"");
+    }
+
+    /**
+     * Formats a line of the error report.
+     *
+     * @param line line number of the row
+     * @param field the field with the error
+     * @param message the message
+     * @return the report line
+     */
+    private static String error(int line, String field, String message) {
+        return line + "," + field + ",\"" + message.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * @param error a line of the error report
+     * @return the line number it reports
+     */
+    private static int lineOf(String error) {
+        return Integer.parseInt(error.substring(0, error.indexOf(',')));
+    }
+}
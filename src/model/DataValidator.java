@@ -0,0 +1,288 @@
+package model;
+
+/**
+ * Checks the text of a part or product data against the rules of the inventory. It is used by the add and
+ * modify screens and by the CSV import, so both accept the same data.
+ *
+ * <p>The error of each field is one of the error codes below, which are the same codes that the screens
+ * pass to the ScreenExceptionHandler. After a check without errors the parsed values can be read from the
+ * validator. A validator is not thread safe, every thread should use its own.</p>
+ *
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+public final class DataValidator {
+
+    /**
+     * The fields of a part or product data.
+     */
+    public enum Field { NAME, PRICE, STOCK, MIN, MAX, PART_TYPE }
+
+    /**
+     * Error code of a field that is empty.
+     */
+    public static final int EMPTY = 1;
+
+    /**
+     * Error code of a field that is not a valid number.
+     */
+    public static final int NOT_A_NUMBER = 2;
+
+    /**
+     * Error code of a value that is negative.
+     */
+    public static final int NEGATIVE = 3;
+
+    /**
+     * Error code of a max value that is less than the min value.
+     */
+    public static final int MAX_BELOW_MIN = 4;
+
+    /**
+     * Error code of an inventory level that is not between min and max.
+     */
+    public static final int STOCK_OUT_OF_RANGE = 9;
+
+    /**
+     * Error code of a part that has no part type.
+     */
+    public static final int NO_PART_TYPE = 10;
+
+    /**
+     * The error code of each field, 0 if the field has no error.
+     */
+    private final int[] errors = new int[Field.values().length];
+
+    /**
+     * The parsed price.
+     */
+    private double price;
+
+    /**
+     * The parsed inventory level.
+     */
+    private int stock;
+
+    /**
+     * The parsed min value.
+     */
+    private int min;
+
+    /**
+     * The parsed max value.
+     */
+    private int max;
+
+    /**
+     * The parsed machine id of an in-house part.
+     */
+    private long machineId;
+
+    /**
+     * Returns the message of an error code.
+     *
+     * @param code the error code
+     * @return the message or null if the code is unknown
+     */
+    public static String message(int code) {
+        switch (code) {
+            case EMPTY: return "This field cannot be empty.";
+            case NOT_A_NUMBER: return "Enter a valid number value.";
+            case NEGATIVE: return "This value cannot be negative.";
+            case MAX_BELOW_MIN: return "Max value cannot be less than Min!";
+            case STOCK_OUT_OF_RANGE: return "Inventory Level must be between Min and Max.";
+            case NO_PART_TYPE: return "Must pick one of Part type!";
+            default: return null;
+        }
+    }
+
+    /**
+     * Checks the data of a part. The max value must be greater than the min value.
+     *
+     * @param name the name
+     * @param price the price
+     * @param stock the inventory level
+     * @param min the min value
+     * @param max the max value
+     * @param inHouse true for an in-house part, false for an outsourced part
+     * @param partType the machine id of an in-house part or the company name of an outsourced part
+     * @return true if an error was found
+     */
+    public boolean checkPart(String name, String price, String stock, String min, String max,
+                             boolean inHouse, String partType) {
+        boolean errorFound = checkFormat(name, price, stock, min, max);
+
+        if (inHouse) {
+            try {
+                machineId = Long.parseLong(partType);
+            } catch (NumberFormatException e) {
+                errorFound = setError(Field.PART_TYPE, NOT_A_NUMBER);
+            }
+        } else if (partType == null || partType.trim().length() == 0) {
+            errorFound = setError(Field.PART_TYPE, EMPTY);
+        }
+
+        if (errorFound) {
+            return true;
+        }
+
+        errorFound = checkNegative();
+        if (this.max <= this.min) {
+            errorFound = setError(Field.MIN, MAX_BELOW_MIN);
+        }
+        return checkStock() || errorFound;
+    }
+
+    /**
+     * Checks the data of a product. The max value can be equal to the min value.
+     *
+     * @param name the name
+     * @param price the price
+     * @param stock the inventory level
+     * @param min the min value
+     * @param max the max value
+     * @return true if an error was found
+     */
+    public boolean checkProduct(String name, String price, String stock, String min, String max) {
+        if (checkFormat(name, price, stock, min, max)) {
+            return true;
+        }
+
+        boolean errorFound = checkNegative();
+        if (this.min > this.max) {
+            errorFound = setError(Field.MAX, MAX_BELOW_MIN);
+        }
+        return checkStock() || errorFound;
+    }
+
+    /**
+     * Returns the error of a field of the last check.
+     *
+     * @param field the field
+     * @return the error code or 0 if the field has no error
+     */
+    public int getError(Field field) {
+        return errors[field.ordinal()];
+    }
+
+    /**
+     * @return the parsed price
+     */
+    public double getPrice() {
+        return price;
+    }
+
+    /**
+     * @return the parsed inventory level
+     */
+    public int getStock() {
+        return stock;
+    }
+
+    /**
+     * @return the parsed min value
+     */
+    public int getMin() {
+        return min;
+    }
+
+    /**
+     * @return the parsed max value
+     */
+    public int getMax() {
+        return max;
+    }
+
+    /**
+     * @return the parsed machine id of an in-house part
+     */
+    public long getMachineId() {
+        return machineId;
+    }
+
+    /**
+     * Clears the errors and checks the format of the fields that parts and products have in common.
+     *
+     * @param name the name
+     * @param price the price
+     * @param stock the inventory level
+     * @param min the min value
+     * @param max the max value
+     * @return true if an error was found
+     */
+    private boolean checkFormat(String name, String price, String stock, String min, String max) {
+        boolean errorFound = false;
+        for (int i = 0; i < errors.length; i++) {
+            errors[i] = 0;
+        }
+
+        if (name == null || name.trim().length() == 0) {
+            errorFound = setError(Field.NAME, EMPTY);
+        }
+        try {
+            this.min = Integer.parseInt(min);
+        } catch (NumberFormatException e) {
+            errorFound = setError(Field.MIN, NOT_A_NUMBER);
+        }
+        try {
+            this.max = Integer.parseInt(max);
+        } catch (NumberFormatException e) {
+            errorFound = setError(Field.MAX, NOT_A_NUMBER);
+        }
+        try {
+            this.stock = Integer.parseInt(stock);
+        } catch (NumberFormatException e) {
+            errorFound = setError(Field.STOCK, NOT_A_NUMBER);
+        }
+        try {
+            this.price = Double.parseDouble(price);
+        } catch (NumberFormatException | NullPointerException e) {
+            errorFound = setError(Field.PRICE, NOT_A_NUMBER);
+        }
+        return errorFound;
+    }
+
+    /**
+     * Checks that min, max and price are not negative.
+     *
+     * @return true if an error was found
+     */
+    private boolean checkNegative() {
+        boolean errorFound = false;
+        if (min < 0) {
+            errorFound = setError(Field.MIN, NEGATIVE);
+        }
+        if (max < 0) {
+            errorFound = setError(Field.MAX, NEGATIVE);
+        }
+        if (price < 0) {
+            errorFound = setError(Field.PRICE, NEGATIVE);
+        }
+        return errorFound;
+    }
+
+    /**
+     * Checks that the inventory level is between min and max.
+     *
+     * @return true if an error was found
+     */
+    private boolean checkStock() {
+        if (!(stock >= min && stock <= max)) {
+            return setError(Field.STOCK, STOCK_OUT_OF_RANGE);
+        }
+        return false;
+    }
+
+    /**
+     * Sets the error of a field. A later error replaces an earlier one, like a later message
+     * replaces an earlier one on the same label of a screen.
+     *
+     * @param field the field
+     * @param code the error code
+     * @return always true
+     */
+    private boolean setError(Field field, int code) {
+        errors[field.ordinal()] = code;
+        return true;
+    }
+}
@@ -0,0 +1,113 @@
+package model;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates the ids of new inventory data.
+ *
+ * <p>The allocator remembers the highest id that was handed out or added to the inventory (the high-water mark)
+ * and gives out the ids above it with an atomic counter, so two screens or import jobs that save at the same
+ * time can never get the same id and no list has to be scanned for the largest id. Bulk imports can reserve
+ * a whole block of ids at once.</p>
+ *
+ * <p>The high-water mark can be stored in a file so that ids of deleted data are not handed out again
+ * after a restart.</p>
+ *
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+public final class IdAllocator {
+
+    /**
+     * The highest id that was allocated or observed so far.
+     */
+    private final AtomicInteger highWaterMark = new AtomicInteger();
+
+    /**
+     * Creates an allocator that starts with the id 1.
+     */
+    public IdAllocator() {
+    }
+
+    /**
+     * Gives out a new id.
+     *
+     * @return the new id
+     */
+    public int next() {
+        return highWaterMark.incrementAndGet();
+    }
+
+    /**
+     * Reserves a block of consecutive ids.
+     *
+     * @param count number of ids to reserve
+     * @return the first id of the block. The block ends with the id {@code first + count - 1}.
+     */
+    public int reserve(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Cannot reserve " + count + " ids");
+        }
+        return highWaterMark.getAndAdd(count) + 1;
+    }
+
+    /**
+     * Makes sure that the given id will never be handed out. This is used to seed the allocator with the
+     * ids of data that is loaded into the inventory.
+     *
+     * @param id an id that is in use
+     */
+    public void observe(int id) {
+        int current = highWaterMark.get();
+        while (id > current && !highWaterMark.compareAndSet(current, id)) {
+            current = highWaterMark.get();
+        }
+    }
+
+    /**
+     * @return the highest id that was allocated or observed so far
+     */
+    public int getHighWaterMark() {
+        return highWaterMark.get();
+    }
+
+    /**
+     * Seeds the allocator with the high-water mark stored in a file. Does nothing if the file does not exist.
+     *
+     * @param file the file written by {@link #store(Path)}
+     * @throws IOException if the file cannot be read or has an invalid content
+     */
+    public void load(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+
+        String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim();
+        try {
+            observe(Integer.parseInt(content));
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid id high-water mark in " + file + ": " + content, e);
+        }
+    }
+
+    /**
+     * Stores the high-water mark in a file. The file is replaced in one step so a crash while writing
+     * cannot leave a half written value behind.
+     *
+     * @param file the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void store(Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        Files.write(temporary, Integer.toString(getHighWaterMark()).getBytes(StandardCharsets.UTF_8));
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,279 @@
+package model;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Hash map with primitive int keys used to index the inventory data by id.
+ *
+ * <p>Keys are stored in an int array and are never boxed. Collisions are resolved with linear
+ * probing and removal shifts the following entries back, so lookups never allocate and never
+ * have to skip over deleted slots.</p>
+ *
+ * @param <V> type of the stored values
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+public final class IntHashMap<V> {
+
+    /**
+     * The load factor after which the tables are doubled.
+     */
+    private static final float LOAD_FACTOR = 0.5f;
+
+    /**
+     * The keys of the map. A slot is only in use if the value on the same slot is not null.
+     */
+    private int[] keys;
+
+    /**
+     * The values of the map.
+     */
+    private Object[] values;
+
+    /**
+     * Number of entries in the map.
+     */
+    private int size;
+
+    /**
+     * Number of entries after which the tables will be resized.
+     */
+    private int threshold;
+
+    /**
+     * Creates an empty map.
+     */
+    public IntHashMap() {
+        this(16);
+    }
+
+    /**
+     * Creates an empty map that can hold the given number of entries without resizing.
+     *
+     * @param expectedSize the expected number of entries
+     */
+    public IntHashMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    /**
+     * Returns the value mapped to the given key.
+     *
+     * @param key the key to look for
+     * @return the value or null if the key is not in the map
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                return (V) values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Checks if the given key is in the map.
+     *
+     * @param key the key to look for
+     * @return true if the key is mapped to a value
+     */
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Maps the key to the given value.
+     *
+     * @param key the key
+     * @param value the value, cannot be null
+     * @return the previous value of the key or null if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (value == null) {
+            throw new NullPointerException("IntHashMap does not store null values");
+        }
+
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                V previous = (V) values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = key;
+        values[slot] = value;
+
+        if (++size > threshold) {
+            resize(keys.length << 1);
+        }
+        return null;
+    }
+
+    /**
+     * Removes the given key from the map.
+     *
+     * @param key the key to remove
+     * @return the removed value or null if the key was not in the map
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                V previous = (V) values[slot];
+                shiftBack(slot);
+                size--;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Removes all the entries of the map.
+     */
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * Grows the tables so the map can hold the given number of entries without resizing again.
+     *
+     * @param expectedSize the expected number of entries
+     */
+    public void ensureCapacity(int expectedSize) {
+        int capacity = tableSizeFor(expectedSize);
+        if (capacity > values.length) {
+            resize(capacity);
+        }
+    }
+
+    /**
+     * Passes every value of the map to the action, in no particular order.
+     *
+     * @param action the action
+     */
+    @SuppressWarnings("unchecked")
+    public void forEachValue(Consumer<? super V> action) {
+        for (Object value : values) {
+            if (value != null) {
+                action.accept((V) value);
+            }
+        }
+    }
+
+    /**
+     * @return the number of entries in the map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if the map has no entry
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Closes the gap left by a removed entry by moving back the entries of the same probe chain.
+     *
+     * @param gap the slot that was emptied
+     */
+    private void shiftBack(int gap) {
+        int mask = keys.length - 1;
+        int slot = gap;
+
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (values[slot] == null) {
+                break;
+            }
+
+            int home = mix(keys[slot]) & mask;
+            // the entry can only move back if its home slot is not between the gap and its current slot
+            if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+                keys[gap] = keys[slot];
+                values[gap] = values[slot];
+                gap = slot;
+            }
+        }
+        values[gap] = null;
+    }
+
+    /**
+     * Rehashes all the entries into new tables of the given capacity.
+     *
+     * @param capacity the new capacity, must be a power of two
+     */
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+
+        int mask = capacity - 1;
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = mix(oldKeys[i]) & mask;
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Creates the tables with the given capacity.
+     *
+     * @param capacity the capacity, must be a power of two
+     */
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    /**
+     * Finds the table size that can hold the given number of entries.
+     *
+     * @param expectedSize number of entries
+     * @return a power of two
+     */
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = 16;
+        while (capacity * LOAD_FACTOR < expectedSize && capacity < (1 << 30)) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    /**
+     * Spreads the bits of the key so that sequential ids do not end up in long probe chains.
+     *
+     * @param key the key
+     * @return the mixed hash
+     */
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,155 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of ints that is kept in ascending order without duplicates.
+ * It is used for the posting lists of the inventory indexes.
+ *
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+final class IntList {
+
+    /**
+     * The values of the list. Only the first size values are in use.
+     */
+    private int[] values;
+
+    /**
+     * Number of values in the list.
+     */
+    private int size;
+
+    /**
+     * Creates an empty list.
+     */
+    IntList() {
+        values = new int[4];
+    }
+
+    /**
+     * Creates a list that holds a copy of the given sorted values.
+     *
+     * @param sorted values in ascending order without duplicates
+     * @param length number of values to copy
+     */
+    IntList(int[] sorted, int length) {
+        values = Arrays.copyOf(sorted, Math.max(length, 4));
+        size = length;
+    }
+
+    /**
+     * Adds a value at its sorted position. Values larger than the current last value are appended.
+     *
+     * @param value the value to add
+     * @return false if the value was already in the list
+     */
+    boolean add(int value) {
+        if (size == 0 || values[size - 1] < value) {
+            ensureCapacity(size + 1);
+            values[size++] = value;
+            return true;
+        }
+
+        int position = Arrays.binarySearch(values, 0, size, value);
+        if (position >= 0) {
+            return false;
+        }
+
+        position = -position - 1;
+        ensureCapacity(size + 1);
+        System.arraycopy(values, position, values, position + 1, size - position);
+        values[position] = value;
+        size++;
+        return true;
+    }
+
+    /**
+     * Removes a value from the list.
+     *
+     * @param value the value to remove
+     * @return false if the value was not in the list
+     */
+    boolean remove(int value) {
+        int position = Arrays.binarySearch(values, 0, size, value);
+        if (position < 0) {
+            return false;
+        }
+
+        System.arraycopy(values, position + 1, values, position, size - position - 1);
+        size--;
+        return true;
+    }
+
+    /**
+     * Checks if a value is in the list.
+     *
+     * @param value the value to look for
+     * @return true if the value is in the list
+     */
+    boolean contains(int value) {
+        return Arrays.binarySearch(values, 0, size, value) >= 0;
+    }
+
+    /**
+     * Checks if a value is in the list starting the search at a given position.
+     * Used to intersect lists where the looked up values only increase.
+     *
+     * @param value the value to look for
+     * @param from the position to start from
+     * @return the position of the value, or the negated insertion point minus one if it is not in the list
+     */
+    int search(int value, int from) {
+        if (from >= size) {
+            return -size - 1;
+        }
+
+        // gallop to find a range that holds the value before doing the binary search
+        int bound = 1;
+        while (from + bound < size && values[from + bound] < value) {
+            bound <<= 1;
+        }
+        return Arrays.binarySearch(values, from + (bound >> 1), Math.min(from + bound + 1, size), value);
+    }
+
+    /**
+     * @param index the position in the list
+     * @return the value at the given position
+     */
+    int get(int index) {
+        return values[index];
+    }
+
+    /**
+     * @return number of values in the list
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return true if the list has no values
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return a copy of the values of the list
+     */
+    int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    /**
+     * Grows the backing array if it cannot hold the given number of values.
+     *
+     * @param capacity the needed capacity
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity > values.length) {
+            values = Arrays.copyOf(values, Math.max(capacity, values.length + (values.length >> 1)));
+        }
+    }
+}
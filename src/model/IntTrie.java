@@ -0,0 +1,405 @@
+package model;
+
+import java.util.function.Consumer;
+
+/**
+ * Immutable map with int keys, stored as a hash array mapped trie.
+ *
+ * <p>Every node has up to 32 children, one for each value of the next five bits of the mixed key, and only
+ * the children that exist are stored. A change copies the nodes on the path to the changed key and shares
+ * all the other nodes with the old trie, so both tries stay valid and a change only costs a few small
+ * copies. The mixing of the keys can not map two keys to the same bits, so there are no collisions.</p>
+ *
+ * <p>Many changes can be made with a {@link Builder}, which copies each node only once and then changes its
+ * own copies in place until it is built.</p>
+ *
+ * @param <V> type of the stored values
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+final class IntTrie<V> {
+
+    /**
+     * The empty trie.
+     */
+    private static final IntTrie<Object> EMPTY = new IntTrie<>(null, 0);
+
+    /**
+     * A key and its value at the end of a path.
+     */
+    private static final class Leaf {
+
+        /**
+         * The key.
+         */
+        private final int key;
+
+        /**
+         * The value.
+         */
+        private final Object value;
+
+        /**
+         * @param key the key
+         * @param value the value
+         */
+        private Leaf(int key, Object value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /**
+     * A node of the trie.
+     */
+    private static final class Node {
+
+        /**
+         * Has a bit set for every child that exists.
+         */
+        private int bitmap;
+
+        /**
+         * The children in the order of their bits, each one a {@link Leaf} or a {@link Node}.
+         */
+        private Object[] children;
+
+        /**
+         * The builder that may change this node in place, or null if nobody may.
+         */
+        private final Object owner;
+
+        /**
+         * @param bitmap bits of the children
+         * @param children the children
+         * @param owner the builder that may change the node in place
+         */
+        private Node(int bitmap, Object[] children, Object owner) {
+            this.bitmap = bitmap;
+            this.children = children;
+            this.owner = owner;
+        }
+    }
+
+    /**
+     * The root node or null if the trie is empty.
+     */
+    private final Node root;
+
+    /**
+     * Number of keys in the trie.
+     */
+    private final int size;
+
+    /**
+     * @param root the root node
+     * @param size number of keys
+     */
+    private IntTrie(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * @param <V> type of the stored values
+     * @return the empty trie
+     */
+    @SuppressWarnings("unchecked")
+    static <V> IntTrie<V> empty() {
+        return (IntTrie<V>) EMPTY;
+    }
+
+    /**
+     * @return number of keys in the trie
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the value of a key.
+     *
+     * @param key the key
+     * @return the value or null if the key is not in the trie
+     */
+    V get(int key) {
+        return get(root, key);
+    }
+
+    /**
+     * Returns the value of a key below a root node.
+     *
+     * @param root the root node or null
+     * @param key the key
+     * @param <V> type of the stored values
+     * @return the value or null if the key is not below the node
+     */
+    @SuppressWarnings("unchecked")
+    private static <V> V get(Node root, int key) {
+        int hash = mix(key);
+        Node node = root;
+        int shift = 0;
+
+        while (node != null) {
+            int bit = 1 << ((hash >>> shift) & 31);
+            if ((node.bitmap & bit) == 0) {
+                return null;
+            }
+
+            Object child = node.children[Integer.bitCount(node.bitmap & (bit - 1))];
+            if (child instanceof Leaf) {
+                Leaf leaf = (Leaf) child;
+                return leaf.key == key ? (V) leaf.value : null;
+            }
+            node = (Node) child;
+            shift += 5;
+        }
+        return null;
+    }
+
+    /**
+     * Calls an action for every value, in no particular order.
+     *
+     * @param action the action
+     */
+    void forEach(Consumer<? super V> action) {
+        if (root != null) {
+            forEach(root, action);
+        }
+    }
+
+    /**
+     * @return a builder that starts with the keys of this trie
+     */
+    Builder<V> builder() {
+        return new Builder<>(this);
+    }
+
+    /**
+     * Makes changes to a copy of a trie. The builder changes the nodes it copied in place, so it must only be
+     * used by one thread and not after {@link #build()}.
+     *
+     * @param <V> type of the stored values
+     */
+    static final class Builder<V> {
+
+        /**
+         * Marks the nodes that this builder copied and may change in place.
+         */
+        private Object owner = new Object();
+
+        /**
+         * The root node or null if the trie is empty.
+         */
+        private Node root;
+
+        /**
+         * Number of keys.
+         */
+        private int size;
+
+        /**
+         * @param trie the trie to start with
+         */
+        private Builder(IntTrie<V> trie) {
+            this.root = trie.root;
+            this.size = trie.size;
+        }
+
+        /**
+         * Returns the value of a key, including the changes of this builder.
+         *
+         * @param key the key
+         * @return the value or null if the key is not in the trie
+         */
+        V get(int key) {
+            return IntTrie.get(root, key);
+        }
+
+        /**
+         * Stores a value under a key.
+         *
+         * @param key the key
+         * @param value the value, not null
+         */
+        void put(int key, V value) {
+            if (value == null) {
+                throw new NullPointerException("IntTrie does not store null values");
+            }
+            Leaf leaf = new Leaf(key, value);
+            if (root == null) {
+                root = new Node(0, new Object[0], owner);
+            }
+            root = put(root, 0, mix(key), leaf);
+        }
+
+        /**
+         * Removes a key.
+         *
+         * @param key the key
+         */
+        void remove(int key) {
+            if (root != null) {
+                root = remove(root, 0, mix(key), key);
+            }
+        }
+
+        /**
+         * @return number of keys, including the changes of this builder
+         */
+        int size() {
+            return size;
+        }
+
+        /**
+         * Returns the trie with all the changes. The builder can not be used afterwards.
+         *
+         * @return the new trie
+         */
+        IntTrie<V> build() {
+            owner = null;
+            return new IntTrie<>(root, size);
+        }
+
+        /**
+         * Returns a node that this builder may change in place.
+         *
+         * @param node the node
+         * @return the node itself if this builder owns it, otherwise a copy
+         */
+        private Node editable(Node node) {
+            if (owner == null) {
+                throw new IllegalStateException("the builder was already built");
+            }
+            return node.owner == owner ? node : new Node(node.bitmap, node.children.clone(), owner);
+        }
+
+        /**
+         * Stores a leaf below a node.
+         *
+         * @param node the node
+         * @param shift position of the bits of the node in the mixed key
+         * @param hash the mixed key
+         * @param leaf the leaf
+         * @return the changed node
+         */
+        private Node put(Node node, int shift, int hash, Leaf leaf) {
+            int bit = 1 << ((hash >>> shift) & 31);
+            int index = Integer.bitCount(node.bitmap & (bit - 1));
+
+            if ((node.bitmap & bit) == 0) {
+                Node edited = editable(node);
+                Object[] children = new Object[edited.children.length + 1];
+                System.arraycopy(edited.children, 0, children, 0, index);
+                children[index] = leaf;
+                System.arraycopy(edited.children, index, children, index + 1, edited.children.length - index);
+                edited.children = children;
+                edited.bitmap |= bit;
+                size++;
+                return edited;
+            }
+
+            Object child = node.children[index];
+            Object changed;
+            if (child instanceof Leaf) {
+                Leaf existing = (Leaf) child;
+                if (existing.key == leaf.key) {
+                    changed = leaf;
+                } else {
+                    Node split = new Node(0, new Object[0], owner);
+                    split = put(split, shift + 5, mix(existing.key), existing);
+                    size--;
+                    changed = put(split, shift + 5, hash, leaf);
+                }
+            } else {
+                changed = put((Node) child, shift + 5, hash, leaf);
+            }
+
+            if (changed == child) {
+                return node;
+            }
+            Node edited = editable(node);
+            edited.children[index] = changed;
+            return edited;
+        }
+
+        /**
+         * Removes a key below a node.
+         *
+         * @param node the node
+         * @param shift position of the bits of the node in the mixed key
+         * @param hash the mixed key
+         * @param key the key
+         * @return the changed node, or null if it has no children anymore
+         */
+        private Node remove(Node node, int shift, int hash, int key) {
+            int bit = 1 << ((hash >>> shift) & 31);
+            if ((node.bitmap & bit) == 0) {
+                return node;
+            }
+
+            int index = Integer.bitCount(node.bitmap & (bit - 1));
+            Object child = node.children[index];
+            Object changed;
+            if (child instanceof Leaf) {
+                if (((Leaf) child).key != key) {
+                    return node;
+                }
+                changed = null;
+                size--;
+            } else {
+                changed = remove((Node) child, shift + 5, hash, key);
+                if (changed == child) {
+                    return node;
+                }
+            }
+
+            if (changed != null) {
+                Node edited = editable(node);
+                edited.children[index] = changed;
+                return edited;
+            }
+            if (node.children.length == 1) {
+                return null;
+            }
+
+            Node edited = editable(node);
+            Object[] children = new Object[edited.children.length - 1];
+            System.arraycopy(edited.children, 0, children, 0, index);
+            System.arraycopy(edited.children, index + 1, children, index, children.length - index);
+            edited.children = children;
+            edited.bitmap &= ~bit;
+            return edited;
+        }
+    }
+
+    /**
+     * Calls an action for every value below a node.
+     *
+     * @param node the node
+     * @param action the action
+     * @param <V> type of the stored values
+     */
+    @SuppressWarnings("unchecked")
+    private static <V> void forEach(Node node, Consumer<? super V> action) {
+        for (Object child : node.children) {
+            if (child instanceof Leaf) {
+                action.accept((V) ((Leaf) child).value);
+            } else {
+                forEach((Node) child, action);
+            }
+        }
+    }
+
+    /**
+     * Mixes the bits of a key so the keys spread over the children. Different keys always give different
+     * results.
+     *
+     * @param key the key
+     * @return the mixed key
+     */
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
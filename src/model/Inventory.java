@@ -1,157 +1,1416 @@
 package model;
 
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Inventory model that controls the part and product data and stores them.
+ *
+ * <p>The inventory can be used from any thread. The data is stored by id in striped tables, see
+ * {@link StripedTable}, so the lookups by id do not lock and the changes of different id ranges do not wait
+ * for each other. Every change of one part or product happens at once for all threads, and
+ * {@link #snapshot()} returns the whole inventory as it is at one moment without stopping the changes.
+ * Every change is published to the readers before it is logged. The lists returned by
+ * {@link #getAllParts()} and {@link #getProducts()} and the searches by name and the analytic scans work on a
+ * copy for the screens, which follows the changes on the UI thread (see
+ * {@link #projectOnUiThread(Executor, BooleanSupplier)}) and must only be used there.</p>
+ *
+ * <p>The inventory does not need JavaFX. The copy for the screens is made of plain lists that report their
+ * changes to {@link InventoryListener}s, and the screens wrap them in observable lists for their tables. A
+ * batch job or a server can use the inventory with only the model package on the class path.</p>
+ *
+ * <p>The data can be stored permanently in a snapshot file, see {@link #writeSnapshot(Path)}, and the changes
+ *  after the last snapshot in a write-ahead log, see {@link #openWriteAheadLog(Path, WriteAheadLog.SyncPolicy)}.</p>
+ *
+ * <p><b>FUTURE ENHANCEMENT</b> I would create field that could store date created and modified for each data.</p>
+ *
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+public class Inventory {
+
+    /**
+     * Takes the views of all the data, shared by the tables.
+     */
+    private static final PublishGate publishGate = new PublishGate();
+
+    /**
+     * Stores all the part data
+     */
+    private static final StripedTable<Part> partStore =
+            new StripedTable<>(InventoryView.PARTS, publishGate, Part::getId);
+
+    /**
+     * Stores all the product data
+     */
+    private static final StripedTable<Product> productStore =
+            new StripedTable<>(InventoryView.PRODUCTS, publishGate, Product::getId);
+
+    /**
+     * List of the parts for the screens. It is only changed on the UI thread by the projection, or by the
+     * changing thread if there is no UI thread.
+     */
+    private static final InventoryTable<Part> parts = new InventoryTable<>(Part::getId, Part::getName);
+
+    /**
+     * List of the products for the screens. It is only changed on the UI thread by the projection, or by
+     * the changing thread if there is no UI thread.
+     */
+    private static final InventoryTable<Product> products = new InventoryTable<>(Product::getId, Product::getName);
+
+    /**
+     * Copies the changes into the lists for the screens.
+     */
+    private static final InventoryProjection projection = new InventoryProjection();
+
+    /**
+     * Guards the where-used index, the shared bills of materials and the changes of the retired parts. It is
+     * always taken after the lock of a part or product stripe, never before.
+     */
+    private static final Object bomLock = new Object();
+
+    /**
+     * Reverse index from the parts to the products that use them.
+     */
+    private static final WhereUsedIndex whereUsedIndex = new WhereUsedIndex();
+
+    /**
+     * Columnar copy of the part data for the analytic scans. It follows the slots of the part table.
+     */
+    private static final PartColumns partColumns = new PartColumns();
+
+    static {
+        parts.setSlotListener(partColumns.slotListener());
+    }
+
+    /**
+     * Free stock of the parts and the products for the reservations. It follows every change of the stored
+     * data.
+     */
+    private static final StockReservations reservations = new StockReservations();
+
+    /**
+     * How many of each product can be built from the part stock. It follows every change of the stored
+     * data.
+     */
+    private static final BuildableQuantities buildable =
+            new BuildableQuantities(partStore::get, productStore::get, whereUsedIndex, bomLock);
+
+    static {
+        partStore.setChangeListener(reservations.partListener());
+        productStore.setChangeListener(reservations.productListener());
+        // the buildable quantities read other parts, so they follow the changes once a batch is published
+        partStore.setPublishListener(buildable.partListener());
+        productStore.setPublishListener(buildable.productListener());
+    }
+
+    /**
+     * True while the part columns do not follow the part table. A loaded snapshot only fills the table,
+     * and the columns are built on their first use. Guarded by the projection, like the part table.
+     */
+    private static boolean partColumnsPending;
+
+    /**
+     * Shares identical bills of materials between the products.
+     */
+    private static final BomStore bomStore = new BomStore();
+
+    /**
+     * Parts that were deleted from the inventory while products still had them as associate parts. They are
+     * kept so the products can still show them, and forgotten once no product uses them anymore.
+     */
+    private static final StripedTable<Part> retiredParts =
+            new StripedTable<>(InventoryView.RETIRED_PARTS, publishGate, Part::getId);
+
+    /**
+     * Generates the ids of new parts. Every added part is observed so its id is never handed out again.
+     */
+    private static final IdAllocator partIds = new IdAllocator();
+
+    /**
+     * Generates the ids of new products. Every added product is observed so its id is never handed out again.
+     */
+    private static final IdAllocator productIds = new IdAllocator();
+
+    /**
+     * Name of the file that stores the part id high-water mark.
+     */
+    private static final String PART_IDS_FILE = "part-ids";
+
+    /**
+     * Name of the file that stores the product id high-water mark.
+     */
+    private static final String PRODUCT_IDS_FILE = "product-ids";
+
+    /**
+     * Error of a change that would take units that are held by a reservation.
+     */
+    private static final String HELD_STOCK_ERROR = "Inventory Level cannot go below the units held by orders.";
+
+    /**
+     * Time between two writes of the write-ahead log when it syncs on an interval.
+     */
+    private static final long GROUP_COMMIT_MILLIS = 20;
+
+    /**
+     * Log of the changes, or null if the changes are only kept in memory.
+     */
+    private static volatile WriteAheadLog writeAheadLog;
+
+    /**
+     * Epoch of the write-ahead log when the loaded snapshot was taken, or 0 if no snapshot was loaded.
+     */
+    private static long snapshotLogEpoch;
+
+    /**
+     * Position of the write-ahead log when the loaded snapshot was taken.
+     */
+    private static long snapshotLogPosition;
+
+    /**
+     * Background thread that writes the snapshots.
+     */
+    private static final Executor snapshotWriter = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "snapshot-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Add a new part data to the inventory
+     *
+     * @param newPart part data
+     * @throws IllegalArgumentException if the id is already in the inventory
+     */
+    public static void addPart(Part newPart) {
+        int id = newPart.getId();
+        WriteAheadLog log = writeAheadLog;
+        long sequence = 0;
+
+        long stamp = partStore.lock(id);
+        try {
+            if (partStore.getLocked(id) != null) {
+                throw new IllegalArgumentException("Id " + id + " is already in the inventory");
+            }
+
+            partStore.putLocked(newPart);
+            partIds.observe(id);
+            projection.added(parts, Collections.singletonList(newPart));
+            // the part is published before its retired copy goes, so it can always be found
+            partStore.publish(id);
+            synchronized (bomLock) {
+                if (retiredParts.get(id) != null) {
+                    retiredParts.remove(id);
+                }
+            }
+            if (log != null) {
+                sequence = log.appendPart(WriteAheadLog.ADD_PART, newPart);
+            }
+        } finally {
+            partStore.unlock(id, stamp);
+        }
+        finish(log, sequence);
+    }
+
+    /**
+     * Add a new product data to the inventory
+     *
+     * @param newProduct part data
+     * @throws IllegalArgumentException if the id is already in the inventory
+     */
+    public static void addProduct(Product newProduct) {
+        int id = newProduct.getId();
+        WriteAheadLog log = writeAheadLog;
+        long sequence = 0;
+
+        long stamp = productStore.lock(id);
+        try {
+            if (productStore.getLocked(id) != null) {
+                throw new IllegalArgumentException("Id " + id + " is already in the inventory");
+            }
+
+            synchronized (bomLock) {
+                newProduct.setBom(bomStore.acquire(newProduct.getBom()));
+                whereUsedIndex.add(id, newProduct.getBom());
+            }
+            productStore.putLocked(newProduct);
+            productIds.observe(id);
+            projection.added(products, Collections.singletonList(newProduct));
+            productStore.publish(id);
+            if (log != null) {
+                sequence = log.appendProduct(WriteAheadLog.ADD_PRODUCT, newProduct);
+            }
+        } finally {
+            productStore.unlock(id, stamp);
+        }
+        finish(log, sequence);
+    }
+
+    /**
+     * Adds many new parts to the inventory with a single change of the part list. The batch is added at
+     * once for all threads.
+     *
+     * @param newParts the parts
+     * @throws IllegalArgumentException if an id is already in the inventory. Nothing is added then.
+     */
+    public static void addParts(List<? extends Part> newParts) {
+        List<Part> added = new ArrayList<>(newParts);
+        int[] ids = idsOf(added, Part::getId);
+        WriteAheadLog log = writeAheadLog;
+        long sequence = 0;
+
+        long[] stamps = partStore.lockAll(ids, ids.length);
+        try {
+            putAllAbsent(partStore, added, ids);
+            projection.added(parts, added);
+            partStore.publishAll(stamps);
+            synchronized (bomLock) {
+                for (int id : ids) {
+                    partIds.observe(id);
+                    if (retiredParts.get(id) != null) {
+                        retiredParts.remove(id);
+                    }
+                }
+            }
+            if (log != null) {
+                sequence = log.appendParts(WriteAheadLog.ADD_PART, added);
+            }
+        } finally {
+            partStore.unlockAll(stamps);
+        }
+        finish(log, sequence);
+    }
+
+    /**
+     * Adds many new products to the inventory with a single change of the product list. The batch is
+     * added at once for all threads.
+     *
+     * @param newProducts the products
+     * @throws IllegalArgumentException if an id is already in the inventory. Nothing is added then.
+     */
+    public static void addProducts(List<? extends Product> newProducts) {
+        List<Product> added = new ArrayList<>(newProducts);
+        int[] ids = idsOf(added, Product::getId);
+        WriteAheadLog log = writeAheadLog;
+        long sequence = 0;
+
+        long[] stamps = productStore.lockAll(ids, ids.length);
+        try {
+            putAllAbsent(productStore, added, ids);
+            synchronized (bomLock) {
+                for (Product product : added) {
+                    product.setBom(bomStore.acquire(product.getBom()));
+                    whereUsedIndex.add(product.getId(), product.getBom());
+                }
+            }
+            for (int id : ids) {
+                productIds.observe(id);
+            }
+            projection.added(products, added);
+            productStore.publishAll(stamps);
+            if (log != null) {
+                sequence = log.appendProducts(WriteAheadLog.ADD_PRODUCT, added);
+            }
+        } finally {
+            productStore.unlockAll(stamps);
+        }
+        finish(log, sequence);
+    }
+
+    /**
+     * Generates the id for a new part data.
+     *
+     * @return id that is not used by any part
+     */
+    public static int generatePartId() {
+        return partIds.next();
+    }
+
+    /**
+     * Generates the id for a new product data.
+     *
+     * @return id that is not used by any product
+     */
+    public static int generateProductId() {
+        return productIds.next();
+    }
+
+    /**
+     * Reserves a block of consecutive part ids for a bulk import.
+     *
+     * @param count number of ids to reserve
+     * @return the first id of the block
+     */
+    public static int reservePartIds(int count) {
+        return partIds.reserve(count);
+    }
+
+    /**
+     * Reserves a block of consecutive product ids for a bulk import.
+     *
+     * @param count number of ids to reserve
+     * @return the first id of the block
+     */
+    public static int reserveProductIds(int count) {
+        return productIds.reserve(count);
+    }
+
+    /**
+     * Makes sure a part id that a bulk import brings along is never handed out, so the ids reserved for the
+     * imported rows without an id do not take it.
+     *
+     * @param id a part id
+     */
+    public static void observePartId(int id) {
+        partIds.observe(id);
+    }
+
+    /**
+     * Makes sure a product id that a bulk import brings along is never handed out, so the ids reserved for
+     * the imported rows without an id do not take it.
+     *
+     * @param id a product id
+     */
+    public static void observeProductId(int id) {
+        productIds.observe(id);
+    }
+
+    /**
+     * Seeds the id generators with the high-water marks stored in the given directory.
+     *
+     * @param directory the data directory of the application
+     * @throws IOException if a stored high-water mark cannot be read
+     */
+    public static void loadIdHighWaterMarks(Path directory) throws IOException {
+        partIds.load(directory.resolve(PART_IDS_FILE));
+        productIds.load(directory.resolve(PRODUCT_IDS_FILE));
+    }
+
+    /**
+     * Stores the high-water marks of the id generators in the given directory.
+     *
+     * @param directory the data directory of the application
+     * @throws IOException if a high-water mark cannot be written
+     */
+    public static void storeIdHighWaterMarks(Path directory) throws IOException {
+        partIds.store(directory.resolve(PART_IDS_FILE));
+        productIds.store(directory.resolve(PRODUCT_IDS_FILE));
+    }
+
+    /**
+     * Sets the UI thread that keeps the lists for the screens up to date. Changes made on other threads are
+     * applied to the lists later on the UI thread, changes made on the UI thread at once. Without a UI thread
+     * every thread applies its own changes right away.
+     *
+     * @param uiExecutor runs tasks on the UI thread, for example {@code Platform::runLater}
+     * @param onUiThread tells if the calling thread is the UI thread
+     */
+    public static void projectOnUiThread(Executor uiExecutor, BooleanSupplier onUiThread) {
+        projection.setUiThread(uiExecutor, onUiThread);
+    }
+
+    /**
+     * Replays the write-ahead log in the given file and logs every following change to it. The file is
+     * created if it does not exist yet.
+     *
+     * @param file the log file
+     * @param policy when the logged changes are synced to the disk
+     * @throws IOException if the log cannot be opened or replayed
+     */
+    public static void openWriteAheadLog(Path file, WriteAheadLog.SyncPolicy policy) throws IOException {
+        closeWriteAheadLog();
+        writeAheadLog = WriteAheadLog.open(file, policy, GROUP_COMMIT_MILLIS, snapshotLogEpoch,
+                snapshotLogPosition, Inventory::replay);
+    }
+
+    /**
+     * Loads a snapshot written by {@link #writeSnapshot(Path)} into the empty inventory. The sections of
+     * the file are read and decoded in parallel before anything is added, so a damaged file leaves the
+     * inventory empty. A write-ahead log opened afterwards only replays the changes made after the snapshot.
+     *
+     * @param file the snapshot file
+     * @throws IOException if the file cannot be read or is damaged
+     */
+    public static void loadSnapshot(Path file) throws IOException {
+        if (partStore.size() > 0 || productStore.size() > 0) {
+            throw new IllegalStateException("a snapshot can only be loaded into an empty inventory");
+        }
+
+        InventorySnapshot snapshot = InventorySnapshot.read(file);
+
+        // the buildable quantities are worked out once for all the products after they are loaded
+        buildable.defer();
+        boolean loaded = false;
+        try {
+            // the columns are only needed by the analytic scans, so they are built on their first use
+            synchronized (projection) {
+                parts.setSlotListener(null);
+                partColumnsPending = true;
+            }
+
+            synchronized (bomLock) {
+                List<Part> loadedRetiredParts = Arrays.asList(snapshot.retiredParts);
+                int[] retiredIdList = idsOf(loadedRetiredParts, Part::getId);
+                long[] stamps = retiredParts.lockAll(retiredIdList, retiredIdList.length);
+                try {
+                    putAllAbsent(retiredParts, loadedRetiredParts, retiredIdList);
+                } finally {
+                    retiredParts.unlockAll(stamps);
+                }
+                for (Product product : snapshot.products) {
+                    product.setBom(bomStore.acquire(product.getBom()));
+                    whereUsedIndex.add(product.getId(), product.getBom());
+                }
+            }
+
+            List<Part> loadedParts = Arrays.asList(snapshot.parts);
+            int[] partIdList = idsOf(loadedParts, Part::getId);
+            long[] stamps = partStore.lockAll(partIdList, partIdList.length);
+            try {
+                putAllAbsent(partStore, loadedParts, partIdList);
+                projection.added(parts, loadedParts);
+            } finally {
+                partStore.unlockAll(stamps);
+            }
+
+            List<Product> loadedProducts = Arrays.asList(snapshot.products);
+            int[] productIdList = idsOf(loadedProducts, Product::getId);
+            stamps = productStore.lockAll(productIdList, productIdList.length);
+            try {
+                putAllAbsent(productStore, loadedProducts, productIdList);
+                projection.added(products, loadedProducts);
+            } finally {
+                productStore.unlockAll(stamps);
+            }
+            loaded = true;
+        } finally {
+            if (!loaded) {
+                unloadSnapshot(snapshot);
+            }
+            projection.publish();
+            // also after a failed load, so the quantities are kept up to date again
+            buildable.recomputeAll(productStore.values());
+        }
+
+        partIds.observe(snapshot.partHighWaterMark);
+        productIds.observe(snapshot.productHighWaterMark);
+        snapshotLogEpoch = snapshot.logEpoch;
+        snapshotLogPosition = snapshot.logPosition;
+    }
+
+    /**
+     * Takes back what a snapshot that failed to load stored, so the inventory is empty again. Only the data
+     * of the snapshot that is still stored is removed.
+     *
+     * @param snapshot the snapshot
+     */
+    private static void unloadSnapshot(InventorySnapshot snapshot) {
+        removeStored(productStore, products, Arrays.asList(snapshot.products), Product::getId);
+        removeStored(partStore, parts, Arrays.asList(snapshot.parts), Part::getId);
+
+        synchronized (bomLock) {
+            removeStored(retiredParts, null, Arrays.asList(snapshot.retiredParts), Part::getId);
+            for (Product product : snapshot.products) {
+                // the bills of materials were all recorded before anything was stored
+                whereUsedIndex.remove(product.getId());
+                bomStore.release(product.getBom());
+            }
+        }
+    }
+
+    /**
+     * Removes the data of a list that is stored in a table.
+     *
+     * @param store the table
+     * @param table the list of the table for the screens, or null if it has none
+     * @param elements the data to remove, which is left alone where other data is stored under its id
+     * @param idOf reads the id of a data
+     * @param <T> type of the data
+     */
+    private static <T> void removeStored(StripedTable<T> store, InventoryTable<T> table, List<T> elements,
+                                         ToIntFunction<T> idOf) {
+        int[] ids = new int[elements.size()];
+        int count = 0;
+        long[] stamps = store.lockAll(idsOf(elements, idOf), elements.size());
+        try {
+            for (T element : elements) {
+                int id = idOf.applyAsInt(element);
+                if (store.getLocked(id) == element) {
+                    store.removeLocked(id);
+                    ids[count++] = id;
+                }
+            }
+            if (table != null && count > 0) {
+                projection.removed(table, Arrays.copyOf(ids, count));
+            }
+        } finally {
+            store.unlockAll(stamps);
+        }
+    }
+
+    /**
+     * Writes a snapshot of the inventory. Only the data is copied on the calling thread, the file is
+     * encoded and written on a background thread while the inventory can keep changing. Once the file is
+     * written, the write-ahead log is emptied if nothing was logged in the meantime.
+     *
+     * <p>Other threads can change the inventory while it is copied. The position of the log is read first
+     * and every change is logged after it is made, so the snapshot holds at least all the changes before that
+     * position. Changes after it that the snapshot holds too are applied again when the log is replayed,
+     * which gives the same result because the replay only stores the logged data.</p>
+     *
+     * @param file the snapshot file
+     * @return completes when the file is written, or completes exceptionally with an
+     *         {@link java.io.UncheckedIOException} if it cannot be written
+     */
+    public static CompletableFuture<Void> writeSnapshot(Path file) {
+        WriteAheadLog log = writeAheadLog;
+        long logEpoch = log == null ? 0 : log.epoch();
+        long logPosition = log == null ? 0 : log.position();
+
+        InventoryView view = snapshot();
+        InventorySnapshot snapshot = new InventorySnapshot(
+                view.<Part>values(InventoryView.PARTS).toArray(new Part[0]),
+                view.<Part>values(InventoryView.RETIRED_PARTS).toArray(new Part[0]),
+                view.<Product>values(InventoryView.PRODUCTS).toArray(new Product[0]),
+                partIds.getHighWaterMark(),
+                productIds.getHighWaterMark(),
+                logEpoch,
+                logPosition);
+
+        return CompletableFuture.runAsync(() -> {
+            try {
+                snapshot.write(file);
+                if (log != null) {
+                    log.resetIfUnchanged(snapshot.logEpoch, snapshot.logPosition);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, snapshotWriter);
+    }
+
+    /**
+     * Writes the remaining changes of the write-ahead log to the disk and stops logging.
+     *
+     * @throws IOException if the changes cannot be written
+     */
+    public static void closeWriteAheadLog() throws IOException {
+        WriteAheadLog log = writeAheadLog;
+        writeAheadLog = null;
+        if (log != null) {
+            log.close();
+        }
+    }
+
+    /**
+     * Applies a record of the write-ahead log. The log is not open yet while it is replayed, so the
+     * changes are not logged again.
+     *
+     * @param type the type of the record
+     * @param payload the data of the record
+     * @throws IOException if the record is damaged
+     */
+    private static void replay(byte type, ByteBuffer payload) throws IOException {
+        switch (type) {
+            case WriteAheadLog.ADD_PART:
+            case WriteAheadLog.UPDATE_PART:
+                Part part = InventoryCodec.readPart(payload);
+                if (partStore.get(part.getId()) != null) {
+                    updatePart(part.getId(), part);
+                } else {
+                    addPart(part);
+                }
+                break;
+            case WriteAheadLog.DELETE_PART:
+                Part deletedPart = partStore.get(payload.getInt());
+                if (deletedPart != null) {
+                    deletePart(deletedPart);
+                }
+                break;
+            case WriteAheadLog.ADD_PRODUCT:
+            case WriteAheadLog.UPDATE_PRODUCT:
+                Product product = InventoryCodec.readProduct(payload);
+                if (productStore.get(product.getId()) != null) {
+                    updateProduct(product.getId(), product);
+                } else {
+                    addProduct(product);
+                }
+                break;
+            case WriteAheadLog.DELETE_PRODUCT:
+                Product deletedProduct = productStore.get(payload.getInt());
+                if (deletedProduct != null) {
+                    deleteProduct(deletedProduct);
+                }
+                break;
+            default:
+                throw new IOException("unknown write-ahead log record " + type);
+        }
+    }
+
+    /**
+     * Look for a part data that matches the given id
+     *
+     * @param partID Id of a part
+     * @return part data
+     */
+    public static Part lookupByPartID(int partID) {
+        return partStore.get(partID);
+    }
+
+    /**
+     * Look for a product data that matches the given id
+     *
+     * @param productID Id of a product
+     * @return product data
+     */
+    public static Product lookupByProductID(int productID) {
+        return productStore.get(productID);
+    }
+
+    /**
+     * Look for a part data that partially matches the given name
+     *
+     * @param partName text to search
+     * @return list of part data
+     */
+    public static List<Part> lookupByPartName(String partName) {
+        return parts.lookupByName(partName);
+    }
+
+    /**
+     * Passes the parts that match a search to an action, in no particular order. The search runs on the
+     * current view of the inventory, see {@link #searchParts(InventoryView, SearchQuery, Consumer)}. Can be
+     * called on any thread.
+     *
+     * @param query the search text
+     * @param action gets every matching part once
+     */
+    public static void searchParts(SearchQuery query, Consumer<? super Part> action) {
+        searchParts(snapshot(), query, action);
+    }
+
+    /**
+     * Passes the parts of a view that match a search to an action, in no particular order. The part with
+     * the searched id is looked up by its id and the names are found in the name index, so only the matches
+     * are read. The name index follows the changes later than the view, so the changes that are not in the
+     * index yet are looked at too, and every candidate is checked again as it is in the view. Can be called
+     * on any thread.
+     *
+     * @param view the view to search, taken with {@link #snapshot()}
+     * @param query the search text
+     * @param action gets every matching part of the view once
+     */
+    public static void searchParts(InventoryView view, SearchQuery query, Consumer<? super Part> action) {
+        search(view::lookupPart, parts, query, Part::getId, Part::getName, action);
+    }
+
+    /**
+     * Passes the products that match a search to an action, in no particular order. The search runs on the
+     * current view of the inventory, see {@link #searchProducts(InventoryView, SearchQuery, Consumer)}. Can
+     * be called on any thread.
+     *
+     * @param query the search text
+     * @param action gets every matching product once
+     */
+    public static void searchProducts(SearchQuery query, Consumer<? super Product> action) {
+        searchProducts(snapshot(), query, action);
+    }
+
+    /**
+     * Passes the products of a view that match a search to an action, in no particular order. It works like
+     * {@link #searchParts(InventoryView, SearchQuery, Consumer)}. Can be called on any thread.
+     *
+     * @param view the view to search, taken with {@link #snapshot()}
+     * @param query the search text
+     * @param action gets every matching product of the view once
+     */
+    public static void searchProducts(InventoryView view, SearchQuery query, Consumer<? super Product> action) {
+        search(view::lookupProduct, products, query, Product::getId, Product::getName, action);
+    }
+
+    /**
+     * Searches a view with the name index of a table. Every change in the view was queued for the table
+     * before it was published, so while the projection does not apply changes, the table and the queued
+     * changes together have every data of the view that can match.
+     *
+     * @param inView looks up the data of the view by id
+     * @param table the table with the name index
+     * @param query the search text
+     * @param idOf reads the id of a data
+     * @param nameOf reads the name of a data
+     * @param action gets every matching data of the view once
+     * @param <T> type of the data
+     */
+    private static <T> void search(IntFunction<T> inView, InventoryTable<T> table, SearchQuery query,
+                                   ToIntFunction<T> idOf, Function<T, String> nameOf,
+                                   Consumer<? super T> action) {
+        IntHashMap<Boolean> passed = new IntHashMap<>();
+        int id = query.getId();
+        T byId = id == -1 ? null : inView.apply(id);
+        if (byId != null) {
+            passed.put(id, Boolean.TRUE);
+            action.accept(byId);
+        }
+
+        Consumer<T> candidate = element -> {
+            int candidateId = idOf.applyAsInt(element);
+            if (passed.get(candidateId) != null) {
+                return;
+            }
+            T current = inView.apply(candidateId);
+            if (current != null && query.matches(candidateId, nameOf.apply(current))) {
+                passed.put(candidateId, Boolean.TRUE);
+                action.accept(current);
+            }
+        };
+        synchronized (projection) {
+            projection.forEachQueued(table, candidate);
+            table.forEachNameMatch(query.getText(), candidate);
+        }
+    }
+
+    /**
+     * Look for a product data that partially matches the given name
+     *
+     * @param productName text to search
+     * @return list of product data
+     */
+    public static List<Product> lookupByProductName(String productName) {
+        return products.lookupByName(productName);
+    }
+
+    /**
+     * Update a specific part data on the inventory
+     *
+     * @param index Id of a part
+     * @param selectedPart selected part from the main screen part table
+     * @return true if the part was updated, false if it is not on the inventory anymore
+     * @throws IllegalArgumentException if the new inventory level or min would take units that are held by
+     *                                  a reservation. Nothing is changed then.
+     */
+    public static boolean updatePart (int index, Part selectedPart) {
+        int id = selectedPart.getId();
+        WriteAheadLog log = writeAheadLog;
+        long sequence = 0;
+
+        long stamp = partStore.lock(id);
+        try {
+            Part previous = partStore.getLocked(id);
+            if (previous == null) {
+                return false;
+            }
+            int taken = takeFreeStock(previous, selectedPart);
+            if (taken < 0) {
+                throw new IllegalArgumentException(HELD_STOCK_ERROR);
+            }
+
+            putPart(selectedPart, taken > 0);
+            projection.replaced(parts, Collections.singletonList(selectedPart));
+            partStore.publish(id);
+            if (log != null) {
+                sequence = log.appendPart(WriteAheadLog.UPDATE_PART, selectedPart);
+            }
+        } finally {
+            partStore.unlock(id, stamp);
+        }
+        finish(log, sequence);
+        return true;
+    }
+
+    /**
+     * Update a specific product data on the inventory
+     *
+     * @param index Id of a product
+     * @param selectedProduct selected product from the main screen part table
+     * @return true if the product was updated, false if it is not on the inventory anymore
+     * @throws IllegalArgumentException if the new inventory level or min would take units that are held by
+     *                                  a reservation. Nothing is changed then.
+     */
+    public static boolean updateProduct (int index, Product selectedProduct) {
+        int id = selectedProduct.getId();
+        WriteAheadLog log = writeAheadLog;
+        long sequence = 0;
+
+        long stamp = productStore.lock(id);
+        try {
+            Product previous = productStore.getLocked(id);
+            if (previous == null) {
+                return false;
+            }
+            int taken = takeFreeStock(previous, selectedProduct);
+            if (taken < 0) {
+                throw new IllegalArgumentException(HELD_STOCK_ERROR);
+            }
+
+            synchronized (bomLock) {
+                replaceBom(previous, selectedProduct);
+            }
+            putProduct(selectedProduct, taken > 0);
+            projection.replaced(products, Collections.singletonList(selectedProduct));
+            productStore.publish(id);
+            if (log != null) {
+                sequence = log.appendProduct(WriteAheadLog.UPDATE_PRODUCT, selectedProduct);
+            }
+        } finally {
+            productStore.unlock(id, stamp);
+        }
+        finish(log, sequence);
+        return true;
+    }
+
+    /**
+     * Updates many parts with a single change of the part list. Parts whose id is not on the inventory
+     * and parts whose new inventory level or min would take units held by a reservation are skipped. The batch is updated at once for all threads.
+     *
+     * @param changedParts the new part data
+     * @return number of updated parts
+     */
+    public static int updateParts(List<? extends Part> changedParts) {
+        int[] ids = idsOf(changedParts, Part::getId);
+        List<Part> updated = new ArrayList<>(changedParts.size());
+        WriteAheadLog log = writeAheadLog;
+        long sequence = 0;
+
+        long[] stamps = partStore.lockAll(ids, ids.length);
+        try {
+            for (Part part : changedParts) {
+                Part previous = partStore.getLocked(part.getId());
+                int taken = previous == null ? -1 : takeFreeStock(previous, part);
+                if (taken >= 0) {
+                    putPart(part, taken > 0);
+                    updated.add(part);
+                }
+            }
+            projection.replaced(parts, updated);
+            partStore.publishAll(stamps);
+            if (log != null) {
+                sequence = log.appendParts(WriteAheadLog.UPDATE_PART, updated);
+            }
+        } finally {
+            partStore.unlockAll(stamps);
+        }
+        finish(log, sequence);
+        return updated.size();
+    }
+
+    /**
+     * Updates many products with a single change of the product list. Products whose id is not on the
+     * inventory and products whose new inventory level or min would take units held by a reservation are
+     * skipped. The batch is updated at once for all threads.
+     *
+     * @param changedProducts the new product data
+     * @return number of updated products
+     */
+    public static int updateProducts(List<? extends Product> changedProducts) {
+        int[] ids = idsOf(changedProducts, Product::getId);
+        List<Product> updated = new ArrayList<>(changedProducts.size());
+        WriteAheadLog log = writeAheadLog;
+        long sequence = 0;
+
+        long[] stamps = productStore.lockAll(ids, ids.length);
+        try {
+            synchronized (bomLock) {
+                for (Product product : changedProducts) {
+                    Product previous = productStore.getLocked(product.getId());
+                    int taken = previous == null ? -1 : takeFreeStock(previous, product);
+                    if (taken >= 0) {
+                        replaceBom(previous, product);
+                        putProduct(product, taken > 0);
+                        updated.add(product);
+                    }
+                }
+            }
+            projection.replaced(products, updated);
+            productStore.publishAll(stamps);
+            if (log != null) {
+                sequence = log.appendProducts(WriteAheadLog.UPDATE_PRODUCT, updated);
+            }
+        } finally {
+            productStore.unlockAll(stamps);
+        }
+        finish(log, sequence);
+        return updated.size();
+    }
+
+    /**
+     * Changes the inventory level of a part by an amount, at once for all threads. The part is replaced by
+     * a copy with the new inventory level, like an update.
+     *
+     * @param partId Id of a part
+     * @param delta amount to add to the inventory level, negative to take stock away
+     * @return the changed part, or null if the id is not on the inventory
+     * @throws IllegalArgumentException if the new inventory level would not be between min and max or would
+     *                                  take units that are held by a reservation. Nothing is changed then.
+     */
+    public static Part adjustPartStock(int partId, int delta) {
+        WriteAheadLog log = writeAheadLog;
+        long sequence = 0;
+        Part changed;
+
+        long stamp = partStore.lock(partId);
+        try {
+            Part stored = partStore.getLocked(partId);
+            if (stored == null) {
+                return null;
+            }
+
+            changed = withStock(stored, adjustedStock(stored.getStock(), delta, stored.getMin(), stored.getMax()));
+            int taken = takeFreeStock(stored, changed);
+            if (taken < 0) {
+                throw new IllegalArgumentException(HELD_STOCK_ERROR);
+            }
+            putPart(changed, taken > 0);
+            projection.replaced(parts, Collections.singletonList(changed));
+            partStore.publish(partId);
+            if (log != null) {
+                sequence = log.appendPart(WriteAheadLog.UPDATE_PART, changed);
+            }
+        } finally {
+            partStore.unlock(partId, stamp);
+        }
+        finish(log, sequence);
+        return changed;
+    }
+
+    /**
+     * Changes the inventory level of a product by an amount, at once for all threads. The product is
+     * replaced by a copy with the new inventory level, like an update.
+     *
+     * @param productId Id of a product
+     * @param delta amount to add to the inventory level, negative to take stock away
+     * @return the changed product, or null if the id is not on the inventory
+     * @throws IllegalArgumentException if the new inventory level would not be between min and max or would
+     *                                  take units that are held by a reservation. Nothing is changed then.
+     */
+    public static Product adjustProductStock(int productId, int delta) {
+        WriteAheadLog log = writeAheadLog;
+        long sequence = 0;
+        Product changed;
 
-import java.util.ArrayList;
-import java.util.List;
+        long stamp = productStore.lock(productId);
+        try {
+            Product stored = productStore.getLocked(productId);
+            if (stored == null) {
+                return null;
+            }
 
-/**
- * Inventory model that controls the part and product data and stores them.
- *
- * <p><b>FUTURE ENHANCEMENT</b> I would like to store the inventory data permanently on a computer file. Additionally,
- *  I would create field that could store date created and modified for each data.</p>
- *
- * @author Rifatul Karim
- * @version 1.0
- */
-public class Inventory {
+            changed = new Product(productId, stored.getName(), stored.getPrice(),
+                    adjustedStock(stored.getStock(), delta, stored.getMin(), stored.getMax()), stored.getMin(),
+                    stored.getMax());
+            // the bill of materials is shared and stays the same, so the where-used index does not change
+            changed.setBom(stored.getBom());
+            int taken = takeFreeStock(stored, changed);
+            if (taken < 0) {
+                throw new IllegalArgumentException(HELD_STOCK_ERROR);
+            }
+            putProduct(changed, taken > 0);
+            projection.replaced(products, Collections.singletonList(changed));
+            productStore.publish(productId);
+            if (log != null) {
+                sequence = log.appendProduct(WriteAheadLog.UPDATE_PRODUCT, changed);
+            }
+        } finally {
+            productStore.unlock(productId, stamp);
+        }
+        finish(log, sequence);
+        return changed;
+    }
 
     /**
-     * Stores all the part data
+     * Applies a batch of stock movements to the parts, at once for all threads. The movements are applied
+     * in order, so a part can move more than once in a batch, and every movement must keep the inventory
+     * level between min and max. A part cannot end the batch with fewer units above its min than orders
+     * hold. Either the whole batch is applied or nothing is changed. Each changed part
+     * is replaced by one copy with its final inventory level and logged once.
+     *
+     * @param partIds the ids of the moved parts
+     * @param deltas the amounts to add to the inventory levels, negative to take stock away
+     * @param count number of movements to use from the start of the arrays
+     * @return -1 if the batch was applied, otherwise the index of the first movement that names a part that
+     *         is not on the inventory, leaves min or max, or moves a part that would take held units. Nothing
+     *         is changed then.
      */
-    private static final ObservableList<Part> parts = FXCollections.observableArrayList();
+    public static int adjustPartStocks(int[] partIds, int[] deltas, int count) {
+        return movePartStocks(partIds, deltas, count, null, true);
+    }
 
     /**
-     * Stores all the product data
+     * Applies a batch of stock movements like {@link #adjustPartStocks(int[], int[], int)}, but does not wait
+     * for the write-ahead log and does not let the lists for the screens follow yet. A server can apply many
+     * batches this way and then call {@link #awaitLoggedChanges()} once before it answers them, so the log
+     * is synced once for all of them instead of once for every batch.
+     *
+     * @param partIds the ids of the moved parts
+     * @param deltas the amounts to add to the inventory levels, negative to take stock away
+     * @param count number of movements to use from the start of the arrays
+     * @return -1 if the batch was applied, otherwise the index of the first movement that cannot be applied.
+     *         Nothing is changed then.
      */
-    private static final ObservableList<Product> products = FXCollections.observableArrayList();
+    public static int adjustPartStocksUnsynced(int[] partIds, int[] deltas, int count) {
+        return movePartStocks(partIds, deltas, count, null, false);
+    }
 
     /**
-     * Add a new part data to the inventory
-     *
-     * @param newPart part data
+     * Waits until every change that was logged so far is on the disk as the policy of the write-ahead log
+     * asks for, and lets the lists for the screens follow the changes. Called after
+     * {@link #adjustPartStocksUnsynced(int[], int[], int)}.
      */
-    public static void addPart(Part newPart) {
-        parts.add(newPart);
+    public static void awaitLoggedChanges() {
+        WriteAheadLog log = writeAheadLog;
+        finish(log, log == null ? 0 : log.lastSequence());
     }
 
     /**
-     * Add a new product data to the inventory
+     * Holds units of many parts for an order, all or none of them, until the reservation is committed,
+     * released or runs out of time. Held units cannot be reserved again, and a part never has more units
+     * held than its inventory level is above its min. Reserving does not lock.
      *
-     * @param newProduct part data
+     * @param partIds ids of the parts
+     * @param quantities units of each part
+     * @param holdMillis milliseconds the units are held if the reservation is not committed or released
+     * @return the reservation, or null if a part is not on the inventory or does not have enough free units.
+     *         Nothing is held then.
+     * @throws IllegalArgumentException if the arrays have different lengths, a quantity is not positive or the
+     *                                  time is negative
      */
-    public static void addProduct(Product newProduct) {
-        products.add(newProduct);
+    public static Reservation reserveParts(int[] partIds, int[] quantities, long holdMillis) {
+        return reservations.reserve(true, partIds, quantities, holdMillis);
     }
 
     /**
-     * Look for a part data that matches the given id
+     * Holds units of a product for an order, like {@link #reserveParts(int[], int[], long)}.
      *
-     * @param partID Id of a part
-     * @return part data
+     * @param productId Id of a product
+     * @param quantity units of the product
+     * @param holdMillis milliseconds the units are held if the reservation is not committed or released
+     * @return the reservation, or null if the product is not on the inventory or does not have enough free
+     *         units
+     * @throws IllegalArgumentException if the quantity is not positive or the time is negative
      */
-    public static Part lookupByPartID(int partID) {
-        for(Part part : parts) {
-            if (part.getId() == partID) {
-                return part;
-            }
-        }
-        return null;
+    public static Reservation reserveProduct(int productId, int quantity, long holdMillis) {
+        return reservations.reserve(false, new int[] {productId}, new int[] {quantity}, holdMillis);
     }
 
     /**
-     * Look for a product data that matches the given id
+     * Holds the associate parts needed to build a number of a product, all or none of them, like
+     * {@link #reserveParts(int[], int[], long)}.
      *
-     * @param productID Id of a product
-     * @return product data
+     * @param productId Id of a product
+     * @param count number of products to build
+     * @param holdMillis milliseconds the units are held if the reservation is not committed or released
+     * @return the reservation of the parts, or null if the product is not on the inventory or one of its parts
+     *         does not have enough free units
+     * @throws IllegalArgumentException if the count is not positive or the time is negative
      */
-    public static Product lookupByProductID(int productID) {
-        for(Product product : products) {
-            if (product.getId() == productID) {
-                return product;
-            }
+    public static Reservation reserveBom(int productId, int count, long holdMillis) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Quantity must be more than 0");
+        }
+        Product product = lookupByProductID(productId);
+        if (product == null) {
+            return null;
         }
-        return null;
+
+        Bom bom = product.getBom();
+        int[] partIdList = new int[bom.size()];
+        int[] quantities = new int[bom.size()];
+        for (int i = 0; i < partIdList.length; i++) {
+            partIdList[i] = bom.getPartId(i);
+            quantities[i] = Math.multiplyExact(bom.getQuantity(i), count);
+        }
+        return reservations.reserve(true, partIdList, quantities, holdMillis);
     }
 
     /**
-     * Look for a part data that partially matches the given name
+     * @param partId Id of a part
+     * @return units of the part that can still be reserved, 0 if it is not on the inventory
+     */
+    public static int getFreePartStock(int partId) {
+        return reservations.freePartStock(partId);
+    }
+
+    /**
+     * @param productId Id of a product
+     * @return units of the product that can still be reserved, 0 if it is not on the inventory
+     */
+    public static int getFreeProductStock(int productId) {
+        return reservations.freeProductStock(productId);
+    }
+
+    /**
+     * Returns how many of a product can be built right now from the inventory levels of its associate
+     * parts, counting how many of each part it needs. It is kept up to date as the parts change, so it
+     * takes no time and can be called on any thread.
      *
-     * @param partName text to search
-     * @return list of part data
+     * @param productId Id of a product
+     * @return number of products the parts are enough for, 0 if the product is not on the inventory or has
+     *         no associate parts
      */
-    public static ObservableList<Part> lookupByPartName(String partName) {
-        ObservableList<Part> partList = FXCollections.observableArrayList();
-        partName = partName.toUpperCase();
+    public static int getBuildableQuantity(int productId) {
+        return buildable.buildable(productId);
+    }
 
-        for (Part part : parts) {
-            if(part.getName().toUpperCase().contains(partName.trim())) {
-                partList.add(part);
-            }
+    /**
+     * Takes the units of a reservation out of the inventory levels, at once for all threads. The free stock
+     * does not change, because the units were already held.
+     *
+     * @param reservation the reservation
+     * @return true if it was committed
+     */
+    static boolean commitReservation(Reservation reservation) {
+        int count = reservation.size();
+        int[] ids = new int[count];
+        int[] deltas = new int[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = reservation.getId(i);
+            deltas[i] = -reservation.getQuantity(i);
         }
 
-        return partList;
+        if (reservation.isForParts()) {
+            return movePartStocks(ids, deltas, count, reservation, true) == -1;
+        }
+        return moveProductStock(ids[0], deltas[0], reservation);
     }
 
     /**
-     * Look for a product data that partially matches the given name
+     * Applies a batch of stock movements to the parts, see {@link #adjustPartStocks(int[], int[], int)}.
      *
-     * @param productName text to search
-     * @return list of product data
+     * @param partIds the ids of the moved parts
+     * @param deltas the amounts to add to the inventory levels
+     * @param count number of movements to use from the start of the arrays
+     * @param reservation the reservation that held the units and is committed by the batch, or null
+     * @param waitForLog true to wait for the log and let the lists follow, false if the caller does it later
+     * @return -1 if the batch was applied, otherwise the index of the first movement that cannot be applied,
+     *         or count if the reservation is not held anymore
      */
-    public static ObservableList<Product> lookupByProductName(String productName) {
-        ObservableList<Product> productList = FXCollections.observableArrayList();
+    private static int movePartStocks(int[] partIds, int[] deltas, int count, Reservation reservation,
+                                      boolean waitForLog) {
+        if (count == 0 && reservation == null) {
+            return -1;
+        }
 
-        for (Product product : products) {
-            if(product.getName().toUpperCase().contains(productName.toUpperCase().trim())) {
-                productList.add(product);
+        WriteAheadLog log = writeAheadLog;
+        long sequence = 0;
+        IntHashMap<Part> moved = new IntHashMap<>(count);
+
+        long[] stamps = partStore.lockAll(partIds, count);
+        try {
+            // where each moved part is moved first, in the order the parts are first moved
+            int[] firsts = new int[count];
+            int movedCount = 0;
+            for (int i = 0; i < count; i++) {
+                Part current = moved.get(partIds[i]);
+                if (current == null) {
+                    current = partStore.getLocked(partIds[i]);
+                    if (current == null) {
+                        return i;
+                    }
+                    firsts[movedCount++] = i;
+                }
+                long stock = (long) current.getStock() + deltas[i];
+                if (stock < current.getMin() || stock > current.getMax()) {
+                    return i;
+                }
+                moved.put(partIds[i], withStock(current, (int) stock));
             }
-        }
 
-        return productList;
+            // the units of a reservation were taken from the free stock when they were held, other movements
+            // take what they need now and the batch is turned down if orders hold it
+            int[] taken = new int[movedCount];
+            if (reservation == null) {
+                for (int m = 0; m < movedCount; m++) {
+                    int partId = partIds[firsts[m]];
+                    taken[m] = takeFreeStock(partStore.getLocked(partId), moved.get(partId));
+                    if (taken[m] < 0) {
+                        for (int g = 0; g < m; g++) {
+                            reservations.giveBackFree(true, partIds[firsts[g]], taken[g]);
+                        }
+                        return firsts[m];
+                    }
+                }
+            } else if (!reservation.markCommitted()) {
+                return count;
+            }
+
+            // nothing is stored before the whole batch is checked, so a rejected batch leaves no trace
+            List<Part> updated = new ArrayList<>(movedCount);
+            for (int m = 0; m < movedCount; m++) {
+                Part part = moved.get(partIds[firsts[m]]);
+                putPart(part, reservation != null || taken[m] > 0);
+                updated.add(part);
+            }
+            projection.replaced(parts, updated);
+            partStore.publishAll(stamps);
+            if (log != null) {
+                sequence = log.appendParts(WriteAheadLog.UPDATE_PART, updated);
+            }
+        } finally {
+            partStore.unlockAll(stamps);
+        }
+        if (waitForLog) {
+            finish(log, sequence);
+        }
+        return -1;
     }
 
     /**
-     * Update a specific part data on the inventory
+     * Takes the units of a product reservation out of the inventory level of the product.
      *
-     * @param index Id of a part
-     * @param selectedPart selected part from the main screen part table
+     * @param productId Id of the product
+     * @param delta the amount to add to the inventory level
+     * @param reservation the reservation that held the units
+     * @return true if it was committed
      */
-    public static void updatePart (int index, Part selectedPart) {
-        int loop = parts.size();
-        int selectedPartId = selectedPart.getId();
+    private static boolean moveProductStock(int productId, int delta, Reservation reservation) {
+        WriteAheadLog log = writeAheadLog;
+        long sequence = 0;
 
-        for (int i = 0; i < loop; i++) {
-            int id = parts.get(i).getId();
-            if (id == selectedPartId) {
-                parts.set(i, selectedPart);
-                break;
+        long stamp = productStore.lock(productId);
+        try {
+            Product stored = productStore.getLocked(productId);
+            if (stored == null) {
+                return false;
             }
+            long stock = (long) stored.getStock() + delta;
+            if (stock < stored.getMin() || stock > stored.getMax() || !reservation.markCommitted()) {
+                return false;
+            }
+
+            Product changed = new Product(productId, stored.getName(), stored.getPrice(), (int) stock,
+                    stored.getMin(), stored.getMax());
+            changed.setBom(stored.getBom());
+            productStore.putLockedQuietly(changed);
+            projection.replaced(products, Collections.singletonList(changed));
+            productStore.publish(productId);
+            if (log != null) {
+                sequence = log.appendProduct(WriteAheadLog.UPDATE_PRODUCT, changed);
+            }
+        } finally {
+            productStore.unlock(productId, stamp);
         }
+        finish(log, sequence);
+        return true;
+    }
 
+    /**
+     * Takes the free units that a change of a part gives up, so it cannot use units that orders hold. The
+     * free units are the ones above the min, and they go down when the inventory level goes down or the min
+     * goes up. The stripe of the part must be locked.
+     *
+     * @param previous the stored part
+     * @param changed the changed part
+     * @return the number of taken units, 0 if the change does not lower the free units, or -1 if orders hold
+     *         units the change would take and nothing was taken
+     */
+    private static int takeFreeStock(Part previous, Part changed) {
+        int lost = freeLost(previous.getStock(), previous.getMin(), changed.getStock(), changed.getMin());
+        return lost == 0 || reservations.takeFree(true, changed.getId(), lost,
+                previous.getStock() - previous.getMin()) ? lost : -1;
     }
 
     /**
-     * Update a specific product data on the inventory
+     * Takes the free units that a change of a product gives up, like {@link #takeFreeStock(Part, Part)}.
      *
-     * @param index Id of a product
-     * @param selectedProduct selected product from the main screen part table
+     * @param previous the stored product
+     * @param changed the changed product
+     * @return the number of taken units, 0 if the change does not lower the free units, or -1 if orders hold
+     *         units the change would take and nothing was taken
      */
-    public static void updateProduct (int index, Product selectedProduct) {
-        int loop = products.size();
-        int selectedProductId = selectedProduct.getId();
+    private static int takeFreeStock(Product previous, Product changed) {
+        int lost = freeLost(previous.getStock(), previous.getMin(), changed.getStock(), changed.getMin());
+        return lost == 0 || reservations.takeFree(false, changed.getId(), lost,
+                previous.getStock() - previous.getMin()) ? lost : -1;
+    }
 
-        for (int i = 0; i < loop; i++) {
-            int id = products.get(i).getId();
-            if (id == selectedProductId) {
-                products.set(i, selectedProduct);
-                break;
-            }
+    /**
+     * @param stock the inventory level before a change
+     * @param min the min value before the change
+     * @param newStock the inventory level after the change
+     * @param newMin the min value after the change
+     * @return how many fewer units are above the min after the change, 0 if not fewer
+     */
+    private static int freeLost(int stock, int min, int newStock, int newMin) {
+        long lost = ((long) stock - min) - ((long) newStock - newMin);
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(0, lost));
+    }
+
+    /**
+     * Stores a changed part. The stripe of the part must be locked.
+     *
+     * @param part the changed part
+     * @param freeTaken true if the free units it gives up were already taken from the reservations, so the
+     *                  free stock must not follow the change again
+     */
+    private static void putPart(Part part, boolean freeTaken) {
+        if (freeTaken) {
+            // the buildable quantities are still told when it is published
+            partStore.putLockedQuietly(part);
+        } else {
+            partStore.putLocked(part);
+        }
+    }
+
+    /**
+     * Stores a changed product, like {@link #putPart(Part, boolean)}.
+     *
+     * @param product the changed product
+     * @param freeTaken true if the free units it gives up were already taken from the reservations
+     */
+    private static void putProduct(Product product, boolean freeTaken) {
+        if (freeTaken) {
+            productStore.putLockedQuietly(product);
+        } else {
+            productStore.putLocked(product);
         }
+    }
 
+    /**
+     * Adds an amount to an inventory level and checks that it stays between min and max.
+     *
+     * @param stock the inventory level
+     * @param delta the amount to add
+     * @param min the min value
+     * @param max the max value
+     * @return the new inventory level
+     * @throws IllegalArgumentException if the new inventory level is not between min and max
+     */
+    private static int adjustedStock(int stock, int delta, int min, int max) {
+        long adjusted = (long) stock + delta;
+        if (adjusted < min || adjusted > max) {
+            throw new IllegalArgumentException("Inventory Level must be between Min and Max.");
+        }
+        return (int) adjusted;
     }
 
+    /**
+     * Copies a part with another inventory level.
+     *
+     * @param part the part
+     * @param stock the new inventory level
+     * @return the copy
+     */
+    private static Part withStock(Part part, int stock) {
+        if (part instanceof Inhouse) {
+            return new Inhouse(part.getId(), part.getName(), part.getPrice(), stock, part.getMin(), part.getMax(),
+                    ((Inhouse) part).getMachineId());
+        }
+        return new Outsourced(part.getId(), part.getName(), part.getPrice(), stock, part.getMin(), part.getMax(),
+                ((Outsourced) part).getCompanyName());
+    }
 
     /**
      * Delete a specific part data on the inventory
@@ -160,13 +1419,31 @@ public class Inventory {
      * @return true if the data was found.
      */
     public static boolean deletePart (Part selectedPart) {
-        for (Part part : parts) {
-            if(part.getId() == selectedPart.getId()) {
-                parts.remove(part);
-                return true;
+        int id = selectedPart.getId();
+        WriteAheadLog log = writeAheadLog;
+        long sequence = 0;
+
+        long stamp = partStore.lock(id);
+        try {
+            Part stored = partStore.getLocked(id);
+            if (stored == null) {
+                return false;
+            }
+
+            synchronized (bomLock) {
+                retireIfUsed(stored);
+            }
+            partStore.removeLocked(id);
+            partStore.publish(id);
+            projection.removed(parts, new int[] {id});
+            if (log != null) {
+                sequence = log.appendDelete(WriteAheadLog.DELETE_PART, id);
             }
+        } finally {
+            partStore.unlock(id, stamp);
         }
-        return false;
+        finish(log, sequence);
+        return true;
     }
 
     /**
@@ -176,36 +1453,385 @@ public class Inventory {
      * @return false if the selected product has associate parts.
      */
     public static boolean deleteProduct (Product selectedProduct) {
-        if (selectedProduct.getAssociatedParts().size() == 0) {
-            for (Product product : products) {
-                if (product.getId() == selectedProduct.getId()) {
-                    products.remove(selectedProduct);
-                    return true;
+        if (!selectedProduct.getBom().isEmpty()) {
+            return false;
+        }
+
+        int id = selectedProduct.getId();
+        WriteAheadLog log = writeAheadLog;
+        long sequence = 0;
+
+        long stamp = productStore.lock(id);
+        try {
+            Product stored = productStore.removeLocked(id);
+            if (stored == null) {
+                return false;
+            }
+
+            synchronized (bomLock) {
+                whereUsedIndex.remove(id);
+                releaseBom(stored.getBom());
+            }
+            productStore.publish(id);
+            projection.removed(products, new int[] {id});
+            if (log != null) {
+                sequence = log.appendDelete(WriteAheadLog.DELETE_PRODUCT, id);
+            }
+        } finally {
+            productStore.unlock(id, stamp);
+        }
+        finish(log, sequence);
+        return true;
+    }
+
+    /**
+     * Deletes many parts with a single change of the part list. Parts that are not on the inventory
+     * are skipped. The batch is deleted at once for all threads.
+     *
+     * @param selectedParts the parts to delete
+     * @return number of deleted parts
+     */
+    public static int deleteParts(List<? extends Part> selectedParts) {
+        int[] ids = idsOf(selectedParts, Part::getId);
+        int[] deleted = new int[ids.length];
+        int count = 0;
+        WriteAheadLog log = writeAheadLog;
+        long sequence = 0;
+
+        long[] stamps = partStore.lockAll(ids, ids.length);
+        try {
+            synchronized (bomLock) {
+                for (int id : ids) {
+                    Part stored = partStore.getLocked(id);
+                    if (stored != null) {
+                        retireIfUsed(stored);
+                        partStore.removeLocked(id);
+                        deleted[count++] = id;
+                    }
+                }
+            }
+            deleted = Arrays.copyOf(deleted, count);
+            partStore.publishAll(stamps);
+            projection.removed(parts, deleted);
+            if (log != null) {
+                sequence = log.appendDeletes(WriteAheadLog.DELETE_PART, deleted, count);
+            }
+        } finally {
+            partStore.unlockAll(stamps);
+        }
+        finish(log, sequence);
+        return count;
+    }
+
+    /**
+     * Deletes many products with a single change of the product list. Like
+     * {@link #deleteProduct(Product)} it skips the products that have associate parts and the products
+     * that are not on the inventory. The batch is deleted at once for all threads.
+     *
+     * @param selectedProducts the products to delete
+     * @return number of deleted products
+     */
+    public static int deleteProducts(List<? extends Product> selectedProducts) {
+        int[] ids = new int[selectedProducts.size()];
+        int count = 0;
+        for (Product product : selectedProducts) {
+            if (product.getBom().isEmpty()) {
+                ids[count++] = product.getId();
+            }
+        }
+        int[] deleted = new int[count];
+        int deletedCount = 0;
+        WriteAheadLog log = writeAheadLog;
+        long sequence = 0;
+
+        long[] stamps = productStore.lockAll(ids, count);
+        try {
+            synchronized (bomLock) {
+                for (int i = 0; i < count; i++) {
+                    Product stored = productStore.removeLocked(ids[i]);
+                    if (stored != null) {
+                        whereUsedIndex.remove(ids[i]);
+                        releaseBom(stored.getBom());
+                        deleted[deletedCount++] = ids[i];
+                    }
+                }
+            }
+            deleted = Arrays.copyOf(deleted, deletedCount);
+            productStore.publishAll(stamps);
+            projection.removed(products, deleted);
+            if (log != null) {
+                sequence = log.appendDeletes(WriteAheadLog.DELETE_PRODUCT, deleted, deletedCount);
+            }
+        } finally {
+            productStore.unlockAll(stamps);
+        }
+        finish(log, sequence);
+        return deletedCount;
+    }
+
+    /**
+     * Adds up stock times price of every part on the inventory. It can be called from any thread.
+     *
+     * @return the total value of the parts
+     */
+    public static double getTotalPartValue() {
+        return scanPartColumns(PartColumns::totalValueCents) / 100.0;
+    }
+
+    /**
+     * Look for the parts whose inventory level is at or below their min value. It can be called from any
+     * thread.
+     *
+     * @return list of part data
+     */
+    public static List<Part> lookupLowStockParts() {
+        return scanPartColumns(columns -> {
+            List<Part> partList = new ArrayList<>();
+            List<Part> allParts = parts.items();
+            columns.forEachLowStock(slot -> partList.add(allParts.get(slot)));
+            return partList;
+        });
+    }
+
+    /**
+     * Runs an analytic scan over the columnar copy of the part data. The changes of the part table wait
+     * until the scan is done, so it can be called from any thread, but the columns must not be kept after
+     * the scan returns.
+     *
+     * @param scan reads the part columns
+     * @param <R> type of the result of the scan
+     * @return the result of the scan
+     */
+    public static <R> R scanPartColumns(Function<PartColumns, R> scan) {
+        synchronized (projection) {
+            return scan.apply(partColumns());
+        }
+    }
+
+    /**
+     * Returns the part columns and fills them from the part table if they do not follow it yet. Must be
+     * called while holding the lock of the projection.
+     *
+     * @return the part columns
+     */
+    private static PartColumns partColumns() {
+        if (partColumnsPending) {
+            InventoryTable.SlotListener<Part> listener = partColumns.slotListener();
+            List<Part> allParts = parts.items();
+            for (int slot = 0; slot < allParts.size(); slot++) {
+                listener.added(slot, allParts.get(slot));
+            }
+            parts.setSlotListener(listener);
+            partColumnsPending = false;
+        }
+        return partColumns;
+    }
+
+    /**
+     * Waits for the logged change as the policy of the log asks for and lets the lists for the screens
+     * follow the change. Called after the changed data was unlocked.
+     *
+     * @param log the log of the change, or null if it was not logged
+     * @param sequence sequence number of the logged change
+     */
+    private static void finish(WriteAheadLog log, long sequence) {
+        if (log != null) {
+            log.commit(sequence);
+        }
+        projection.publish();
+    }
+
+    /**
+     * Returns the ids of a list of data.
+     *
+     * @param elements the data
+     * @param idOf reads the id of a data
+     * @param <T> type of the data
+     * @return the ids in the order of the list
+     */
+    private static <T> int[] idsOf(List<? extends T> elements, ToIntFunction<T> idOf) {
+        int[] ids = new int[elements.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = idOf.applyAsInt(elements.get(i));
+        }
+        return ids;
+    }
+
+    /**
+     * Stores a batch of new data. The stripes of all the ids must be locked.
+     *
+     * @param store the table
+     * @param elements the new data
+     * @param ids the ids of the data
+     * @param <T> type of the data
+     * @throws IllegalArgumentException if an id is already stored or twice in the batch. Nothing is stored then.
+     */
+    private static <T> void putAllAbsent(StripedTable<T> store, List<T> elements, int[] ids) {
+        for (int i = 0; i < ids.length; i++) {
+            if (store.getLocked(ids[i]) != null) {
+                // take back the data of this batch so the table is unchanged
+                for (int j = 0; j < i; j++) {
+                    store.removeLocked(ids[j]);
                 }
+                throw new IllegalArgumentException("Id " + ids[i] + " is already in the inventory");
+            }
+            store.putLocked(elements.get(i));
+        }
+    }
+
+    /**
+     * Moves the bill of materials of a product to its new version. Must be called while holding the
+     * BOM lock.
+     *
+     * @param previous the stored product
+     * @param changed the new version of the product
+     */
+    private static void replaceBom(Product previous, Product changed) {
+        Bom previousBom = previous.getBom();
+        changed.setBom(bomStore.acquire(changed.getBom()));
+        whereUsedIndex.remove(previous.getId());
+        whereUsedIndex.add(changed.getId(), changed.getBom());
+        releaseBom(previousBom);
+    }
+
+    /**
+     * Keeps a part that is about to be deleted if a product still uses it. It is retired and published
+     * before it leaves the part table, so every view has it in one of them. Must be called while holding the
+     * BOM lock.
+     *
+     * @param stored the part
+     */
+    private static void retireIfUsed(Part stored) {
+        if (whereUsedIndex.isUsed(stored.getId())) {
+            retiredParts.put(stored);
+        }
+    }
+
+    /**
+     * Finds the part of an id for a bill of materials. Deleted parts that are still used by a product
+     * are found too.
+     *
+     * @param partId Id of a part
+     * @return part data or null if the part is unknown
+     */
+    static Part resolvePart(int partId) {
+        Part part = partStore.get(partId);
+        return part != null ? part : retiredParts.get(partId);
+    }
+
+    /**
+     * Gives back a bill of materials of a product that left the inventory and forgets the deleted
+     * parts that are not used anymore. Must be called while holding the BOM lock.
+     *
+     * @param bom the shared bill of materials of the product
+     */
+    private static void releaseBom(Bom bom) {
+        bomStore.release(bom);
+
+        for (int i = 0; i < bom.size(); i++) {
+            int partId = bom.getPartId(i);
+            if (!whereUsedIndex.isUsed(partId) && retiredParts.get(partId) != null) {
+                retiredParts.remove(partId);
+            }
+        }
+    }
+
+    /**
+     * Look for the products that have the given part as an associate part. It uses the reverse index
+     * of the associate parts so it only takes time for the products that are found.
+     *
+     * @param partId Id of a part
+     * @return list of product data in ascending order of their id
+     */
+    public static List<Product> whereUsed(int partId) {
+        List<Product> productList = new ArrayList<>();
+
+        int[] using;
+        synchronized (bomLock) {
+            using = whereUsedIndex.productsUsing(partId);
+        }
+        for (int productId : using) {
+            Product product = productStore.get(productId);
+            if (product != null) {
+                productList.add(product);
             }
         }
-        return false;
+
+        return productList;
+    }
+
+    /**
+     * Returns the whole inventory as it is now. It only collects the current data of the stripes and does
+     * not stop other threads from changing the inventory, the view just does not see their changes. It can
+     * be read on any thread.
+     *
+     * @return the current view of the inventory
+     */
+    public static InventoryView snapshot() {
+        return publishGate.snapshot();
     }
 
     /**
-     * Returns all the available parts from the inventory
+     * Returns all the available parts from the inventory. The list follows the changes on the UI thread
+     * and must only be used there. It cannot be changed, the changes go through the inventory.
      *
      * @return list of parts
      */
-    public static ObservableList<Part> getAllParts () {
-        return parts;
+    public static List<Part> getAllParts () {
+        return parts.items();
     }
 
     /**
-     * Returns all the available product from the inventory
+     * Returns all the available product from the inventory. The list follows the changes on the UI thread
+     * and must only be used there. It cannot be changed, the changes go through the inventory.
      *
      * @return list of product
      */
-    public static ObservableList<Product> getProducts() {
-        return products;
+    public static List<Product> getProducts() {
+        return products.items();
     }
 
-    static {
+    /**
+     * Adds a listener that gets notified about the changes of the list of {@link #getAllParts()}.
+     *
+     * @param listener the listener
+     */
+    public static void addPartListener(InventoryListener<Part> listener) {
+        parts.addListener(listener);
+    }
+
+    /**
+     * Removes a listener of the part list.
+     *
+     * @param listener the listener
+     */
+    public static void removePartListener(InventoryListener<Part> listener) {
+        parts.removeListener(listener);
+    }
+
+    /**
+     * Adds a listener that gets notified about the changes of the list of {@link #getProducts()}.
+     *
+     * @param listener the listener
+     */
+    public static void addProductListener(InventoryListener<Product> listener) {
+        products.addListener(listener);
+    }
+
+    /**
+     * Removes a listener of the product list.
+     *
+     * @param listener the listener
+     */
+    public static void removeProductListener(InventoryListener<Product> listener) {
+        products.removeListener(listener);
+    }
+
+    /**
+     * Fills the inventory with the sample data that is shown on the first start of the application,
+     * before there is a snapshot.
+     */
+    public static void loadSampleData() {
         Part part1 = new Inhouse(1, "Brakes", 12.99, 15, 1, 20, 1000);
         Part part2 = new Outsourced(2, "Tires", 14.99, 15, 1, 28, "Appollo Hospital");
         Part part3 = new Inhouse(3, "Rim", 56.99, 15, 1, 20, 101);
@@ -246,15 +1872,11 @@ public class Inventory {
         partList2.add(part6);
         partList2.add(part10);
 
-        ObservableList<Part> associatedPart1 = FXCollections.observableList(partList1);
-        ObservableList<Part> associatedPart2 = FXCollections.observableList(partList2);
-        ObservableList<Part> associatedPart3 = FXCollections.observableList(partList3);
-
-        product1.setAssociatedParts(associatedPart1);
-        product2.setAssociatedParts(associatedPart1);
-        product3.setAssociatedParts(associatedPart2);
-        product4.setAssociatedParts(associatedPart1);
-        product5.setAssociatedParts(associatedPart3);
+        product1.setAssociatedParts(partList1);
+        product2.setAssociatedParts(partList1);
+        product3.setAssociatedParts(partList2);
+        product4.setAssociatedParts(partList1);
+        product5.setAssociatedParts(partList3);
 
         addProduct(product1);
         addProduct(product2);
@@ -0,0 +1,129 @@
+package model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Binary encoding of the part and product data that is shared by the files of the application.
+ *
+ * <p>A part is written as its kind, id, name, price, stock, min, max and then the machine id or the
+ * company name. A product is written as its id, name, price, stock, min, max and then its bill of
+ * materials as a count followed by part id and quantity pairs. Strings are written as their UTF-8
+ * length and bytes.</p>
+ *
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+final class InventoryCodec {
+
+    /**
+     * Kind of an in-house part.
+     */
+    static final byte IN_HOUSE = 0;
+
+    /**
+     * Kind of an outsourced part.
+     */
+    static final byte OUTSOURCED = 1;
+
+    /**
+     * Only static methods.
+     */
+    private InventoryCodec() {
+    }
+
+    /**
+     * Writes a part.
+     *
+     * @param out the writer
+     * @param part the part
+     */
+    static void writePart(BinaryWriter out, Part part) {
+        out.putByte(part instanceof Inhouse ? IN_HOUSE : OUTSOURCED);
+        out.putInt(part.getId());
+        out.putString(part.getName());
+        out.putDouble(part.getPrice());
+        out.putInt(part.getStock());
+        out.putInt(part.getMin());
+        out.putInt(part.getMax());
+
+        if (part instanceof Inhouse) {
+            out.putLong(((Inhouse) part).getMachineId());
+        } else {
+            out.putString(((Outsourced) part).getCompanyName());
+        }
+    }
+
+    /**
+     * Reads a part written by {@link #writePart(BinaryWriter, Part)}.
+     *
+     * @param in the buffer to read from
+     * @return the part
+     * @throws IOException if the kind of the part is unknown
+     */
+    static Part readPart(ByteBuffer in) throws IOException {
+        byte kind = in.get();
+        int id = in.getInt();
+        String name = BinaryWriter.getString(in);
+        double price = in.getDouble();
+        int stock = in.getInt();
+        int min = in.getInt();
+        int max = in.getInt();
+
+        if (kind == IN_HOUSE) {
+            return new Inhouse(id, name, price, stock, min, max, in.getLong());
+        }
+        if (kind == OUTSOURCED) {
+            return new Outsourced(id, name, price, stock, min, max, BinaryWriter.getString(in));
+        }
+        throw new IOException("unknown part kind " + kind);
+    }
+
+    /**
+     * Writes a product with its bill of materials.
+     *
+     * @param out the writer
+     * @param product the product
+     */
+    static void writeProduct(BinaryWriter out, Product product) {
+        out.putInt(product.getId());
+        out.putString(product.getName());
+        out.putDouble(product.getPrice());
+        out.putInt(product.getStock());
+        out.putInt(product.getMin());
+        out.putInt(product.getMax());
+
+        Bom bom = product.getBom();
+        out.putInt(bom.size());
+        for (int i = 0; i < bom.size(); i++) {
+            out.putInt(bom.getPartId(i));
+            out.putInt(bom.getQuantity(i));
+        }
+    }
+
+    /**
+     * Reads a product written by {@link #writeProduct(BinaryWriter, Product)}.
+     *
+     * @param in the buffer to read from
+     * @return the product
+     * @throws IOException if the bill of materials is damaged
+     */
+    static Product readProduct(ByteBuffer in) throws IOException {
+        Product product = new Product(in.getInt(), BinaryWriter.getString(in), in.getDouble(),
+                in.getInt(), in.getInt(), in.getInt());
+
+        int size = in.getInt();
+        if (size < 0 || size > in.remaining() / 8) {
+            throw new IOException("bad bill of materials size " + size);
+        }
+
+        int[] partIds = new int[size];
+        int[] quantities = new int[size];
+        for (int i = 0; i < size; i++) {
+            partIds[i] = in.getInt();
+            quantities[i] = in.getInt();
+        }
+        product.setBom(Bom.of(partIds, quantities));
+        return product;
+    }
+}
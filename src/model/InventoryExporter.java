@@ -0,0 +1,389 @@
+package model;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Exports the parts, products and their associate parts to files without building the whole export in
+ * memory. The export reads one view of the inventory (see {@link Inventory#snapshot()}), copies it one stripe
+ * (see {@link StripedTable}) at a time and writes it through buffered file channels, so only a small part of
+ * the inventory is held at once.
+ *
+ * <p>A CSV export writes the files inhouse.csv, outsourced.csv and products.csv in the layouts that
+ * {@link CsvImporter} reads, and bom.csv with one "productId,partId,quantity" row for every associate part.
+ * A binary export writes inventory.bin: a magic number and a version followed by the parts and products,
+ * each one a type byte (1 for a part, 2 for a product) and the data written with {@link InventoryCodec},
+ * and a 0 byte at the end.</p>
+ *
+ * <p>An export can be filtered with a search text, which selects the same parts and products as the search
+ * of the main screen (see {@link SearchQuery}). It can also be split into partitions that are written in
+ * parallel, each to its own files with the partition number in the name (for example products-2.csv).
+ * The inventory can keep changing while an export runs on any thread. All the partitions are written from
+ * the same view, so the export holds the inventory as it was when the export started.</p>
+ *
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+public final class InventoryExporter {
+
+    /**
+     * The file formats of an export.
+     */
+    public enum Format { CSV, BINARY }
+
+    /**
+     * Magic number at the start of a binary export ("INEX").
+     */
+    private static final int MAGIC = 0x494E4558;
+
+    /**
+     * Version of the binary format.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Type byte of a part in a binary export.
+     */
+    private static final byte PART = 1;
+
+    /**
+     * Type byte of a product in a binary export.
+     */
+    private static final byte PRODUCT = 2;
+
+    /**
+     * Size of the buffers of the files.
+     */
+    private static final int BUFFER = 64 * 1024;
+
+    /**
+     * The file format.
+     */
+    private final Format format;
+
+    /**
+     * The filter or null to export everything.
+     */
+    private final SearchQuery filter;
+
+    /**
+     * Number of partitions.
+     */
+    private final int partitions;
+
+    /**
+     * @param format the file format
+     * @param searchText search text of the exported data, or null to export everything
+     * @param partitions number of partitions that are written in parallel, at least 1
+     */
+    public InventoryExporter(Format format, String searchText, int partitions) {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("partitions must be at least 1: " + partitions);
+        }
+
+        this.format = format;
+        this.filter = searchText == null ? null : new SearchQuery(searchText);
+        this.partitions = partitions;
+    }
+
+    /**
+     * Writes the export into a directory.
+     *
+     * @param directory the directory, created if needed
+     * @return number of exported parts and products
+     * @throws IOException if a file cannot be written
+     */
+    public long export(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        InventoryView view = Inventory.snapshot();
+
+        if (partitions == 1) {
+            return exportPartition(view, directory, 0);
+        }
+
+        List<Callable<Long>> tasks = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            int partition = i;
+            tasks.add(() -> exportPartition(view, directory, partition));
+        }
+
+        long exported = 0;
+        for (Future<Long> result : ForkJoinPool.commonPool().invokeAll(tasks)) {
+            try {
+                exported += result.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("interrupted while exporting", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException("export failed", e.getCause());
+            }
+        }
+        return exported;
+    }
+
+    /**
+     * Writes the parts and products of one partition.
+     *
+     * @param view the exported view
+     * @param directory the directory
+     * @param partition the partition number
+     * @return number of exported parts and products
+     * @throws IOException if a file cannot be written
+     */
+    private long exportPartition(InventoryView view, Path directory, int partition) throws IOException {
+        int from = start(StripedTable.STRIPES, partition);
+        int to = start(StripedTable.STRIPES, partition + 1);
+
+        return format == Format.CSV
+                ? exportCsv(view, directory, partition, from, to)
+                : exportBinary(view, directory, partition, from, to);
+    }
+
+    /**
+     * Writes the parts and products of a range of stripes as CSV files.
+     *
+     * @param view the exported view
+     * @param directory the directory
+     * @param partition the partition number
+     * @param from first stripe of the range
+     * @param to end of the stripe range
+     * @return number of exported parts and products
+     * @throws IOException if a file cannot be written
+     */
+    private long exportCsv(InventoryView view, Path directory, int partition, int from, int to) throws IOException {
+        long exported = 0;
+
+        try (Writer inHouse = open(directory, "inhouse", partition, "csv");
+             Writer outsourced = open(directory, "outsourced", partition, "csv")) {
+            inHouse.write("id,name,price,stock,min,max,machineId\n");
+            outsourced.write("id,name,price,stock,min,max,companyName\n");
+
+            for (int stripe = from; stripe < to; stripe++) {
+                for (Part part : view.<Part>stripeValues(InventoryView.PARTS, stripe)) {
+                    if (filter != null && !filter.matches(part)) {
+                        continue;
+                    }
+
+                    Writer out = part instanceof Inhouse ? inHouse : outsourced;
+                    writeCommon(out, part.getId(), part.getName(), part.getPrice(), part.getStock(),
+                            part.getMin(), part.getMax());
+                    if (part instanceof Inhouse) {
+                        out.write(Long.toString(((Inhouse) part).getMachineId()));
+                    } else {
+                        writeText(out, ((Outsourced) part).getCompanyName());
+                    }
+                    out.write('\n');
+                    exported++;
+                }
+            }
+        }
+
+        try (Writer productFile = open(directory, "products", partition, "csv");
+             Writer bomFile = open(directory, "bom", partition, "csv")) {
+            productFile.write("id,name,price,stock,min,max,parts\n");
+            bomFile.write("productId,partId,quantity\n");
+
+            for (int stripe = from; stripe < to; stripe++) {
+                for (Product product : view.<Product>stripeValues(InventoryView.PRODUCTS, stripe)) {
+                    if (filter != null && !filter.matches(product)) {
+                        continue;
+                    }
+
+                    writeCommon(productFile, product.getId(), product.getName(), product.getPrice(),
+                            product.getStock(), product.getMin(), product.getMax());
+                    Bom bom = product.getBom();
+                    for (int j = 0; j < bom.size(); j++) {
+                        if (j > 0) {
+                            productFile.write(';');
+                        }
+                        productFile.write(bom.getPartId(j) + ":" + bom.getQuantity(j));
+                        bomFile.write(product.getId() + "," + bom.getPartId(j) + "," + bom.getQuantity(j) + "\n");
+                    }
+                    productFile.write('\n');
+                    exported++;
+                }
+            }
+        }
+        return exported;
+    }
+
+    /**
+     * Writes the parts and products of a range of stripes as a binary file.
+     *
+     * @param view the exported view
+     * @param directory the directory
+     * @param partition the partition number
+     * @param from first stripe of the range
+     * @param to end of the stripe range
+     * @return number of exported parts and products
+     * @throws IOException if the file cannot be written
+     */
+    private long exportBinary(InventoryView view, Path directory, int partition, int from, int to) throws IOException {
+        long exported = 0;
+        BinaryWriter buffer = new BinaryWriter(BUFFER + 1024);
+
+        try (FileChannel channel = FileChannel.open(fileName(directory, "inventory", partition, "bin"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            buffer.putInt(MAGIC).putInt(VERSION);
+
+            for (int stripe = from; stripe < to; stripe++) {
+                for (Part part : view.<Part>stripeValues(InventoryView.PARTS, stripe)) {
+                    if (filter == null || filter.matches(part)) {
+                        buffer.putByte(PART);
+                        InventoryCodec.writePart(buffer, part);
+                        exported++;
+                        flushIfFull(channel, buffer);
+                    }
+                }
+            }
+            for (int stripe = from; stripe < to; stripe++) {
+                for (Product product : view.<Product>stripeValues(InventoryView.PRODUCTS, stripe)) {
+                    if (filter == null || filter.matches(product)) {
+                        buffer.putByte(PRODUCT);
+                        InventoryCodec.writeProduct(buffer, product);
+                        exported++;
+                        flushIfFull(channel, buffer);
+                    }
+                }
+            }
+
+            buffer.putByte((byte) 0);
+            flush(channel, buffer);
+        }
+        return exported;
+    }
+
+    /**
+     * Writes the columns that parts and products have in common, followed by a comma.
+     *
+     * @param out the file
+     * @param id the id
+     * @param name the name
+     * @param price the price
+     * @param stock the inventory level
+     * @param min the min value
+     * @param max the max value
+     * @throws IOException if the file cannot be written
+     */
+    private static void writeCommon(Writer out, int id, String name, double price, int stock, int min, int max)
+            throws IOException {
+        out.write(Integer.toString(id));
+        out.write(',');
+        writeText(out, name);
+        out.write(',');
+        out.write(Double.toString(price));
+        out.write(',');
+        out.write(Integer.toString(stock));
+        out.write(',');
+        out.write(Integer.toString(min));
+        out.write(',');
+        out.write(Integer.toString(max));
+        out.write(',');
+    }
+
+    /**
+     * Writes a text field and quotes it if it has a comma or a double quote.
+     *
+     * @param out the file
+     * @param text the text, can be null
+     * @throws IOException if the file cannot be written
+     */
+    private static void writeText(Writer out, String text) throws IOException {
+        if (text == null) {
+            return;
+        }
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0) {
+            out.write(text);
+            return;
+        }
+
+        out.write('"');
+        out.write(text.replace("\"", "\"\""));
+        out.write('"');
+    }
+
+    /**
+     * Opens a buffered UTF-8 writer on a file channel.
+     *
+     * @param directory the directory
+     * @param name the base name of the file
+     * @param partition the partition number
+     * @param extension the extension of the file
+     * @return the writer
+     * @throws IOException if the file cannot be opened
+     */
+    private Writer open(Path directory, String name, int partition, String extension) throws IOException {
+        FileChannel channel = FileChannel.open(fileName(directory, name, partition, extension),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        return new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), BUFFER), BUFFER);
+    }
+
+    /**
+     * Returns the path of a file. The partition number is only added if there is more than one partition.
+     *
+     * @param directory the directory
+     * @param name the base name of the file
+     * @param partition the partition number
+     * @param extension the extension of the file
+     * @return the path
+     */
+    private Path fileName(Path directory, String name, int partition, String extension) {
+        return directory.resolve(partitions == 1 ? name + "." + extension : name + "-" + partition + "." + extension);
+    }
+
+    /**
+     * Returns the first stripe of a partition.
+     *
+     * @param size number of stripes
+     * @param partition the partition number, or the number of partitions for the end of the stripes
+     * @return the stripe number
+     */
+    private int start(int size, int partition) {
+        return (int) ((long) size * partition / partitions);
+    }
+
+    /**
+     * Writes the buffer to the file once it holds a full block.
+     *
+     * @param channel the file
+     * @param buffer the buffer
+     * @throws IOException if the file cannot be written
+     */
+    private static void flushIfFull(FileChannel channel, BinaryWriter buffer) throws IOException {
+        if (buffer.position() >= BUFFER) {
+            flush(channel, buffer);
+        }
+    }
+
+    /**
+     * Writes the buffer to the file and clears it.
+     *
+     * @param channel the file
+     * @param buffer the buffer
+     * @throws IOException if the file cannot be written
+     */
+    private static void flush(FileChannel channel, BinaryWriter buffer) throws IOException {
+        ByteBuffer bytes = buffer.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,50 @@
+package model;
+
+import java.util.List;
+
+/**
+ * Gets notified about the changes of the part or product list of the inventory, see
+ * {@link Inventory#addPartListener(InventoryListener)} and {@link Inventory#addProductListener(InventoryListener)}.
+ *
+ * <p>The listeners are called after the list changed, on the thread that keeps the list up to date: the UI
+ * thread if one is set with {@link Inventory#projectOnUiThread(java.util.concurrent.Executor,
+ * java.util.function.BooleanSupplier)}, otherwise the thread that changed the inventory. Many changes of
+ * the same kind are reported as one range, or between {@link #batchStarted()} and {@link #batchFinished()}
+ * if they are far apart, so a listener like a table view only has to update once.</p>
+ *
+ * @param <T> type of the data of the list
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+public interface InventoryListener<T> {
+
+    /**
+     * Data was added at the end of the list.
+     *
+     * @param from index of the first added data
+     * @param to index after the last added data
+     */
+    void added(int from, int to);
+
+    /**
+     * A range of the list was replaced. If the range is empty, the data was only removed.
+     *
+     * @param from index of the first changed data
+     * @param to end of the changed range as the list is now
+     * @param removed the data that was on the list from the first changed index on before the change. It
+     *                must not be changed by the listener.
+     */
+    void replaced(int from, int to, List<T> removed);
+
+    /**
+     * The next changes belong to one batch, until {@link #batchFinished()}. Does nothing by default.
+     */
+    default void batchStarted() {
+    }
+
+    /**
+     * The changes of the batch are done. Does nothing by default.
+     */
+    default void batchFinished() {
+    }
+}
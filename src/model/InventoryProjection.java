@@ -0,0 +1,221 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Copies the changes of the inventory into the part and product lists that the screens show.
+ *
+ * <p>The inventory itself can be changed from any thread, but the listeners of the lists, like a table
+ * view, may only be notified on the UI thread. So every change is put in a queue while the changed data is still locked,
+ * which keeps the changes of one id in the right order, and the queue is applied on the UI thread later. The
+ * changes are queued before they are published, so the lists and the queue together have every change a
+ * view of the inventory can have.
+ * Changes made on the UI thread itself are applied at once, so a screen always sees its own changes.
+ * Consecutive changes of the same kind are applied as one batch, which the list reports to its
+ * {@link InventoryListener}s as a single change.</p>
+ *
+ * <p>Until a UI thread is set, there is none and every change is applied right away by the thread that
+ * made it.</p>
+ *
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+final class InventoryProjection {
+
+    /**
+     * Kind of a change that adds data.
+     */
+    private static final byte ADD = 1;
+
+    /**
+     * Kind of a change that replaces data.
+     */
+    private static final byte REPLACE = 2;
+
+    /**
+     * Kind of a change that removes data.
+     */
+    private static final byte REMOVE = 3;
+
+    /**
+     * A change that waits to be applied.
+     */
+    private static final class Change {
+
+        /**
+         * The table of the change.
+         */
+        private final InventoryTable<Object> table;
+
+        /**
+         * {@link #ADD}, {@link #REPLACE} or {@link #REMOVE}.
+         */
+        private final byte kind;
+
+        /**
+         * The added or new data, or null for a remove.
+         */
+        private final List<?> elements;
+
+        /**
+         * The removed ids, or null for an add or replace.
+         */
+        private final int[] ids;
+
+        /**
+         * @param table the table of the change
+         * @param kind the kind of the change
+         * @param elements the added or new data
+         * @param ids the removed ids
+         */
+        @SuppressWarnings("unchecked")
+        private Change(InventoryTable<?> table, byte kind, List<?> elements, int[] ids) {
+            this.table = (InventoryTable<Object>) table;
+            this.kind = kind;
+            this.elements = elements;
+            this.ids = ids;
+        }
+    }
+
+    /**
+     * The changes that were not applied yet.
+     */
+    private final ConcurrentLinkedQueue<Change> changes = new ConcurrentLinkedQueue<>();
+
+    /**
+     * True while applying the queue is scheduled on the UI thread.
+     */
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    /**
+     * Runs tasks on the UI thread, or null if there is no UI thread.
+     */
+    private volatile Executor uiExecutor;
+
+    /**
+     * Tells if the calling thread is the UI thread.
+     */
+    private volatile BooleanSupplier onUiThread;
+
+    /**
+     * Sets the UI thread that applies the changes from now on.
+     *
+     * @param uiExecutor runs tasks on the UI thread
+     * @param onUiThread tells if the calling thread is the UI thread
+     */
+    void setUiThread(Executor uiExecutor, BooleanSupplier onUiThread) {
+        this.onUiThread = onUiThread;
+        this.uiExecutor = uiExecutor;
+    }
+
+    /**
+     * Queues data that was added. Must be called while the data is locked, before it is published.
+     *
+     * @param table the table of the data
+     * @param elements the added data
+     * @param <T> type of the data
+     */
+    <T> void added(InventoryTable<T> table, List<? extends T> elements) {
+        changes.add(new Change(table, ADD, elements, null));
+    }
+
+    /**
+     * Queues data that was replaced. Must be called while the data is locked, before it is published.
+     *
+     * @param table the table of the data
+     * @param elements the new data
+     * @param <T> type of the data
+     */
+    <T> void replaced(InventoryTable<T> table, List<? extends T> elements) {
+        changes.add(new Change(table, REPLACE, elements, null));
+    }
+
+    /**
+     * Queues data that was removed. Must be called while the data is locked.
+     *
+     * @param table the table of the data
+     * @param ids the ids of the removed data
+     */
+    void removed(InventoryTable<?> table, int[] ids) {
+        changes.add(new Change(table, REMOVE, null, ids));
+    }
+
+    /**
+     * Passes the added or new data of the changes of a table that were not applied yet to an action, in the
+     * order they were queued. Must be called while holding the lock of the projection, so no change is
+     * taken from the queue in the meantime.
+     *
+     * @param table the table
+     * @param action gets the data
+     * @param <T> type of the data
+     */
+    @SuppressWarnings("unchecked")
+    <T> void forEachQueued(InventoryTable<T> table, Consumer<? super T> action) {
+        for (Change change : changes) {
+            if (change.table == table && change.kind != REMOVE) {
+                for (Object element : change.elements) {
+                    action.accept((T) element);
+                }
+            }
+        }
+    }
+
+    /**
+     * Makes sure the queued changes get applied. Called after the changed data was unlocked.
+     */
+    void publish() {
+        Executor executor = uiExecutor;
+        if (executor == null || onUiThread.getAsBoolean()) {
+            apply();
+        } else if (scheduled.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                scheduled.set(false);
+                apply();
+            });
+        }
+    }
+
+    /**
+     * Applies the queued changes in order, putting consecutive changes of the same kind and table
+     * together. It holds the lock of the projection while doing so, so a thread that synchronizes on the
+     * projection can read the lists and what follows them without seeing a change half done.
+     */
+    private synchronized void apply() {
+        Change change = changes.poll();
+        while (change != null) {
+            InventoryTable<Object> table = change.table;
+            byte kind = change.kind;
+            List<Object> elements = new ArrayList<>();
+            int[] ids = new int[16];
+            int count = 0;
+
+            while (change != null && change.table == table && change.kind == kind) {
+                if (kind == REMOVE) {
+                    if (count + change.ids.length > ids.length) {
+                        ids = Arrays.copyOf(ids, Math.max(ids.length * 2, count + change.ids.length));
+                    }
+                    System.arraycopy(change.ids, 0, ids, count, change.ids.length);
+                    count += change.ids.length;
+                } else {
+                    elements.addAll(change.elements);
+                }
+                change = changes.poll();
+            }
+
+            if (kind == ADD) {
+                table.addAll(elements);
+            } else if (kind == REPLACE) {
+                table.replaceAll(elements);
+            } else {
+                table.removeAll(ids, count);
+            }
+        }
+    }
+}
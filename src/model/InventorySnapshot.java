@@ -0,0 +1,338 @@
+package model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Binary snapshot of the whole inventory: the parts, the deleted parts that products still use, the
+ * products with their bills of materials, the id high-water marks and the position of the write-ahead log.
+ *
+ * <p>The file has a header, a table of sections and the sections. Each section holds up to
+ * {@link #SECTION_RECORDS} parts or products written with {@link InventoryCodec}, so a big inventory is
+ * split into many sections. The section table gives the position and length of every section, so each
+ * one is read with a single bulk read and the sections are decoded in parallel.</p>
+ *
+ * <p>A snapshot only holds references to the data, which is never changed after it was added to the
+ * inventory (the screens always create new objects). So taking a snapshot only copies the lists and the
+ * slow part, encoding and writing the file, can run on another thread while the inventory keeps changing.</p>
+ *
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+final class InventorySnapshot {
+
+    /**
+     * Magic number at the start of the file ("INSN").
+     */
+    private static final int MAGIC = 0x494E534E;
+
+    /**
+     * Version of the file format.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Size of the header: magic, version, section count, id high-water marks, log epoch and log position.
+     */
+    private static final int HEADER = 40;
+
+    /**
+     * Size of an entry of the section table: type, record count, position and length.
+     */
+    private static final int SECTION_ENTRY = 24;
+
+    /**
+     * Section type of the parts.
+     */
+    private static final int PARTS = 1;
+
+    /**
+     * Section type of the deleted parts that products still use.
+     */
+    private static final int RETIRED_PARTS = 2;
+
+    /**
+     * Section type of the products.
+     */
+    private static final int PRODUCTS = 3;
+
+    /**
+     * Maximum number of records in a section.
+     */
+    static final int SECTION_RECORDS = 65536;
+
+    /**
+     * The parts.
+     */
+    final Part[] parts;
+
+    /**
+     * The deleted parts that products still use.
+     */
+    final Part[] retiredParts;
+
+    /**
+     * The products.
+     */
+    final Product[] products;
+
+    /**
+     * The highest part id that was handed out.
+     */
+    final int partHighWaterMark;
+
+    /**
+     * The highest product id that was handed out.
+     */
+    final int productHighWaterMark;
+
+    /**
+     * Epoch of the write-ahead log when the snapshot was taken, or 0 if there was no log.
+     */
+    final long logEpoch;
+
+    /**
+     * Position of the write-ahead log when the snapshot was taken.
+     */
+    final long logPosition;
+
+    /**
+     * @param parts the parts
+     * @param retiredParts the deleted parts that products still use
+     * @param products the products
+     * @param partHighWaterMark the highest part id that was handed out
+     * @param productHighWaterMark the highest product id that was handed out
+     * @param logEpoch epoch of the write-ahead log, or 0 if there is no log
+     * @param logPosition position of the write-ahead log
+     */
+    InventorySnapshot(Part[] parts, Part[] retiredParts, Product[] products, int partHighWaterMark,
+                      int productHighWaterMark, long logEpoch, long logPosition) {
+        this.parts = parts;
+        this.retiredParts = retiredParts;
+        this.products = products;
+        this.partHighWaterMark = partHighWaterMark;
+        this.productHighWaterMark = productHighWaterMark;
+        this.logEpoch = logEpoch;
+        this.logPosition = logPosition;
+    }
+
+    /**
+     * Writes the snapshot to a file. The file is replaced in one step, so a crash while writing leaves
+     * the previous snapshot in place.
+     *
+     * @param file the file
+     * @throws IOException if the file cannot be written
+     */
+    void write(Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+
+        int sectionCount = sections(parts.length) + sections(retiredParts.length) + sections(products.length);
+        BinaryWriter table = new BinaryWriter(HEADER + sectionCount * SECTION_ENTRY);
+        table.putInt(MAGIC).putInt(VERSION).putInt(sectionCount)
+                .putInt(partHighWaterMark).putInt(productHighWaterMark).putInt(0)
+                .putLong(logEpoch).putLong(logPosition);
+
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            long position = HEADER + (long) sectionCount * SECTION_ENTRY;
+            BinaryWriter section = new BinaryWriter(1024 * 1024);
+
+            for (int from = 0; from < parts.length; from += SECTION_RECORDS) {
+                int to = Math.min(parts.length, from + SECTION_RECORDS);
+                for (int i = from; i < to; i++) {
+                    InventoryCodec.writePart(section, parts[i]);
+                }
+                position = writeSection(channel, table, section, PARTS, to - from, position);
+            }
+            for (int from = 0; from < retiredParts.length; from += SECTION_RECORDS) {
+                int to = Math.min(retiredParts.length, from + SECTION_RECORDS);
+                for (int i = from; i < to; i++) {
+                    InventoryCodec.writePart(section, retiredParts[i]);
+                }
+                position = writeSection(channel, table, section, RETIRED_PARTS, to - from, position);
+            }
+            for (int from = 0; from < products.length; from += SECTION_RECORDS) {
+                int to = Math.min(products.length, from + SECTION_RECORDS);
+                for (int i = from; i < to; i++) {
+                    InventoryCodec.writeProduct(section, products[i]);
+                }
+                position = writeSection(channel, table, section, PRODUCTS, to - from, position);
+            }
+
+            writeFully(channel, table.flip(), 0);
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a snapshot file. The sections are read and decoded in parallel.
+     *
+     * @param file the file
+     * @return the snapshot
+     * @throws IOException if the file cannot be read or is damaged
+     */
+    static InventorySnapshot read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = readFully(channel, 0, HEADER);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException(file + " is not an inventory snapshot of version " + VERSION);
+            }
+
+            int sectionCount = header.getInt();
+            int partHighWaterMark = header.getInt();
+            int productHighWaterMark = header.getInt();
+            header.getInt();
+            long logEpoch = header.getLong();
+            long logPosition = header.getLong();
+            if (sectionCount < 0 || HEADER + (long) sectionCount * SECTION_ENTRY > channel.size()) {
+                throw new IOException("bad section count " + sectionCount);
+            }
+
+            ByteBuffer table = readFully(channel, HEADER, sectionCount * SECTION_ENTRY);
+            int[] types = new int[sectionCount];
+            int[] counts = new int[sectionCount];
+            long[] positions = new long[sectionCount];
+            int[] lengths = new int[sectionCount];
+            int[] totals = new int[PRODUCTS + 1];
+
+            for (int i = 0; i < sectionCount; i++) {
+                types[i] = table.getInt();
+                counts[i] = table.getInt();
+                positions[i] = table.getLong();
+                long length = table.getLong();
+                if (types[i] < PARTS || types[i] > PRODUCTS || counts[i] < 0 || counts[i] > SECTION_RECORDS
+                        || length < 0 || length > Integer.MAX_VALUE || positions[i] < 0
+                        || positions[i] + length > channel.size()) {
+                    throw new IOException("bad section " + i);
+                }
+                lengths[i] = (int) length;
+                totals[types[i]] += counts[i];
+            }
+
+            Part[] parts = new Part[totals[PARTS]];
+            Part[] retiredParts = new Part[totals[RETIRED_PARTS]];
+            Product[] products = new Product[totals[PRODUCTS]];
+
+            List<Callable<Void>> tasks = new ArrayList<>(sectionCount);
+            int[] filled = new int[PRODUCTS + 1];
+            for (int i = 0; i < sectionCount; i++) {
+                int section = i;
+                int offset = filled[types[i]];
+                filled[types[i]] += counts[i];
+
+                tasks.add(() -> {
+                    ByteBuffer in = readFully(channel, positions[section], lengths[section]);
+                    for (int record = 0; record < counts[section]; record++) {
+                        if (types[section] == PARTS) {
+                            parts[offset + record] = InventoryCodec.readPart(in);
+                        } else if (types[section] == RETIRED_PARTS) {
+                            retiredParts[offset + record] = InventoryCodec.readPart(in);
+                        } else {
+                            products[offset + record] = InventoryCodec.readProduct(in);
+                        }
+                    }
+                    if (in.hasRemaining()) {
+                        throw new IOException("section " + section + " has " + in.remaining() + " bytes left");
+                    }
+                    return null;
+                });
+            }
+
+            for (Future<Void> result : ForkJoinPool.commonPool().invokeAll(tasks)) {
+                try {
+                    result.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("interrupted while reading " + file, e);
+                } catch (ExecutionException e) {
+                    throw new IOException("damaged snapshot " + file, e.getCause());
+                }
+            }
+
+            return new InventorySnapshot(parts, retiredParts, products, partHighWaterMark,
+                    productHighWaterMark, logEpoch, logPosition);
+        }
+    }
+
+    /**
+     * @param records number of records
+     * @return number of sections needed for the records
+     */
+    private static int sections(int records) {
+        return (records + SECTION_RECORDS - 1) / SECTION_RECORDS;
+    }
+
+    /**
+     * Writes an encoded section, adds it to the section table and clears the section buffer.
+     *
+     * @param channel the file
+     * @param table the header and section table
+     * @param section the encoded records
+     * @param type the section type
+     * @param count number of records
+     * @param position position of the section in the file
+     * @return position after the section
+     * @throws IOException if the file cannot be written
+     */
+    private static long writeSection(FileChannel channel, BinaryWriter table, BinaryWriter section, int type,
+                                     int count, long position) throws IOException {
+        int length = section.position();
+        writeFully(channel, section.flip(), position);
+        section.clear();
+
+        table.putInt(type).putInt(count).putLong(position).putLong(length);
+        return position + length;
+    }
+
+    /**
+     * Writes all the bytes of a buffer at a position of a file.
+     *
+     * @param channel the file
+     * @param bytes the bytes
+     * @param position the position
+     * @throws IOException if the file cannot be written
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer bytes, long position) throws IOException {
+        while (bytes.hasRemaining()) {
+            position += channel.write(bytes, position);
+        }
+    }
+
+    /**
+     * Reads a part of a file into a new buffer.
+     *
+     * @param channel the file
+     * @param position where to start reading
+     * @param length number of bytes to read
+     * @return the bytes in read mode
+     * @throws IOException if the file ends before
+     */
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("unexpected end of the snapshot");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
@@ -0,0 +1,701 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Slot addressed storage of one kind of inventory data (parts or products).
+ *
+ * <p>The data is held in a plain list and every id is mapped to the position (slot) of its data
+ * in that list, so an update is a single set on the list. A delete moves the last data into the freed
+ * slot and shrinks the list by one, which means nothing has to be shifted and no other slot changes
+ * except the one of the moved data. Because of that the list does not keep the order in which the
+ * data was added once something was deleted.</p>
+ *
+ * <p>The changes of the list are reported to the {@link InventoryListener}s of the table. The batch methods
+ * report their changes as one range if the changed slots are close together, and otherwise slot by slot
+ * inside one batch, so a few changes far apart do not copy and announce everything between them. A screen
+ * can wrap the list in an observable list that passes the changes on to its table view.</p>
+ *
+ * <p>The table is changed by one thread at a time, the UI thread or the thread of the projection. The
+ * searches can run on any thread: the changes hold the write lock of the table and the searches its read
+ * lock, so a search sees the table between two changes.</p>
+ *
+ * <p>Ids are unique in a table and must not be changed while the data is stored in it.</p>
+ *
+ * @param <T> type of the stored data
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+final class InventoryTable<T> {
+
+    /**
+     * A batch is reported as one range only if the range is at most this many times longer than the
+     * number of changed slots.
+     */
+    private static final int DENSE_SPAN = 4;
+
+    /**
+     * Gets notified about every change of the slots, so a storage that is laid out by slot
+     * (for example {@link PartColumns}) can follow the table.
+     *
+     * @param <T> type of the stored data
+     */
+    interface SlotListener<T> {
+
+        /**
+         * Data was added on a new slot at the end of the list.
+         *
+         * @param slot the new slot
+         * @param element the added data
+         */
+        void added(int slot, T element);
+
+        /**
+         * The data of a slot was replaced.
+         *
+         * @param slot the slot
+         * @param element the new data
+         */
+        void replaced(int slot, T element);
+
+        /**
+         * The data of a slot was removed and the data of the last slot was moved into it.
+         *
+         * @param slot the slot of the removed data
+         * @param last the last slot, which no longer exists afterwards. Equal to slot if the removed
+         *             data was the last one.
+         */
+        void removed(int slot, int last);
+    }
+
+    /**
+     * Position of a data in the list.
+     *
+     * @param <T> type of the stored data
+     */
+    private static final class Slot<T> {
+
+        /**
+         * Index of the data in the list.
+         */
+        private int position;
+
+        /**
+         * The data stored on the slot.
+         */
+        private T element;
+
+        /**
+         * @param position index of the data in the list
+         * @param element the data
+         */
+        private Slot(int position, T element) {
+            this.position = position;
+            this.element = element;
+        }
+    }
+
+    /**
+     * All the stored data.
+     */
+    private final ArrayList<T> items = new ArrayList<>();
+
+    /**
+     * Read-only view of the stored data that is handed out.
+     */
+    private final List<T> readOnlyItems = Collections.unmodifiableList(items);
+
+    /**
+     * Listeners of the changes of the list.
+     */
+    private final List<InventoryListener<T>> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * The slot of each id.
+     */
+    private final IntHashMap<Slot<T>> slots = new IntHashMap<>();
+
+    /**
+     * Trigram index over the names used by the partial name search, or null until the first search.
+     * Building it is left to the first search so that loading a big inventory only fills the list
+     * and the id slots.
+     */
+    private NameIndex<T> names;
+
+    /**
+     * Held while the table changes, and its read lock while a search reads it.
+     */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * The write lock of the table.
+     */
+    private final Lock writeLock = lock.writeLock();
+
+    /**
+     * The read lock of the table.
+     */
+    private final Lock readLock = lock.readLock();
+
+    /**
+     * Reads the id of a data.
+     */
+    private final ToIntFunction<T> idOf;
+
+    /**
+     * Reads the name of a data.
+     */
+    private final Function<T, String> nameOf;
+
+    /**
+     * Listener of the slot changes or null if there is none.
+     */
+    private SlotListener<T> slotListener;
+
+    /**
+     * @param idOf reads the id of a data
+     * @param nameOf reads the name of a data
+     */
+    InventoryTable(ToIntFunction<T> idOf, Function<T, String> nameOf) {
+        this.idOf = idOf;
+        this.nameOf = nameOf;
+    }
+
+    /**
+     * Sets the listener that gets notified about every slot change before the list changes.
+     *
+     * @param slotListener the listener or null to remove it
+     */
+    void setSlotListener(SlotListener<T> slotListener) {
+        this.slotListener = slotListener;
+    }
+
+    /**
+     * @param listener gets notified about the changes of the list from now on
+     */
+    void addListener(InventoryListener<T> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @param listener the listener that does not get notified anymore
+     */
+    void removeListener(InventoryListener<T> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return read-only list of all the stored data
+     */
+    List<T> items() {
+        return readOnlyItems;
+    }
+
+    /**
+     * Returns the data of an id.
+     *
+     * @param id the id to look for
+     * @return the data or null if the id is not stored
+     */
+    T get(int id) {
+        Slot<T> slot = slots.get(id);
+        return slot == null ? null : slot.element;
+    }
+
+    /**
+     * Adds data at the end of the list.
+     *
+     * @param element the data to add
+     */
+    void add(T element) {
+        writeLock.lock();
+        try {
+            int id = idOf.applyAsInt(element);
+            if (slots.containsKey(id)) {
+                throw new IllegalArgumentException("Id " + id + " is already in the inventory");
+            }
+
+            slots.put(id, new Slot<>(items.size(), element));
+            if (names != null) {
+                names.add(id, element, nameOf.apply(element));
+            }
+            if (slotListener != null) {
+                slotListener.added(items.size(), element);
+            }
+            items.add(element);
+            fireAdded(items.size() - 1, items.size());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Adds many data at the end of the list with a single change of the list.
+     *
+     * @param elements the data to add
+     */
+    void addAll(List<? extends T> elements) {
+        writeLock.lock();
+        try {
+            int first = items.size();
+            slots.ensureCapacity(first + elements.size());
+
+            for (int i = 0; i < elements.size(); i++) {
+                T element = elements.get(i);
+                int id = idOf.applyAsInt(element);
+                if (slots.containsKey(id)) {
+                    // take back the slots of this call so the table is unchanged
+                    for (int j = 0; j < i; j++) {
+                        slots.remove(idOf.applyAsInt(elements.get(j)));
+                    }
+                    throw new IllegalArgumentException("Id " + id + " is already in the inventory");
+                }
+                slots.put(id, new Slot<>(first + i, element));
+            }
+
+            int position = first;
+            for (T element : elements) {
+                if (names != null) {
+                    names.add(idOf.applyAsInt(element), element, nameOf.apply(element));
+                }
+                if (slotListener != null) {
+                    slotListener.added(position, element);
+                }
+                position++;
+            }
+            items.addAll(elements);
+            if (!elements.isEmpty()) {
+                fireAdded(first, items.size());
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Replaces the stored data that has the same id as the given data.
+     *
+     * @param element the new data
+     * @return false if the id is not stored
+     */
+    boolean replace(T element) {
+        writeLock.lock();
+        try {
+            int id = idOf.applyAsInt(element);
+            Slot<T> slot = slots.get(id);
+            if (slot == null) {
+                return false;
+            }
+
+            slot.element = element;
+            if (names != null) {
+                names.replace(id, element, nameOf.apply(element));
+            }
+            if (slotListener != null) {
+                slotListener.replaced(slot.position, element);
+            }
+            T previous = items.set(slot.position, element);
+            fireReplaced(slot.position, slot.position + 1, Collections.singletonList(previous));
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Removes the data of an id by moving the last data into its slot.
+     *
+     * @param id id of the data to remove
+     * @return false if the id is not stored
+     */
+    boolean remove(int id) {
+        writeLock.lock();
+        try {
+            Slot<T> slot = slots.remove(id);
+            if (slot == null) {
+                return false;
+            }
+
+            if (names != null) {
+                names.remove(id);
+            }
+
+            int last = items.size() - 1;
+            if (slotListener != null) {
+                slotListener.removed(slot.position, last);
+            }
+            if (slot.position != last) {
+                T moved = items.get(last);
+                slots.get(idOf.applyAsInt(moved)).position = slot.position;
+                items.set(slot.position, moved);
+                fireReplaced(slot.position, slot.position + 1, Collections.singletonList(slot.element));
+                items.remove(last);
+                fireReplaced(last, last, Collections.singletonList(moved));
+            } else {
+                items.remove(last);
+                fireReplaced(last, last, Collections.singletonList(slot.element));
+            }
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Replaces many stored data with a single change of the list. Data whose id is not stored is skipped.
+     *
+     * @param elements the new data
+     * @return the replaced data, or null for every given data whose id is not stored
+     */
+    List<T> replaceAll(List<? extends T> elements) {
+        writeLock.lock();
+        try {
+            int low = Integer.MAX_VALUE;
+            int high = -1;
+            int found = 0;
+            for (T element : elements) {
+                Slot<T> slot = slots.get(idOf.applyAsInt(element));
+                if (slot != null) {
+                    low = Math.min(low, slot.position);
+                    high = Math.max(high, slot.position);
+                    found++;
+                }
+            }
+
+            List<T> previous = new ArrayList<>(elements.size());
+            if (high < 0) {
+                for (int i = 0; i < elements.size(); i++) {
+                    previous.add(null);
+                }
+                return previous;
+            }
+
+            boolean dense = high - low + 1 <= DENSE_SPAN * found;
+            List<T> before = dense ? new ArrayList<>(items.subList(low, high + 1)) : null;
+            SlotChanges changes = dense ? null : new SlotChanges(found);
+            for (T element : elements) {
+                int id = idOf.applyAsInt(element);
+                Slot<T> slot = slots.get(id);
+                if (slot == null) {
+                    previous.add(null);
+                    continue;
+                }
+
+                previous.add(slot.element);
+                if (changes != null) {
+                    changes.remember(slot.position);
+                }
+                slot.element = element;
+                if (names != null) {
+                    names.replace(id, element, nameOf.apply(element));
+                }
+                if (slotListener != null) {
+                    slotListener.replaced(slot.position, element);
+                }
+                items.set(slot.position, element);
+            }
+            if (dense) {
+                fireReplaced(low, high + 1, before);
+            } else {
+                changes.fire();
+            }
+            return previous;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Removes the data of many ids with a single change of the list. Like {@link #remove(int)} every
+     * removed data is replaced by the last data of the list. Ids that are not stored are skipped.
+     *
+     * @param ids ids of the data to remove
+     * @param count number of ids to use from the start of the array
+     * @return the removed data
+     */
+    List<T> removeAll(int[] ids, int count) {
+        writeLock.lock();
+        try {
+            int low = Integer.MAX_VALUE;
+            int found = 0;
+            for (int i = 0; i < count; i++) {
+                Slot<T> slot = slots.get(ids[i]);
+                if (slot != null) {
+                    low = Math.min(low, slot.position);
+                    found++;
+                }
+            }
+
+            List<T> removed = new ArrayList<>();
+            if (low == Integer.MAX_VALUE) {
+                return removed;
+            }
+
+            // the range reaches to the end of the list, because the last data moves into the freed slots
+            boolean dense = items.size() - low <= DENSE_SPAN * found;
+            List<T> before = dense ? new ArrayList<>(items.subList(low, items.size())) : null;
+            SlotChanges changes = dense ? null : new SlotChanges(2 * found);
+            for (int i = 0; i < count; i++) {
+                Slot<T> slot = slots.remove(ids[i]);
+                if (slot == null) {
+                    continue;
+                }
+
+                if (names != null) {
+                    names.remove(ids[i]);
+                }
+
+                int last = items.size() - 1;
+                if (changes != null) {
+                    changes.remember(slot.position);
+                    changes.remember(last);
+                }
+                if (slotListener != null) {
+                    slotListener.removed(slot.position, last);
+                }
+                if (slot.position != last) {
+                    T moved = items.get(last);
+                    slots.get(idOf.applyAsInt(moved)).position = slot.position;
+                    items.set(slot.position, moved);
+                }
+                items.remove(last);
+                removed.add(slot.element);
+            }
+            if (dense) {
+                fireReplaced(low, items.size(), before);
+            } else {
+                changes.fire();
+            }
+            return removed;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Tells the listeners that the next changes belong to one batch.
+     */
+    private void fireBatchStarted() {
+        for (InventoryListener<T> listener : listeners) {
+            listener.batchStarted();
+        }
+    }
+
+    /**
+     * Tells the listeners that the changes of the batch are done.
+     */
+    private void fireBatchFinished() {
+        for (InventoryListener<T> listener : listeners) {
+            listener.batchFinished();
+        }
+    }
+
+    /**
+     * The slots a sparse batch changed, with the data that was on each of them before the batch. They are
+     * reported slot by slot in one batch once the batch is done.
+     */
+    private final class SlotChanges {
+
+        /**
+         * The changed slots in the order they were first changed.
+         */
+        private final int[] positions;
+
+        /**
+         * Number of changed slots.
+         */
+        private int count;
+
+        /**
+         * The data that was on each changed slot before the batch.
+         */
+        private final IntHashMap<T> before;
+
+        /**
+         * @param capacity most slots the batch can change
+         */
+        private SlotChanges(int capacity) {
+            positions = new int[capacity];
+            before = new IntHashMap<>(capacity);
+        }
+
+        /**
+         * Remembers the data of a slot before the batch changes it for the first time. Must be called
+         * before every change of the slot.
+         *
+         * @param position the slot
+         */
+        private void remember(int position) {
+            if (!before.containsKey(position)) {
+                before.put(position, items.get(position));
+                positions[count++] = position;
+            }
+        }
+
+        /**
+         * Tells the listeners about the changed slots in ascending order in one batch. Slots past the end
+         * of the list were removed and are reported as one removal at the end.
+         */
+        private void fire() {
+            Arrays.sort(positions, 0, count);
+            int size = items.size();
+            fireBatchStarted();
+            try {
+                List<T> tail = new ArrayList<>();
+                for (int i = 0; i < count; i++) {
+                    int position = positions[i];
+                    if (position < size) {
+                        fireReplaced(position, position + 1, Collections.singletonList(before.get(position)));
+                    } else {
+                        tail.add(before.get(position));
+                    }
+                }
+                if (!tail.isEmpty()) {
+                    fireReplaced(size, size, tail);
+                }
+            } finally {
+                fireBatchFinished();
+            }
+        }
+    }
+
+    /**
+     * Tells the listeners that data was added at the end of the list.
+     *
+     * @param from index of the first added data
+     * @param to index after the last added data
+     */
+    private void fireAdded(int from, int to) {
+        for (InventoryListener<T> listener : listeners) {
+            listener.added(from, to);
+        }
+    }
+
+    /**
+     * Tells the listeners that a range of the list was replaced.
+     *
+     * @param from the first changed index
+     * @param to the end of the changed range as the list is now
+     * @param removed the data that was on the list from the first changed index on before the change
+     */
+    private void fireReplaced(int from, int to, List<T> removed) {
+        for (InventoryListener<T> listener : listeners) {
+            listener.replaced(from, to, removed);
+        }
+    }
+
+    /**
+     * Looks for the data whose name partially matches the search text, ignoring the case. Can be called on
+     * any thread.
+     *
+     * @param text the search text
+     * @return the matches in the order of the list
+     */
+    List<T> lookupByName(String text) {
+        String query = NameIndex.normalizeQuery(text);
+        List<T> matches = new ArrayList<>();
+        buildNames();
+        readLock.lock();
+        try {
+            forEachNameMatch(query, matches::add);
+            return NameIndex.isSelective(query) ? inListOrder(matches) : matches;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Passes every data whose name partially matches the search text to an action, in no particular
+     * order. The data is found in the name index, so only the matches are read. Can be called on any
+     * thread. The action is called while the table is locked and must not change the inventory.
+     *
+     * @param text the normalized search text
+     * @param action gets every match
+     */
+    void forEachNameMatch(String text, Consumer<? super T> action) {
+        buildNames();
+        readLock.lock();
+        try {
+            forEachNameMatchLocked(text, action);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Passes every data whose name partially matches the search text to an action. The table must be
+     * locked and the name index built.
+     *
+     * @param query the normalized search text
+     * @param action gets every match
+     */
+    private void forEachNameMatchLocked(String query, Consumer<? super T> action) {
+        if (!NameIndex.isSelective(query)) {
+            // search text is too short for the trigram index, compare against the indexed names instead
+            for (T element : items) {
+                if (names.normalizedName(idOf.applyAsInt(element)).contains(query)) {
+                    action.accept(element);
+                }
+            }
+            return;
+        }
+        names.search(query, action);
+    }
+
+    /**
+     * Builds the name index from the list if this was not done yet.
+     */
+    private void buildNames() {
+        readLock.lock();
+        try {
+            if (names != null) {
+                return;
+            }
+        } finally {
+            readLock.unlock();
+        }
+
+        writeLock.lock();
+        try {
+            if (names == null) {
+                NameIndex<T> built = new NameIndex<>();
+                for (T element : items) {
+                    built.add(idOf.applyAsInt(element), element, nameOf.apply(element));
+                }
+                names = built;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Sorts data of the table by their position in the list.
+     *
+     * @param matches data of the table
+     * @return the sorted data
+     */
+    private List<T> inListOrder(List<T> matches) {
+        long[] order = new long[matches.size()];
+        for (int i = 0; i < order.length; i++) {
+            long position = slots.get(idOf.applyAsInt(matches.get(i))).position;
+            order[i] = (position << 32) | i;
+        }
+        Arrays.sort(order);
+
+        List<T> sorted = new ArrayList<>(order.length);
+        for (long entry : order) {
+            sorted.add(matches.get((int) entry));
+        }
+        return sorted;
+    }
+}
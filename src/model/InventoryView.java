@@ -0,0 +1,238 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Immutable view of the whole inventory at one moment, returned by {@link Inventory#snapshot()}.
+ *
+ * <p>A view never changes, so a long report, export or valuation can read it on any thread without locking
+ * and without seeing half of a change. Taking a view is cheap: it only collects the current immutable trie
+ * of every stripe of the inventory (see {@link IntTrie} and {@link PublishGate}), and the tries share
+ * everything a later change does not touch. Writers are never blocked by a view that is still read, they
+ * just keep making new tries. A view only holds on to the old data as long as it is used.</p>
+ *
+ * <p>A view holds the same part and product objects as the inventory. The update methods of the inventory
+ * replace them with new objects, so a view only changes if its objects are changed directly.</p>
+ *
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+public final class InventoryView {
+
+    /**
+     * Number of the part table.
+     */
+    static final int PARTS = 0;
+
+    /**
+     * Number of the product table.
+     */
+    static final int PRODUCTS = 1;
+
+    /**
+     * Number of the table of retired parts, the deleted parts that products still use.
+     */
+    static final int RETIRED_PARTS = 2;
+
+    /**
+     * Number of tables.
+     */
+    static final int TABLES = 3;
+
+    /**
+     * The view of the empty inventory.
+     */
+    static final InventoryView EMPTY = new InventoryView(new IntTrie<?>[][] {
+            emptyStripes(), emptyStripes(), emptyStripes()}, 0);
+
+    /**
+     * The stripes of each table, by table number and stripe number.
+     */
+    private final IntTrie<?>[][] tables;
+
+    /**
+     * Counts the changes. A later view has a larger version.
+     */
+    private final long version;
+
+    /**
+     * @param tables the stripes of each table
+     * @param version the version
+     */
+    InventoryView(IntTrie<?>[][] tables, long version) {
+        this.tables = tables;
+        this.version = version;
+    }
+
+    /**
+     * Returns one stripe of a table.
+     *
+     * @param table the table number
+     * @param stripe the stripe number
+     * @param <T> type of the data of the table
+     * @return the stripe
+     */
+    @SuppressWarnings("unchecked")
+    <T> IntTrie<T> stripe(int table, int stripe) {
+        return (IntTrie<T>) tables[table][stripe];
+    }
+
+    /**
+     * @return the version of the view. A later view has a larger version.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Look for a part data that matches the given id
+     *
+     * @param partId Id of a part
+     * @return part data or null if it is not in the view
+     */
+    public Part lookupPart(int partId) {
+        return this.<Part>stripe(PARTS, StripedTable.stripeOf(partId)).get(partId);
+    }
+
+    /**
+     * Look for a product data that matches the given id
+     *
+     * @param productId Id of a product
+     * @return product data or null if it is not in the view
+     */
+    public Product lookupProduct(int productId) {
+        return this.<Product>stripe(PRODUCTS, StripedTable.stripeOf(productId)).get(productId);
+    }
+
+    /**
+     * Finds the part of an id for a bill of materials. Deleted parts that are still used by a product
+     * are found too.
+     *
+     * @param partId Id of a part
+     * @return part data or null if the part is unknown
+     */
+    public Part resolvePart(int partId) {
+        Part part = lookupPart(partId);
+        return part != null ? part : this.<Part>stripe(RETIRED_PARTS, StripedTable.stripeOf(partId)).get(partId);
+    }
+
+    /**
+     * @return number of parts in the view
+     */
+    public int getPartCount() {
+        return count(PARTS);
+    }
+
+    /**
+     * @return number of products in the view
+     */
+    public int getProductCount() {
+        return count(PRODUCTS);
+    }
+
+    /**
+     * Calls an action for every part of the view, in no particular order.
+     *
+     * @param action the action
+     */
+    public void forEachPart(Consumer<? super Part> action) {
+        for (int i = 0; i < StripedTable.STRIPES; i++) {
+            this.<Part>stripe(PARTS, i).forEach(action);
+        }
+    }
+
+    /**
+     * Calls an action for every product of the view, in no particular order.
+     *
+     * @param action the action
+     */
+    public void forEachProduct(Consumer<? super Product> action) {
+        for (int i = 0; i < StripedTable.STRIPES; i++) {
+            this.<Product>stripe(PRODUCTS, i).forEach(action);
+        }
+    }
+
+    /**
+     * Adds up stock times price of every part of the view.
+     *
+     * @return the total value of the parts
+     */
+    public double getTotalPartValue() {
+        long[] cents = new long[1];
+        forEachPart(part -> cents[0] += Math.round(part.getPrice() * 100) * part.getStock());
+        return cents[0] / 100.0;
+    }
+
+    /**
+     * Look for the parts whose inventory level is at or below their min value.
+     *
+     * @return list of part data in no particular order
+     */
+    public List<Part> lookupLowStockParts() {
+        List<Part> partList = new ArrayList<>();
+        forEachPart(part -> {
+            if (part.getStock() <= part.getMin()) {
+                partList.add(part);
+            }
+        });
+        return partList;
+    }
+
+    /**
+     * Copies the data of one stripe of a table.
+     *
+     * @param table the table number
+     * @param stripe the stripe number
+     * @param <T> type of the data of the table
+     * @return the data in no particular order
+     */
+    <T> List<T> stripeValues(int table, int stripe) {
+        IntTrie<T> trie = stripe(table, stripe);
+        List<T> values = new ArrayList<>(trie.size());
+        trie.forEach(values::add);
+        return values;
+    }
+
+    /**
+     * Copies all the data of a table.
+     *
+     * @param table the table number
+     * @param <T> type of the data of the table
+     * @return the data in no particular order
+     */
+    <T> List<T> values(int table) {
+        List<T> values = new ArrayList<>(count(table));
+        for (int i = 0; i < StripedTable.STRIPES; i++) {
+            this.<T>stripe(table, i).forEach(values::add);
+        }
+        return values;
+    }
+
+    /**
+     * Counts the data of a table.
+     *
+     * @param table the table number
+     * @return number of data
+     */
+    int count(int table) {
+        int count = 0;
+        for (IntTrie<?> trie : tables[table]) {
+            count += trie.size();
+        }
+        return count;
+    }
+
+    /**
+     * @return empty stripes for a table
+     */
+    private static IntTrie<?>[] emptyStripes() {
+        IntTrie<?>[] stripes = new IntTrie<?>[StripedTable.STRIPES];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = IntTrie.empty();
+        }
+        return stripes;
+    }
+}
@@ -0,0 +1,300 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Trigram index over the names of the inventory data used for the partial name search.
+ *
+ * <p>Every name is normalized the same way the search normalizes it (upper case) and each run of three
+ * characters of the normalized name points to a posting list of the entries that contain it. A search
+ * intersects the posting lists of the trigrams of the search text and only compares the names of the
+ * remaining candidates, so the result is exactly what a scan with {@code contains} would return.</p>
+ *
+ * <p>Entries get an increasing number when they are added and keep it when they are replaced, so the
+ * posting lists stay sorted by only appending to them and the matches come out in the order the
+ * entries were added to the inventory.</p>
+ *
+ * @param <T> type of the indexed data
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+final class NameIndex<T> {
+
+    /**
+     * Length of the indexed character runs.
+     */
+    private static final int GRAM = 3;
+
+    /**
+     * An indexed data with its normalized name.
+     *
+     * @param <T> type of the indexed data
+     */
+    private static final class Entry<T> {
+
+        /**
+         * Number given to the entry when it was added.
+         */
+        private final int doc;
+
+        /**
+         * The indexed data.
+         */
+        private T element;
+
+        /**
+         * The normalized name of the data.
+         */
+        private String name;
+
+        /**
+         * @param doc number of the entry
+         * @param element the indexed data
+         * @param name the normalized name
+         */
+        private Entry(int doc, T element, String name) {
+            this.doc = doc;
+            this.element = element;
+            this.name = name;
+        }
+    }
+
+    /**
+     * The entries by the id of their data.
+     */
+    private final IntHashMap<Entry<T>> byId = new IntHashMap<>();
+
+    /**
+     * The entries by their number.
+     */
+    private final IntHashMap<Entry<T>> byDoc = new IntHashMap<>();
+
+    /**
+     * Posting lists of entry numbers for each trigram key.
+     */
+    private final IntHashMap<IntList> postings = new IntHashMap<>();
+
+    /**
+     * Number that will be given to the next added entry.
+     */
+    private int nextDoc;
+
+    /**
+     * Normalizes the name of the data the same way as the search text.
+     *
+     * @param name name of the data
+     * @return the upper case name
+     */
+    static String normalizeName(String name) {
+        return name.toUpperCase();
+    }
+
+    /**
+     * Normalizes a search text.
+     *
+     * @param text the search text
+     * @return the upper case text without surrounding white spaces
+     */
+    static String normalizeQuery(String text) {
+        return text.toUpperCase().trim();
+    }
+
+    /**
+     * Adds data to the index.
+     *
+     * @param id id of the data
+     * @param element the data
+     * @param name name of the data
+     */
+    void add(int id, T element, String name) {
+        Entry<T> entry = new Entry<>(nextDoc++, element, normalizeName(name));
+        byId.put(id, entry);
+        byDoc.put(entry.doc, entry);
+        post(entry);
+    }
+
+    /**
+     * Replaces the indexed data of an id. The entry keeps its position in the order of the matches.
+     *
+     * @param id id of the data
+     * @param element the new data
+     * @param name the new name of the data
+     */
+    void replace(int id, T element, String name) {
+        Entry<T> entry = byId.get(id);
+        if (entry == null) {
+            add(id, element, name);
+            return;
+        }
+
+        String normalized = normalizeName(name);
+        entry.element = element;
+        if (!entry.name.equals(normalized)) {
+            unpost(entry);
+            entry.name = normalized;
+            post(entry);
+        }
+    }
+
+    /**
+     * Removes the data of an id from the index.
+     *
+     * @param id id of the data
+     */
+    void remove(int id) {
+        Entry<T> entry = byId.remove(id);
+        if (entry != null) {
+            byDoc.remove(entry.doc);
+            unpost(entry);
+        }
+    }
+
+    /**
+     * Returns the normalized name of the data with the given id.
+     *
+     * @param id id of the data
+     * @return the normalized name or null if the id is not indexed
+     */
+    String normalizedName(int id) {
+        Entry<T> entry = byId.get(id);
+        return entry == null ? null : entry.name;
+    }
+
+    /**
+     * Checks if the search text is long enough to be answered by the index.
+     *
+     * @param query normalized search text
+     * @return true if {@link #search(String)} can be used
+     */
+    static boolean isSelective(String query) {
+        return query.length() >= GRAM;
+    }
+
+    /**
+     * Looks for the data whose normalized name contains the search text.
+     *
+     * @param query normalized search text with at least three characters
+     * @return the matches in the order they were added
+     */
+    List<T> search(String query) {
+        List<T> matches = new ArrayList<>();
+        search(query, matches::add);
+        return matches;
+    }
+
+    /**
+     * Passes the data whose normalized name contains the search text to an action.
+     *
+     * @param query normalized search text with at least three characters
+     * @param action gets the matches in the order they were added
+     */
+    void search(String query, Consumer<? super T> action) {
+        IntList[] lists = postingsOf(query);
+        if (lists == null) {
+            return;
+        }
+
+        // intersect starting from the shortest posting list so the candidate set only shrinks
+        Arrays.sort(lists, Comparator.comparingInt(IntList::size));
+        IntList shortest = lists[0];
+        int[] positions = new int[lists.length];
+
+        for (int i = 0; i < shortest.size(); i++) {
+            int doc = shortest.get(i);
+            boolean inAll = true;
+
+            for (int l = 1; l < lists.length && inAll; l++) {
+                int found = lists[l].search(doc, positions[l]);
+                positions[l] = found >= 0 ? found : -found - 1;
+                inAll = found >= 0;
+            }
+
+            if (inAll) {
+                Entry<T> entry = byDoc.get(doc);
+                if (entry.name.contains(query)) {
+                    action.accept(entry.element);
+                }
+            }
+        }
+    }
+
+    /**
+     * Collects the posting lists of all the trigrams of the search text.
+     *
+     * @param query normalized search text
+     * @return the posting lists or null if one trigram is not in the index
+     */
+    private IntList[] postingsOf(String query) {
+        IntList[] lists = new IntList[query.length() - GRAM + 1];
+        int count = 0;
+
+        for (int i = 0; i + GRAM <= query.length(); i++) {
+            IntList list = postings.get(key(query, i));
+            if (list == null) {
+                return null;
+            }
+
+            boolean seen = false;
+            for (int j = 0; j < count && !seen; j++) {
+                seen = lists[j] == list;
+            }
+            if (!seen) {
+                lists[count++] = list;
+            }
+        }
+        return Arrays.copyOf(lists, count);
+    }
+
+    /**
+     * Adds the entry to the posting lists of all the trigrams of its name.
+     *
+     * @param entry the entry
+     */
+    private void post(Entry<T> entry) {
+        String name = entry.name;
+        for (int i = 0; i + GRAM <= name.length(); i++) {
+            int key = key(name, i);
+            IntList list = postings.get(key);
+            if (list == null) {
+                list = new IntList();
+                postings.put(key, list);
+            }
+            list.add(entry.doc);
+        }
+    }
+
+    /**
+     * Removes the entry from the posting lists of all the trigrams of its name.
+     *
+     * @param entry the entry
+     */
+    private void unpost(Entry<T> entry) {
+        String name = entry.name;
+        for (int i = 0; i + GRAM <= name.length(); i++) {
+            int key = key(name, i);
+            IntList list = postings.get(key);
+            if (list != null && list.remove(entry.doc) && list.isEmpty()) {
+                postings.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Packs the trigram that starts at the given position into a key. Characters outside of the first
+     * 1024 code units can share a key with other trigrams, which only adds candidates that the name
+     * comparison of the search filters out.
+     *
+     * @param text normalized text
+     * @param start position of the first character
+     * @return the trigram key
+     */
+    private static int key(String text, int start) {
+        return ((text.charAt(start) & 0x3FF) << 20)
+                | ((text.charAt(start + 1) & 0x3FF) << 10)
+                | (text.charAt(start + 2) & 0x3FF);
+    }
+}
@@ -107,6 +107,10 @@ public abstract class Part {
     }
 
     /**
+     * Sets the stock of this object only. It does not check min and max. The stock of a part that is on
+     * the inventory must be changed with {@link Inventory#adjustPartStock(int, int)} or a {@link Reservation}
+     * instead, so that all threads and the reservations see the change.
+     *
      * @param stock the stock to set
      */
     public void setStock(int stock) {
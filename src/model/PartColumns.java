@@ -0,0 +1,334 @@
+package model;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Columnar copy of the part data used for analytic scans over the whole inventory.
+ *
+ * <p>Every field of the parts is stored in its own array (struct of arrays) and the arrays are laid out by the
+ * slots of the part table, so row {@code i} of every column belongs to the part on position {@code i} of the part
+ * list. Prices are stored as cents in a long column and names and company names are dictionary encoded. A scan
+ * such as the total inventory value only walks two primitive arrays instead of following a pointer to every
+ * part object.</p>
+ *
+ * <p>The columns follow the part table through its slot listener, so they change with
+ * {@link Inventory#addPart(Part)}, {@link Inventory#updatePart(int, Part)} and
+ * {@link Inventory#deletePart(Part)}. Changing a part through its setters does not reach the columns.</p>
+ *
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+public final class PartColumns {
+
+    /**
+     * Value of the kind column for in-house parts.
+     */
+    private static final byte IN_HOUSE = 0;
+
+    /**
+     * Value of the kind column for outsourced parts.
+     */
+    private static final byte OUTSOURCED = 1;
+
+    /**
+     * Value of the company column for parts that have no company.
+     */
+    private static final int NO_COMPANY = -1;
+
+    /**
+     * Number of rows in use.
+     */
+    private int size;
+
+    /**
+     * The id column.
+     */
+    private int[] ids = new int[16];
+
+    /**
+     * The stock column.
+     */
+    private int[] stock = new int[16];
+
+    /**
+     * The min column.
+     */
+    private int[] min = new int[16];
+
+    /**
+     * The max column.
+     */
+    private int[] max = new int[16];
+
+    /**
+     * The price column in cents.
+     */
+    private long[] priceCents = new long[16];
+
+    /**
+     * The name column as codes of the name dictionary.
+     */
+    private int[] nameCodes = new int[16];
+
+    /**
+     * The part type column.
+     */
+    private byte[] kinds = new byte[16];
+
+    /**
+     * The machine id column. Only used by in-house parts.
+     */
+    private long[] machineIds = new long[16];
+
+    /**
+     * The company name column as codes of the company dictionary. Only used by outsourced parts.
+     */
+    private int[] companyCodes = new int[16];
+
+    /**
+     * Dictionary of the part names.
+     */
+    private final StringDictionary names = new StringDictionary();
+
+    /**
+     * Dictionary of the company names.
+     */
+    private final StringDictionary companies = new StringDictionary();
+
+    /**
+     * Converts a price to cents.
+     *
+     * @param price the price
+     * @return the price in cents
+     */
+    static long toCents(double price) {
+        return Math.round(price * 100);
+    }
+
+    /**
+     * Creates the listener that keeps the columns in line with the slots of the part table.
+     *
+     * @return the slot listener
+     */
+    InventoryTable.SlotListener<Part> slotListener() {
+        return new InventoryTable.SlotListener<Part>() {
+            @Override
+            public void added(int slot, Part part) {
+                addRow(slot, part);
+            }
+
+            @Override
+            public void replaced(int slot, Part part) {
+                replaceRow(slot, part);
+            }
+
+            @Override
+            public void removed(int slot, int last) {
+                removeRow(slot, last);
+            }
+        };
+    }
+
+    /**
+     * Adds the row of a part on a new slot at the end of the columns.
+     *
+     * @param slot the new slot
+     * @param part the part
+     */
+    private void addRow(int slot, Part part) {
+        if (slot == ids.length) {
+            grow();
+        }
+        write(slot, part);
+        size++;
+    }
+
+    /**
+     * Replaces the row of a slot.
+     *
+     * @param slot the slot
+     * @param part the new part
+     */
+    private void replaceRow(int slot, Part part) {
+        clear(slot);
+        write(slot, part);
+    }
+
+    /**
+     * Removes the row of a slot by moving the last row into it.
+     *
+     * @param slot the slot of the removed part
+     * @param last the last slot
+     */
+    private void removeRow(int slot, int last) {
+        clear(slot);
+
+        if (slot != last) {
+            ids[slot] = ids[last];
+            stock[slot] = stock[last];
+            min[slot] = min[last];
+            max[slot] = max[last];
+            priceCents[slot] = priceCents[last];
+            nameCodes[slot] = nameCodes[last];
+            kinds[slot] = kinds[last];
+            machineIds[slot] = machineIds[last];
+            companyCodes[slot] = companyCodes[last];
+        }
+        size--;
+    }
+
+    /**
+     * @return number of parts in the columns
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param slot the slot of a part
+     * @return the id of the part on the slot
+     */
+    public int getId(int slot) {
+        return ids[slot];
+    }
+
+    /**
+     * @param slot the slot of a part
+     * @return the stock of the part on the slot
+     */
+    public int getStock(int slot) {
+        return stock[slot];
+    }
+
+    /**
+     * @param slot the slot of a part
+     * @return the name of the part on the slot
+     */
+    public String getName(int slot) {
+        return names.decode(nameCodes[slot]);
+    }
+
+    /**
+     * @param slot the slot of a part
+     * @return the price of the part on the slot in cents
+     */
+    public long getPriceCents(int slot) {
+        return priceCents[slot];
+    }
+
+    /**
+     * Creates a part object from the row of a slot.
+     *
+     * @param slot the slot of a part
+     * @return a new in-house or outsourced part with the data of the row
+     */
+    public Part materialize(int slot) {
+        double price = priceCents[slot] / 100.0;
+        if (kinds[slot] == IN_HOUSE) {
+            return new Inhouse(ids[slot], getName(slot), price, stock[slot], min[slot], max[slot], machineIds[slot]);
+        }
+        return new Outsourced(ids[slot], getName(slot), price, stock[slot], min[slot], max[slot],
+                companies.decode(companyCodes[slot]));
+    }
+
+    /**
+     * Adds up stock times price of every part.
+     *
+     * @return the total inventory value in cents
+     */
+    public long totalValueCents() {
+        int[] stock = this.stock;
+        long[] priceCents = this.priceCents;
+        long total = 0;
+
+        for (int i = 0; i < size; i++) {
+            total += stock[i] * priceCents[i];
+        }
+        return total;
+    }
+
+    /**
+     * Adds up the stock of every part.
+     *
+     * @return the total number of parts on stock
+     */
+    public long totalStock() {
+        int[] stock = this.stock;
+        long total = 0;
+
+        for (int i = 0; i < size; i++) {
+            total += stock[i];
+        }
+        return total;
+    }
+
+    /**
+     * Finds the parts whose stock is at or below their min value.
+     *
+     * @param action called with the slot of every part that is low on stock
+     */
+    public void forEachLowStock(IntConsumer action) {
+        int[] stock = this.stock;
+        int[] min = this.min;
+
+        for (int i = 0; i < size; i++) {
+            if (stock[i] <= min[i]) {
+                action.accept(i);
+            }
+        }
+    }
+
+    /**
+     * Writes the data of a part into the row of a slot.
+     *
+     * @param slot the slot
+     * @param part the part
+     */
+    private void write(int slot, Part part) {
+        ids[slot] = part.getId();
+        stock[slot] = part.getStock();
+        min[slot] = part.getMin();
+        max[slot] = part.getMax();
+        priceCents[slot] = toCents(part.getPrice());
+        nameCodes[slot] = names.encode(part.getName());
+
+        if (part instanceof Outsourced) {
+            kinds[slot] = OUTSOURCED;
+            machineIds[slot] = 0;
+            companyCodes[slot] = companies.encode(((Outsourced) part).getCompanyName());
+        } else {
+            kinds[slot] = IN_HOUSE;
+            machineIds[slot] = part instanceof Inhouse ? ((Inhouse) part).getMachineId() : 0;
+            companyCodes[slot] = NO_COMPANY;
+        }
+    }
+
+    /**
+     * Releases the dictionary codes used by the row of a slot.
+     *
+     * @param slot the slot
+     */
+    private void clear(int slot) {
+        names.release(nameCodes[slot]);
+        if (companyCodes[slot] != NO_COMPANY) {
+            companies.release(companyCodes[slot]);
+        }
+    }
+
+    /**
+     * Doubles the capacity of every column.
+     */
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        stock = Arrays.copyOf(stock, capacity);
+        min = Arrays.copyOf(min, capacity);
+        max = Arrays.copyOf(max, capacity);
+        priceCents = Arrays.copyOf(priceCents, capacity);
+        nameCodes = Arrays.copyOf(nameCodes, capacity);
+        kinds = Arrays.copyOf(kinds, capacity);
+        machineIds = Arrays.copyOf(machineIds, capacity);
+        companyCodes = Arrays.copyOf(companyCodes, capacity);
+    }
+}
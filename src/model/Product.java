@@ -1,6 +1,10 @@
 package model;
 
-import javafx.collections.ObservableList;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
 
 /**
  * Product data model that contains associate parts.
@@ -10,9 +14,14 @@ import javafx.collections.ObservableList;
 public class Product {
 
     /**
-     * Holds the data of list of parts of a product.
+     * Holds the ids and quantities of the associate parts of a product.
      */
-    private ObservableList<Part> associatedParts;
+    private Bom bom = Bom.EMPTY;
+
+    /**
+     * The list of the associate parts of the bill of materials, or null until it is first asked for.
+     */
+    private AssociatedParts associatedParts;
 
     /**
      * The Id for the part
@@ -63,21 +72,44 @@ public class Product {
     }
 
     /**
-     * Stores all the associate part of a product
+     * Stores all the associate part of a product. The list is a read-only view of the bill of materials of
+     * the product that is made once for every bill of materials, so a part that is needed more than once is
+     * on the list more than once. The parts are looked up when they are read, so the list always shows
+     * their current data. A part that is not known to the inventory is read as null.
      *
      * @return returns all of the parts available on the inventory
      */
-    public ObservableList<Part> getAssociatedParts() {
-        return associatedParts;
+    public List<Part> getAssociatedParts() {
+        AssociatedParts parts = associatedParts;
+        if (parts == null || parts.bom != bom) {
+            parts = new AssociatedParts(bom);
+            associatedParts = parts;
+        }
+        return parts;
     }
 
     /**
      * Set associate parts to a product
      *
      * @param associatedParts sets the associate part to the product
+     * @throws IllegalArgumentException if a part on the list is null
+     */
+    public void setAssociatedParts(List<Part> associatedParts) {
+        this.bom = Bom.of(associatedParts);
+    }
+
+    /**
+     * @return the bill of materials of the product
+     */
+    public Bom getBom() {
+        return bom;
+    }
+
+    /**
+     * @param bom the bill of materials to set
      */
-    public void setAssociatedParts(ObservableList<Part> associatedParts) {
-        this.associatedParts = associatedParts;
+    public void setBom(Bom bom) {
+        this.bom = bom == null ? Bom.EMPTY : bom;
     }
 
     /**
@@ -130,6 +162,10 @@ public class Product {
     }
 
     /**
+     * Sets the stock of this object only. It does not check min and max. The stock of a product that is on
+     * the inventory must be changed with {@link Inventory#adjustProductStock(int, int)} or a {@link Reservation}
+     * instead, so that all threads and the reservations see the change.
+     *
      * @param stock the stock to set
      */
     public void setStock(int stock) {
@@ -164,4 +200,69 @@ public class Product {
         this.max = max;
     }
 
+
+    /**
+     * Read-only list of the associate parts over a bill of materials. Every part is on the list as many
+     * times as it is needed.
+     */
+    private static final class AssociatedParts extends AbstractList<Part> implements RandomAccess {
+
+        /**
+         * The bill of materials.
+         */
+        private final Bom bom;
+
+        /**
+         * The first position on the list of each part of the bill of materials, or null if every part is
+         * needed once and the positions are the same.
+         */
+        private final int[] starts;
+
+        /**
+         * Number of parts on the list.
+         */
+        private final int size;
+
+        /**
+         * @param bom the bill of materials
+         */
+        private AssociatedParts(Bom bom) {
+            this.bom = bom;
+            int total = bom.getTotalQuantity();
+            if (total == bom.size()) {
+                starts = null;
+            } else {
+                starts = new int[bom.size()];
+                for (int i = 1; i < starts.length; i++) {
+                    starts[i] = starts[i - 1] + bom.getQuantity(i - 1);
+                }
+            }
+            size = total;
+        }
+
+        /**
+         * @param index position on the list
+         * @return the part on the position, or null if it is not known to the inventory
+         */
+        @Override
+        public Part get(int index) {
+            Objects.checkIndex(index, size);
+            int edge = index;
+            if (starts != null) {
+                edge = Arrays.binarySearch(starts, index);
+                if (edge < 0) {
+                    edge = -edge - 2;
+                }
+            }
+            return Inventory.resolvePart(bom.getPartId(edge));
+        }
+
+        /**
+         * @return number of parts on the list
+         */
+        @Override
+        public int size() {
+            return size;
+        }
+    }
 }
@@ -0,0 +1,185 @@
+package model;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Puts the stripes of the striped tables of the inventory together into views.
+ *
+ * <p>A write to one stripe only sets the root of that stripe (see {@link StripedTable}), so writers of
+ * different stripes never write to the same memory. A view is taken by reading the roots of all the stripes
+ * twice. If no root changed between the two reads, every stripe had the read root during the whole time in
+ * between, so the roots show the inventory at one moment. A batch that changes many stripes sets their
+ * roots one after the other, so batches are counted when they start and when they end, and a view is only
+ * kept if no batch was setting roots while it was read.</p>
+ *
+ * <p>When the writers change the stripes so often that the two reads keep differing, the view freezes the
+ * gate: writers that publish after that wait until the view is taken, which takes only the few writers that
+ * were already publishing.</p>
+ *
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+final class PublishGate {
+
+    /**
+     * Number of times a view is read without stopping the writers.
+     */
+    private static final int OPTIMISTIC_TRIES = 8;
+
+    /**
+     * The tables by table number.
+     */
+    private final StripedTable<?>[] tables = new StripedTable<?>[InventoryView.TABLES];
+
+    /**
+     * Number of batches that started setting their roots.
+     */
+    private final AtomicLong batchesStarted = new AtomicLong();
+
+    /**
+     * Number of batches that set all their roots.
+     */
+    private final AtomicLong batchesFinished = new AtomicLong();
+
+    /**
+     * Number of views that wait for the writers to stop.
+     */
+    private final AtomicInteger freezers = new AtomicInteger();
+
+    /**
+     * The writers wait on this while the gate is frozen.
+     */
+    private final Object thaw = new Object();
+
+    /**
+     * The last view that was taken, returned again while nothing changes.
+     */
+    private final AtomicReference<InventoryView> lastView = new AtomicReference<>(InventoryView.EMPTY);
+
+    /**
+     * Adds a table. Called by the constructor of the table.
+     *
+     * @param table the table number
+     * @param striped the table
+     */
+    void register(int table, StripedTable<?> striped) {
+        tables[table] = striped;
+    }
+
+    /**
+     * Waits while the gate is frozen. Called before a single stripe publishes.
+     */
+    void awaitOpen() {
+        if (freezers.get() == 0) {
+            return;
+        }
+
+        boolean interrupted = false;
+        synchronized (thaw) {
+            while (freezers.get() != 0) {
+                try {
+                    thaw.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits while the gate is frozen and counts a batch that starts setting its roots.
+     */
+    void beginBatch() {
+        awaitOpen();
+        batchesStarted.incrementAndGet();
+    }
+
+    /**
+     * Counts a batch that set all its roots.
+     */
+    void endBatch() {
+        batchesFinished.incrementAndGet();
+    }
+
+    /**
+     * Takes a view of all the tables at one moment.
+     *
+     * @return the view
+     */
+    InventoryView snapshot() {
+        IntTrie<?>[][] first = new IntTrie<?>[InventoryView.TABLES][StripedTable.STRIPES];
+        long[] versions = new long[1];
+
+        for (int tries = 0; tries < OPTIMISTIC_TRIES; tries++) {
+            InventoryView view = tryRead(first, versions);
+            if (view != null) {
+                return view;
+            }
+        }
+
+        freezers.incrementAndGet();
+        try {
+            InventoryView view;
+            do {
+                // only the writers that were publishing before the freeze can still change a root
+                Thread.onSpinWait();
+                view = tryRead(first, versions);
+            } while (view == null);
+            return view;
+        } finally {
+            if (freezers.decrementAndGet() == 0) {
+                synchronized (thaw) {
+                    thaw.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the roots of all the stripes twice and makes a view of them if nothing changed in between.
+     *
+     * @param first receives the roots of the first read
+     * @param versions scratch space for the version of the view
+     * @return the view, or null if a root changed or a batch was setting roots
+     */
+    private InventoryView tryRead(IntTrie<?>[][] first, long[] versions) {
+        long finished = batchesFinished.get();
+        long started = batchesStarted.get();
+        if (started != finished) {
+            return null;
+        }
+
+        versions[0] = 0;
+        for (int table = 0; table < InventoryView.TABLES; table++) {
+            tables[table].readRoots(first[table], versions);
+        }
+        for (int table = 0; table < InventoryView.TABLES; table++) {
+            if (!tables[table].hasRoots(first[table])) {
+                return null;
+            }
+        }
+        if (batchesStarted.get() != started) {
+            return null;
+        }
+
+        // a later view counts more changes, and two views with the same count have the same stripes
+        InventoryView last = lastView.get();
+        if (last.getVersion() == versions[0]) {
+            return last;
+        }
+
+        IntTrie<?>[][] roots = new IntTrie<?>[InventoryView.TABLES][];
+        for (int table = 0; table < InventoryView.TABLES; table++) {
+            roots[table] = first[table].clone();
+        }
+        InventoryView view = new InventoryView(roots, versions[0]);
+        lastView.accumulateAndGet(view, (current, taken) ->
+                taken.getVersion() > current.getVersion() ? taken : current);
+        return view;
+    }
+}
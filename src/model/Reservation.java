@@ -0,0 +1,243 @@
+package model;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Stock that is held for an order, made with {@link Inventory#reserveParts(int[], int[], long)},
+ * {@link Inventory#reserveProduct(int, int, long)} or {@link Inventory#reserveBom(int, int, long)}. Held
+ * units cannot be reserved by other orders, but they stay in the inventory level until the reservation is
+ * committed, which takes them out of the inventory. A reservation that is released or runs out of time
+ * gives the units back.
+ *
+ * <p>A reservation ends exactly once: committed, released or expired. The methods can be called from any
+ * thread.</p>
+ *
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+public final class Reservation {
+
+    /**
+     * State of a reservation whose units are held.
+     */
+    static final int HELD = 0;
+
+    /**
+     * State of a reservation whose units were taken out of the inventory.
+     */
+    static final int COMMITTED = 1;
+
+    /**
+     * State of a reservation whose units were given back by the order.
+     */
+    static final int RELEASED = 2;
+
+    /**
+     * State of a reservation whose units were given back because it ran out of time.
+     */
+    static final int EXPIRED = 3;
+
+    /**
+     * The engine that made the reservation.
+     */
+    private final StockReservations owner;
+
+    /**
+     * Counters of the free stock the units were taken from.
+     */
+    private final StockSlots slots;
+
+    /**
+     * True if the units are parts, false if they are products.
+     */
+    private final boolean forParts;
+
+    /**
+     * Ids of the held parts or products.
+     */
+    private final int[] ids;
+
+    /**
+     * Held units of each id.
+     */
+    private final int[] quantities;
+
+    /**
+     * Time of {@link System#nanoTime()} when the reservation runs out.
+     */
+    private final long expiresAt;
+
+    /**
+     * Changes the state with compare-and-set without an extra object for every reservation.
+     */
+    private static final AtomicIntegerFieldUpdater<Reservation> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(Reservation.class, "state");
+
+    /**
+     * The state of the reservation.
+     */
+    private volatile int state = HELD;
+
+    /**
+     * The queue of the timing wheel the reservation was last put in.
+     */
+    private volatile int queue;
+
+    /**
+     * Makes a reservation of units that were already taken from the free stock.
+     *
+     * @param owner the engine that made the reservation
+     * @param slots counters of the free stock the units were taken from
+     * @param forParts true if the units are parts, false if they are products
+     * @param ids ids of the held parts or products
+     * @param quantities held units of each id
+     * @param expiresAt time of {@link System#nanoTime()} when the reservation runs out
+     */
+    Reservation(StockReservations owner, StockSlots slots, boolean forParts, int[] ids, int[] quantities,
+                long expiresAt) {
+        this.owner = owner;
+        this.slots = slots;
+        this.forParts = forParts;
+        this.ids = ids;
+        this.quantities = quantities;
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * Takes the held units out of the inventory levels, at once for all threads, and ends the reservation.
+     *
+     * @return true if it was committed, false if it already ended or ran out of time, or if a held part or
+     *         product was deleted or its inventory level was lowered so that it cannot give the units anymore.
+     *         In the last case the units stay held.
+     */
+    public boolean commit() {
+        return Inventory.commitReservation(this);
+    }
+
+    /**
+     * Gives the held units back and ends the reservation.
+     *
+     * @return true if it was released, false if it had already ended
+     */
+    public boolean release() {
+        if (!end(RELEASED)) {
+            return false;
+        }
+        owner.ended(queue);
+        return true;
+    }
+
+    /**
+     * @return true if the units are still held
+     */
+    public boolean isHeld() {
+        return state == HELD && System.nanoTime() - expiresAt < 0;
+    }
+
+    /**
+     * @return true if the units were taken out of the inventory
+     */
+    public boolean isCommitted() {
+        return state == COMMITTED;
+    }
+
+    /**
+     * @return true if the reservation was committed or released, not expired
+     */
+    boolean isEndedByOrder() {
+        return state == COMMITTED || state == RELEASED;
+    }
+
+    /**
+     * @return true if the units are parts, false if they are products
+     */
+    public boolean isForParts() {
+        return forParts;
+    }
+
+    /**
+     * @return number of parts or products that are held
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * @param index index of a held part or product
+     * @return its id
+     */
+    public int getId(int index) {
+        return ids[index];
+    }
+
+    /**
+     * @param index index of a held part or product
+     * @return its held units
+     */
+    public int getQuantity(int index) {
+        return quantities[index];
+    }
+
+    /**
+     * @return time of {@link System#nanoTime()} when the reservation runs out
+     */
+    long getExpiresAt() {
+        return expiresAt;
+    }
+
+    /**
+     * @param queue the queue of the timing wheel the reservation is put in
+     */
+    void setQueue(int queue) {
+        this.queue = queue;
+    }
+
+    /**
+     * Ends the reservation because it is committed. Called while the held data is locked, right before the
+     * units are taken out of the inventory levels. The units are not given back, because they leave the
+     * inventory. A reservation that ran out of time expires instead.
+     *
+     * @return true if it was still held and is now committed
+     */
+    boolean markCommitted() {
+        if (System.nanoTime() - expiresAt >= 0) {
+            end(EXPIRED);
+            return false;
+        }
+        if (!STATE.compareAndSet(this, HELD, COMMITTED)) {
+            return false;
+        }
+        owner.ended(queue);
+        return true;
+    }
+
+    /**
+     * Expires the reservation if it ran out of time.
+     *
+     * @param now the current time of {@link System#nanoTime()}
+     * @return true if it ended, either now or before
+     */
+    boolean expireIfDue(long now) {
+        if (state == HELD && now - expiresAt < 0) {
+            return false;
+        }
+        end(EXPIRED);
+        return true;
+    }
+
+    /**
+     * Ends the reservation and gives the units back, if it is still held.
+     *
+     * @param endState {@link #RELEASED} or {@link #EXPIRED}
+     * @return true if it was held and is now ended
+     */
+    private boolean end(int endState) {
+        if (!STATE.compareAndSet(this, HELD, endState)) {
+            return false;
+        }
+        for (int i = 0; i < ids.length; i++) {
+            slots.add(ids[i], quantities[i]);
+        }
+        return true;
+    }
+}
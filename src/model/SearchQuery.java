@@ -0,0 +1,80 @@
+package model;
+
+/**
+ * Search text of the part and product search. Data matches if its id is the number in the search text or
+ * its name partially matches the search text, ignoring the case. This is the same rule that the search
+ * handlers of the main screen use with {@link Inventory#lookupByPartID(int)} and
+ * {@link Inventory#lookupByPartName(String)}, so other features like the export can filter the same way.
+ *
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+public final class SearchQuery {
+
+    /**
+     * The normalized search text.
+     */
+    private final String text;
+
+    /**
+     * The id in the search text or -1 if the search text is not a number.
+     */
+    private final int id;
+
+    /**
+     * @param searchText the search text as the user typed it
+     */
+    public SearchQuery(String searchText) {
+        String trimmed = searchText.trim();
+        int parsed;
+        try {
+            parsed = Integer.parseInt(trimmed);
+        } catch (NumberFormatException e) {
+            parsed = -1;
+        }
+
+        this.id = parsed;
+        this.text = NameIndex.normalizeQuery(trimmed);
+    }
+
+    /**
+     * @return the id in the search text or -1 if the search text is not a number
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return the search text in the form of the names of the name index
+     */
+    String getText() {
+        return text;
+    }
+
+    /**
+     * Checks an id and a name against the search text.
+     *
+     * @param id the id
+     * @param name the name
+     * @return true if the id is the searched id or the name partially matches
+     */
+    public boolean matches(int id, String name) {
+        return (this.id != -1 && id == this.id) || NameIndex.normalizeName(name).contains(text);
+    }
+
+    /**
+     * @param part a part
+     * @return true if the part matches the search text
+     */
+    public boolean matches(Part part) {
+        return matches(part.getId(), part.getName());
+    }
+
+    /**
+     * @param product a product
+     * @return true if the product matches the search text
+     */
+    public boolean matches(Product product) {
+        return matches(product.getId(), product.getName());
+    }
+}
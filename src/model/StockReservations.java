@@ -0,0 +1,340 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Reservation engine of the inventory. It keeps the free stock of the parts and the products in
+ * {@link StockSlots} and makes the {@link Reservation}s, so that two orders at the same time cannot both get
+ * the last units and no order takes an inventory level below its min.
+ *
+ * <p>Reserving does not lock: the units of every part are taken from its counter with compare-and-set, one
+ * part after the other, and if a part does not have enough the units taken so far are given back. Another
+ * order may see fewer free units for that moment and be turned down, but never more. The counters follow
+ * every change of the stored data through the change listeners of the tables, so an update, a stock
+ * movement or a delete changes the free stock too.</p>
+ *
+ * <p>The reservations that run out of time are found with a timing wheel: a ring of {@link #WHEEL_SLOTS}
+ * queues, one for every {@link #TICK_MILLIS} milliseconds, where each reservation is put in the queue of the
+ * tick it runs out in. A background thread empties the queue of every tick that passed and gives back the
+ * units of the reservations that are still held. A reservation that runs out more than one turn of the wheel
+ * later is put back until its turn comes. So adding a reservation does not lock either, and the thread only
+ * looks at the reservations that are due. There is a wheel for every processor, picked by the thread that
+ * reserves, so the threads do not all add to the same queue. Most orders are committed or released long
+ * before they run out, so the thread also clears a queue early once most of its reservations have ended,
+ * and they do not pile up for the whole hold time.</p>
+ *
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+final class StockReservations {
+
+    /**
+     * Length of a tick of the timing wheel and time between two runs of the background thread. A
+     * reservation is given back within about two ticks after it runs out.
+     */
+    static final long TICK_MILLIS = 50;
+
+    /**
+     * Number of queues of the timing wheel.
+     */
+    static final int WHEEL_SLOTS = 1024;
+
+    /**
+     * Free stock of the parts.
+     */
+    private final StockSlots partSlots = new StockSlots();
+
+    /**
+     * Free stock of the products.
+     */
+    private final StockSlots productSlots = new StockSlots();
+
+    /**
+     * Number of ended reservations a queue must have before it is cleared early.
+     */
+    private static final int CLEAR_MIN = 256;
+
+    /**
+     * Number of wheels. A power of two.
+     */
+    private final int wheels;
+
+    /**
+     * The queues of the timing wheels, {@link #WHEEL_SLOTS} for every wheel one after the other.
+     */
+    private final Queue<Reservation>[] queues;
+
+    /**
+     * Number of reservations in each queue, which may count one more than once for a moment.
+     */
+    private final AtomicIntegerArray queued;
+
+    /**
+     * Number of reservations in each queue that were committed or released.
+     */
+    private final AtomicIntegerArray ended;
+
+    /**
+     * Reservations that were put in the queue of a tick that was already emptied. They are looked at on the
+     * next run.
+     */
+    private final Queue<Reservation> overdue = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Time of {@link System#nanoTime()} that tick 0 starts at.
+     */
+    private final long start = System.nanoTime();
+
+    /**
+     * The last tick whose queue is being emptied or was emptied.
+     */
+    private volatile long sweptTick = -1;
+
+    /**
+     * True once the background thread is started, on the first reservation.
+     */
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    /**
+     * Creates the engine with no free stock.
+     */
+    @SuppressWarnings("unchecked")
+    StockReservations() {
+        wheels = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1);
+        queues = (Queue<Reservation>[]) new Queue<?>[wheels * WHEEL_SLOTS];
+        for (int i = 0; i < queues.length; i++) {
+            queues[i] = new ConcurrentLinkedQueue<>();
+        }
+        queued = new AtomicIntegerArray(queues.length);
+        ended = new AtomicIntegerArray(queues.length);
+    }
+
+    /**
+     * @return listener for the part table that keeps the free stock of the parts in step
+     */
+    StripedTable.ChangeListener<Part> partListener() {
+        return (previous, current) -> {
+            Part part = current != null ? current : previous;
+            int before = previous == null ? 0 : previous.getStock() - previous.getMin();
+            int after = current == null ? 0 : current.getStock() - current.getMin();
+            partSlots.add(part.getId(), after - before);
+        };
+    }
+
+    /**
+     * @return listener for the product table that keeps the free stock of the products in step
+     */
+    StripedTable.ChangeListener<Product> productListener() {
+        return (previous, current) -> {
+            Product product = current != null ? current : previous;
+            int before = previous == null ? 0 : previous.getStock() - previous.getMin();
+            int after = current == null ? 0 : current.getStock() - current.getMin();
+            productSlots.add(product.getId(), after - before);
+        };
+    }
+
+    /**
+     * @param partId Id of a part
+     * @return units of the part that can be reserved
+     */
+    int freePartStock(int partId) {
+        return Math.max(0, partSlots.free(partId));
+    }
+
+    /**
+     * @param productId Id of a product
+     * @return units of the product that can be reserved
+     */
+    int freeProductStock(int productId) {
+        return Math.max(0, productSlots.free(productId));
+    }
+
+    /**
+     * Takes free units of a part or product for a change that lowers its inventory level or raises its min,
+     * with a compare-and-set like a reservation, so the change cannot use units that an order holds. The
+     * change must then be stored without telling the listener of this engine.
+     *
+     * @param forParts true for a part, false for a product
+     * @param id Id of the part or product
+     * @param amount free units the change takes away
+     * @param level the inventory level minus the min before the change
+     * @return true if they were taken, false if orders hold units the change would take. Nothing is taken
+     *         then.
+     */
+    boolean takeFree(boolean forParts, int id, int amount, int level) {
+        return (forParts ? partSlots : productSlots).takeUnlessHeld(id, amount, level);
+    }
+
+    /**
+     * Gives back free units taken with {@link #takeFree(boolean, int, int, int)} for a change that is not stored
+     * after all.
+     *
+     * @param forParts true for a part, false for a product
+     * @param id Id of the part or product
+     * @param amount the taken units
+     */
+    void giveBackFree(boolean forParts, int id, int amount) {
+        (forParts ? partSlots : productSlots).add(id, amount);
+    }
+
+    /**
+     * Holds units of many parts or products, all or none of them.
+     *
+     * @param forParts true for parts, false for products
+     * @param ids ids of the parts or products, which are copied
+     * @param quantities units of each id, which are copied
+     * @param holdMillis milliseconds the units are held if the reservation is not committed or released
+     * @return the reservation, or null if one of them does not have enough free units
+     * @throws IllegalArgumentException if the arrays have different lengths, a quantity is not positive or the
+     *                                  time is negative
+     */
+    Reservation reserve(boolean forParts, int[] ids, int[] quantities, long holdMillis) {
+        if (ids.length != quantities.length) {
+            throw new IllegalArgumentException("Every id needs a quantity");
+        }
+        if (holdMillis < 0) {
+            throw new IllegalArgumentException("The hold time must not be negative");
+        }
+        for (int quantity : quantities) {
+            if (quantity <= 0) {
+                throw new IllegalArgumentException("Quantity must be more than 0");
+            }
+        }
+
+        int[] heldIds = ids.clone();
+        int[] heldQuantities = quantities.clone();
+        StockSlots slots = forParts ? partSlots : productSlots;
+        for (int i = 0; i < heldIds.length; i++) {
+            if (!slots.take(heldIds[i], heldQuantities[i])) {
+                for (int j = 0; j < i; j++) {
+                    slots.add(heldIds[j], heldQuantities[j]);
+                }
+                return null;
+            }
+        }
+
+        long expiresAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(holdMillis);
+        Reservation reservation = new Reservation(this, slots, forParts, heldIds, heldQuantities, expiresAt);
+        schedule(reservation);
+        return reservation;
+    }
+
+    /**
+     * Counts a reservation that was committed or released, so its queue can be cleared early.
+     *
+     * @param queue the queue the reservation is in
+     */
+    void ended(int queue) {
+        ended.incrementAndGet(queue);
+    }
+
+    /**
+     * Puts a reservation in the queue of the tick it runs out in, on the wheel of the calling thread.
+     *
+     * @param reservation the reservation
+     */
+    private void schedule(Reservation reservation) {
+        if (!sweeping.get() && sweeping.compareAndSet(false, true)) {
+            startSweeper();
+        }
+
+        long tick = Math.max(tickOf(reservation.getExpiresAt()), sweptTick + 1);
+        int wheel = (int) Thread.currentThread().getId() & (wheels - 1);
+        int queue = wheel * WHEEL_SLOTS + (int) (tick % WHEEL_SLOTS);
+        reservation.setQueue(queue);
+        // counted first, so the sweeper never takes fewer reservations out of the queue than are in it
+        queued.incrementAndGet(queue);
+        queues[queue].add(reservation);
+        // the queue may have been emptied between reading the swept tick and adding
+        if (sweptTick >= tick) {
+            overdue.add(reservation);
+        }
+    }
+
+    /**
+     * Starts the background thread that gives back the reservations that ran out of time.
+     */
+    private void startSweeper() {
+        ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "reservation-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweep, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Empties the queues of the ticks that passed since the last run, the overdue reservations and the
+     * queues whose reservations have mostly ended.
+     */
+    private void sweep() {
+        long now = System.nanoTime();
+        long currentTick = tickOf(now);
+        for (long tick = sweptTick + 1; tick < currentTick; tick++) {
+            sweptTick = tick;
+            for (int wheel = 0; wheel < wheels; wheel++) {
+                empty(wheel * WHEEL_SLOTS + (int) (tick % WHEEL_SLOTS), now);
+            }
+        }
+
+        Reservation reservation = overdue.poll();
+        while (reservation != null) {
+            if (!reservation.expireIfDue(now)) {
+                schedule(reservation);
+            }
+            reservation = overdue.poll();
+        }
+
+        for (int queue = 0; queue < queues.length; queue++) {
+            int count = ended.get(queue);
+            if (count >= CLEAR_MIN && count * 2 >= queued.get(queue)) {
+                empty(queue, now);
+            }
+        }
+    }
+
+    /**
+     * Empties a queue and puts back the reservations that are still held and not due, which are the ones
+     * that run out in a later turn of the wheel, or all of them if the queue is cleared early. Only the
+     * reservations that were counted when it starts are taken, so threads that keep adding reservations
+     * cannot keep it busy.
+     *
+     * @param queue the queue
+     * @param now the current time of {@link System#nanoTime()}
+     */
+    private void empty(int queue, long now) {
+        List<Reservation> later = new ArrayList<>();
+        int limit = queued.get(queue);
+        int removed = 0;
+        Reservation reservation = removed < limit ? queues[queue].poll() : null;
+        int counted = 0;
+        while (reservation != null) {
+            if (!reservation.expireIfDue(now)) {
+                later.add(reservation);
+            } else if (reservation.isEndedByOrder()) {
+                counted++;
+            }
+            removed++;
+            reservation = removed < limit ? queues[queue].poll() : null;
+        }
+        queues[queue].addAll(later);
+        queued.addAndGet(queue, later.size() - removed);
+        ended.addAndGet(queue, -counted);
+    }
+
+    /**
+     * @param time a time of {@link System#nanoTime()}
+     * @return the tick the time is in
+     */
+    private long tickOf(long time) {
+        return Math.max(0, (time - start) / TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS));
+    }
+}
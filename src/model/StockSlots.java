@@ -0,0 +1,218 @@
+package model;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Counters of the free stock of the parts or the products by id, which the reservations take from and give
+ * back to with compare-and-set, so that reserving never takes a lock. The free stock of an id is its
+ * inventory level minus its min and minus the units that are held by reservations. An id that is not on the
+ * inventory has no free stock, and negative ids are never stored.
+ *
+ * <p>The counters are kept in chunks of {@link #CHUNK} ids that are made when the first id of the chunk is
+ * stored and never moved, so a reservation can keep using a chunk while more are added. Inside a chunk the
+ * ids are spread so that ids that follow each other are on different cache lines, and orders of parts that
+ * were added together do not slow each other down.</p>
+ *
+ * <p>The same counters keep the buildable quantities of the products for {@link BuildableQuantities}, which
+ * changes them with {@link #compareAndSet(int, int, int)} and {@link #lowerTo(int, int)}.</p>
+ *
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+final class StockSlots {
+
+    /**
+     * Number of bits of an id that select its counter inside a chunk.
+     */
+    private static final int CHUNK_BITS = 12;
+
+    /**
+     * Number of ids in a chunk.
+     */
+    static final int CHUNK = 1 << CHUNK_BITS;
+
+    /**
+     * Number of counters on a cache line of 64 bytes, as a number of bits.
+     */
+    private static final int LINE_BITS = 4;
+
+    /**
+     * The chunks by the high bits of the ids. A chunk is null until an id of it is stored.
+     */
+    private volatile AtomicIntegerArray[] chunks = new AtomicIntegerArray[16];
+
+    /**
+     * Returns the free stock of an id.
+     *
+     * @param id the id
+     * @return the free stock, 0 if the id was never stored. It is negative if the inventory level was lowered
+     *         below what the reservations hold.
+     */
+    int free(int id) {
+        AtomicIntegerArray chunk = chunkOf(id);
+        return chunk == null ? 0 : chunk.get(slotOf(id));
+    }
+
+    /**
+     * Takes free stock of an id if there is enough of it.
+     *
+     * @param id the id
+     * @param amount the amount to take, at least 1
+     * @return true if the amount was taken, false if the id has less free stock. Nothing is taken then.
+     */
+    boolean take(int id, int amount) {
+        AtomicIntegerArray chunk = chunkOf(id);
+        if (chunk == null) {
+            return false;
+        }
+
+        int slot = slotOf(id);
+        int free = chunk.get(slot);
+        while (free >= amount) {
+            int witness = chunk.compareAndExchange(slot, free, free - amount);
+            if (witness == free) {
+                return true;
+            }
+            free = witness;
+        }
+        return false;
+    }
+
+    /**
+     * Takes free stock of an id for a change of its inventory level or min, unless it would leave units that
+     * are held by reservations without stock. If nothing is held the free stock may go below 0, like for an
+     * inventory level under the min.
+     *
+     * @param id the id
+     * @param amount the amount to take, at least 1
+     * @param level the inventory level minus the min before the change
+     * @return true if the amount was taken, false if held units would be lost. Nothing is taken then.
+     */
+    boolean takeUnlessHeld(int id, int amount, int level) {
+        if (id < 0) {
+            return false;
+        }
+        AtomicIntegerArray chunk = chunkOf(id);
+        if (chunk == null) {
+            chunk = createChunk(id);
+        }
+
+        int slot = slotOf(id);
+        int free = chunk.get(slot);
+        // nothing is held while the free stock is the whole level
+        while (free >= amount || free >= level) {
+            int witness = chunk.compareAndExchange(slot, free, free - amount);
+            if (witness == free) {
+                return true;
+            }
+            free = witness;
+        }
+        return false;
+    }
+
+    /**
+     * Adds to the free stock of an id, which can be negative to take it away whether there is enough or not.
+     *
+     * @param id the id
+     * @param amount the amount to add
+     */
+    void add(int id, int amount) {
+        if (amount == 0 || id < 0) {
+            return;
+        }
+        AtomicIntegerArray chunk = chunkOf(id);
+        if (chunk == null) {
+            chunk = createChunk(id);
+        }
+        chunk.getAndAdd(slotOf(id), amount);
+    }
+
+    /**
+     * Sets the counter of an id if it still has the expected value.
+     *
+     * @param id the id
+     * @param expected the value the counter must have
+     * @param value the new value
+     * @return true if it was set, false if the counter had another value
+     */
+    boolean compareAndSet(int id, int expected, int value) {
+        if (id < 0) {
+            return false;
+        }
+        AtomicIntegerArray chunk = chunkOf(id);
+        if (chunk == null) {
+            chunk = createChunk(id);
+        }
+        return chunk.compareAndSet(slotOf(id), expected, value);
+    }
+
+    /**
+     * Lowers the counter of an id to a value if it is higher.
+     *
+     * @param id the id
+     * @param value the highest value the counter may keep
+     */
+    void lowerTo(int id, int value) {
+        AtomicIntegerArray chunk = chunkOf(id);
+        if (chunk == null) {
+            return;
+        }
+
+        int slot = slotOf(id);
+        int current = chunk.get(slot);
+        while (current > value) {
+            int witness = chunk.compareAndExchange(slot, current, value);
+            if (witness == current) {
+                return;
+            }
+            current = witness;
+        }
+    }
+
+    /**
+     * Returns the chunk of an id.
+     *
+     * @param id the id
+     * @return the chunk, or null if no id of it was stored yet
+     */
+    private AtomicIntegerArray chunkOf(int id) {
+        AtomicIntegerArray[] current = chunks;
+        int index = id >> CHUNK_BITS;
+        return index >= 0 && index < current.length ? current[index] : null;
+    }
+
+    /**
+     * Makes the chunk of an id, unless another thread just made it.
+     *
+     * @param id the id
+     * @return the chunk
+     */
+    private synchronized AtomicIntegerArray createChunk(int id) {
+        int index = id >>> CHUNK_BITS;
+        AtomicIntegerArray[] current = chunks;
+        if (index < current.length && current[index] != null) {
+            return current[index];
+        }
+
+        // the chunks are never copied, only the array that points to them, so counters in use stay valid
+        AtomicIntegerArray[] grown = index < current.length ? current.clone()
+                : Arrays.copyOf(current, Math.max(index + 1, current.length * 2));
+        grown[index] = new AtomicIntegerArray(CHUNK);
+        chunks = grown;
+        return grown[index];
+    }
+
+    /**
+     * Returns the place of the counter of an id in its chunk. The low bits of the id pick the cache line
+     * and the next bits the place on the line.
+     *
+     * @param id the id
+     * @return the place in the chunk
+     */
+    private static int slotOf(int id) {
+        int low = id & (CHUNK - 1);
+        int lines = CHUNK >> LINE_BITS;
+        return (low % lines) << LINE_BITS | low / lines;
+    }
+}
@@ -0,0 +1,104 @@
+package model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Dictionary that encodes the strings of a column as int codes.
+ *
+ * <p>Every distinct string is stored once and each use of it is counted, so the code of a string that is no
+ * longer used can be given to a new string.</p>
+ *
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+final class StringDictionary {
+
+    /**
+     * The string of each code.
+     */
+    private String[] strings = new String[16];
+
+    /**
+     * Number of uses of each code. A code with no use is free.
+     */
+    private int[] uses = new int[16];
+
+    /**
+     * The code of each string in use.
+     */
+    private final Map<String, Integer> codes = new HashMap<>();
+
+    /**
+     * Free codes that can be given to new strings.
+     */
+    private int[] freeCodes = new int[16];
+
+    /**
+     * Number of free codes.
+     */
+    private int freeCount;
+
+    /**
+     * Number of codes that were ever given out.
+     */
+    private int codeCount;
+
+    /**
+     * Returns the code of a string and counts one more use of it.
+     *
+     * @param string the string, can be null
+     * @return the code of the string
+     */
+    int encode(String string) {
+        Integer code = codes.get(string);
+        if (code != null) {
+            uses[code]++;
+            return code;
+        }
+
+        int newCode = freeCount > 0 ? freeCodes[--freeCount] : codeCount++;
+        if (newCode >= strings.length) {
+            strings = Arrays.copyOf(strings, strings.length * 2);
+            uses = Arrays.copyOf(uses, uses.length * 2);
+        }
+
+        strings[newCode] = string;
+        uses[newCode] = 1;
+        codes.put(string, newCode);
+        return newCode;
+    }
+
+    /**
+     * Counts one use less of a code and frees it if it is not used anymore.
+     *
+     * @param code the code
+     */
+    void release(int code) {
+        if (--uses[code] == 0) {
+            codes.remove(strings[code]);
+            strings[code] = null;
+
+            if (freeCount == freeCodes.length) {
+                freeCodes = Arrays.copyOf(freeCodes, freeCodes.length * 2);
+            }
+            freeCodes[freeCount++] = code;
+        }
+    }
+
+    /**
+     * @param code the code
+     * @return the string of the code
+     */
+    String decode(int code) {
+        return strings[code];
+    }
+
+    /**
+     * @return number of distinct strings in use
+     */
+    int size() {
+        return codes.size();
+    }
+}
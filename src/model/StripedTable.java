@@ -0,0 +1,529 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.ToIntFunction;
+
+/**
+ * Thread-safe storage of one kind of inventory data (parts, products or retired parts) by id.
+ *
+ * <p>The ids are split into stripes by range: every block of {@link #RANGE} consecutive ids belongs to one
+ * stripe, and the blocks are dealt to the stripes in turn, so ids that are handed out one after another
+ * still spread over all the stripes. The data of every stripe is kept in an immutable {@link IntTrie}, the
+ * root of the stripe. Readers never lock: they read the current root, which cannot change under them.</p>
+ *
+ * <p>Writers lock the stripe of the id they change with its {@link StampedLock}, so writes to different
+ * stripes run in parallel. Their changes go into a builder of the stripe and become visible to the readers
+ * all at once when the writer publishes them, which puts the new trie in place of the root. Writers use {@link #lock(int)} and {@link #unlock(int, long)} around the methods whose names end in
+ * "Locked", so that they can do more work (for example logging the change) while the data is locked.
+ * Unlocking publishes the changes that were not published yet. A {@link ChangeListener} can follow every
+ * change while it is locked, for example to keep counters of the stored data in step. A second listener is
+ * told about the changes right after they are published, while the stripes are still locked, for work that
+ * reads other stored data and must see all the changes of the batch.</p>
+ *
+ * <p>Publishing a single stripe only writes the root of that stripe, so writers of different stripes do
+ * not meet anywhere. Only a batch that publishes several stripes and the taking of a view of the whole
+ * inventory go through the {@link PublishGate} that all the tables share, which makes sure a view shows
+ * all the tables at one moment and every batch either whole or not at all.</p>
+ *
+ * @param <T> type of the stored data
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+final class StripedTable<T> {
+
+    /**
+     * Number of stripes. Must be a power of two.
+     */
+    static final int STRIPES = 64;
+
+    /**
+     * Number of consecutive ids that belong to the same stripe.
+     */
+    static final int RANGE = 64;
+
+    /**
+     * Is told about every change of the stored data while the stripe of the data is locked.
+     *
+     * @param <T> type of the stored data
+     */
+    interface ChangeListener<T> {
+
+        /**
+         * Called when data is stored or removed.
+         *
+         * @param previous the data that was stored under the id before, or null
+         * @param current the data that is stored now, or null if it was removed
+         */
+        void changed(T previous, T current);
+    }
+
+    /**
+     * The writer side of one stripe.
+     *
+     * @param <T> type of the stored data
+     */
+    private static final class Stripe<T> {
+
+        /**
+         * Lets only one writer change the stripe at a time.
+         */
+        private final StampedLock lock = new StampedLock();
+
+        /**
+         * The published data of the stripe.
+         */
+        private volatile Root<T> root;
+
+        /**
+         * The changes of the writer that holds the lock, or null if it has none that are not published.
+         */
+        private IntTrie.Builder<T> pending;
+
+        /**
+         * The data before and after each change that is not published yet, one after the other, for the
+         * publish listener. Null if there are none.
+         */
+        private List<T> pendingChanges;
+    }
+
+    /**
+     * A published trie of a stripe.
+     *
+     * @param <T> type of the stored data
+     */
+    private static final class Root<T> {
+
+        /**
+         * The data of the stripe.
+         */
+        private final IntTrie<T> trie;
+
+        /**
+         * Number of times the stripe was published.
+         */
+        private final long version;
+
+        /**
+         * @param trie the data of the stripe
+         * @param version number of times the stripe was published
+         */
+        private Root(IntTrie<T> trie, long version) {
+            this.trie = trie;
+            this.version = version;
+        }
+    }
+
+    /**
+     * The stripes.
+     */
+    private final Stripe<T>[] stripes;
+
+    /**
+     * Number of this table in the views.
+     */
+    private final int table;
+
+    /**
+     * Takes the views, shared by all the tables of the inventory.
+     */
+    private final PublishGate gate;
+
+    /**
+     * Reads the id of a data.
+     */
+    private final ToIntFunction<T> idOf;
+
+    /**
+     * Is told about the changes, or null.
+     */
+    private ChangeListener<T> changeListener;
+
+    /**
+     * Is told about the changes once they are published, or null.
+     */
+    private ChangeListener<T> publishListener;
+
+    /**
+     * @param table number of this table in the views
+     * @param gate takes the views, shared by all the tables of the inventory
+     * @param idOf reads the id of a data
+     */
+    @SuppressWarnings("unchecked")
+    StripedTable(int table, PublishGate gate, ToIntFunction<T> idOf) {
+        this.table = table;
+        this.gate = gate;
+        this.idOf = idOf;
+        this.stripes = (Stripe<T>[]) new Stripe<?>[STRIPES];
+        Root<T> empty = new Root<>(IntTrie.empty(), 0);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe<>();
+            stripes[i].root = empty;
+        }
+        gate.register(table, this);
+    }
+
+    /**
+     * Sets the listener that is told about every change from now on. It must be set before the table is
+     * used by more than one thread.
+     *
+     * @param listener the listener
+     */
+    void setChangeListener(ChangeListener<T> listener) {
+        this.changeListener = listener;
+    }
+
+    /**
+     * Sets the listener that is told about every change from now on right after it is published, also the
+     * changes stored with {@link #putLockedQuietly(Object)}. It must be set before the table is used by more
+     * than one thread.
+     *
+     * @param listener the listener
+     */
+    void setPublishListener(ChangeListener<T> listener) {
+        this.publishListener = listener;
+    }
+
+    /**
+     * Returns the stripe number of an id.
+     *
+     * @param id the id
+     * @return the stripe number
+     */
+    static int stripeOf(int id) {
+        return (id / RANGE) & (STRIPES - 1);
+    }
+
+    /**
+     * Returns the data of an id without locking.
+     *
+     * @param id the id to look for
+     * @return the data or null if the id is not stored
+     */
+    T get(int id) {
+        return stripes[stripeOf(id)].root.trie.get(id);
+    }
+
+    /**
+     * @return number of stored data
+     */
+    int size() {
+        return gate.snapshot().count(table);
+    }
+
+    /**
+     * Copies all the data. The copy holds the table of a view, so it never has half of a change.
+     *
+     * @return the data in no particular order
+     */
+    List<T> values() {
+        return gate.snapshot().values(table);
+    }
+
+    /**
+     * Reads the roots of all the stripes for a view.
+     *
+     * @param tries receives the trie of each stripe
+     * @param versions the number of publishes of the stripes is added to its first element
+     */
+    void readRoots(IntTrie<?>[] tries, long[] versions) {
+        for (int i = 0; i < STRIPES; i++) {
+            Root<T> root = stripes[i].root;
+            tries[i] = root.trie;
+            versions[0] += root.version;
+        }
+    }
+
+    /**
+     * Tells if the stripes still have the roots that were read.
+     *
+     * @param tries the trie of each stripe read by {@link #readRoots(IntTrie[], long[])}
+     * @return true if no stripe was published since
+     */
+    boolean hasRoots(IntTrie<?>[] tries) {
+        for (int i = 0; i < STRIPES; i++) {
+            if (stripes[i].root.trie != tries[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Write locks the stripe of an id.
+     *
+     * @param id the id
+     * @return the stamp for {@link #unlock(int, long)}
+     */
+    long lock(int id) {
+        return stripes[stripeOf(id)].lock.writeLock();
+    }
+
+    /**
+     * Publishes the changes of the stripe of an id and unlocks it.
+     *
+     * @param id the id
+     * @param stamp the stamp returned by {@link #lock(int)}
+     */
+    void unlock(int id, long stamp) {
+        try {
+            publish(id);
+        } finally {
+            stripes[stripeOf(id)].lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Write locks the stripes of many ids, in the order of the stripe numbers so that two threads that
+     * lock overlapping batches cannot deadlock.
+     *
+     * @param ids the ids
+     * @param count number of ids to use from the start of the array
+     * @return the stamps for {@link #unlockAll(long[])}
+     */
+    long[] lockAll(int[] ids, int count) {
+        boolean[] needed = new boolean[STRIPES];
+        for (int i = 0; i < count; i++) {
+            needed[stripeOf(ids[i])] = true;
+        }
+
+        long[] stamps = new long[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            if (needed[i]) {
+                stamps[i] = stripes[i].lock.writeLock();
+            }
+        }
+        return stamps;
+    }
+
+    /**
+     * Publishes the changes of the stripes locked by {@link #lockAll(int[], int)} and unlocks them.
+     *
+     * @param stamps the stamps
+     */
+    void unlockAll(long[] stamps) {
+        try {
+            publishAll(stamps);
+        } finally {
+            for (int i = STRIPES - 1; i >= 0; i--) {
+                if (stamps[i] != 0) {
+                    stripes[i].lock.unlockWrite(stamps[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Makes the changes of the stripe of an id visible to the readers. The stripe must be locked.
+     *
+     * @param id the id
+     */
+    void publish(int id) {
+        Stripe<T> stripe = stripes[stripeOf(id)];
+        if (stripe.pending == null) {
+            return;
+        }
+
+        gate.awaitOpen();
+        setRoot(stripe);
+        tellPublished(stripe);
+    }
+
+    /**
+     * Makes the changes of the stripes locked by {@link #lockAll(int[], int)} visible to the readers, all
+     * at once.
+     *
+     * @param stamps the stamps
+     */
+    void publishAll(long[] stamps) {
+        boolean[] changed = new boolean[STRIPES];
+        int count = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            if (stamps[i] != 0 && stripes[i].pending != null) {
+                changed[i] = true;
+                count++;
+            }
+        }
+        if (count == 0) {
+            return;
+        }
+
+        // a batch of one stripe is published like a single change
+        if (count == 1) {
+            gate.awaitOpen();
+        } else {
+            gate.beginBatch();
+        }
+        try {
+            for (int i = 0; i < STRIPES; i++) {
+                if (changed[i]) {
+                    setRoot(stripes[i]);
+                }
+            }
+        } finally {
+            if (count > 1) {
+                gate.endBatch();
+            }
+        }
+
+        for (int i = 0; i < STRIPES; i++) {
+            if (changed[i]) {
+                tellPublished(stripes[i]);
+            }
+        }
+    }
+
+    /**
+     * Puts the changes of a stripe in place of its root. The stripe must be locked and have changes.
+     *
+     * @param stripe the stripe
+     */
+    private void setRoot(Stripe<T> stripe) {
+        IntTrie<T> trie = stripe.pending.build();
+        stripe.pending = null;
+        stripe.root = new Root<>(trie, stripe.root.version + 1);
+    }
+
+    /**
+     * Tells the publish listener about the published changes of a stripe. The stripe must be locked.
+     *
+     * @param stripe the stripe
+     */
+    private void tellPublished(Stripe<T> stripe) {
+        List<T> changes = stripe.pendingChanges;
+        if (changes == null) {
+            return;
+        }
+        stripe.pendingChanges = null;
+        for (int i = 0; i < changes.size(); i += 2) {
+            publishListener.changed(changes.get(i), changes.get(i + 1));
+        }
+    }
+
+    /**
+     * Keeps a change for the publish listener. The stripe of the id must be locked.
+     *
+     * @param id the id of the changed data
+     * @param previous the data before the change, or null
+     * @param current the data after the change, or null
+     */
+    private void keepChange(int id, T previous, T current) {
+        if (publishListener == null) {
+            return;
+        }
+        Stripe<T> stripe = stripes[stripeOf(id)];
+        if (stripe.pendingChanges == null) {
+            stripe.pendingChanges = new ArrayList<>();
+        }
+        stripe.pendingChanges.add(previous);
+        stripe.pendingChanges.add(current);
+    }
+
+    /**
+     * Returns the data of an id, including the changes that are not published yet. The stripe of the id
+     * must be locked.
+     *
+     * @param id the id to look for
+     * @return the data or null if the id is not stored
+     */
+    T getLocked(int id) {
+        IntTrie.Builder<T> pending = stripes[stripeOf(id)].pending;
+        return pending != null ? pending.get(id) : get(id);
+    }
+
+    /**
+     * Stores data under its id. The stripe of the id must be locked.
+     *
+     * @param element the data
+     * @return the data that was stored under the id before, or null
+     */
+    T putLocked(T element) {
+        T previous = putLockedQuietly(element);
+        if (changeListener != null) {
+            changeListener.changed(previous, element);
+        }
+        return previous;
+    }
+
+    /**
+     * Stores data under its id without telling the change listener. The publish listener is still told. The
+     * stripe of the id must be locked.
+     *
+     * @param element the data
+     * @return the data that was stored under the id before, or null
+     */
+    T putLockedQuietly(T element) {
+        int id = idOf.applyAsInt(element);
+        IntTrie.Builder<T> pending = pending(id);
+        T previous = pending.get(id);
+        pending.put(id, element);
+        keepChange(id, previous, element);
+        return previous;
+    }
+
+    /**
+     * Removes the data of an id. The stripe of the id must be locked.
+     *
+     * @param id the id
+     * @return the removed data or null if the id was not stored
+     */
+    T removeLocked(int id) {
+        IntTrie.Builder<T> pending = pending(id);
+        T previous = pending.get(id);
+        if (previous != null) {
+            pending.remove(id);
+            keepChange(id, previous, null);
+            if (changeListener != null) {
+                changeListener.changed(previous, null);
+            }
+        }
+        return previous;
+    }
+
+    /**
+     * Stores data under its id and publishes it at once.
+     *
+     * @param element the data
+     */
+    void put(T element) {
+        int id = idOf.applyAsInt(element);
+        long stamp = lock(id);
+        try {
+            putLocked(element);
+        } finally {
+            unlock(id, stamp);
+        }
+    }
+
+    /**
+     * Removes the data of an id and publishes it at once.
+     *
+     * @param id the id
+     */
+    void remove(int id) {
+        long stamp = lock(id);
+        try {
+            removeLocked(id);
+        } finally {
+            unlock(id, stamp);
+        }
+    }
+
+    /**
+     * Returns the builder of the stripe of an id and starts it from the current view if the writer has
+     * no changes yet. The stripe of the id must be locked.
+     *
+     * @param id the id
+     * @return the builder
+     */
+    private IntTrie.Builder<T> pending(int id) {
+        int stripe = stripeOf(id);
+        IntTrie.Builder<T> pending = stripes[stripe].pending;
+        if (pending == null) {
+            pending = stripes[stripe].root.trie.builder();
+            stripes[stripe].pending = pending;
+        }
+        return pending;
+    }
+}
@@ -0,0 +1,96 @@
+package model;
+
+/**
+ * Reverse index from the parts to the products that have them as associate parts.
+ *
+ * <p>Each part id points to the sorted ids of the products that use it, so the products of a part are found
+ * without walking the associate parts of every product. The index also remembers which parts it recorded for
+ * each product, so a product can be taken out again after it was replaced by its modified version.</p>
+ *
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+final class WhereUsedIndex {
+
+    /**
+     * Empty result for parts that are not used by any product.
+     */
+    private static final int[] NONE = new int[0];
+
+    /**
+     * The ids of the products that use each part.
+     */
+    private final IntHashMap<IntList> productsByPart = new IntHashMap<>();
+
+    /**
+     * The distinct part ids that were recorded for each product.
+     */
+    private final IntHashMap<int[]> partsByProduct = new IntHashMap<>();
+
+    /**
+     * Records the associate parts of a product.
+     *
+     * @param productId id of the product
+     * @param bom the bill of materials of the product
+     */
+    void add(int productId, Bom bom) {
+        if (bom.isEmpty()) {
+            return;
+        }
+
+        int[] partIds = new int[bom.size()];
+        for (int i = 0; i < partIds.length; i++) {
+            partIds[i] = bom.getPartId(i);
+        }
+        partsByProduct.put(productId, partIds);
+
+        for (int partId : partIds) {
+            IntList productIds = productsByPart.get(partId);
+            if (productIds == null) {
+                productIds = new IntList();
+                productsByPart.put(partId, productIds);
+            }
+            productIds.add(productId);
+        }
+    }
+
+    /**
+     * Removes everything that was recorded for a product.
+     *
+     * @param productId id of the product
+     */
+    void remove(int productId) {
+        int[] partIds = partsByProduct.remove(productId);
+        if (partIds == null) {
+            return;
+        }
+
+        for (int partId : partIds) {
+            IntList productIds = productsByPart.get(partId);
+            if (productIds != null && productIds.remove(productId) && productIds.isEmpty()) {
+                productsByPart.remove(partId);
+            }
+        }
+    }
+
+    /**
+     * Checks if any product uses a part.
+     *
+     * @param partId id of the part
+     * @return true if at least one product has the part as an associate part
+     */
+    boolean isUsed(int partId) {
+        return productsByPart.containsKey(partId);
+    }
+
+    /**
+     * Returns the products that use a part.
+     *
+     * @param partId id of the part
+     * @return the product ids in ascending order
+     */
+    int[] productsUsing(int partId) {
+        IntList productIds = productsByPart.get(partId);
+        return productIds == null ? NONE : productIds.toArray();
+    }
+}
@@ -0,0 +1,725 @@
+package model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of the changes made to the inventory, so the data survives a restart of the application.
+ *
+ * <p>The file starts with a magic number, a version and an epoch, a random number that changes every time
+ * the log is emptied. Each record after that has the length of its body, a CRC32 checksum of the body and
+ * the body itself: a record type followed by the data written with {@link InventoryCodec}. When the log is
+ * opened the records are replayed in order and a damaged record at the end, left by a crash in the middle
+ * of a write, is cut off. A snapshot of the inventory remembers the epoch and the position of the log when
+ * it was taken, so the records it already holds are skipped.</p>
+ *
+ * <p>Appending only encodes the record into a buffer in memory and returns its sequence number. A background
+ * thread writes the buffer to the file and calls fsync once for all the records that were collected in the
+ * meantime (group commit). {@link #commit(long)} waits for a record as long as the {@link SyncPolicy} asks
+ * for, so the inventory can append while it holds the lock of the changed data, which keeps the records in
+ * the order of the changes, and wait after it released the lock.</p>
+ *
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+public final class WriteAheadLog implements Closeable {
+
+    /**
+     * When the changes are made durable on the disk.
+     */
+    public enum SyncPolicy {
+
+        /**
+         * Every change waits until it is on the disk. Changes made at the same time share one fsync.
+         */
+        EVERY_COMMIT,
+
+        /**
+         * Changes return at once and are written with one fsync every group commit interval. A crash can
+         * lose the changes of the last interval.
+         */
+        INTERVAL,
+
+        /**
+         * Changes return at once and are written to the file, but fsync is only called when the log is
+         * synced or closed. The operating system decides when the data reaches the disk.
+         */
+        NEVER
+    }
+
+    /**
+     * Applies the records of the log when it is replayed.
+     */
+    interface RecordHandler {
+
+        /**
+         * @param type the type of the record
+         * @param payload the data of the record
+         * @throws IOException if the data is damaged
+         */
+        void apply(byte type, ByteBuffer payload) throws IOException;
+    }
+
+    /**
+     * Record of a part that was added.
+     */
+    static final byte ADD_PART = 1;
+
+    /**
+     * Record of a part that was updated.
+     */
+    static final byte UPDATE_PART = 2;
+
+    /**
+     * Record of a part that was deleted. It only holds the id.
+     */
+    static final byte DELETE_PART = 3;
+
+    /**
+     * Record of a product that was added.
+     */
+    static final byte ADD_PRODUCT = 4;
+
+    /**
+     * Record of a product that was updated.
+     */
+    static final byte UPDATE_PRODUCT = 5;
+
+    /**
+     * Record of a product that was deleted. It only holds the id.
+     */
+    static final byte DELETE_PRODUCT = 6;
+
+    /**
+     * Magic number at the start of the file ("INWL").
+     */
+    private static final int MAGIC = 0x494E574C;
+
+    /**
+     * Version of the file format.
+     */
+    private static final int VERSION = 2;
+
+    /**
+     * Size of the file header.
+     */
+    private static final int HEADER = 16;
+
+    /**
+     * Size of the length and the checksum in front of every record.
+     */
+    private static final int RECORD_HEADER = 8;
+
+    /**
+     * Records longer than this are treated as damaged.
+     */
+    private static final int MAX_RECORD = 64 * 1024 * 1024;
+
+    /**
+     * The log file.
+     */
+    private final FileChannel channel;
+
+    /**
+     * When the changes are made durable.
+     */
+    private final SyncPolicy policy;
+
+    /**
+     * Time the background thread waits between two writes with the {@link SyncPolicy#INTERVAL} policy.
+     */
+    private final long groupCommitMillis;
+
+    /**
+     * Guards the buffers and the counters below.
+     */
+    private final Object lock = new Object();
+
+    /**
+     * Records that were appended but not written yet.
+     */
+    private BinaryWriter pending = new BinaryWriter(64 * 1024);
+
+    /**
+     * Buffer that is written by the background thread while new records go to the pending buffer.
+     */
+    private BinaryWriter writing = new BinaryWriter(64 * 1024);
+
+    /**
+     * Number of records that were appended.
+     */
+    private long appended;
+
+    /**
+     * Number of records that were written to the file, and synced unless the policy is {@link SyncPolicy#NEVER}.
+     */
+    private long written;
+
+    /**
+     * Epoch of the file.
+     */
+    private long epoch;
+
+    /**
+     * Position in the file after the last appended record.
+     */
+    private long end;
+
+    /**
+     * Error of the background thread. The log does not accept records anymore once it is set.
+     */
+    private IOException failure;
+
+    /**
+     * True once the log is closed.
+     */
+    private boolean closed;
+
+    /**
+     * Computes the checksums of the appended records.
+     */
+    private final CRC32 checksum = new CRC32();
+
+    /**
+     * The thread that writes the records to the file.
+     */
+    private final Thread writer;
+
+    /**
+     * Creates the log on an opened file that is positioned after the last valid record.
+     *
+     * @param channel the log file
+     * @param policy when the changes are made durable
+     * @param groupCommitMillis time between two writes with the {@link SyncPolicy#INTERVAL} policy
+     * @param epoch the epoch of the file
+     * @throws IOException if the position of the file cannot be read
+     */
+    private WriteAheadLog(FileChannel channel, SyncPolicy policy, long groupCommitMillis, long epoch)
+            throws IOException {
+        this.channel = channel;
+        this.epoch = epoch;
+        this.end = channel.position();
+        this.policy = policy;
+        this.groupCommitMillis = groupCommitMillis;
+
+        writer = new Thread(this::writeRecords, "write-ahead-log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Opens or creates a log file and replays its records.
+     *
+     * @param file the log file
+     * @param policy when the changes are made durable
+     * @param groupCommitMillis time between two writes with the {@link SyncPolicy#INTERVAL} policy
+     * @param skipEpoch epoch of the log when the loaded snapshot was taken, or 0 if there is none
+     * @param skipPosition position of the log when the loaded snapshot was taken. The records before it
+     *                     are skipped if the file still has the same epoch.
+     * @param handler applies the records of the file
+     * @return the log, ready to append new records
+     * @throws IOException if the file cannot be opened or is not a log file
+     */
+    static WriteAheadLog open(Path file, SyncPolicy policy, long groupCommitMillis, long skipEpoch,
+                              long skipPosition, RecordHandler handler) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long epoch;
+            if (channel.size() < HEADER) {
+                epoch = writeHeader(channel);
+            } else {
+                epoch = replay(channel, skipEpoch, skipPosition, handler);
+            }
+            return new WriteAheadLog(channel, policy, groupCommitMillis, epoch);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Empties a log file and gives it a new epoch.
+     *
+     * @param channel the log file
+     * @return the new epoch
+     * @throws IOException if the file cannot be written
+     */
+    private static long writeHeader(FileChannel channel) throws IOException {
+        long epoch;
+        do {
+            epoch = ThreadLocalRandom.current().nextLong();
+        } while (epoch == 0);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER).putInt(MAGIC).putInt(VERSION).putLong(epoch);
+        header.flip();
+        channel.truncate(0);
+        channel.write(header, 0);
+        channel.force(true);
+        channel.position(HEADER);
+        return epoch;
+    }
+
+    /**
+     * Reads the records of a log file and cuts off a damaged end.
+     *
+     * @param channel the log file
+     * @param skipEpoch epoch of the log when the loaded snapshot was taken
+     * @param skipPosition position of the log when the loaded snapshot was taken
+     * @param handler applies the records
+     * @return the epoch of the file
+     * @throws IOException if the file cannot be read or is not a log file
+     */
+    private static long replay(FileChannel channel, long skipEpoch, long skipPosition, RecordHandler handler)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1024 * 1024);
+        buffer.limit(0);
+        channel.position(0);
+
+        buffer = readAtLeast(channel, buffer, HEADER);
+        if (buffer.remaining() < HEADER || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException("not a write-ahead log of version " + VERSION);
+        }
+        long epoch = buffer.getLong();
+        long skipUntil = epoch == skipEpoch ? skipPosition : 0;
+
+        long end = HEADER;
+        CRC32 crc = new CRC32();
+        while (true) {
+            buffer = readAtLeast(channel, buffer, RECORD_HEADER);
+            if (buffer.remaining() < RECORD_HEADER) {
+                break;
+            }
+
+            int start = buffer.position();
+            int length = buffer.getInt(start);
+            int expected = buffer.getInt(start + 4);
+            if (length < 1 || length > MAX_RECORD) {
+                break;
+            }
+
+            buffer = readAtLeast(channel, buffer, RECORD_HEADER + length);
+            if (buffer.remaining() < RECORD_HEADER + length) {
+                break;
+            }
+
+            start = buffer.position();
+            ByteBuffer record = buffer.duplicate();
+            record.position(start + RECORD_HEADER).limit(start + RECORD_HEADER + length);
+            crc.reset();
+            crc.update(record.duplicate());
+            if ((int) crc.getValue() != expected) {
+                break;
+            }
+
+            if (end >= skipUntil) {
+                byte type = record.get();
+                handler.apply(type, record.slice());
+            }
+
+            buffer.position(start + RECORD_HEADER + length);
+            end += RECORD_HEADER + length;
+        }
+
+        if (end < channel.size()) {
+            channel.truncate(end);
+            channel.force(true);
+        }
+        channel.position(end);
+        return epoch;
+    }
+
+    /**
+     * Makes sure that the buffer has the given number of bytes to read, unless the file ends first.
+     *
+     * @param channel the file
+     * @param buffer the buffer in read mode
+     * @param needed number of bytes
+     * @return the buffer in read mode, a bigger one if the old one was too small
+     * @throws IOException if the file cannot be read
+     */
+    private static ByteBuffer readAtLeast(FileChannel channel, ByteBuffer buffer, int needed) throws IOException {
+        if (buffer.remaining() >= needed) {
+            return buffer;
+        }
+
+        if (buffer.capacity() < needed) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(needed, buffer.capacity() * 2));
+            bigger.put(buffer);
+            buffer = bigger;
+        } else {
+            buffer.compact();
+        }
+
+        while (buffer.position() < needed && channel.read(buffer) >= 0) {
+            // keep reading until there is enough data or the file ends
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Appends a record of a part.
+     *
+     * @param type {@link #ADD_PART} or {@link #UPDATE_PART}
+     * @param part the part
+     * @return the sequence number of the record, for {@link #commit(long)}
+     */
+    long appendPart(byte type, Part part) {
+        long sequence;
+        synchronized (lock) {
+            int start = beginRecord(type);
+            InventoryCodec.writePart(pending, part);
+            sequence = endRecord(start);
+        }
+        return sequence;
+    }
+
+    /**
+     * Appends a record of a product.
+     *
+     * @param type {@link #ADD_PRODUCT} or {@link #UPDATE_PRODUCT}
+     * @param product the product
+     * @return the sequence number of the record, for {@link #commit(long)}
+     */
+    long appendProduct(byte type, Product product) {
+        long sequence;
+        synchronized (lock) {
+            int start = beginRecord(type);
+            InventoryCodec.writeProduct(pending, product);
+            sequence = endRecord(start);
+        }
+        return sequence;
+    }
+
+    /**
+     * Appends a record for each part of a batch.
+     *
+     * @param type {@link #ADD_PART} or {@link #UPDATE_PART}
+     * @param batch the parts
+     * @return the sequence number of the last appended record, for {@link #commit(long)}
+     */
+    long appendParts(byte type, List<? extends Part> batch) {
+        long sequence;
+        synchronized (lock) {
+            sequence = appended;
+            for (Part part : batch) {
+                int start = beginRecord(type);
+                InventoryCodec.writePart(pending, part);
+                sequence = endRecord(start);
+            }
+        }
+        return sequence;
+    }
+
+    /**
+     * Appends a record for each product of a batch.
+     *
+     * @param type {@link #ADD_PRODUCT} or {@link #UPDATE_PRODUCT}
+     * @param batch the products
+     * @return the sequence number of the last appended record, for {@link #commit(long)}
+     */
+    long appendProducts(byte type, List<? extends Product> batch) {
+        long sequence;
+        synchronized (lock) {
+            sequence = appended;
+            for (Product product : batch) {
+                int start = beginRecord(type);
+                InventoryCodec.writeProduct(pending, product);
+                sequence = endRecord(start);
+            }
+        }
+        return sequence;
+    }
+
+    /**
+     * Appends a record of a deleted part or product.
+     *
+     * @param type {@link #DELETE_PART} or {@link #DELETE_PRODUCT}
+     * @param id the id of the deleted data
+     * @return the sequence number of the record, for {@link #commit(long)}
+     */
+    long appendDelete(byte type, int id) {
+        long sequence;
+        synchronized (lock) {
+            int start = beginRecord(type);
+            pending.putInt(id);
+            sequence = endRecord(start);
+        }
+        return sequence;
+    }
+
+    /**
+     * Appends a record for each deleted part or product of a batch.
+     *
+     * @param type {@link #DELETE_PART} or {@link #DELETE_PRODUCT}
+     * @param ids the ids of the deleted data
+     * @param count number of ids to append from the start of the array
+     * @return the sequence number of the last appended record, for {@link #commit(long)}
+     */
+    long appendDeletes(byte type, int[] ids, int count) {
+        long sequence;
+        synchronized (lock) {
+            sequence = appended;
+            for (int i = 0; i < count; i++) {
+                int start = beginRecord(type);
+                pending.putInt(ids[i]);
+                sequence = endRecord(start);
+            }
+        }
+        return sequence;
+    }
+
+    /**
+     * @return the epoch of the file
+     */
+    long epoch() {
+        synchronized (lock) {
+            return epoch;
+        }
+    }
+
+    /**
+     * @return the position in the file after the last appended record
+     */
+    long position() {
+        synchronized (lock) {
+            return end;
+        }
+    }
+
+    /**
+     * @return the sequence number of the last appended record, for {@link #commit(long)}
+     */
+    long lastSequence() {
+        synchronized (lock) {
+            return appended;
+        }
+    }
+
+    /**
+     * Empties the log if nothing was appended after the given position. It is used after a snapshot was
+     * written that holds all the records up to that position.
+     *
+     * @param snapshotEpoch epoch of the log when the snapshot was taken
+     * @param snapshotPosition position of the log when the snapshot was taken
+     * @return true if the log was emptied
+     * @throws IOException if the file cannot be written
+     */
+    boolean resetIfUnchanged(long snapshotEpoch, long snapshotPosition) throws IOException {
+        synchronized (lock) {
+            if (closed || epoch != snapshotEpoch || end != snapshotPosition) {
+                return false;
+            }
+
+            // the background thread is idle once everything is written, and it needs the lock to start again
+            awaitWritten(appended);
+            if (closed || end != snapshotPosition) {
+                return false;
+            }
+            epoch = writeHeader(channel);
+            end = HEADER;
+            return true;
+        }
+    }
+
+    /**
+     * Waits until all the appended records are written and synced to the disk.
+     *
+     * @throws IOException if the records cannot be written
+     */
+    public void sync() throws IOException {
+        synchronized (lock) {
+            awaitWritten(appended);
+        }
+        channel.force(false);
+    }
+
+    /**
+     * Writes the remaining records, syncs them and closes the file.
+     *
+     * @throws IOException if the records cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            lock.notifyAll();
+        }
+
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            synchronized (lock) {
+                if (failure != null) {
+                    throw failure;
+                }
+            }
+            channel.force(true);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Starts a record in the pending buffer. Must be called while holding the lock.
+     *
+     * @param type the type of the record
+     * @return position of the record in the buffer
+     */
+    private int beginRecord(byte type) {
+        if (failure != null) {
+            throw new UncheckedIOException("the write-ahead log failed", failure);
+        }
+        if (closed) {
+            throw new IllegalStateException("the write-ahead log is closed");
+        }
+
+        int start = pending.position();
+        pending.putInt(0).putInt(0).putByte(type);
+        return start;
+    }
+
+    /**
+     * Fills in the length and the checksum of a record and wakes up the background thread. Must be
+     * called while holding the lock.
+     *
+     * @param start position of the record in the buffer
+     * @return the sequence number of the record
+     */
+    private long endRecord(int start) {
+        int end = pending.position();
+        ByteBuffer body = pending.flip();
+        body.position(start + RECORD_HEADER);
+
+        checksum.reset();
+        checksum.update(body);
+        pending.putInt(start, end - start - RECORD_HEADER);
+        pending.putInt(start + 4, (int) checksum.getValue());
+
+        this.end += end - start;
+        lock.notifyAll();
+        return ++appended;
+    }
+
+    /**
+     * Waits for a record and the records before it to be on the disk if the policy asks for it.
+     *
+     * @param sequence the sequence number returned by an append
+     */
+    void commit(long sequence) {
+        if (policy != SyncPolicy.EVERY_COMMIT) {
+            return;
+        }
+
+        synchronized (lock) {
+            try {
+                awaitWritten(sequence);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Waits until the background thread has written the records up to a sequence number. Must be called
+     * while holding the lock.
+     *
+     * @param sequence the sequence number
+     * @throws IOException if the records cannot be written
+     */
+    private void awaitWritten(long sequence) throws IOException {
+        boolean interrupted = false;
+        while (written < sequence && failure == null && writer.isAlive()) {
+            try {
+                lock.wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Loop of the background thread. It swaps the buffers, writes everything that was appended since the
+     * last round with one write and one fsync, and tells the waiting callers.
+     */
+    private void writeRecords() {
+        while (true) {
+            BinaryWriter batch;
+            long sequence;
+            synchronized (lock) {
+                while (pending.position() == 0 && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        // the thread only stops when the log is closed
+                    }
+                }
+                if (pending.position() == 0) {
+                    return;
+                }
+
+                batch = pending;
+                pending = writing;
+                writing = batch;
+                sequence = appended;
+            }
+
+            try {
+                ByteBuffer bytes = batch.flip();
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                if (policy != SyncPolicy.NEVER) {
+                    channel.force(false);
+                }
+            } catch (IOException e) {
+                synchronized (lock) {
+                    failure = e;
+                    lock.notifyAll();
+                }
+                return;
+            }
+
+            synchronized (lock) {
+                batch.clear();
+                written = sequence;
+                lock.notifyAll();
+            }
+
+            if (policy == SyncPolicy.INTERVAL && groupCommitMillis > 0) {
+                try {
+                    Thread.sleep(groupCommitMillis);
+                } catch (InterruptedException e) {
+                    // write the next batch early
+                }
+            }
+        }
+    }
+}
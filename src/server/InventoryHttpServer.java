@@ -0,0 +1,683 @@
+package server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import model.Bom;
+import model.DataValidator;
+import model.Inhouse;
+import model.Inventory;
+import model.Outsourced;
+import model.Part;
+import model.Product;
+import model.SearchQuery;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local HTTP API of the inventory, so other programs like the order systems can look up and change the
+ * parts and products without the window. It is built on the HTTP server of the JDK and speaks JSON.
+ *
+ * <p>The API has these requests, for parts and the same for products under {@code /products}:</p>
+ * <ul>
+ *     <li>{@code GET /parts/{id}} returns a part.</li>
+ *     <li>{@code GET /parts?search=text&limit=n} returns the parts whose id or name matches the search
+ *     text, in the order of their id, at most {@value #DEFAULT_SEARCH_LIMIT} if no limit is given.</li>
+ *     <li>{@code POST /parts} adds a part with a new id and returns it.</li>
+ *     <li>{@code PUT /parts/{id}} replaces a part and returns it, or answers 409 if orders hold more units
+ *     than the new inventory level leaves above the min.</li>
+ *     <li>{@code DELETE /parts/{id}} deletes a part.</li>
+ *     <li>{@code POST /parts/{id}/stock} with {@code {"delta": n}} changes the inventory level and returns
+ *     the part, or answers 409 if the level would leave min and max or take units that orders hold.</li>
+ * </ul>
+ *
+ * <p>A part is sent as {@code {"type": "inhouse", "name": ..., "price": ..., "stock": ..., "min": ...,
+ * "max": ..., "machineId": ...}}, or with type {@code outsourced} and a {@code companyName}. A product has
+ * no type but a list of associate parts, {@code "parts": [{"id": 1, "quantity": 2}]}. The data is checked
+ * with the {@link DataValidator} like on the screens. Errors are answered with a status code and
+ * {@code {"error": message}}.</p>
+ *
+ * <p>Every request runs on its own thread. On a JDK with virtual threads those are virtual threads, so a
+ * request that waits for the write-ahead log does not hold a platform thread. Otherwise a cached thread
+ * pool is used.</p>
+ *
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+public final class InventoryHttpServer {
+
+    /**
+     * System property with the port the window starts the API on. The API is not started without it.
+     */
+    public static final String PORT_PROPERTY = "inventory.http.port";
+
+    /**
+     * Number of search results that are returned if the request gives no limit.
+     */
+    public static final int DEFAULT_SEARCH_LIMIT = 100;
+
+    /**
+     * Number of connections that may wait to be accepted.
+     */
+    private static final int BACKLOG = 1024;
+
+    /**
+     * Seconds the server waits for the running requests when it stops.
+     */
+    private static final int STOP_DELAY_SECONDS = 1;
+
+    /**
+     * System property of the JDK HTTP server that turns off the delay of small writes.
+     */
+    private static final String NO_DELAY_PROPERTY = "sun.net.httpserver.nodelay";
+
+    /**
+     * An answer to a request that is not successful.
+     */
+    private static final class ApiException extends RuntimeException {
+
+        /**
+         * Version of the serialized form.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The HTTP status code.
+         */
+        private final int status;
+
+        /**
+         * @param status the HTTP status code
+         * @param message what is wrong
+         */
+        private ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    /**
+     * The HTTP server.
+     */
+    private final HttpServer server;
+
+    /**
+     * Runs the requests.
+     */
+    private final ExecutorService requestExecutor;
+
+    /**
+     * Creates the API on an address. It does not answer requests until it is started.
+     *
+     * @param address the address and port to listen on, port 0 for any free port
+     * @throws IOException if the port cannot be opened
+     */
+    public InventoryHttpServer(InetSocketAddress address) throws IOException {
+        server = HttpServer.create(address, BACKLOG);
+        requestExecutor = newRequestExecutor();
+        server.setExecutor(requestExecutor);
+        server.createContext("/parts", exchange -> handle(exchange, true));
+        server.createContext("/products", exchange -> handle(exchange, false));
+    }
+
+    /**
+     * Starts answering requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops answering requests. The requests that are running get a moment to finish.
+     */
+    public void stop() {
+        server.stop(STOP_DELAY_SECONDS);
+        requestExecutor.shutdown();
+    }
+
+    /**
+     * @return the port the API listens on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Starts the API without the window, on the sample data. It is meant for trying the API and for the
+     * load test.
+     *
+     * @param args optional port, defaults to 8080
+     * @throws IOException if the port cannot be opened
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        turnOffWriteDelay();
+
+        Inventory.loadSampleData();
+        InventoryHttpServer api = new InventoryHttpServer(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        api.start();
+        System.out.println("Inventory API listening on http://localhost:" + api.getPort() + "/");
+    }
+
+    /**
+     * Turns off the delay of small writes of the JDK HTTP server, unless it was set on the command line.
+     * The JDK server writes the headers and the body separately, and without this every small answer on a
+     * kept-alive connection waits about 40 ms for the delayed acknowledgement of the client. The property
+     * is read once for the whole JVM when the first server is created, so this must be called before that.
+     */
+    public static void turnOffWriteDelay() {
+        if (System.getProperty(NO_DELAY_PROPERTY) == null) {
+            System.setProperty(NO_DELAY_PROPERTY, "true");
+        }
+    }
+
+    /**
+     * Returns an executor that runs every request on a new virtual thread. Virtual threads are looked up
+     * by reflection because the application is built for Java 11. On a JDK without them a cached pool of
+     * daemon threads is used.
+     *
+     * @return the executor of the requests
+     */
+    static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            AtomicInteger count = new AtomicInteger();
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "http-request-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Answers a request for the parts or the products.
+     *
+     * @param exchange the request and its answer
+     * @param forParts true for the parts, false for the products
+     * @throws IOException if the answer cannot be sent
+     */
+    private static void handle(HttpExchange exchange, boolean forParts) throws IOException {
+        int status;
+        String body;
+        try {
+            // the body is read in full so the connection can be used again
+            String requestBody = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            // the context also gets paths like /partsX, only /parts and /parts/... are ours
+            String path = exchange.getRequestURI().getPath()
+                    .substring(exchange.getHttpContext().getPath().length());
+            if (!path.isEmpty() && path.charAt(0) != '/') {
+                throw new ApiException(404, "Unknown path");
+            }
+            String[] segments = path.split("/");
+
+            StringBuilder out = new StringBuilder(256);
+            status = forParts ? parts(exchange, segments, requestBody, out)
+                    : products(exchange, segments, requestBody, out);
+            body = out.length() == 0 ? null : out.toString();
+        } catch (ApiException e) {
+            status = e.status;
+            body = error(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            // also a bad id or number, NumberFormatException is an IllegalArgumentException
+            status = 400;
+            body = error(e.getMessage());
+        } catch (RuntimeException e) {
+            status = 500;
+            body = error("Internal error: " + e);
+        }
+
+        send(exchange, status, body);
+    }
+
+    /**
+     * Answers a request for the parts.
+     *
+     * @param exchange the request
+     * @param segments the path after /parts split at the slashes, the first one is empty
+     * @param requestBody the body of the request
+     * @param out where the JSON answer is written
+     * @return the HTTP status code
+     */
+    private static int parts(HttpExchange exchange, String[] segments, String requestBody, StringBuilder out) {
+        String method = exchange.getRequestMethod();
+
+        if (segments.length <= 1) {
+            if (method.equals("GET")) {
+                Map<String, String> query = query(exchange);
+                SmallestIds<Part> found = new SmallestIds<>(limit(query), Part::getId);
+                Inventory.searchParts(searchQuery(query), found);
+                out.append('[');
+                List<Part> sorted = found.sorted();
+                for (int i = 0; i < sorted.size(); i++) {
+                    if (i > 0) {
+                        out.append(',');
+                    }
+                    Json.writePart(sorted.get(i), out);
+                }
+                out.append(']');
+                return 200;
+            }
+            if (method.equals("POST")) {
+                Part part = readPart(Inventory.generatePartId(), Json.parseObject(requestBody));
+                Inventory.addPart(part);
+                Json.writePart(part, out);
+                return 201;
+            }
+            throw methodNotAllowed(method);
+        }
+
+        int id = id(segments[1]);
+        if (segments.length == 3 && segments[2].equals("stock")) {
+            if (!method.equals("POST")) {
+                throw methodNotAllowed(method);
+            }
+            int delta = delta(Json.parseObject(requestBody));
+            Part changed;
+            try {
+                changed = Inventory.adjustPartStock(id, delta);
+            } catch (IllegalArgumentException e) {
+                throw new ApiException(409, e.getMessage());
+            }
+            if (changed == null) {
+                throw notFound("part", id);
+            }
+            Json.writePart(changed, out);
+            return 200;
+        }
+        if (segments.length != 2) {
+            throw new ApiException(404, "Unknown path");
+        }
+
+        Part stored = Inventory.lookupByPartID(id);
+        if (stored == null) {
+            throw notFound("part", id);
+        }
+        switch (method) {
+            case "GET":
+                Json.writePart(stored, out);
+                return 200;
+            case "PUT":
+                Part part = readPart(id, Json.parseObject(requestBody));
+                boolean updated;
+                try {
+                    updated = Inventory.updatePart(id, part);
+                } catch (IllegalArgumentException e) {
+                    throw new ApiException(409, e.getMessage());
+                }
+                if (!updated) {
+                    // deleted by another request since it was looked up
+                    throw notFound("part", id);
+                }
+                Json.writePart(part, out);
+                return 200;
+            case "DELETE":
+                if (!Inventory.deletePart(stored)) {
+                    throw notFound("part", id);
+                }
+                return 204;
+            default:
+                throw methodNotAllowed(method);
+        }
+    }
+
+    /**
+     * Answers a request for the products.
+     *
+     * @param exchange the request
+     * @param segments the path after /products split at the slashes, the first one is empty
+     * @param requestBody the body of the request
+     * @param out where the JSON answer is written
+     * @return the HTTP status code
+     */
+    private static int products(HttpExchange exchange, String[] segments, String requestBody, StringBuilder out) {
+        String method = exchange.getRequestMethod();
+
+        if (segments.length <= 1) {
+            if (method.equals("GET")) {
+                Map<String, String> query = query(exchange);
+                SmallestIds<Product> found = new SmallestIds<>(limit(query), Product::getId);
+                Inventory.searchProducts(searchQuery(query), found);
+                out.append('[');
+                List<Product> sorted = found.sorted();
+                for (int i = 0; i < sorted.size(); i++) {
+                    if (i > 0) {
+                        out.append(',');
+                    }
+                    Json.writeProduct(sorted.get(i), out);
+                }
+                out.append(']');
+                return 200;
+            }
+            if (method.equals("POST")) {
+                Product product = readProduct(Inventory.generateProductId(), Json.parseObject(requestBody));
+                Inventory.addProduct(product);
+                Json.writeProduct(product, out);
+                return 201;
+            }
+            throw methodNotAllowed(method);
+        }
+
+        int id = id(segments[1]);
+        if (segments.length == 3 && segments[2].equals("stock")) {
+            if (!method.equals("POST")) {
+                throw methodNotAllowed(method);
+            }
+            int delta = delta(Json.parseObject(requestBody));
+            Product changed;
+            try {
+                changed = Inventory.adjustProductStock(id, delta);
+            } catch (IllegalArgumentException e) {
+                throw new ApiException(409, e.getMessage());
+            }
+            if (changed == null) {
+                throw notFound("product", id);
+            }
+            Json.writeProduct(changed, out);
+            return 200;
+        }
+        if (segments.length != 2) {
+            throw new ApiException(404, "Unknown path");
+        }
+
+        Product stored = Inventory.lookupByProductID(id);
+        if (stored == null) {
+            throw notFound("product", id);
+        }
+        switch (method) {
+            case "GET":
+                Json.writeProduct(stored, out);
+                return 200;
+            case "PUT":
+                Product product = readProduct(id, Json.parseObject(requestBody));
+                boolean updated;
+                try {
+                    updated = Inventory.updateProduct(id, product);
+                } catch (IllegalArgumentException e) {
+                    throw new ApiException(409, e.getMessage());
+                }
+                if (!updated) {
+                    // deleted by another request since it was looked up
+                    throw notFound("product", id);
+                }
+                Json.writeProduct(product, out);
+                return 200;
+            case "DELETE":
+                if (!Inventory.deleteProduct(stored)) {
+                    throw new ApiException(409, "Cannot delete " + stored.getName()
+                            + " product data from inventory because it has associate parts!");
+                }
+                return 204;
+            default:
+                throw methodNotAllowed(method);
+        }
+    }
+
+    /**
+     * Makes a part from the JSON of a request and checks it like the part screen does.
+     *
+     * @param id id of the part
+     * @param json the JSON object of the part
+     * @return the part
+     */
+    private static Part readPart(int id, Map<String, Object> json) {
+        String type = text(json, "type");
+        boolean inHouse = "inhouse".equals(type);
+        if (!inHouse && !"outsourced".equals(type)) {
+            throw new ApiException(400, "type: " + DataValidator.message(DataValidator.NO_PART_TYPE));
+        }
+
+        String partType = text(json, inHouse ? "machineId" : "companyName");
+        DataValidator validator = new DataValidator();
+        if (validator.checkPart(text(json, "name"), text(json, "price"), text(json, "stock"), text(json, "min"),
+                text(json, "max"), inHouse, partType)) {
+            throw invalid(validator);
+        }
+
+        String name = text(json, "name");
+        if (inHouse) {
+            return new Inhouse(id, name, validator.getPrice(), validator.getStock(), validator.getMin(),
+                    validator.getMax(), validator.getMachineId());
+        }
+        return new Outsourced(id, name, validator.getPrice(), validator.getStock(), validator.getMin(),
+                validator.getMax(), partType);
+    }
+
+    /**
+     * Makes a product from the JSON of a request and checks it like the product screen does. All the
+     * associate parts must be on the inventory.
+     *
+     * @param id id of the product
+     * @param json the JSON object of the product
+     * @return the product
+     */
+    private static Product readProduct(int id, Map<String, Object> json) {
+        DataValidator validator = new DataValidator();
+        if (validator.checkProduct(text(json, "name"), text(json, "price"), text(json, "stock"),
+                text(json, "min"), text(json, "max"))) {
+            throw invalid(validator);
+        }
+
+        Product product = new Product(id, text(json, "name"), validator.getPrice(), validator.getStock(),
+                validator.getMin(), validator.getMax());
+
+        Object associated = json.get("parts");
+        if (associated != null) {
+            if (!(associated instanceof List)) {
+                throw new IllegalArgumentException("parts must be a list");
+            }
+            List<?> entries = (List<?>) associated;
+            int[] partIds = new int[entries.size()];
+            int[] quantities = new int[entries.size()];
+            for (int i = 0; i < entries.size(); i++) {
+                if (!(entries.get(i) instanceof Map)) {
+                    throw new IllegalArgumentException("parts must be a list of objects");
+                }
+                Map<?, ?> entry = (Map<?, ?>) entries.get(i);
+                partIds[i] = integer(entry.get("id"), "parts.id");
+                Object quantity = entry.get("quantity");
+                quantities[i] = quantity == null ? 1 : integer(quantity, "parts.quantity");
+                if (quantities[i] < 1) {
+                    throw new IllegalArgumentException("parts.quantity must be at least 1");
+                }
+                if (Inventory.lookupByPartID(partIds[i]) == null) {
+                    throw new ApiException(400, "Part " + partIds[i] + " is not on the inventory");
+                }
+            }
+            product.setBom(Bom.of(partIds, quantities));
+        }
+        return product;
+    }
+
+    /**
+     * Reads the amount of a stock change.
+     *
+     * @param json the JSON object of the request
+     * @return the amount
+     */
+    private static int delta(Map<String, Object> json) {
+        if (json.get("delta") == null) {
+            throw new IllegalArgumentException("delta is missing");
+        }
+        return integer(json.get("delta"), "delta");
+    }
+
+    /**
+     * Reads a whole number of the JSON.
+     *
+     * @param value the JSON value
+     * @param name name of the value for the error message
+     * @return the number
+     */
+    private static int integer(Object value, String name) {
+        if (!(value instanceof BigDecimal)) {
+            throw new IllegalArgumentException(name + " must be a number");
+        }
+        try {
+            return ((BigDecimal) value).intValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException(name + " must be a whole number");
+        }
+    }
+
+    /**
+     * Returns a member of a JSON object as the text the validator checks.
+     *
+     * @param json the JSON object
+     * @param name name of the member
+     * @return the text, or null if the member is missing
+     */
+    private static String text(Map<String, Object> json, String name) {
+        Object value = json.get(name);
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).toPlainString();
+        }
+        return value == null ? null : value.toString();
+    }
+
+    /**
+     * Makes the error of the first invalid field of a check.
+     *
+     * @param validator the validator after a check that found an error
+     * @return the error
+     */
+    private static ApiException invalid(DataValidator validator) {
+        for (DataValidator.Field field : DataValidator.Field.values()) {
+            int code = validator.getError(field);
+            if (code != 0) {
+                return new ApiException(400, field.name().toLowerCase() + ": " + DataValidator.message(code));
+            }
+        }
+        return new ApiException(400, "Invalid data");
+    }
+
+    /**
+     * Reads the parameters of the query of a request.
+     *
+     * @param exchange the request
+     * @return the parameters by name
+     */
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return parameters;
+        }
+
+        for (String parameter : query.split("&")) {
+            int equals = parameter.indexOf('=');
+            String name = equals < 0 ? parameter : parameter.substring(0, equals);
+            String value = equals < 0 ? "" : parameter.substring(equals + 1);
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                    URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    /**
+     * @param query the parameters of a request
+     * @return the search of the request
+     */
+    private static SearchQuery searchQuery(Map<String, String> query) {
+        String text = query.get("search");
+        if (text == null || text.trim().isEmpty()) {
+            throw new IllegalArgumentException("search parameter is missing");
+        }
+        return new SearchQuery(text.trim());
+    }
+
+    /**
+     * @param query the parameters of a request
+     * @return the largest number of search results to return
+     */
+    private static int limit(Map<String, String> query) {
+        String limit = query.get("limit");
+        if (limit == null) {
+            return DEFAULT_SEARCH_LIMIT;
+        }
+
+        int value = Integer.parseInt(limit);
+        if (value < 0) {
+            throw new IllegalArgumentException("limit cannot be negative");
+        }
+        return value;
+    }
+
+    /**
+     * @param segment a segment of the path
+     * @return the id in the segment
+     */
+    private static int id(String segment) {
+        try {
+            return Integer.parseInt(segment);
+        } catch (NumberFormatException e) {
+            throw new ApiException(404, "Unknown path");
+        }
+    }
+
+    /**
+     * @param kind part or product
+     * @param id the id that was not found
+     * @return the error
+     */
+    private static ApiException notFound(String kind, int id) {
+        return new ApiException(404, "No " + kind + " with id " + id);
+    }
+
+    /**
+     * @param method the method of the request
+     * @return the error
+     */
+    private static ApiException methodNotAllowed(String method) {
+        return new ApiException(405, method + " is not allowed here");
+    }
+
+    /**
+     * @param message what is wrong
+     * @return the JSON of an error
+     */
+    private static String error(String message) {
+        StringBuilder out = new StringBuilder("{\"error\":");
+        Json.writeString(message, out);
+        return out.append('}').toString();
+    }
+
+    /**
+     * Sends the answer of a request.
+     *
+     * @param exchange the request
+     * @param status the HTTP status code
+     * @param body the JSON answer, or null for none
+     * @throws IOException if the answer cannot be sent
+     */
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        try {
+            if (body == null) {
+                exchange.sendResponseHeaders(status, -1);
+                return;
+            }
+
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+}
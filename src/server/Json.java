@@ -0,0 +1,342 @@
+package server;
+
+import model.Bom;
+import model.Inhouse;
+import model.Outsourced;
+import model.Part;
+import model.Product;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Small JSON reader and writer for the HTTP API, so the server needs no library.
+ *
+ * <p>The reader turns a JSON text into maps, lists, strings, {@link BigDecimal} numbers, booleans and null.
+ * Numbers are kept as decimals so they can be checked with the same text rules as the screens use. The
+ * writer writes the parts and products of the inventory.</p>
+ *
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+final class Json {
+
+    /**
+     * The JSON text that is read.
+     */
+    private final String text;
+
+    /**
+     * Position of the next character to read.
+     */
+    private int position;
+
+    /**
+     * @param text the JSON text to read
+     */
+    private Json(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Reads a JSON object.
+     *
+     * @param text the JSON text
+     * @return the members of the object by name
+     * @throws IllegalArgumentException if the text is not a JSON object
+     */
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> parseObject(String text) {
+        Json reader = new Json(text);
+        Object value = reader.readValue();
+        reader.skipWhitespace();
+        if (!(value instanceof Map) || reader.position != text.length()) {
+            throw new IllegalArgumentException("The body must be one JSON object");
+        }
+        return (Map<String, Object>) value;
+    }
+
+    /**
+     * Writes a part as a JSON object.
+     *
+     * @param part the part
+     * @param out where the JSON is written
+     */
+    static void writePart(Part part, StringBuilder out) {
+        out.append("{\"id\":").append(part.getId());
+        out.append(",\"type\":\"").append(part instanceof Inhouse ? "inhouse" : "outsourced").append('"');
+        out.append(",\"name\":");
+        writeString(part.getName(), out);
+        out.append(",\"price\":").append(part.getPrice());
+        out.append(",\"stock\":").append(part.getStock());
+        out.append(",\"min\":").append(part.getMin());
+        out.append(",\"max\":").append(part.getMax());
+        if (part instanceof Inhouse) {
+            out.append(",\"machineId\":").append(((Inhouse) part).getMachineId());
+        } else {
+            out.append(",\"companyName\":");
+            writeString(((Outsourced) part).getCompanyName(), out);
+        }
+        out.append('}');
+    }
+
+    /**
+     * Writes a product and the ids and quantities of its associate parts as a JSON object.
+     *
+     * @param product the product
+     * @param out where the JSON is written
+     */
+    static void writeProduct(Product product, StringBuilder out) {
+        out.append("{\"id\":").append(product.getId());
+        out.append(",\"name\":");
+        writeString(product.getName(), out);
+        out.append(",\"price\":").append(product.getPrice());
+        out.append(",\"stock\":").append(product.getStock());
+        out.append(",\"min\":").append(product.getMin());
+        out.append(",\"max\":").append(product.getMax());
+        out.append(",\"parts\":[");
+        Bom bom = product.getBom();
+        for (int i = 0; i < bom.size(); i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append("{\"id\":").append(bom.getPartId(i)).append(",\"quantity\":").append(bom.getQuantity(i));
+            out.append('}');
+        }
+        out.append("]}");
+    }
+
+    /**
+     * Writes a text as a JSON string.
+     *
+     * @param value the text, or null
+     * @param out where the JSON is written
+     */
+    static void writeString(String value, StringBuilder out) {
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                    break;
+            }
+        }
+        out.append('"');
+    }
+
+    /**
+     * Reads the value at the current position.
+     *
+     * @return the value
+     */
+    private Object readValue() {
+        skipWhitespace();
+        if (position >= text.length()) {
+            throw error("Unexpected end of the JSON");
+        }
+
+        char c = text.charAt(position);
+        switch (c) {
+            case '{': return readObject();
+            case '[': return readArray();
+            case '"': return readString();
+            case 't': return readWord("true", Boolean.TRUE);
+            case 'f': return readWord("false", Boolean.FALSE);
+            case 'n': return readWord("null", null);
+            default: return readNumber();
+        }
+    }
+
+    /**
+     * Reads an object.
+     *
+     * @return the members of the object by name
+     */
+    private Map<String, Object> readObject() {
+        Map<String, Object> members = new LinkedHashMap<>();
+        position++;
+        skipWhitespace();
+        if (peek() == '}') {
+            position++;
+            return members;
+        }
+
+        while (true) {
+            skipWhitespace();
+            if (peek() != '"') {
+                throw error("Expected a member name");
+            }
+            String name = readString();
+            skipWhitespace();
+            expect(':');
+            members.put(name, readValue());
+            skipWhitespace();
+            if (peek() == ',') {
+                position++;
+            } else {
+                expect('}');
+                return members;
+            }
+        }
+    }
+
+    /**
+     * Reads an array.
+     *
+     * @return the values of the array
+     */
+    private List<Object> readArray() {
+        List<Object> values = new ArrayList<>();
+        position++;
+        skipWhitespace();
+        if (peek() == ']') {
+            position++;
+            return values;
+        }
+
+        while (true) {
+            values.add(readValue());
+            skipWhitespace();
+            if (peek() == ',') {
+                position++;
+            } else {
+                expect(']');
+                return values;
+            }
+        }
+    }
+
+    /**
+     * Reads a string.
+     *
+     * @return the string
+     */
+    private String readString() {
+        StringBuilder value = new StringBuilder();
+        position++;
+        while (true) {
+            if (position >= text.length()) {
+                throw error("Unterminated string");
+            }
+
+            char c = text.charAt(position++);
+            if (c == '"') {
+                return value.toString();
+            }
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+
+            if (position >= text.length()) {
+                throw error("Unterminated string");
+            }
+            char escaped = text.charAt(position++);
+            switch (escaped) {
+                case 'b': value.append('\b'); break;
+                case 'f': value.append('\f'); break;
+                case 'n': value.append('\n'); break;
+                case 'r': value.append('\r'); break;
+                case 't': value.append('\t'); break;
+                case 'u':
+                    if (position + 4 > text.length()) {
+                        throw error("Bad unicode escape");
+                    }
+                    try {
+                        value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("Bad unicode escape");
+                    }
+                    position += 4;
+                    break;
+                default: value.append(escaped); break;
+            }
+        }
+    }
+
+    /**
+     * Reads a number.
+     *
+     * @return the number
+     */
+    private BigDecimal readNumber() {
+        int start = position;
+        while (position < text.length() && "+-0123456789.eE".indexOf(text.charAt(position)) >= 0) {
+            position++;
+        }
+        try {
+            return new BigDecimal(text.substring(start, position));
+        } catch (NumberFormatException e) {
+            throw error("Unexpected character");
+        }
+    }
+
+    /**
+     * Reads one of the words true, false and null.
+     *
+     * @param word the word
+     * @param value the value of the word
+     * @return the value of the word
+     */
+    private Object readWord(String word, Object value) {
+        if (!text.startsWith(word, position)) {
+            throw error("Unexpected character");
+        }
+        position += word.length();
+        return value;
+    }
+
+    /**
+     * Skips spaces, tabs and line breaks.
+     */
+    private void skipWhitespace() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+
+    /**
+     * @return the next character, or 0 at the end of the text
+     */
+    private char peek() {
+        return position < text.length() ? text.charAt(position) : 0;
+    }
+
+    /**
+     * Reads an expected character.
+     *
+     * @param expected the character
+     */
+    private void expect(char expected) {
+        if (peek() != expected) {
+            throw error("Expected '" + expected + "'");
+        }
+        position++;
+    }
+
+    /**
+     * @param message what is wrong
+     * @return the error with the position in the text
+     */
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at position " + position);
+    }
+}
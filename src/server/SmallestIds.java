@@ -0,0 +1,71 @@
+package server;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Keeps the data with the smallest ids out of the search results it is given, for a search request with a
+ * limit. The results come in no particular order, so they go into a heap that holds at most the limit and
+ * has the largest kept id on top. A result with a smaller id pushes that one out, and the others are
+ * dropped at once, so a search with many matches never keeps or sorts more than the limit.
+ *
+ * @param <T> type of the data
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+final class SmallestIds<T> implements Consumer<T> {
+
+    /**
+     * The largest number of data that is kept.
+     */
+    private final int limit;
+
+    /**
+     * Reads the id of a data.
+     */
+    private final ToIntFunction<T> idOf;
+
+    /**
+     * The kept data, the one with the largest id on top.
+     */
+    private final PriorityQueue<T> kept;
+
+    /**
+     * @param limit the largest number of data that is kept
+     * @param idOf reads the id of a data
+     */
+    SmallestIds(int limit, ToIntFunction<T> idOf) {
+        this.limit = limit;
+        this.idOf = idOf;
+        this.kept = new PriorityQueue<>(Math.max(1, Math.min(limit, 1024)),
+                Comparator.comparingInt(idOf).reversed());
+    }
+
+    /**
+     * Takes a search result.
+     *
+     * @param element the search result
+     */
+    @Override
+    public void accept(T element) {
+        if (kept.size() < limit) {
+            kept.add(element);
+        } else if (limit > 0 && idOf.applyAsInt(element) < idOf.applyAsInt(kept.peek())) {
+            kept.poll();
+            kept.add(element);
+        }
+    }
+
+    /**
+     * @return the kept data in the order of their id
+     */
+    List<T> sorted() {
+        List<T> sorted = new ArrayList<>(kept);
+        sorted.sort(Comparator.comparingInt(idOf));
+        return sorted;
+    }
+}
@@ -0,0 +1,518 @@
+package server;
+
+import model.Inventory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channel;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Takes in the stock movements of the warehouse scanners over a binary protocol, which is much faster than a
+ * JSON request or the part screen for every movement. A scanner keeps one connection open and sends batches
+ * of movements without waiting for the answers, and every batch is applied to the inventory at once with
+ * {@link Inventory#adjustPartStocksUnsynced(int[], int[], int)} and answered with an acknowledgement.
+ *
+ * <p>All numbers are big-endian. A batch is a frame that starts with its length:</p>
+ * <ul>
+ *     <li>int: number of bytes that follow, 8 + 8 times the number of movements</li>
+ *     <li>long: batch number chosen by the sender, returned in the acknowledgement</li>
+ *     <li>for each movement an int with the part id and an int with the amount to add to its inventory
+ *     level, negative to take stock away</li>
+ * </ul>
+ *
+ * <p>A batch has at most {@value #MAX_BATCH} movements. The acknowledgements are {@value #ACK_BYTES} bytes
+ * and come in the order of the batches: the long batch number and an int that is -1 if the batch was
+ * applied, or the index of the first movement that could not be applied because its part is not on the
+ * inventory, it would leave min or max, or it would take units that are held by a reservation. A rejected
+ * batch changes nothing. An acknowledgement is sent after the batch was logged as the policy of the
+ * write-ahead log asks for. A frame with a bad length closes the connection.</p>
+ *
+ * <p>The connections are served by one thread per processor, each with its own {@link Selector}, and a
+ * connection stays on the thread that took it. A thread reads what has arrived on all its ready
+ * connections and applies all the complete batches, then waits once for the write-ahead log and writes all
+ * their acknowledgements. It does not read more from a connection until the acknowledgements are written,
+ * so a sender that does not read them is slowed down.</p>
+ *
+ * @author Rifatul Karim
+ * @version 1.0
+ */
+public final class StockEventServer {
+
+    /**
+     * System property with the port the window starts the server on. The server is not started without it.
+     */
+    public static final String PORT_PROPERTY = "inventory.events.port";
+
+    /**
+     * Largest number of movements in a batch.
+     */
+    public static final int MAX_BATCH = 65_536;
+
+    /**
+     * Number of bytes of an acknowledgement.
+     */
+    public static final int ACK_BYTES = 12;
+
+    /**
+     * Number of bytes of a movement.
+     */
+    public static final int MOVEMENT_BYTES = 8;
+
+    /**
+     * Number of bytes of the length and the batch number at the start of a frame.
+     */
+    public static final int HEADER_BYTES = 12;
+
+    /**
+     * Size of the read and write buffers of a new connection.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Milliseconds {@link #stop()} waits for each thread to end.
+     */
+    private static final long STOP_WAIT_MILLIS = 1000;
+
+    /**
+     * A connection of a sender and its buffers.
+     */
+    private static final class Connection {
+
+        /**
+         * The channel of the connection.
+         */
+        private final SocketChannel channel;
+
+        /**
+         * Bytes that were read and are not applied yet, ready to be filled.
+         */
+        private ByteBuffer in = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        /**
+         * Acknowledgements that are not written yet, ready to be filled. It is never smaller than the read
+         * buffer, because every frame is at least as long as its acknowledgement.
+         */
+        private ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        /**
+         * @param channel the channel of the connection
+         */
+        private Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    /**
+     * A thread that serves its share of the connections.
+     */
+    private final class Worker extends Thread {
+
+        /**
+         * Tells the thread about the readiness of its connections.
+         */
+        private final Selector selector;
+
+        /**
+         * Connections that were accepted for this thread and are not registered yet.
+         */
+        private final Queue<SocketChannel> accepted = new ConcurrentLinkedQueue<>();
+
+        /**
+         * Part ids of the batch that is applied, reused for every batch.
+         */
+        private int[] partIds = new int[1024];
+
+        /**
+         * Amounts of the batch that is applied, reused for every batch.
+         */
+        private int[] deltas = new int[1024];
+
+        /**
+         * The connections of the current round that have new acknowledgements, reused for every round.
+         */
+        private final List<SelectionKey> answered = new ArrayList<>();
+
+        /**
+         * True if a batch of the current round changed the inventory.
+         */
+        private boolean applied;
+
+        /**
+         * @param number number of the thread, for its name
+         * @throws IOException if the selector cannot be opened
+         */
+        private Worker(int number) throws IOException {
+            super("stock-events-" + number);
+            setDaemon(true);
+            selector = Selector.open();
+        }
+
+        /**
+         * Hands an accepted connection to this thread.
+         *
+         * @param channel the connection
+         */
+        private void add(SocketChannel channel) {
+            accepted.add(channel);
+            selector.wakeup();
+        }
+
+        /**
+         * Serves the connections until the server stops.
+         */
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    selector.select();
+                    register();
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        serve(key);
+                    }
+                    answer();
+                }
+            } catch (IOException e) {
+                System.err.println("Stock event thread failed: " + e.getMessage());
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    close(key);
+                }
+                for (SocketChannel channel : accepted) {
+                    closeQuietly(channel);
+                }
+                try {
+                    selector.close();
+                } catch (IOException ignored) {
+                    // the server is stopping anyway
+                }
+            }
+        }
+
+        /**
+         * Registers the connections that were accepted since the last round.
+         */
+        private void register() {
+            SocketChannel channel = accepted.poll();
+            while (channel != null) {
+                try {
+                    channel.configureBlocking(false);
+                    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                    channel.register(selector, SelectionKey.OP_READ, new Connection(channel));
+                } catch (IOException e) {
+                    closeQuietly(channel);
+                }
+                channel = accepted.poll();
+            }
+        }
+
+        /**
+         * Reads and applies what is ready on a connection, or writes its waiting acknowledgements. The
+         * acknowledgements of the applied batches are written by {@link #answer()}. The connection is closed
+         * if it ended, failed or sent a bad frame.
+         *
+         * @param key the key of the connection
+         */
+        private void serve(SelectionKey key) {
+            Connection connection = (Connection) key.attachment();
+            try {
+                if (key.isWritable()) {
+                    if (flush(connection)) {
+                        key.interestOps(SelectionKey.OP_READ);
+                    }
+                    return;
+                }
+
+                if (connection.channel.read(connection.in) < 0) {
+                    close(key);
+                    return;
+                }
+                applyBatches(connection);
+                if (connection.out.position() > 0) {
+                    answered.add(key);
+                }
+            } catch (IOException | RuntimeException e) {
+                closeFailed(key, e);
+            }
+        }
+
+        /**
+         * Waits once for the write-ahead log to hold the batches of the round and writes their
+         * acknowledgements. If the log fails, the connections are closed without them.
+         */
+        private void answer() {
+            if (answered.isEmpty()) {
+                return;
+            }
+
+            try {
+                if (applied) {
+                    Inventory.awaitLoggedChanges();
+                }
+            } catch (RuntimeException e) {
+                for (SelectionKey key : answered) {
+                    closeFailed(key, e);
+                }
+                answered.clear();
+                applied = false;
+                return;
+            }
+
+            for (SelectionKey key : answered) {
+                try {
+                    if (key.isValid() && !flush((Connection) key.attachment())) {
+                        // stop reading until the sender has taken its acknowledgements
+                        key.interestOps(SelectionKey.OP_WRITE);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    closeFailed(key, e);
+                }
+            }
+            answered.clear();
+            applied = false;
+        }
+
+        /**
+         * Closes a connection that failed and tells why, unless it was just closed.
+         *
+         * @param key the key of the connection
+         * @param e what went wrong
+         */
+        private void closeFailed(SelectionKey key, Exception e) {
+            if (!(e instanceof ClosedChannelException)) {
+                System.err.println("Closing stock event connection: " + e.getMessage());
+            }
+            close(key);
+        }
+
+        /**
+         * Applies the complete batches in the read buffer and puts their acknowledgements in the write
+         * buffer. An incomplete batch stays in the read buffer, which is made larger if the batch does not
+         * fit.
+         *
+         * @param connection the connection
+         * @throws IOException if a frame has a bad length
+         */
+        private void applyBatches(Connection connection) throws IOException {
+            ByteBuffer in = connection.in;
+            ByteBuffer out = connection.out;
+            in.flip();
+            while (in.remaining() >= Integer.BYTES) {
+                int length = in.getInt(in.position());
+                int count = movements(length);
+                if (in.remaining() < Integer.BYTES + length) {
+                    break;
+                }
+
+                in.getInt();
+                long batch = in.getLong();
+                if (count > partIds.length) {
+                    partIds = new int[Math.max(count, partIds.length * 2)];
+                    deltas = new int[partIds.length];
+                }
+                for (int i = 0; i < count; i++) {
+                    partIds[i] = in.getInt();
+                    deltas[i] = in.getInt();
+                }
+                int result = Inventory.adjustPartStocksUnsynced(partIds, deltas, count);
+                applied |= result == -1;
+                out.putLong(batch).putInt(result);
+            }
+            in.compact();
+
+            if (in.position() >= Integer.BYTES) {
+                int needed = Integer.BYTES + in.getInt(0);
+                if (needed > in.capacity()) {
+                    ByteBuffer larger = ByteBuffer.allocateDirect(needed);
+                    in.flip();
+                    larger.put(in);
+                    connection.in = larger;
+                    // the acknowledgements of a full read buffer of the smallest frames must still fit
+                    ByteBuffer largerOut = ByteBuffer.allocateDirect(needed);
+                    out.flip();
+                    largerOut.put(out);
+                    connection.out = largerOut;
+                }
+            }
+        }
+
+        /**
+         * Writes as many of the waiting acknowledgements as the connection takes.
+         *
+         * @param connection the connection
+         * @return true if all are written
+         * @throws IOException if the connection failed
+         */
+        private boolean flush(Connection connection) throws IOException {
+            ByteBuffer out = connection.out;
+            out.flip();
+            connection.channel.write(out);
+            boolean done = !out.hasRemaining();
+            out.compact();
+            return done;
+        }
+    }
+
+    /**
+     * The channel that accepts the connections.
+     */
+    private final ServerSocketChannel serverChannel;
+
+    /**
+     * The threads that serve the connections.
+     */
+    private final Worker[] workers;
+
+    /**
+     * The thread that accepts the connections and deals them to the workers in turn.
+     */
+    private final Thread acceptor;
+
+    /**
+     * False once the server stops.
+     */
+    private volatile boolean running = true;
+
+    /**
+     * Creates the server on an address. It does not accept connections until it is started.
+     *
+     * @param address the address and port to listen on, port 0 for any free port
+     * @throws IOException if the port cannot be opened
+     */
+    public StockEventServer(InetSocketAddress address) throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address);
+        workers = new Worker[Runtime.getRuntime().availableProcessors()];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker(i + 1);
+        }
+        acceptor = new Thread(this::accept, "stock-events-accept");
+        acceptor.setDaemon(true);
+    }
+
+    /**
+     * Starts accepting connections.
+     */
+    public void start() {
+        for (Worker worker : workers) {
+            worker.start();
+        }
+        acceptor.start();
+    }
+
+    /**
+     * Stops the server and closes all connections. Batches that were already applied stay applied, but
+     * their acknowledgements may not be sent.
+     */
+    public void stop() {
+        running = false;
+        closeQuietly(serverChannel);
+        for (Worker worker : workers) {
+            worker.selector.wakeup();
+        }
+        try {
+            acceptor.join(STOP_WAIT_MILLIS);
+            for (Worker worker : workers) {
+                worker.join(STOP_WAIT_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return the port the server listens on
+     * @throws IOException if the channel is closed
+     */
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Starts the server without the window, on the sample data. It is meant for trying the protocol and for
+     * the load test.
+     *
+     * @param args optional port, defaults to 9090
+     * @throws IOException if the port cannot be opened
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 9090;
+
+        Inventory.loadSampleData();
+        StockEventServer server = new StockEventServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        server.start();
+        System.out.println("Stock event server listening on port " + server.getPort());
+    }
+
+    /**
+     * Returns the number of movements in a frame and checks its length.
+     *
+     * @param length the length at the start of the frame
+     * @return the number of movements
+     * @throws IOException if the length does not belong to a batch of at most {@link #MAX_BATCH} movements
+     */
+    static int movements(int length) throws IOException {
+        int movementBytes = length - (HEADER_BYTES - Integer.BYTES);
+        if (movementBytes < 0 || movementBytes % MOVEMENT_BYTES != 0
+                || movementBytes / MOVEMENT_BYTES > MAX_BATCH) {
+            throw new IOException("Bad frame length " + length);
+        }
+        return movementBytes / MOVEMENT_BYTES;
+    }
+
+    /**
+     * Accepts connections until the server stops.
+     */
+    private void accept() {
+        int next = 0;
+        while (running) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                workers[next].add(channel);
+                next = (next + 1) % workers.length;
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("Could not accept a stock event connection: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes a connection and forgets its key.
+     *
+     * @param key the key of the connection
+     */
+    private static void close(SelectionKey key) {
+        key.cancel();
+        closeQuietly(key.channel());
+    }
+
+    /**
+     * Closes a channel and ignores a failure.
+     *
+     * @param channel the channel
+     */
+    private static void closeQuietly(Channel channel) {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // nothing more can be done with a channel that does not close
+        }
+    }
+}